@@ -66,6 +66,15 @@ public abstract class AbstractSequencer implements Sequencer
 	 * 类似{@link ProcessingSequenceBarrier#cursorSequence}
 	 */
     protected volatile Sequence[] gatingSequences = new Sequence[0];
+    /**
+     * 生产者的等待策略，缓冲区已满时生产者如何等待消费者让出空间。
+     * 为何放在这里？与{@link #waitStrategy}一样，消费者通过Sequencer创建的SequenceBarrier获取它，在推进进度后唤醒生产者。
+     */
+    protected final ProducerWaitStrategy producerWaitStrategy;
+    /**
+     * {@link #gatingSequences}的最小值的视图，每次get()都会读取最新的gatingSequences，交给{@link #producerWaitStrategy}等待。
+     */
+    protected final ReadableSequence minimumGatingSequence = new MinimumGatingSequence();
 
     /**
      * Create with the specified buffer size and wait strategy.
@@ -74,6 +83,18 @@ public abstract class AbstractSequencer implements Sequencer
      * @param waitStrategy The wait strategy used by this sequencer
      */
     public AbstractSequencer(int bufferSize, WaitStrategy waitStrategy)
+    {
+        this(bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Create with the specified buffer size, wait strategy and publisher wait strategy.
+     *
+     * @param bufferSize           The total number of entries, must be a positive power of 2.
+     * @param waitStrategy         The wait strategy used by this sequencer
+     * @param producerWaitStrategy The strategy used by publishers waiting for space in a full buffer
+     */
+    public AbstractSequencer(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy)
     {
         if (bufferSize < 1)
         {
@@ -86,6 +107,7 @@ public abstract class AbstractSequencer implements Sequencer
 
         this.bufferSize = bufferSize;
         this.waitStrategy = waitStrategy;
+        this.producerWaitStrategy = producerWaitStrategy;
     }
 
     /**
@@ -144,7 +166,7 @@ public abstract class AbstractSequencer implements Sequencer
     @Override
     public SequenceBarrier newBarrier(Sequence... sequencesToTrack)
     {
-        return new ProcessingSequenceBarrier(this, waitStrategy, cursor, sequencesToTrack);
+        return new ProcessingSequenceBarrier(this, waitStrategy, producerWaitStrategy, cursor, sequencesToTrack);
     }
 
     /**
@@ -163,13 +185,51 @@ public abstract class AbstractSequencer implements Sequencer
         return EventPoller.newInstance(dataProvider, this, new Sequence(), cursor, gatingSequences);
     }
 
+    /**
+     * Get the strategy used by publishers waiting for space in a full buffer.
+     *
+     * @return the publisher wait strategy of this sequencer.
+     */
+    public ProducerWaitStrategy getProducerWaitStrategy()
+    {
+        return producerWaitStrategy;
+    }
+
+    /**
+     * @see Sequencer#signalAllWhenBlocking()
+     */
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        waitStrategy.signalAllWhenBlocking();
+    }
+
     @Override
     public String toString()
     {
         return "AbstractSequencer{" +
             "waitStrategy=" + waitStrategy +
+            ", producerWaitStrategy=" + producerWaitStrategy +
             ", cursor=" + cursor +
             ", gatingSequences=" + Arrays.toString(gatingSequences) +
             '}';
     }
-}
\ No newline at end of file
+
+    /**
+     * 只读的视图，没有网关Sequence时返回{@link Long#MAX_VALUE}
+     */
+    private final class MinimumGatingSequence implements ReadableSequence
+    {
+        @Override
+        public long get()
+        {
+            return Util.getMinimumSequence(gatingSequences);
+        }
+
+        @Override
+        public String toString()
+        {
+            return Arrays.toString(gatingSequences);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.util.ThreadHints;
+
+/**
+ * 自适应的等待策略，与{@link PhasedBackoffWaitStrategy}一样先自旋，再yield，最后使用后备的等待策略，
+ * 但自旋和yield的时长不是固定的，而是根据每个消费者观察到的等待时长和命中率(不需要等待的比例)在线调整：
+ * 事件密集到达时收敛为忙等待，空闲时很快进入后备策略(阻塞)。
+ * <p>
+ * 统计信息按消费者线程记录，每个事件处理器只在一个屏障上等待，因此相当于按屏障记录。
+ *
+ * <p>Self-tuning variant of {@link PhasedBackoffWaitStrategy} for waiting {@link EventProcessor}s on a barrier.</p>
+ *
+ * <p>Spins, then yields, then waits using the fallback WaitStrategy, but instead of fixed timeouts each waiting
+ * thread keeps an exponentially weighted moving average of how long its waits last and of how often the next
+ * sequence is already available (the hit rate).  A phase is only used while the expected wait fits in it, so
+ * the strategy converges to busy spinning under burst load and to going straight to the fallback when idle.
+ * Statistics are kept per waiting thread, which is per barrier as each event processor waits on one barrier.</p>
+ */
+public final class AdaptiveWaitStrategy implements WaitStrategy
+{
+    private static final int SPIN_TRIES = 100;
+    /**
+     * 移动平均的权重为 1/2^EWMA_SHIFT
+     */
+    private static final int EWMA_SHIFT = 3;
+    private static final int HIT_RATIO_SCALE = 1 << 16;
+
+    private final long maxSpinNanos;
+    private final long maxYieldNanos;
+    private final WaitStrategy fallbackStrategy;
+    private final ThreadLocal<Estimate> estimates = new ThreadLocal<Estimate>()
+    {
+        @Override
+        protected Estimate initialValue()
+        {
+            return new Estimate();
+        }
+    };
+
+    /**
+     * Construct {@link AdaptiveWaitStrategy} that spins for up to 10 microseconds and yields for up to 100
+     * microseconds before falling back to {@link BlockingWaitStrategy}.
+     */
+    public AdaptiveWaitStrategy()
+    {
+        this(10, 100, TimeUnit.MICROSECONDS, new BlockingWaitStrategy());
+    }
+
+    /**
+     * @param maxSpinTimeout   The longest time to busy spin for when waits are short.
+     * @param maxYieldTimeout  The longest time to yield for when waits are short.
+     * @param units            Time units used for the timeout values.
+     * @param fallbackStrategy The strategy used once spinning and yielding are not expected to pay off.
+     */
+    public AdaptiveWaitStrategy(
+        long maxSpinTimeout,
+        long maxYieldTimeout,
+        TimeUnit units,
+        WaitStrategy fallbackStrategy)
+    {
+        this.maxSpinNanos = units.toNanos(maxSpinTimeout);
+        this.maxYieldNanos = units.toNanos(maxYieldTimeout);
+        this.fallbackStrategy = fallbackStrategy;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+        throws AlertException, InterruptedException, TimeoutException
+    {
+        final Estimate estimate = estimates.get();
+
+        long availableSequence;
+        if ((availableSequence = dependentSequence.get()) >= sequence)
+        {
+            estimate.onHit();
+            return availableSequence;
+        }
+
+        final long spinNanos = estimate.spinBudgetNanos();
+        final long yieldNanos = spinNanos + estimate.yieldBudgetNanos();
+        final long startTime = System.nanoTime();
+        long timeDelta = 0;
+        int counter = SPIN_TRIES;
+
+        do
+        {
+            if ((availableSequence = dependentSequence.get()) >= sequence)
+            {
+                estimate.onMiss(System.nanoTime() - startTime);
+                return availableSequence;
+            }
+
+            if (0 == --counter)
+            {
+                barrier.checkAlert();
+                timeDelta = System.nanoTime() - startTime;
+                if (timeDelta >= spinNanos)
+                {
+                    Thread.yield();
+                }
+                counter = SPIN_TRIES;
+            }
+            else
+            {
+                ThreadHints.onSpinWait();
+            }
+        }
+        while (timeDelta < yieldNanos);
+
+        availableSequence = fallbackStrategy.waitFor(sequence, cursor, dependentSequence, barrier);
+        estimate.onMiss(System.nanoTime() - startTime);
+        return availableSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        fallbackStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * 获取最终使用的等待策略，唤醒操作会转发给它
+     *
+     * @return the strategy waited on once spinning and yielding give up.
+     */
+    WaitStrategy getFallbackStrategy()
+    {
+        return fallbackStrategy;
+    }
+
+    /**
+     * 当前线程下一次等待时的自旋时长，用于测试
+     */
+    long getSpinBudgetNanos()
+    {
+        return estimates.get().spinBudgetNanos();
+    }
+
+    /**
+     * 当前线程下一次等待时的yield时长，用于测试
+     */
+    long getYieldBudgetNanos()
+    {
+        return estimates.get().yieldBudgetNanos();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AdaptiveWaitStrategy{" +
+            "maxSpinNanos=" + maxSpinNanos +
+            ", maxYieldNanos=" + maxYieldNanos +
+            ", fallbackStrategy=" + fallbackStrategy +
+            '}';
+    }
+
+    /**
+     * 单个消费者线程的统计信息，只会被该线程访问
+     */
+    private final class Estimate
+    {
+        /**
+         * 需要等待时，平均等待时长
+         */
+        private long meanWaitNanos = 0;
+        /**
+         * 不需要等待的比例，满值为{@link #HIT_RATIO_SCALE}
+         */
+        private int hitRatio = 0;
+
+        void onHit()
+        {
+            hitRatio += (HIT_RATIO_SCALE - hitRatio) >> EWMA_SHIFT;
+        }
+
+        void onMiss(final long waitNanos)
+        {
+            hitRatio -= hitRatio >> EWMA_SHIFT;
+            meanWaitNanos += (waitNanos - meanWaitNanos) >> EWMA_SHIFT;
+        }
+
+        /**
+         * 大多数时候不需要等待，或者预期的等待时长在自旋范围内时，自旋；否则自旋没有意义
+         */
+        long spinBudgetNanos()
+        {
+            if (hitRatio >= HIT_RATIO_SCALE / 2 || 2 * meanWaitNanos <= maxSpinNanos)
+            {
+                return maxSpinNanos;
+            }
+            return 0;
+        }
+
+        long yieldBudgetNanos()
+        {
+            return 2 * meanWaitNanos <= maxYieldNanos ? maxYieldNanos : 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.Future;
+
+/**
+ * 异步的事件处理器，用于处理过程中需要异步IO的场景(例如发送到下游网关)。
+ * onEvent发起处理后立即返回一个完成凭证，不需要阻塞等待，由{@link AsyncEventProcessor}跟踪这些凭证，
+ * 只有连续的一段事件都完成后才推进消费进度，因此一个线程可以同时有大量未完成的请求，而RingBuffer仍然能正确地阻止覆盖。
+ *
+ * <p>Callback interface for handlers that complete events asynchronously, such as sending each event to a
+ * downstream gateway.  {@link #onEvent(Object, long, boolean)} starts the work and returns straight away with a
+ * token for its completion, and the {@link AsyncEventProcessor} only advances its {@link Sequence} past an event
+ * once it and every event before it have completed.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ * @see AsyncEventProcessor
+ */
+public interface AsyncEventHandler<T>
+{
+    /**
+     * 开始处理事件，返回的Future完成(包括异常完成或被取消)后，该事件才被认为已处理。
+     * 返回null表示事件已经同步处理完成。
+     *
+     * <p>Start handling an event.  The event is handled once the returned future is done, whether normally,
+     * exceptionally or by being cancelled; a failure is reported to the processor's {@link ExceptionHandler}.
+     * Returning <code>null</code> means the event was handled synchronously.</p>
+     *
+     * <p>The event must not be used once the returned future is done, as its slot may then be reused.</p>
+     *
+     * @param event      published to the {@link RingBuffer}
+     * @param sequence   of the event being processed
+     * @param endOfBatch flag to indicate if this is the last event in a batch from the {@link RingBuffer}
+     * @return the completion of the event, or null if it has already been handled.
+     * @throws Exception if the EventHandler would like the exception handled further up the chain.
+     */
+    Future<?> onEvent(T event, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lmax.disruptor.util.Util;
+
+/**
+ * 驱动{@link AsyncEventHandler}的事件处理器。
+ * 事件可以乱序完成，处理器记录每个未完成事件的凭证，只把消费进度推进到连续完成的最大序号，
+ * 未完成的事件不超过maxInFlight个，窗口已满时等待最早的事件完成。
+ *
+ * <p>Event processor for {@link AsyncEventHandler}s.  It hands events to the handler as they become available
+ * and keeps the completion token of each one in a window of at most <code>maxInFlight</code> outstanding
+ * events.  Events may complete in any order, but the processor's {@link Sequence} only advances to the highest
+ * sequence for which it and every earlier event have completed, so the ring buffer still gates correctly.</p>
+ *
+ * <p>While events are outstanding and no new ones are available, or when the window is full, the processor
+ * waits on the oldest outstanding event for a short period at a time.  On {@link #halt()} outstanding events are
+ * abandoned and the sequence is left at the last contiguous completion, so a restarted processor will hand them
+ * to the handler again.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class AsyncEventProcessor<T>
+    implements EventProcessor
+{
+    private static final int IDLE = 0;
+    private static final int HALTED = IDLE + 1;
+    private static final int RUNNING = HALTED + 1;
+    /**
+     * 等待最早的事件完成时，每次最多等待的时长，期间到达的新事件最多被延迟这么久
+     */
+    private static final long POLL_NANOS = 50L * 1000L;
+
+    private final AtomicInteger running = new AtomicInteger(IDLE);
+    private ExceptionHandler<? super T> exceptionHandler = new FatalExceptionHandler();
+    private final DataProvider<T> dataProvider;
+    private final SequenceBarrier sequenceBarrier;
+    private final AsyncEventHandler<? super T> eventHandler;
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final TimeoutHandler timeoutHandler;
+    private final ProducerWaitStrategy producerWaitStrategy;
+    private final WaitStrategy progressWaitStrategy;
+
+    private final int maxInFlight;
+    /**
+     * 未完成事件的凭证，按序号取模存放，null表示已完成
+     */
+    private final Future<?>[] completions;
+    private final int mask;
+    /**
+     * 连续完成的最大序号，只由处理器线程访问
+     */
+    private long completedSequence;
+
+    /**
+     * Construct an {@link AsyncEventProcessor} that will automatically track the progress by updating its sequence
+     * when events complete.
+     *
+     * @param dataProvider    to which events are published.
+     * @param sequenceBarrier on which it is waiting.
+     * @param eventHandler    is the delegate to which events are dispatched.
+     * @param maxInFlight     the most events that may be outstanding at once.
+     */
+    public AsyncEventProcessor(
+        final DataProvider<T> dataProvider,
+        final SequenceBarrier sequenceBarrier,
+        final AsyncEventHandler<? super T> eventHandler,
+        final int maxInFlight)
+    {
+        if (maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("maxInFlight must not be less than 1");
+        }
+
+        this.dataProvider = dataProvider;
+        this.sequenceBarrier = sequenceBarrier;
+        this.eventHandler = eventHandler;
+        this.maxInFlight = maxInFlight;
+        this.completions = new Future<?>[Util.ceilingNextPowerOfTwo(maxInFlight)];
+        this.mask = completions.length - 1;
+        this.producerWaitStrategy = ProcessingSequenceBarrier.producerWaitStrategyOf(sequenceBarrier);
+        this.progressWaitStrategy = ProcessingSequenceBarrier.progressWaitStrategyOf(sequenceBarrier);
+
+        timeoutHandler =
+            (eventHandler instanceof TimeoutHandler) ? (TimeoutHandler) eventHandler : null;
+    }
+
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    @Override
+    public void halt()
+    {
+        running.set(HALTED);
+        sequenceBarrier.alert();
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get() != IDLE;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link AsyncEventProcessor}
+     * and for events that complete exceptionally.
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler)
+    {
+        if (null == exceptionHandler)
+        {
+            throw new NullPointerException();
+        }
+
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * It is ok to have another thread rerun this method after a halt().
+     *
+     * @throws IllegalStateException if this object instance is already running in a thread
+     */
+    @Override
+    public void run()
+    {
+        if (running.compareAndSet(IDLE, RUNNING))
+        {
+            sequenceBarrier.clearAlert();
+
+            notifyStart();
+            try
+            {
+                if (running.get() == RUNNING)
+                {
+                    processEvents();
+                }
+            }
+            finally
+            {
+                notifyShutdown();
+                running.set(IDLE);
+            }
+        }
+        else
+        {
+            if (running.get() == RUNNING)
+            {
+                throw new IllegalStateException("Thread is already running");
+            }
+            else
+            {
+                notifyStart();
+                notifyShutdown();
+            }
+        }
+    }
+
+    private void processEvents()
+    {
+        T event = null;
+        completedSequence = sequence.get();
+        long nextSequence = completedSequence + 1L;
+
+        while (true)
+        {
+            try
+            {
+                advance(nextSequence);
+
+                final long inFlight = nextSequence - 1L - completedSequence;
+                if (inFlight >= maxInFlight || (inFlight > 0 && sequenceBarrier.getCursor() < nextSequence))
+                {
+                    // 窗口已满，或者没有新事件：等待最早的事件完成，只有它完成了进度才能推进
+                    awaitOldest();
+                    continue;
+                }
+
+                final long availableSequence =
+                    Math.min(sequenceBarrier.waitFor(nextSequence), nextSequence + (maxInFlight - inFlight) - 1);
+
+                while (nextSequence <= availableSequence)
+                {
+                    event = dataProvider.get(nextSequence);
+                    completions[(int) nextSequence & mask] =
+                        eventHandler.onEvent(event, nextSequence, nextSequence == availableSequence);
+                    nextSequence++;
+                }
+            }
+            catch (final TimeoutException e)
+            {
+                notifyTimeout(sequence.get());
+            }
+            catch (final AlertException ex)
+            {
+                if (running.get() != RUNNING)
+                {
+                    break;
+                }
+            }
+            catch (final Throwable ex)
+            {
+                // 发起处理时抛出异常，视为该事件已完成
+                exceptionHandler.handleEventException(ex, nextSequence, event);
+                completions[(int) nextSequence & mask] = null;
+                nextSequence++;
+            }
+        }
+
+        // 放弃未完成的事件，进度停留在连续完成的最大序号
+        Arrays.fill(completions, null);
+    }
+
+    /**
+     * 从最早的未完成事件开始，跳过所有已完成的事件，推进消费进度
+     */
+    private void advance(final long nextSequence)
+    {
+        long completed = completedSequence;
+        while (completed < nextSequence - 1L)
+        {
+            final int index = (int) (completed + 1L) & mask;
+            final Future<?> completion = completions[index];
+            if (null != completion)
+            {
+                if (!completion.isDone())
+                {
+                    break;
+                }
+                completions[index] = null;
+                notifyFailure(completion, completed + 1L);
+            }
+            completed++;
+        }
+
+        if (completed != completedSequence)
+        {
+            completedSequence = completed;
+            sequence.set(completed);
+            producerWaitStrategy.signalAllWhenBlocking();
+            progressWaitStrategy.signalAllWhenBlocking();
+        }
+    }
+
+    private void awaitOldest() throws AlertException
+    {
+        final Future<?> oldest = completions[(int) (completedSequence + 1L) & mask];
+        if (null != oldest && !oldest.isDone())
+        {
+            try
+            {
+                oldest.get(POLL_NANOS, TimeUnit.NANOSECONDS);
+            }
+            catch (final java.util.concurrent.TimeoutException | ExecutionException | CancellationException e)
+            {
+                // 失败在推进进度时通知
+            }
+            catch (final InterruptedException e)
+            {
+                // 停止处理器使用alert而不是中断
+            }
+        }
+        sequenceBarrier.checkAlert();
+    }
+
+    private void notifyFailure(final Future<?> completion, final long sequence)
+    {
+        try
+        {
+            completion.get();
+        }
+        catch (final ExecutionException e)
+        {
+            exceptionHandler.handleEventException(e.getCause(), sequence, dataProvider.get(sequence));
+        }
+        catch (final CancellationException e)
+        {
+            exceptionHandler.handleEventException(e, sequence, dataProvider.get(sequence));
+        }
+        catch (final InterruptedException e)
+        {
+            // 已完成的Future不会阻塞
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void notifyTimeout(final long availableSequence)
+    {
+        try
+        {
+            if (timeoutHandler != null)
+            {
+                timeoutHandler.onTimeout(availableSequence);
+            }
+        }
+        catch (Throwable e)
+        {
+            exceptionHandler.handleEventException(e, availableSequence, null);
+        }
+    }
+
+    private void notifyStart()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onStart();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onShutdown();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.util.ThreadHints;
+
+/**
+ * 逐步退避的空闲策略：没有工作时先自旋，再yield，最后park，park的时长从最小值开始每次翻倍直到最大值。
+ * 一旦有工作，回到自旋阶段。退避状态按线程记录。
+ *
+ * <p>{@link IdleStrategy} that spins, then yields, then parks for a period that doubles on each idle cycle from
+ * a minimum up to a maximum, going back to spinning as soon as a cycle does some work.  The back off state is
+ * kept per polling thread.</p>
+ */
+public final class BackoffIdleStrategy implements IdleStrategy
+{
+    private final long maxSpins;
+    private final long maxYields;
+    private final long minParkPeriodNanos;
+    private final long maxParkPeriodNanos;
+    private final ThreadLocal<Backoff> backoffs = new ThreadLocal<Backoff>()
+    {
+        @Override
+        protected Backoff initialValue()
+        {
+            return new Backoff();
+        }
+    };
+
+    /**
+     * Construct a {@link BackoffIdleStrategy} that spins 100 times, yields 10 times and then parks from 1
+     * microsecond up to 1 millisecond.
+     */
+    public BackoffIdleStrategy()
+    {
+        this(100, 10, 1, 1000, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * @param maxSpins      the number of idle cycles to busy spin for.
+     * @param maxYields     the number of idle cycles to yield for after spinning.
+     * @param minParkPeriod the first park period once yielding is done.
+     * @param maxParkPeriod the longest park period.
+     * @param units         Time units used for the park periods.
+     */
+    public BackoffIdleStrategy(
+        final long maxSpins,
+        final long maxYields,
+        final long minParkPeriod,
+        final long maxParkPeriod,
+        final TimeUnit units)
+    {
+        if (minParkPeriod < 1 || maxParkPeriod < minParkPeriod)
+        {
+            throw new IllegalArgumentException("park periods must be positive and minParkPeriod <= maxParkPeriod");
+        }
+
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkPeriodNanos = units.toNanos(minParkPeriod);
+        this.maxParkPeriodNanos = units.toNanos(maxParkPeriod);
+    }
+
+    @Override
+    public void idle(final int workCount)
+    {
+        final Backoff backoff = backoffs.get();
+        if (workCount > 0)
+        {
+            backoff.reset();
+            return;
+        }
+
+        if (backoff.spins < maxSpins)
+        {
+            backoff.spins++;
+            ThreadHints.onSpinWait();
+        }
+        else if (backoff.yields < maxYields)
+        {
+            backoff.yields++;
+            Thread.yield();
+        }
+        else
+        {
+            LockSupport.parkNanos(backoff.parkPeriodNanos);
+            backoff.parkPeriodNanos = Math.min(backoff.parkPeriodNanos << 1, maxParkPeriodNanos);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BackoffIdleStrategy{" +
+            "maxSpins=" + maxSpins +
+            ", maxYields=" + maxYields +
+            ", minParkPeriodNanos=" + minParkPeriodNanos +
+            ", maxParkPeriodNanos=" + maxParkPeriodNanos +
+            '}';
+    }
+
+    /**
+     * 单个轮询线程的退避状态，只会被该线程访问
+     */
+    private final class Backoff
+    {
+        private long spins;
+        private long yields;
+        private long parkPeriodNanos = minParkPeriodNanos;
+
+        void reset()
+        {
+            spins = 0;
+            yields = 0;
+            parkPeriodNanos = minParkPeriodNanos;
+        }
+    }
+}
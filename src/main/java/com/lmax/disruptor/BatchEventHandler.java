@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 按区间处理事件的事件处理器。
+ * 如果你的EventHandler实现了该接口，{@link BatchEventProcessor}会将每一批事件的整个区间交给{@link #onBatch}，
+ * 而不是对每个事件调用一次{@link #onEvent}，处理器可以自己写一个紧凑的循环(便于JIT展开、向量化)。
+ * DSL中通过handleEventsWith注册时会被自动识别。
+ *
+ * <p>Implement this interface in your {@link EventHandler} to receive each batch from a {@link BatchEventProcessor}
+ * as a whole range rather than one {@link #onEvent(Object, long, boolean)} call per event, so the handler can run a
+ * tight loop over the range.  Handlers registered through the DSL are detected automatically.
+ * {@link #onEvent(Object, long, boolean)} is not called by a {@link BatchEventProcessor} but may be by other event
+ * processors.</p>
+ *
+ * <p>If {@link #onBatch(DataProvider, long, long)} throws, the exception handler is called with the first sequence
+ * of the range and its event, and the whole range is then treated as handled, in the same way as the event whose
+ * {@link #onEvent(Object, long, boolean)} throws is skipped.  Events are not delivered again.</p>
+ *
+ * @param <T> event implementation storing the details for the work to processed.
+ */
+public interface BatchEventHandler<T> extends EventHandler<T>
+{
+    /**
+     * 处理[lo, hi]区间内的所有事件
+     *
+     * @param dataProvider from which the events are read with {@link DataProvider#get(long)}.
+     * @param lo           first sequence of the batch.
+     * @param hi           last sequence of the batch, inclusive.
+     * @throws Exception if the handler wants the exception handled further up the chain.
+     */
+    void onBatch(DataProvider<? extends T> dataProvider, long lo, long hi) throws Exception;
+}
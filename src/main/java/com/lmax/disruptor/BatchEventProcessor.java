@@ -17,6 +17,8 @@ package com.lmax.disruptor;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.lmax.disruptor.util.Util;
+
 
 /**
  * 批量事件处理器，一个单线程的消费者(只有一个EventProcessor)
@@ -29,6 +31,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>
  * If the {@link EventHandler} also implements {@link LifecycleAware} it will be notified just after the thread
  * is started and just before the thread is shutdown.
+ * <p>
+ * If the {@link EventHandler} also implements {@link BatchEventHandler} each batch is handed over as a whole range
+ * instead of one {@link EventHandler#onEvent(Object, long, boolean)} call per event.
+ * <p>
+ * On an {@link OverwritingSequencer} the processor skips events that were overwritten before it could read them
+ * and, if the {@link EventHandler} also implements {@link EventLossAware}, tells it how many were lost.
  *
  * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
  */
@@ -73,13 +81,37 @@ public final class BatchEventProcessor<T>
     /**
      * 消费者的消费进度
      */
-    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final Sequence sequence;
 
     private final TimeoutHandler timeoutHandler;
     /**
      * 批处理开始时的通知器
      */
     private final BatchStartAware batchStartAware;
+    /**
+     * 按区间处理事件的处理器，不为null时不再逐个调用onEvent
+     */
+    private final BatchEventHandler<? super T> batchEventHandler;
+    /**
+     * 单个批次最多处理的事件数，达到上限时更新消费进度并开始下一个批次
+     */
+    private int maxBatchSize = Integer.MAX_VALUE;
+    /**
+     * 推进消费进度后，唤醒等待空间的生产者
+     */
+    private final ProducerWaitStrategy producerWaitStrategy;
+    /**
+     * 推进消费进度后，唤醒阻塞等待本消费者的下游消费者
+     */
+    private final WaitStrategy progressWaitStrategy;
+    /**
+     * 覆盖模式下的序号生成器，用于检测被覆盖(丢失)的事件；其它模式为null
+     */
+    private final OverwritingSequencer overwritingSequencer;
+    /**
+     * 事件丢失时的通知器
+     */
+    private final EventLossAware eventLossAware;
 
     /**
      * Construct a {@link EventProcessor} that will automatically track the progress by updating its sequence when
@@ -94,9 +126,33 @@ public final class BatchEventProcessor<T>
         final SequenceBarrier sequenceBarrier,
         final EventHandler<? super T> eventHandler)
     {
+        this(dataProvider, sequenceBarrier, eventHandler, new Sequence(Sequencer.INITIAL_CURSOR_VALUE));
+    }
+
+    /**
+     * 使用外部提供的Sequence记录消费进度，例如位于共享内存中的Sequence，启动时从它的下一个序号开始消费
+     *
+     * <p>Construct a {@link EventProcessor} that tracks its progress in the given sequence, for example one held in
+     * shared memory so another process can gate on it.  The processor resumes after the sequence's current value.</p>
+     *
+     * @param dataProvider    to which events are published.
+     * @param sequenceBarrier on which it is waiting.
+     * @param eventHandler    is the delegate to which events are dispatched.
+     * @param sequence        in which to track the progress of this processor.
+     */
+    public BatchEventProcessor(
+        final DataProvider<T> dataProvider,
+        final SequenceBarrier sequenceBarrier,
+        final EventHandler<? super T> eventHandler,
+        final Sequence sequence)
+    {
+        this.sequence = sequence;
         this.dataProvider = dataProvider;
         this.sequenceBarrier = sequenceBarrier;
         this.eventHandler = eventHandler;
+        this.producerWaitStrategy = ProcessingSequenceBarrier.producerWaitStrategyOf(sequenceBarrier);
+        this.progressWaitStrategy = ProcessingSequenceBarrier.progressWaitStrategyOf(sequenceBarrier);
+        this.overwritingSequencer = ProcessingSequenceBarrier.overwritingSequencerOf(sequenceBarrier);
 
 		// 如果eventHandler还实现了其他接口
         if (eventHandler instanceof SequenceReportingEventHandler)
@@ -106,8 +162,11 @@ public final class BatchEventProcessor<T>
 
         batchStartAware =
             (eventHandler instanceof BatchStartAware) ? (BatchStartAware) eventHandler : null;
+        batchEventHandler = batchEventHandlerOf(eventHandler);
         timeoutHandler =
             (eventHandler instanceof TimeoutHandler) ? (TimeoutHandler) eventHandler : null;
+        eventLossAware =
+            (eventHandler instanceof EventLossAware) ? (EventLossAware) eventHandler : null;
     }
 
     @Override
@@ -145,6 +204,29 @@ public final class BatchEventProcessor<T>
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * 设置单个批次最多处理的事件数。
+     * 达到上限时，先更新消费进度(下游消费者和生产者可以继续)，再以下一段开始新的批次({@link BatchStartAware}会再次收到通知)。
+     *
+     * <p>Limit the number of events handled in one batch.  At the limit the processor publishes its progress, so
+     * downstream processors and the publisher can move on, and starts a new batch for the rest, notifying
+     * {@link BatchStartAware} again.  The end of each chunk is reported as <code>endOfBatch</code>.</p>
+     *
+     * <p>Must be called before the processor is started.</p>
+     *
+     * @param maxBatchSize the maximum number of events in a batch, defaults to unbounded.
+     * @throws IllegalArgumentException if maxBatchSize is less than 1.
+     */
+    public void setMaxBatchSize(final int maxBatchSize)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must not be less than 1");
+        }
+
+        this.maxBatchSize = maxBatchSize;
+    }
+
     /**
 	 * 暂停以后交给下一个线程继续执行是线程安全的
 	 * It is ok to have another thread rerun this method after a halt().
@@ -206,6 +288,8 @@ public final class BatchEventProcessor<T>
         // 下一个消费的序号， -1 到 0，这个很重要，对于理解 WorkProcessor有帮助
 		// -1是不需要消费的，第一个要消费的是0
         long nextSequence = sequence.get() + 1L;
+        // 交给BatchEventHandler的最后一个区间的末尾，onBatch抛出异常时整个区间视为已处理
+        long batchHi = Sequencer.INITIAL_CURSOR_VALUE;
 
         // 死循环，因此不会让出线程，需要独立的线程(每一个EventProcessor都需要独立的线程)
         while (true)
@@ -213,24 +297,62 @@ public final class BatchEventProcessor<T>
             try
             {
             	// 通过屏障获取到的最大可用序号，比起自己去查询的话，类自身就简单干净一些，复用性更好
-                final long availableSequence = sequenceBarrier.waitFor(nextSequence);
+                // 批次大小有上限时，剩下的事件在下一个批次中处理(下一次waitFor会立即返回)
+                final long availableSequence =
+                    Math.min(sequenceBarrier.waitFor(nextSequence), nextSequence + maxBatchSize - 1);
                 if (batchStartAware != null)
                 {
                 	// 批量处理事件开始时发送通知
                     batchStartAware.onBatchStart(availableSequence - nextSequence + 1);
                 }
 
+                if (batchEventHandler != null)
+                {
+                    // 整段交给事件处理器，由它自己循环
+                    if (null != overwritingSequencer)
+                    {
+                        nextSequence = skipOverwritten(nextSequence, availableSequence);
+                    }
+                    if (nextSequence <= availableSequence)
+                    {
+                        event = dataProvider.get(nextSequence);
+                        batchHi = availableSequence;
+                        batchEventHandler.onBatch(dataProvider, nextSequence, availableSequence);
+                        if (null != overwritingSequencer)
+                        {
+                            checkOverwrittenWhileHandling(nextSequence, availableSequence);
+                        }
+                        nextSequence = availableSequence + 1;
+                    }
+                }
+
                 // 批量消费，由于没有其它事件处理器和我竞争序号，这些序号我都是可以消费的
                 while (nextSequence <= availableSequence)
                 {
+                    if (null != overwritingSequencer)
+                    {
+                        // 覆盖模式：跳过已被生产者覆盖的事件
+                        nextSequence = skipOverwritten(nextSequence, availableSequence);
+                        if (nextSequence > availableSequence)
+                        {
+                            break;
+                        }
+                    }
+
                     event = dataProvider.get(nextSequence);
                     eventHandler.onEvent(event, nextSequence, nextSequence == availableSequence);
+                    if (null != overwritingSequencer)
+                    {
+                        checkOverwrittenWhileHandling(nextSequence, nextSequence);
+                    }
                     nextSequence++;
                 }
 
                 // 更新消费进度(批量消费，每次消费只更新一次Sequence，减少性能消耗	)
                 // 这里有毒：availableSequence理论上可能小于nextSequence，也就是可能是无效的，因此应该只在成功消费了事件之后更新
                 sequence.set(availableSequence);
+                producerWaitStrategy.signalAllWhenBlocking();
+                progressWaitStrategy.signalAllWhenBlocking();
             }
             catch (final TimeoutException e)
             {
@@ -250,24 +372,81 @@ public final class BatchEventProcessor<T>
             	// 警告：如果在处理异常时抛出新的异常，会导致跳出while循环，导致BatchEventProcessor停止工作，可能导致死锁
 				// 而系统默认的异常处理会将其包装为RuntimeException！！！
                 exceptionHandler.handleEventException(ex, nextSequence, event);
+                // onBatch抛出异常时不知道处理到了哪里，与逐个处理时跳过抛出异常的事件一样，跳过整个区间，不重复投递
+                final long handledSequence = Math.max(nextSequence, batchHi);
 
 				// 成功处理异常后标记当前事件已被处理
 				// 警告：如果自己实现的等待策略，抛出了TimeoutException、AlertException以外的异常，从而走到这里，将导致该sequence被跳过！
                 // 从而导致数据/信号丢失！严重bug！
                 // 严格的说，lmax这里的实现对于扩展并不是特别的安全， 安全一点的话，使用两个try块更加安全，
                 // 一个try块负责获取availableSequence，第二个try块负责事件处理
-                sequence.set(nextSequence);
-                nextSequence++;
+                sequence.set(handledSequence);
+                producerWaitStrategy.signalAllWhenBlocking();
+                progressWaitStrategy.signalAllWhenBlocking();
+                nextSequence = handledSequence + 1;
             }
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> BatchEventHandler<? super T> batchEventHandlerOf(final EventHandler<? super T> eventHandler)
+    {
+        return (eventHandler instanceof BatchEventHandler) ? (BatchEventHandler<? super T>) eventHandler : null;
+    }
+
     private void earlyExit()
     {
         notifyStart();
         notifyShutdown();
     }
 
+    /**
+     * 如果nextSequence已被覆盖，则通知丢失的事件个数，并返回尚未被覆盖的最小序号。
+     * 最多跳到本批次末尾，本批次之后丢失的事件在下一批次中通知。
+     */
+    private long skipOverwritten(final long nextSequence, final long availableSequence)
+    {
+        final long lowestAvailable =
+            Math.min(overwritingSequencer.getLowestAvailableSequence(), availableSequence + 1);
+        if (nextSequence >= lowestAvailable)
+        {
+            return nextSequence;
+        }
+
+        notifyEventsLost(nextSequence, lowestAvailable - nextSequence);
+        return lowestAvailable;
+    }
+
+    /**
+     * 类似顺序锁的读取方：事件处理完成后再次检查尚未被覆盖的最小序号，
+     * [lo, hi]中在处理期间被生产者覆盖(或正在被覆盖)的事件，处理器看到的数据可能是不一致的，同样通知为丢失。
+     */
+    private void checkOverwrittenWhileHandling(final long lo, final long hi)
+    {
+        // 保证处理器对插槽的读取先于下面对claimSequence的读取
+        Util.loadFence();
+        final long lowestAvailable = Math.min(overwritingSequencer.getLowestAvailableSequence(), hi + 1);
+        if (lo < lowestAvailable)
+        {
+            notifyEventsLost(lo, lowestAvailable - lo);
+        }
+    }
+
+    private void notifyEventsLost(final long sequence, final long count)
+    {
+        if (eventLossAware != null)
+        {
+            try
+            {
+                eventLossAware.onEventsLost(sequence, count);
+            }
+            catch (final Throwable e)
+            {
+                exceptionHandler.handleEventException(e, sequence, null);
+            }
+        }
+    }
+
     private void notifyTimeout(final long availableSequence)
     {
         try
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 阻塞的生产者等待策略，生产者在条件变量上等待，消费者推进进度后唤醒它。
+ * 只有在有生产者等待时，消费者才需要加锁唤醒(signalNeeded标记)。
+ * <p>
+ * 不是通过{@link BatchEventProcessor}、{@link WorkProcessor}或{@link EventPoller}推进的消费进度不会唤醒生产者，
+ * 因此每次最多等待timeout后会重新检查消费进度。
+ *
+ * <p>Blocking strategy for publishers waiting on a full ring buffer.  Publishers wait on a condition that
+ * the event processors signal each time they advance their sequence, a consumer only takes the lock when a
+ * publisher is actually waiting.</p>
+ *
+ * <p>Gating sequences moved by anything other than a {@link BatchEventProcessor}, {@link WorkProcessor} or
+ * {@link EventPoller} do not signal, so publishers recheck the gating sequences at least once per timeout.</p>
+ */
+public final class BlockingProducerWaitStrategy implements ProducerWaitStrategy
+{
+    private static final long DEFAULT_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition capacityAvailableCondition = lock.newCondition();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+    private final long timeoutInNanos;
+
+    public BlockingProducerWaitStrategy()
+    {
+        this(DEFAULT_TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    public BlockingProducerWaitStrategy(final long timeout, final TimeUnit units)
+    {
+        timeoutInNanos = units.toNanos(timeout);
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence)
+    {
+        long minSequence;
+        if ((minSequence = gatingSequence.get()) < wrapPoint)
+        {
+            lock.lock();
+
+            try
+            {
+                do
+                {
+                    signalNeeded.getAndSet(true);
+
+                    if ((minSequence = gatingSequence.get()) >= wrapPoint)
+                    {
+                        break;
+                    }
+
+                    try
+                    {
+                        capacityAvailableCondition.awaitNanos(timeoutInNanos);
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        // next(n)不响应中断，保留中断标记，与parkNanos的行为一致
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                while ((minSequence = gatingSequence.get()) < wrapPoint);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence, final long timeoutNanos)
+    {
+        long minSequence;
+        if ((minSequence = gatingSequence.get()) < wrapPoint)
+        {
+            final long deadline = System.nanoTime() + timeoutNanos;
+            lock.lock();
+
+            try
+            {
+                long remaining;
+                do
+                {
+                    signalNeeded.getAndSet(true);
+
+                    if ((minSequence = gatingSequence.get()) >= wrapPoint)
+                    {
+                        break;
+                    }
+
+                    if ((remaining = deadline - System.nanoTime()) <= 0)
+                    {
+                        break;
+                    }
+
+                    try
+                    {
+                        capacityAvailableCondition.awaitNanos(Math.min(timeoutInNanos, remaining));
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                while ((minSequence = gatingSequence.get()) < wrapPoint);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        if (signalNeeded.getAndSet(false))
+        {
+            lock.lock();
+            try
+            {
+                capacityAvailableCondition.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlockingProducerWaitStrategy{" +
+            "capacityAvailableCondition=" + capacityAvailableCondition +
+            ", timeoutInNanos=" + timeoutInNanos +
+            '}';
+    }
+}
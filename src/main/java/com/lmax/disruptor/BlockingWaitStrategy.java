@@ -15,6 +15,7 @@
  */
 package com.lmax.disruptor;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -25,11 +26,18 @@ import com.lmax.disruptor.util.ThreadHints;
  * Blocking strategy that uses a lock and condition variable for {@link EventProcessor}s waiting on a barrier.
  * <p>
  * This strategy can be used when throughput and low-latency are not as important as CPU resource.
+ * <p>
+ * Consumers announce themselves before parking, so publishers only take the lock when a consumer is
+ * actually blocked.
  */
 public final class BlockingWaitStrategy implements WaitStrategy
 {
     private final Lock lock = new ReentrantLock();
     private final Condition processorNotifyCondition = lock.newCondition();
+    /**
+     * 已登记即将阻塞(或正在阻塞)的消费者个数，为0时发布者不需要获取锁
+     */
+    private final AtomicInteger waiters = new AtomicInteger(0);
 
     @Override
     public long waitFor(long sequence, Sequence cursorSequence, Sequence dependentSequence, SequenceBarrier barrier)
@@ -40,6 +48,7 @@ public final class BlockingWaitStrategy implements WaitStrategy
         if (cursorSequence.get() < sequence)
         {
             lock.lock();
+            waiters.getAndIncrement();
             try
             {
                 while (cursorSequence.get() < sequence)
@@ -50,6 +59,7 @@ public final class BlockingWaitStrategy implements WaitStrategy
             }
             finally
             {
+                waiters.getAndDecrement();
                 lock.unlock();
             }
         }
@@ -67,14 +77,19 @@ public final class BlockingWaitStrategy implements WaitStrategy
     @Override
     public void signalAllWhenBlocking()
     {
-        lock.lock();
-        try
-        {
-            processorNotifyCondition.signalAll();
-        }
-        finally
+        // getAndAdd(0)而不是get()：需要一个StoreLoad屏障，保证发布者写入的cursor先于读取waiters对消费者可见，
+        // 与消费者先登记waiters再检查cursor配对，从而不会丢失唤醒。
+        if (waiters.getAndAdd(0) != 0)
         {
-            lock.unlock();
+            lock.lock();
+            try
+            {
+                processorNotifyCondition.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
         }
     }
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.util.ThreadHints;
+
+/**
+ * 自旋等待消费者让出空间，响应最快，但会一直占用CPU，生产者线程需要绑定到独立的核心上。
+ *
+ * <p>Busy Spin strategy for publishers waiting on a full ring buffer.</p>
+ *
+ * <p>Gives the lowest latency once space is freed but burns a full core while waiting, so it is best
+ * used when the publishing thread is bound to its own core.</p>
+ */
+public final class BusySpinProducerWaitStrategy implements ProducerWaitStrategy
+{
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence)
+    {
+        long minSequence;
+        while (wrapPoint > (minSequence = gatingSequence.get()))
+        {
+            ThreadHints.onSpinWait();
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence, final long timeoutNanos)
+    {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long minSequence;
+        while (wrapPoint > (minSequence = gatingSequence.get()) && deadline - System.nanoTime() > 0)
+        {
+            ThreadHints.onSpinWait();
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 按key合并(最新值优先)的事件发布器，用于行情等只关心每个key最新值的场景。
+ * <p>
+ * 消费者跟上时，事件立即发布；消费者落后时，新事件只申请序号但暂不发布(待发布窗口)，
+ * 同一个key在窗口中已有未发布的插槽时，直接覆盖该插槽，而不是申请新的序号。
+ * 消费者跟上后，下一次发布会将整个窗口一次发布出去。因此内存和延迟只与key的数量有关，与发布速度无关。
+ * <p>
+ * 注意：
+ * 1.只能由一个线程发布(底层是单生产者RingBuffer)。
+ * 2.不同key之间的顺序不保证，同一个key的事件按顺序且只会看见最新值。
+ * 3.发布停止时，必须调用{@link #flush()}，否则窗口中的事件不会被消费者看见。
+ *
+ * <p>Latest-value-wins publisher over a single producer {@link RingBuffer}, for feeds where consumers only care
+ * about the most recent value for each key.</p>
+ *
+ * <p>While the consumers keep up each event is published straight away.  While they are behind, events are claimed
+ * but held back in a pending window, and publishing a key that already has a slot in the window overwrites that slot
+ * in place instead of claiming a new sequence.  The whole window is published as soon as the consumers catch up, so
+ * a slow consumer sees coalesced updates rather than back-pressuring the publisher.  Consumers are normal
+ * {@link EventProcessor}s on {@link #getRingBuffer()}.</p>
+ *
+ * <p>Only one thread may publish.  Events for the same key stay in order, the order across keys is not kept.
+ * Call {@link #flush()} when the publisher goes quiet, otherwise the pending window is not seen by consumers.</p>
+ *
+ * @param <E> event type.
+ * @param <K> type of the key events are conflated on, must implement equals and hashCode.
+ */
+public final class ConflatingEventSink<E, K>
+{
+    private final RingBuffer<E> ringBuffer;
+    /**
+     * 待发布窗口中每个key对应的序号，线性探测的开放寻址散列表，容量至少是bufferSize的两倍。
+     * 序号小于pendingLo的条目属于已发布的窗口，视为空位，所以清空窗口时不需要清理散列表，发布路径上也没有装箱和分配。
+     */
+    private final Object[] pendingKeys;
+    private final long[] pendingSequences;
+    private final int mask;
+    /**
+     * 待发布窗口的起始序号，窗口为空时等于 cursor + 1
+     */
+    private long pendingLo;
+    private long pendingHi;
+    private long conflatedCount = 0;
+
+    private ConflatingEventSink(final RingBuffer<E> ringBuffer)
+    {
+        this.ringBuffer = ringBuffer;
+        this.pendingLo = ringBuffer.getCursor() + 1;
+        this.pendingHi = ringBuffer.getCursor();
+
+        final int capacity = ringBuffer.getBufferSize() << 1;
+        this.pendingKeys = new Object[capacity];
+        this.pendingSequences = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Create a new conflating sink over a new single producer ring buffer.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param <K> Class of the key events are conflated on.
+     * @param factory      used to create the events within the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer, bounds the number of distinct keys
+     *                     that can be pending at once.
+     * @param waitStrategy used to determine how consumers wait for new elements to become available.
+     * @return a constructed conflating sink.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    public static <E, K> ConflatingEventSink<E, K> create(
+        final EventFactory<E> factory,
+        final int bufferSize,
+        final WaitStrategy waitStrategy)
+    {
+        return new ConflatingEventSink<>(RingBuffer.createSingleProducer(factory, bufferSize, waitStrategy));
+    }
+
+    /**
+     * Get the ring buffer to attach consumers and gating sequences to.  Do not publish to it directly.
+     *
+     * @return the underlying ring buffer.
+     */
+    public RingBuffer<E> getRingBuffer()
+    {
+        return ringBuffer;
+    }
+
+    /**
+     * Publish an event for the key, overwriting the pending event for the same key if there is one.
+     *
+     * @param key        the key to conflate on.
+     * @param translator The user specified translation for the event
+     */
+    public void publishEvent(final K key, final EventTranslator<E> translator)
+    {
+        final long sequence = sequenceFor(key);
+        translator.translateTo(ringBuffer.get(sequence), sequence);
+        publishIfConsumersCaughtUp();
+    }
+
+    /**
+     * Publish an event for the key, overwriting the pending event for the same key if there is one.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param key        the key to conflate on.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     */
+    public <A> void publishEvent(final K key, final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        final long sequence = sequenceFor(key);
+        translator.translateTo(ringBuffer.get(sequence), sequence, arg0);
+        publishIfConsumersCaughtUp();
+    }
+
+    /**
+     * Publish an event for the key, overwriting the pending event for the same key if there is one.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param key        the key to conflate on.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     */
+    public <A, B> void publishEvent(
+        final K key, final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        final long sequence = sequenceFor(key);
+        translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1);
+        publishIfConsumersCaughtUp();
+    }
+
+    /**
+     * Publish an event for the key, overwriting the pending event for the same key if there is one.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param <C> Class of the user supplied argument
+     * @param key        the key to conflate on.
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @param arg2       A user supplied argument.
+     */
+    public <A, B, C> void publishEvent(
+        final K key, final EventTranslatorThreeArg<E, A, B, C> translator, final A arg0, final B arg1, final C arg2)
+    {
+        final long sequence = sequenceFor(key);
+        translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1, arg2);
+        publishIfConsumersCaughtUp();
+    }
+
+    /**
+     * 发布窗口中的所有事件
+     *
+     * <p>Publish all pending events regardless of the progress of the consumers.</p>
+     */
+    public void flush()
+    {
+        if (pendingHi >= pendingLo)
+        {
+            ringBuffer.publish(pendingLo, pendingHi);
+            pendingLo = pendingHi + 1;
+        }
+    }
+
+    /**
+     * @return the number of pending events for all keys, i.e. events claimed but not yet published.
+     */
+    public int getPendingCount()
+    {
+        return (int) (pendingHi - pendingLo + 1);
+    }
+
+    /**
+     * @return the number of events that overwrote a pending event for the same key since this sink was created.
+     */
+    public long getConflatedCount()
+    {
+        return conflatedCount;
+    }
+
+    private long sequenceFor(final K key)
+    {
+        final int hash = key.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        // 窗口内的条目在窗口发布前不会失效，所以探测到第一个空位(或已发布窗口的条目)时就可以确定key不在窗口中
+        while (pendingSequences[index] >= pendingLo && null != pendingKeys[index])
+        {
+            if (key.equals(pendingKeys[index]))
+            {
+                conflatedCount++;
+                return pendingSequences[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        // 单生产者的next()在需要刷新消费者进度时会volatile写入cursor(包括未发布的窗口)，
+        // 先确认有空间(同时刷新缓存的消费者进度)，保证next()走快速路径；没有空间时只能先发布窗口再等待。
+        if (!ringBuffer.hasAvailableCapacity(1))
+        {
+            flush();
+        }
+
+        final long sequence = ringBuffer.next();
+        pendingHi = sequence;
+        if (pendingLo == sequence)
+        {
+            // 窗口为空(可能刚被flush()发布)时所有条目都已失效，从key的起始位置插入，保证探测链不断开
+            index = (hash ^ (hash >>> 16)) & mask;
+        }
+        pendingKeys[index] = key;
+        pendingSequences[index] = sequence;
+        return sequence;
+    }
+
+    private void publishIfConsumersCaughtUp()
+    {
+        if (ringBuffer.getMinimumGatingSequence() >= pendingLo - 1)
+        {
+            flush();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConflatingEventSink{" +
+            "ringBuffer=" + ringBuffer +
+            ", pendingLo=" + pendingLo +
+            ", pendingHi=" + pendingHi +
+            ", conflatedCount=" + conflatedCount +
+            '}';
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不独占线程的事件处理器。它通过{@link EventPoller}消费事件，由{@link CooperativeEventRunner}的线程轮流调度，
+ * 多个这样的处理器(可以属于不同的RingBuffer)共享少量的线程。
+ *
+ * 每一轮调度最多处理batchQuota个事件，超过配额时在下一轮继续，配额内最后一个事件的endOfBatch为true。
+ *
+ * <p>{@link EventProcessor} that does not need a thread of its own.  It consumes with an {@link EventPoller} and is
+ * polled by one of the threads of a {@link CooperativeEventRunner}, so many low rate consumers, on the same or
+ * different ring buffers, can share a few threads.</p>
+ *
+ * <p>Each time it is polled it handles at most the runner's batch quota of events, marking the last of them as
+ * <code>endOfBatch</code>, and carries on from there on the next duty cycle.  {@link #run()} only schedules the
+ * processor on its runner and returns straight away; all {@link EventHandler} and {@link LifecycleAware} callbacks
+ * are made on the runner thread it is assigned to.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class CooperativeEventProcessor<T>
+    implements EventProcessor
+{
+    private static final int IDLE = 0;
+    private static final int HALTED = IDLE + 1;
+    private static final int RUNNING = HALTED + 1;
+
+    private final AtomicInteger running = new AtomicInteger(IDLE);
+    private final CooperativeEventRunner runner;
+    private final QuotaPoller<T> quotaPoller;
+
+    /**
+     * 只由调度该处理器的runner线程访问
+     */
+    private boolean started = false;
+
+    /**
+     * Construct a {@link CooperativeEventProcessor} consuming from a ring buffer after the gating sequences.
+     *
+     * @param runner          whose threads will poll this processor.
+     * @param ringBuffer      to which events are published.
+     * @param eventHandler    is the delegate to which events are dispatched.
+     * @param gatingSequences the sequences this processor must not overtake, none to follow the producer.
+     */
+    public CooperativeEventProcessor(
+        final CooperativeEventRunner runner,
+        final RingBuffer<T> ringBuffer,
+        final EventHandler<? super T> eventHandler,
+        final Sequence... gatingSequences)
+    {
+        this.runner = runner;
+        this.quotaPoller = new QuotaPoller<>(ringBuffer.newPoller(gatingSequences), eventHandler, runner.getBatchQuota());
+    }
+
+    @Override
+    public Sequence getSequence()
+    {
+        return quotaPoller.getPoller().getSequence();
+    }
+
+    /**
+     * 请求停止，runner线程在下一轮调度时通知{@link LifecycleAware#onShutdown()}并不再调度它
+     */
+    @Override
+    public void halt()
+    {
+        running.compareAndSet(RUNNING, HALTED);
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get() != IDLE;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link EventHandler}.
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler)
+    {
+        if (null == exceptionHandler)
+        {
+            throw new NullPointerException();
+        }
+
+        quotaPoller.setExceptionHandler(exceptionHandler);
+    }
+
+    /**
+     * 只是交给runner调度，立即返回
+     *
+     * <p>Schedule this processor on its runner and return.  It is ok to run it again once a halt has completed,
+     * that is once {@link #isRunning()} is false.</p>
+     *
+     * @throws IllegalStateException if this processor is already scheduled
+     */
+    @Override
+    public void run()
+    {
+        if (!running.compareAndSet(IDLE, RUNNING))
+        {
+            throw new IllegalStateException("Processor is already running");
+        }
+
+        runner.schedule(this);
+    }
+
+    boolean isHalted()
+    {
+        return running.get() != RUNNING;
+    }
+
+    /**
+     * 由runner线程调用，处理最多batchQuota个事件
+     *
+     * @return the number of events handled.
+     */
+    int poll()
+    {
+        if (!started)
+        {
+            started = true;
+            quotaPoller.notifyStart();
+        }
+
+        try
+        {
+            return quotaPoller.poll();
+        }
+        catch (final Throwable ex)
+        {
+            // 异常处理器抛出了异常：与BatchEventProcessor的线程退出一样停止该处理器，但不影响同一线程上的其它处理器
+            running.compareAndSet(RUNNING, HALTED);
+            return 0;
+        }
+    }
+
+    /**
+     * 由runner线程在不再调度该处理器后调用
+     */
+    void onHalted()
+    {
+        if (!started)
+        {
+            quotaPoller.notifyStart();
+        }
+        started = false;
+        quotaPoller.notifyShutdown();
+        running.set(IDLE);
+    }
+}
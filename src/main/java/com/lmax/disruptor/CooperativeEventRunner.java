@@ -0,0 +1,234 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 协作式调度器：用少量线程轮流轮询多个{@link CooperativeEventProcessor}，而不是每个消费者独占一个线程。
+ * 每个线程的一轮调度(duty cycle)依次轮询分配给它的每个处理器，每个处理器最多处理batchQuota个事件，
+ * 起始位置每轮轮换以保证公平；一轮下来没有任何事件时由共享的{@link IdleStrategy}决定如何等待。
+ *
+ * <p>Runs many {@link CooperativeEventProcessor}s on a small, fixed pool of threads.  Each thread repeatedly
+ * performs a duty cycle that polls every processor assigned to it once, letting each handle at most
+ * <code>batchQuota</code> events so a busy consumer cannot starve the others, and starting from a different
+ * processor every cycle.  When a whole cycle finds no events the thread backs off using the {@link IdleStrategy},
+ * which is shared by all the threads.</p>
+ *
+ * <p>Threads are created on the first schedule and a processor is assigned to the thread that has the fewest
+ * processors.  The threads keep running once the processors are halted; call {@link #halt()} to stop them, which
+ * also shuts down any processors still scheduled.</p>
+ */
+public final class CooperativeEventRunner
+{
+    private final int threadCount;
+    private final ThreadFactory threadFactory;
+    private final IdleStrategy idleStrategy;
+    private final int batchQuota;
+    /**
+     * 当前运行的线程，未启动或已停止时为null，由this保护
+     */
+    private Worker[] workers;
+
+    /**
+     * Construct a runner with a {@link BackoffIdleStrategy} and a batch quota of 64 events.
+     *
+     * @param threadCount   the number of threads to share between processors.
+     * @param threadFactory used to create the threads.
+     */
+    public CooperativeEventRunner(final int threadCount, final ThreadFactory threadFactory)
+    {
+        this(threadCount, threadFactory, new BackoffIdleStrategy(), 64);
+    }
+
+    /**
+     * @param threadCount   the number of threads to share between processors.
+     * @param threadFactory used to create the threads.
+     * @param idleStrategy  used by every thread when a duty cycle found no events.
+     * @param batchQuota    the most events a processor handles in one duty cycle.
+     */
+    public CooperativeEventRunner(
+        final int threadCount,
+        final ThreadFactory threadFactory,
+        final IdleStrategy idleStrategy,
+        final int batchQuota)
+    {
+        if (threadCount < 1)
+        {
+            throw new IllegalArgumentException("threadCount must not be less than 1");
+        }
+        if (batchQuota < 1)
+        {
+            throw new IllegalArgumentException("batchQuota must not be less than 1");
+        }
+
+        this.threadCount = threadCount;
+        this.threadFactory = threadFactory;
+        this.idleStrategy = idleStrategy;
+        this.batchQuota = batchQuota;
+    }
+
+    /**
+     * @return the most events a processor handles in one duty cycle.
+     */
+    public int getBatchQuota()
+    {
+        return batchQuota;
+    }
+
+    /**
+     * @return true if the threads have been started and not halted.
+     */
+    public synchronized boolean isRunning()
+    {
+        return null != workers;
+    }
+
+    /**
+     * 停止所有线程，线程退出前会停止仍分配给它的处理器
+     *
+     * <p>Stop the threads.  Each thread shuts down the processors still assigned to it before exiting.  The runner
+     * starts new threads if a processor is scheduled again.</p>
+     */
+    public synchronized void halt()
+    {
+        if (null == workers)
+        {
+            return;
+        }
+
+        for (final Worker worker : workers)
+        {
+            worker.running = false;
+        }
+        workers = null;
+    }
+
+    /**
+     * 分配给处理器最少的线程
+     */
+    synchronized void schedule(final CooperativeEventProcessor<?> processor)
+    {
+        if (null == workers)
+        {
+            start();
+        }
+
+        Worker leastLoaded = workers[0];
+        for (int i = 1; i < workers.length; i++)
+        {
+            if (workers[i].processors.length < leastLoaded.processors.length)
+            {
+                leastLoaded = workers[i];
+            }
+        }
+
+        final CooperativeEventProcessor<?>[] processors = leastLoaded.processors;
+        final CooperativeEventProcessor<?>[] newProcessors = Arrays.copyOf(processors, processors.length + 1);
+        newProcessors[processors.length] = processor;
+        leastLoaded.processors = newProcessors;
+    }
+
+    private void start()
+    {
+        final Worker[] newWorkers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            newWorkers[i] = new Worker();
+            final Thread thread = threadFactory.newThread(newWorkers[i]);
+            if (null == thread)
+            {
+                for (int j = 0; j < i; j++)
+                {
+                    newWorkers[j].running = false;
+                }
+                throw new RuntimeException("Failed to create thread to run: " + newWorkers[i]);
+            }
+
+            thread.start();
+        }
+        workers = newWorkers;
+    }
+
+    private synchronized void remove(final Worker worker, final CooperativeEventProcessor<?> processor)
+    {
+        final CooperativeEventProcessor<?>[] processors = worker.processors;
+        final CooperativeEventProcessor<?>[] newProcessors = new CooperativeEventProcessor<?>[processors.length - 1];
+        for (int i = 0, j = 0; i < processors.length; i++)
+        {
+            if (processors[i] != processor)
+            {
+                newProcessors[j++] = processors[i];
+            }
+        }
+        worker.processors = newProcessors;
+    }
+
+    private synchronized CooperativeEventProcessor<?>[] removeAll(final Worker worker)
+    {
+        final CooperativeEventProcessor<?>[] processors = worker.processors;
+        worker.processors = new CooperativeEventProcessor<?>[0];
+        return processors;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CooperativeEventRunner{" +
+            "threadCount=" + threadCount +
+            ", idleStrategy=" + idleStrategy +
+            ", batchQuota=" + batchQuota +
+            '}';
+    }
+
+    /**
+     * 一个调度线程，processors写时复制，只在分配和移除处理器时修改
+     */
+    private final class Worker implements Runnable
+    {
+        private volatile boolean running = true;
+        private volatile CooperativeEventProcessor<?>[] processors = new CooperativeEventProcessor<?>[0];
+        private final DutyCycle<CooperativeEventProcessor<?>> dutyCycle = new DutyCycle<CooperativeEventProcessor<?>>()
+        {
+            @Override
+            int doWork(final CooperativeEventProcessor<?> processor)
+            {
+                if (processor.isHalted())
+                {
+                    remove(Worker.this, processor);
+                    processor.onHalted();
+                    return 0;
+                }
+                return processor.poll();
+            }
+        };
+
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                idleStrategy.idle(dutyCycle.perform(processors, true));
+            }
+
+            for (final CooperativeEventProcessor<?> processor : removeAll(this))
+            {
+                processor.onHalted();
+            }
+        }
+    }
+}
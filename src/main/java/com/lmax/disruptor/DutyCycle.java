@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 一轮调度依次对每一项做一次工作，可以每轮从下一项开始以保证公平。
+ * 由{@link CooperativeEventRunner}的线程和{@link EventPollerSelector}共用。
+ *
+ * <p>One pass over a set of work items, doing one unit of work on each, optionally starting from the next item on
+ * every pass so that each item gets the same chance.  Must only be used by one thread at a time.</p>
+ *
+ * @param <E> the type of work item.
+ */
+abstract class DutyCycle<E>
+{
+    private int first = 0;
+
+    /**
+     * @param items  to work on, once each.
+     * @param rotate whether the next pass starts from the item after the one this pass started from.
+     * @return the total amount of work done.
+     */
+    final int perform(final E[] items, final boolean rotate)
+    {
+        final int count = items.length;
+        if (first >= count)
+        {
+            first = 0;
+        }
+
+        int workCount = 0;
+        for (int i = first, n = 0; n < count; n++)
+        {
+            workCount += doWork(items[i]);
+            if (++i == count)
+            {
+                i = 0;
+            }
+        }
+
+        if (rotate)
+        {
+            first++;
+        }
+        return workCount;
+    }
+
+    /**
+     * @param item to work on.
+     * @return the amount of work done, zero if there was none.
+     */
+    abstract int doWork(E item);
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 可以在运行时增减worker的WorkerPool。根据消费者的滞后量(cursor - 所有worker中最小的序号)和
+ * {@link WorkerScalingPolicy}启动新的{@link WorkProcessor}或让多余的WorkProcessor退出，
+ * 不需要为了应付高峰而一直保留最多的线程。
+ *
+ * 所有worker的序号放在一个{@link SequenceGroup}中作为一个网关序号，新增worker时通过
+ * {@link SequenceGroup#addWhileRunning(Cursored, Sequence)}加入，worker处理完已领取的序号退出后才从组中移除，
+ * 因此生产者在池伸缩时不会覆盖未处理的事件。退出的worker无法交还正在等待的序号时，它的序号留在组中，
+ * 该序号由仍在运行的worker接手。
+ *
+ * <p>A {@link WorkerPool} whose number of running workers changes at runtime.  Each call to {@link #scale()}
+ * measures the lag of the pool, <code>cursor - min(worker sequences)</code>, asks the {@link WorkerScalingPolicy}
+ * how many workers to run and starts or retires {@link WorkProcessor}s to match, between a minimum and the number
+ * of {@link WorkHandler}s given.</p>
+ *
+ * <p>The worker sequences are kept in a single {@link SequenceGroup} used as the pool's gating sequence.  Workers
+ * joining a running pool are added with {@link SequenceGroup#addWhileRunning(Cursored, Sequence)}, and a retiring
+ * worker finishes the sequences it has already claimed and leaves the group only once its thread has exited, so
+ * the ring can be live throughout.  A worker retiring while it waits for an unpublished sequence that it cannot
+ * hand back exits straight away; its sequence stays in the group until a running worker takes the claim over.</p>
+ *
+ * @param <T> event to be processed by a pool of workers
+ */
+public final class ElasticWorkerPool<T>
+{
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    /**
+     * 与{@link WorkerPool#workSequence}作用相同
+     */
+    private final Sequence workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    /**
+     * workSequence和所有正在运行的worker的序号
+     */
+    private final SequenceGroup workerSequences = new SequenceGroup();
+    private final RingBuffer<T> ringBuffer;
+    private final SequenceBarrier sequenceBarrier;
+    private final ExceptionHandler<? super T> exceptionHandler;
+    private final WorkHandler<? super T>[] workHandlers;
+    private final WorkerScalingPolicy scalingPolicy;
+    private final int minWorkers;
+
+    /**
+     * 每个WorkHandler当前对应的WorkProcessor，线程退出前不为null，保证同一个handler不会被两个线程同时使用
+     */
+    private final WorkProcessor<?>[] workProcessors;
+    private final boolean[] retiring;
+    /**
+     * 正在运行且没有被要求退出的worker个数
+     */
+    private int workerCount = 0;
+    private Executor executor;
+    /**
+     * 退出的worker留下的序号，停在它们领取的序号之前
+     */
+    private final ArrayDeque<Sequence> orphans = new ArrayDeque<>();
+    /**
+     * orphans的大小，worker领取序号时不加锁检查
+     */
+    private volatile int orphanCount = 0;
+    private final OrphanedClaims orphanedClaims = new OrphanedClaims()
+    {
+        @Override
+        public long adopt(final Sequence sequence)
+        {
+            if (0 == orphanCount)
+            {
+                return Sequencer.INITIAL_CURSOR_VALUE;
+            }
+            synchronized (ElasticWorkerPool.this)
+            {
+                final Sequence orphan = orphans.poll();
+                if (null == orphan)
+                {
+                    return Sequencer.INITIAL_CURSOR_VALUE;
+                }
+                orphanCount = orphans.size();
+                final long claim = orphan.get() + 1L;
+                // 先停在该序号之前再移除，网关序号不会越过它
+                sequence.set(claim - 1L);
+                workerSequences.remove(orphan);
+                return claim;
+            }
+        }
+
+        @Override
+        public long swap(final Sequence sequence, final long claim)
+        {
+            if (0 == orphanCount)
+            {
+                return claim;
+            }
+            synchronized (ElasticWorkerPool.this)
+            {
+                final Sequence orphan = orphans.peek();
+                if (null == orphan || orphan.get() + 1L >= claim)
+                {
+                    return claim;
+                }
+                final long orphanClaim = orphan.get() + 1L;
+                sequence.set(orphanClaim - 1L);
+                orphan.set(claim - 1L);
+                return orphanClaim;
+            }
+        }
+    };
+
+    /**
+     * Create an elastic worker pool that runs between <code>minWorkers</code> and <code>workHandlers.length</code>
+     * workers.
+     * <p>
+     * The {@link RingBuffer} must have {@link RingBuffer#addGatingSequences(Sequence...)} called with
+     * {@link #getWorkerSequences()} before the work pool is started.
+     *
+     * @param ringBuffer       of events to be consumed.
+     * @param sequenceBarrier  on which the workers will depend.
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param scalingPolicy    deciding how many workers to run from the lag.
+     * @param minWorkers       the number of workers started with the pool and never retired.
+     * @param workHandlers     one per worker the pool may run, each only ever used by one thread at a time.
+     */
+    @SafeVarargs
+    public ElasticWorkerPool(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkerScalingPolicy scalingPolicy,
+        final int minWorkers,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        if (minWorkers < 1 || minWorkers > workHandlers.length)
+        {
+            throw new IllegalArgumentException("minWorkers must be between 1 and the number of work handlers");
+        }
+
+        this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = sequenceBarrier;
+        this.exceptionHandler = exceptionHandler;
+        this.scalingPolicy = scalingPolicy;
+        this.minWorkers = minWorkers;
+        this.workHandlers = workHandlers;
+        this.workProcessors = new WorkProcessor<?>[workHandlers.length];
+        this.retiring = new boolean[workHandlers.length];
+
+        workerSequences.add(workSequence);
+    }
+
+    /**
+     * 池的网关序号，只有一个{@link SequenceGroup}，worker增减时不需要修改RingBuffer的网关序号
+     *
+     * @return a single {@link Sequence} tracking the progress of all running workers.
+     */
+    public Sequence[] getWorkerSequences()
+    {
+        return new Sequence[]{workerSequences};
+    }
+
+    /**
+     * Start the minimum number of workers.
+     *
+     * @param executor providing threads for running the workers, it must be able to run as many workers as there
+     *                 are work handlers at once, such as a cached thread pool.
+     * @return the {@link RingBuffer} used for the work queue.
+     * @throws IllegalStateException if the pool has already been started and not halted yet
+     */
+    public synchronized RingBuffer<T> start(final Executor executor)
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("ElasticWorkerPool has already been started and cannot be restarted until halted.");
+        }
+
+        this.executor = executor;
+        // 停止前没有被接手的序号，重新启动后从生产者光标开始
+        for (Sequence orphan : orphans)
+        {
+            workerSequences.remove(orphan);
+        }
+        orphans.clear();
+        orphanCount = 0;
+        workSequence.set(ringBuffer.getCursor());
+        while (workerCount < minWorkers && addWorker())
+        {
+            // 启动到最少的worker个数
+        }
+
+        return ringBuffer;
+    }
+
+    /**
+     * 根据当前的滞后量和伸缩策略增减worker，应该被周期性地调用
+     *
+     * <p>Measure the lag and start or retire workers as the {@link WorkerScalingPolicy} decides.  Intended to be
+     * called periodically, see {@link #scheduleScaling(ScheduledExecutorService, long, TimeUnit)}.</p>
+     *
+     * @return the number of workers running after scaling.
+     */
+    public synchronized int scale()
+    {
+        if (!started.get())
+        {
+            return workerCount;
+        }
+
+        final long lag = ringBuffer.getCursor() - workerSequences.get();
+        final int target = Math.max(minWorkers,
+                                    Math.min(workHandlers.length, scalingPolicy.targetWorkerCount(lag, workerCount)));
+
+        while (workerCount < target && addWorker())
+        {
+            // 被要求退出的worker还没有结束时，它的handler不能被复用
+        }
+        while (workerCount > target)
+        {
+            retireWorker();
+        }
+
+        return workerCount;
+    }
+
+    /**
+     * Call {@link #scale()} at a fixed rate.
+     *
+     * @param scheduler to run the scaling on.
+     * @param period    between two scaling decisions.
+     * @param unit      of the period.
+     * @return the future that can be used to cancel the scaling.
+     */
+    public ScheduledFuture<?> scheduleScaling(
+        final ScheduledExecutorService scheduler, final long period, final TimeUnit unit)
+    {
+        return scheduler.scheduleAtFixedRate(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    scale();
+                }
+            }, period, period, unit);
+    }
+
+    /**
+     * @return the number of workers running and not retiring.
+     */
+    public synchronized int getWorkerCount()
+    {
+        return workerCount;
+    }
+
+    private boolean addWorker()
+    {
+        for (int i = 0; i < workProcessors.length; i++)
+        {
+            if (null == workProcessors[i])
+            {
+                // 每个worker使用独立alert标记的屏障，退出一个worker时只唤醒它自己
+                final WorkProcessor<T> processor = new WorkProcessor<>(
+                    ringBuffer, ProcessingSequenceBarrier.copyOf(sequenceBarrier), workHandlers[i], exceptionHandler,
+                    workSequence);
+                processor.setOrphanedClaims(orphanedClaims);
+                // 先加入网关序号再启动，worker第一次领取序号前进度为生产者光标
+                workerSequences.addWhileRunning(ringBuffer, processor.getSequence());
+                workProcessors[i] = processor;
+                workerCount++;
+                executor.execute(new Worker(i, processor));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void retireWorker()
+    {
+        for (int i = workProcessors.length - 1; i >= 0; i--)
+        {
+            if (null != workProcessors[i] && !retiring[i])
+            {
+                retiring[i] = true;
+                workerCount--;
+                workProcessors[i].retire();
+                return;
+            }
+        }
+    }
+
+    /**
+     * worker线程退出后才移除它的序号，此时它领取的序号都已处理完(或者池已被停止)。
+     * 留下了无法交还的序号时保留它的序号，唤醒其它worker接手
+     */
+    private synchronized void onWorkerExit(final int index, final WorkProcessor<?> processor)
+    {
+        if (Sequencer.INITIAL_CURSOR_VALUE == processor.getUnhandledClaim())
+        {
+            workerSequences.remove(processor.getSequence());
+        }
+        else
+        {
+            orphans.add(processor.getSequence());
+            orphanCount = orphans.size();
+            for (int i = 0; i < workProcessors.length; i++)
+            {
+                if (null != workProcessors[i] && workProcessors[i] != processor && !retiring[i])
+                {
+                    workProcessors[i].notifyOrphanedClaim();
+                }
+            }
+        }
+        if (workProcessors[index] == processor)
+        {
+            if (!retiring[index])
+            {
+                workerCount--;
+            }
+            workProcessors[index] = null;
+            retiring[index] = false;
+        }
+    }
+
+    /**
+     * Wait for the {@link RingBuffer} to drain of published events then halt the workers.
+     */
+    public void drainAndHalt()
+    {
+        while (ringBuffer.getCursor() > workerSequences.get())
+        {
+            Thread.yield();
+        }
+
+        halt();
+    }
+
+    /**
+     * Halt all workers immediately at the end of their current cycle.
+     */
+    public synchronized void halt()
+    {
+        for (WorkProcessor<?> processor : workProcessors)
+        {
+            if (null != processor)
+            {
+                processor.halt();
+            }
+        }
+
+        started.set(false);
+    }
+
+    public boolean isRunning()
+    {
+        return started.get();
+    }
+
+    /**
+     * 运行一个WorkProcessor，退出时将它从池中移除
+     */
+    private final class Worker implements Runnable
+    {
+        private final int index;
+        private final WorkProcessor<?> processor;
+
+        Worker(final int index, final WorkProcessor<?> processor)
+        {
+            this.index = index;
+            this.processor = processor;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                processor.run();
+            }
+            finally
+            {
+                onWorkerExit(index, processor);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 事件丢失通知(感知)
+ * 在覆盖模式({@link OverwritingSequencer})下，如果你的EventHandler实现了该接口，
+ * 那么当消费者落后超过一圈、事件被生产者覆盖时，你会收到通知。
+ * 事件在处理过程中被覆盖时，也会在处理完成后收到通知，此时处理器看到的事件可能是不一致的。
+ *
+ * Implement this interface in your {@link EventHandler} to be notified when a {@link BatchEventProcessor}
+ * on an {@link OverwritingSequencer} fell so far behind that events were overwritten before it could read them.
+ * Events overwritten while the handler was reading them are reported too, right after the handler returns, and
+ * whatever the handler derived from them should be discarded.
+ */
+public interface EventLossAware
+{
+    /**
+     * 事件丢失，这些事件会被跳过
+     *
+     * @param sequence the first sequence that was lost.
+     * @param count    the number of consecutive events that were lost.
+     */
+    void onEventsLost(long sequence, long count);
+}
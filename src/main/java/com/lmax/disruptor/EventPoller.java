@@ -22,6 +22,14 @@ public class EventPoller<T>
      * 依赖的序号，我的sequence必须小于gatingSequence
      */
     private final Sequence gatingSequence;
+    /**
+     * 推进消费进度后，唤醒等待空间的生产者
+     */
+    private final ProducerWaitStrategy producerWaitStrategy;
+    /**
+     * 推进消费进度后，唤醒阻塞等待本poller的下游消费者
+     */
+    private final WaitStrategy progressWaitStrategy;
 
     public interface Handler<T>
     {
@@ -43,6 +51,10 @@ public class EventPoller<T>
         this.sequencer = sequencer;
         this.sequence = sequence;
         this.gatingSequence = gatingSequence;
+        this.producerWaitStrategy = sequencer instanceof AbstractSequencer ?
+            ((AbstractSequencer) sequencer).getProducerWaitStrategy() : null;
+        this.progressWaitStrategy = sequencer instanceof AbstractSequencer ?
+            ProcessingSequenceBarrier.progressWaitStrategyOf(((AbstractSequencer) sequencer).waitStrategy) : null;
     }
 
     public PollState poll(final Handler<T> eventHandler) throws Exception
@@ -72,6 +84,14 @@ public class EventPoller<T>
             finally
             {
                 sequence.set(processedSequence);
+                if (null != producerWaitStrategy)
+                {
+                    producerWaitStrategy.signalAllWhenBlocking();
+                }
+                if (null != progressWaitStrategy)
+                {
+                    progressWaitStrategy.signalAllWhenBlocking();
+                }
             }
 
             return PollState.PROCESSING;
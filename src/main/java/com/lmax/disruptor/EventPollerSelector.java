@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在一个线程上消费多个RingBuffer(事件类型可以不同)的选择器，类似于select。
+ * 每个RingBuffer通过一个{@link EventPoller}注册，并指定每次轮询最多处理的事件数；
+ * 每一轮依次轮询所有的poller，轮询顺序由{@link Fairness}决定，所有的poller都没有事件时使用一个共享的
+ * {@link IdleStrategy}等待。
+ *
+ * <p>Consumes from several ring buffers, possibly of different event types, on a single thread.  Each ring is
+ * registered as an {@link EventPoller} with the {@link EventHandler} for its events and a batch limit, the most
+ * events handled from that ring before moving on to the next.  Each select polls every ring once, in the order
+ * given by the {@link Fairness} policy, and when a whole select finds no events the thread waits using the
+ * {@link IdleStrategy}, so a single threaded business logic core can take commands, market data and timers
+ * without extra hops between threads.</p>
+ *
+ * <p>Either {@link #run()} the selector on a thread of its own, or call {@link #selectNow()} from an existing
+ * loop.  The last event handled from a ring in a poll is marked as <code>endOfBatch</code>.</p>
+ */
+public final class EventPollerSelector implements Runnable
+{
+    /**
+     * 每一轮轮询各个RingBuffer的顺序
+     *
+     * <p>The order in which a select polls the registered rings.</p>
+     */
+    public enum Fairness
+    {
+        /**
+         * 每一轮从下一个RingBuffer开始，所有的RingBuffer机会均等
+         *
+         * <p>Start each select from the next ring, so each ring gets the same chance.</p>
+         */
+        ROUND_ROBIN,
+        /**
+         * 每一轮都按注册顺序轮询，先注册的RingBuffer(例如命令)优先
+         *
+         * <p>Always poll in registration order, giving priority to the rings registered first.</p>
+         */
+        PRIORITY
+    }
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final IdleStrategy idleStrategy;
+    private final Fairness fairness;
+    private ExceptionHandler<Object> exceptionHandler = new FatalExceptionHandler();
+    /**
+     * 写时复制，只在注册时追加
+     */
+    private volatile QuotaPoller<?>[] selections = new QuotaPoller<?>[0];
+    private final DutyCycle<QuotaPoller<?>> dutyCycle = new DutyCycle<QuotaPoller<?>>()
+    {
+        @Override
+        int doWork(final QuotaPoller<?> selection)
+        {
+            return selection.poll();
+        }
+    };
+
+    /**
+     * Construct a round robin selector that waits with a {@link BackoffIdleStrategy}.
+     */
+    public EventPollerSelector()
+    {
+        this(new BackoffIdleStrategy(), Fairness.ROUND_ROBIN);
+    }
+
+    /**
+     * @param idleStrategy used when a select found no events on any ring.
+     * @param fairness     the order in which each select polls the rings.
+     */
+    public EventPollerSelector(final IdleStrategy idleStrategy, final Fairness fairness)
+    {
+        this.idleStrategy = idleStrategy;
+        this.fairness = fairness;
+    }
+
+    /**
+     * 注册一个RingBuffer的poller及其事件处理器，运行中注册的处理器在第一次轮询前由选择器线程通知onStart
+     *
+     * <p>Register a ring to select on.  A ring may be registered while the selector is running, in which case a
+     * {@link LifecycleAware} handler is notified of start on the selector thread before its first poll.</p>
+     *
+     * @param poller     created with {@link RingBuffer#newPoller(Sequence...)} on the ring.
+     * @param handler    to which the events of the ring are dispatched.
+     * @param batchLimit the most events handled from this ring in one select.
+     * @param <T>        the event type of the ring.
+     * @return this selector.
+     */
+    public synchronized <T> EventPollerSelector register(
+        final EventPoller<T> poller,
+        final EventHandler<? super T> handler,
+        final int batchLimit)
+    {
+        if (batchLimit < 1)
+        {
+            throw new IllegalArgumentException("batchLimit must not be less than 1");
+        }
+
+        final QuotaPoller<T> selection = new QuotaPoller<>(poller, handler, batchLimit);
+        selection.setExceptionHandler(exceptionHandler);
+
+        final QuotaPoller<?>[] newSelections = Arrays.copyOf(selections, selections.length + 1);
+        newSelections[selections.length] = selection;
+        selections = newSelections;
+        return this;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link EventHandler}s.
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public synchronized void setExceptionHandler(final ExceptionHandler<Object> exceptionHandler)
+    {
+        if (null == exceptionHandler)
+        {
+            throw new NullPointerException();
+        }
+
+        this.exceptionHandler = exceptionHandler;
+        for (final QuotaPoller<?> selection : selections)
+        {
+            selection.setExceptionHandler(exceptionHandler);
+        }
+    }
+
+    /**
+     * 轮询所有的RingBuffer一次，不等待
+     *
+     * <p>Poll every registered ring once without waiting.  Must only be called by one thread at a time, and not
+     * while the selector is running.  Does not notify {@link LifecycleAware} handlers.</p>
+     *
+     * @return the number of events handled.
+     * @throws RuntimeException if the {@link ExceptionHandler} throws.
+     */
+    public int selectNow()
+    {
+        return dutyCycle.perform(selections, fairness == Fairness.ROUND_ROBIN);
+    }
+
+    /**
+     * 在当前线程上循环select，直到{@link #halt()}
+     *
+     * <p>Select on the calling thread until halted, notifying any {@link LifecycleAware} handlers on start and
+     * shutdown, including those registered while running.  Exits early if the {@link ExceptionHandler} throws.</p>
+     *
+     * @throws IllegalStateException if the selector is already running.
+     */
+    @Override
+    public void run()
+    {
+        if (!running.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("Thread is already running");
+        }
+
+        QuotaPoller<?>[] started = selections;
+        notifyStart(started, 0);
+        try
+        {
+            while (running.get())
+            {
+                final QuotaPoller<?>[] current = selections;
+                if (current != started)
+                {
+                    // 注册只会追加，新注册的处理器在started.length之后
+                    notifyStart(current, started.length);
+                    started = current;
+                }
+
+                idleStrategy.idle(dutyCycle.perform(current, fairness == Fairness.ROUND_ROBIN));
+            }
+        }
+        finally
+        {
+            for (final QuotaPoller<?> selection : started)
+            {
+                selection.notifyShutdown();
+            }
+            running.set(false);
+        }
+    }
+
+    /**
+     * Stop a running selector once it completes the current select.
+     */
+    public void halt()
+    {
+        running.set(false);
+    }
+
+    public boolean isRunning()
+    {
+        return running.get();
+    }
+
+    private static void notifyStart(final QuotaPoller<?>[] selections, final int from)
+    {
+        for (int i = from; i < selections.length; i++)
+        {
+            selections[i].notifyStart();
+        }
+    }
+}
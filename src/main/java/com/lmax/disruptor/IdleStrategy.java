@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 空闲策略，用于轮询多个消费者的线程(例如{@link CooperativeEventRunner})在一轮轮询没有处理任何事件时如何等待。
+ * 与{@link WaitStrategy}不同，它不在某一个序号上等待，而是由调用者报告这一轮完成的工作量。
+ *
+ * <p>Strategy for a thread that polls for work, such as the threads of a {@link CooperativeEventRunner}, to use
+ * between duty cycles.  Unlike a {@link WaitStrategy} it does not wait on a sequence; the caller reports how much
+ * work the last cycle did and the strategy backs off while there is none.</p>
+ *
+ * <p>One instance may be shared by several polling threads, so implementations keep any back off state per
+ * thread.</p>
+ */
+public interface IdleStrategy
+{
+    /**
+     * 报告一轮轮询的工作量，为0时按策略等待，大于0时重置等待状态
+     *
+     * @param workCount the amount of work done in the last duty cycle, 0 if none.
+     */
+    void idle(int workCount);
+}
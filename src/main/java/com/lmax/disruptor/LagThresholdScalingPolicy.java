@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 按滞后量的阈值伸缩：滞后量超过上限时增加一个worker，低于下限时减少一个worker。
+ * 两个阈值之间留有间隔，避免在阈值附近反复增减。
+ *
+ * <p>{@link WorkerScalingPolicy} that adds one worker each time the lag is above <code>scaleUpLag</code> and
+ * retires one each time it is below <code>scaleDownLag</code>.  The gap between the two thresholds stops the pool
+ * from flapping around a single threshold.</p>
+ */
+public final class LagThresholdScalingPolicy implements WorkerScalingPolicy
+{
+    private final long scaleUpLag;
+    private final long scaleDownLag;
+
+    /**
+     * @param scaleUpLag   add a worker when the lag is above this.
+     * @param scaleDownLag retire a worker when the lag is below this, must be less than <code>scaleUpLag</code>.
+     */
+    public LagThresholdScalingPolicy(final long scaleUpLag, final long scaleDownLag)
+    {
+        if (scaleDownLag >= scaleUpLag)
+        {
+            throw new IllegalArgumentException("scaleDownLag must be less than scaleUpLag");
+        }
+        this.scaleUpLag = scaleUpLag;
+        this.scaleDownLag = scaleDownLag;
+    }
+
+    @Override
+    public int targetWorkerCount(final long lag, final int workerCount)
+    {
+        if (lag > scaleUpLag)
+        {
+            return workerCount + 1;
+        }
+        if (lag < scaleDownLag)
+        {
+            return workerCount - 1;
+        }
+        return workerCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LagThresholdScalingPolicy{" +
+            "scaleUpLag=" + scaleUpLag +
+            ", scaleDownLag=" + scaleDownLag +
+            '}';
+    }
+}
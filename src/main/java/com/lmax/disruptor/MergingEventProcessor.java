@@ -0,0 +1,559 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并事件处理器，一个线程消费多个分片(单生产者环形缓冲区)，将它们合并为一个事件流交给{@link EventHandler}。
+ * 分片之间的公平性可以是轮询(每个分片每轮最多处理shardBatchLimit个事件)，也可以按事件的时间戳顺序。
+ * <p>
+ * 所有分片都没有数据时，通过分片共用的{@link WaitStrategy}等待任意一个分片发布新的事件。
+ *
+ * <p>Drains several shards, such as those of a {@link ShardedRingBuffer}, on one thread and presents them
+ * to an {@link EventHandler} as a single stream.  Shards are either visited round-robin, taking at most
+ * <code>shardBatchLimit</code> events from each shard per visit, or merged in {@link Timestamper timestamp}
+ * order among the events published so far.</p>
+ *
+ * <p>The sequence passed to the handler is the sequence of the event within its shard.  The barriers must
+ * report published events through {@link SequenceBarrier#getCursor()}, which holds for single producer rings.
+ * When all shards are empty the processor waits on the {@link WaitStrategy} shared by the shards until any of
+ * them publishes, so every shard must signal that same strategy instance.</p>
+ *
+ * <p>If the {@link EventHandler} also implements {@link LifecycleAware} it will be notified just after the thread
+ * is started and just before the thread is shutdown.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class MergingEventProcessor<T> implements EventProcessor
+{
+    private static final int IDLE = 0;
+    private static final int HALTED = IDLE + 1;
+    private static final int RUNNING = HALTED + 1;
+
+    /**
+     * 按时间戳合并时，用于获取事件的时间戳
+     *
+     * <p>Extracts the timestamp used to merge events from different shards in order.</p>
+     *
+     * @param <T> event type.
+     */
+    public interface Timestamper<T>
+    {
+        /**
+         * @param event to get the timestamp of.
+         * @return the timestamp of the event, events with smaller timestamps are handled first.
+         */
+        long getTimestamp(T event);
+    }
+
+    private final AtomicInteger running = new AtomicInteger(IDLE);
+    private ExceptionHandler<? super T> exceptionHandler = new FatalExceptionHandler();
+    private final DataProvider<T>[] providers;
+    private final SequenceBarrier[] barriers;
+    private final WaitStrategy waitStrategy;
+    private final EventHandler<? super T> eventHandler;
+    /**
+     * 每个分片一个消费进度
+     */
+    private final Sequence[] sequences;
+    /**
+     * 所有分片中最慢的消费进度
+     */
+    private final Sequence sequence;
+    /**
+     * 所有分片已发布事件的总数，空闲时在它上面等待
+     */
+    private final Sequence publishedCount;
+    /**
+     * 推进分片的消费进度后，唤醒等待该分片空间的生产者和阻塞等待本消费者的下游消费者
+     */
+    private final ProducerWaitStrategy[] producerWaitStrategies;
+    private final WaitStrategy[] progressWaitStrategies;
+    private final int shardBatchLimit;
+    private final Timestamper<? super T> timestamper;
+
+    /**
+     * Construct a processor that visits the shards round-robin.
+     *
+     * @param providers       the shards to drain.
+     * @param barriers        one barrier per shard, in the same order.
+     * @param waitStrategy    the wait strategy shared by the shards, used to wait when every shard is empty.
+     * @param eventHandler    is the delegate to which events are dispatched.
+     * @param shardBatchLimit the maximum number of events to take from a shard before moving to the next one.
+     */
+    public MergingEventProcessor(
+        final DataProvider<T>[] providers,
+        final SequenceBarrier[] barriers,
+        final WaitStrategy waitStrategy,
+        final EventHandler<? super T> eventHandler,
+        final int shardBatchLimit)
+    {
+        this(providers, barriers, waitStrategy, eventHandler, shardBatchLimit, null);
+        if (shardBatchLimit < 1)
+        {
+            throw new IllegalArgumentException("shardBatchLimit must not be less than 1");
+        }
+    }
+
+    /**
+     * Construct a processor that merges the shards in timestamp order.
+     *
+     * @param providers    the shards to drain.
+     * @param barriers     one barrier per shard, in the same order.
+     * @param waitStrategy the wait strategy shared by the shards, used to wait when every shard is empty.
+     * @param eventHandler is the delegate to which events are dispatched.
+     * @param timestamper  used to order events from different shards.
+     */
+    public MergingEventProcessor(
+        final DataProvider<T>[] providers,
+        final SequenceBarrier[] barriers,
+        final WaitStrategy waitStrategy,
+        final EventHandler<? super T> eventHandler,
+        final Timestamper<? super T> timestamper)
+    {
+        this(providers, barriers, waitStrategy, eventHandler, Integer.MAX_VALUE, timestamper);
+        if (null == timestamper)
+        {
+            throw new NullPointerException();
+        }
+    }
+
+    private MergingEventProcessor(
+        final DataProvider<T>[] providers,
+        final SequenceBarrier[] barriers,
+        final WaitStrategy waitStrategy,
+        final EventHandler<? super T> eventHandler,
+        final int shardBatchLimit,
+        final Timestamper<? super T> timestamper)
+    {
+        if (providers.length != barriers.length || providers.length == 0)
+        {
+            throw new IllegalArgumentException("There must be one barrier for each of at least one provider");
+        }
+
+        this.providers = providers;
+        this.barriers = barriers;
+        this.waitStrategy = waitStrategy;
+        this.eventHandler = eventHandler;
+        this.shardBatchLimit = shardBatchLimit;
+        this.timestamper = timestamper;
+
+        this.sequences = new Sequence[providers.length];
+        for (int i = 0; i < sequences.length; i++)
+        {
+            sequences[i] = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        }
+        this.sequence = new FixedSequenceGroup(sequences);
+        this.publishedCount = new PublishedCount(barriers);
+
+        this.producerWaitStrategies = new ProducerWaitStrategy[barriers.length];
+        this.progressWaitStrategies = new WaitStrategy[barriers.length];
+        for (int i = 0; i < barriers.length; i++)
+        {
+            producerWaitStrategies[i] = ProcessingSequenceBarrier.producerWaitStrategyOf(barriers[i]);
+            progressWaitStrategies[i] = ProcessingSequenceBarrier.progressWaitStrategyOf(barriers[i]);
+        }
+    }
+
+    /**
+     * Get the slowest of the per-shard sequences, use {@link #getSequences()} to gate each shard.
+     *
+     * @return a read only sequence over the progress through every shard.
+     */
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Get the sequences tracking the progress through each shard, in shard order.
+     *
+     * @return one sequence per shard.
+     */
+    public Sequence[] getSequences()
+    {
+        return sequences;
+    }
+
+    @Override
+    public void halt()
+    {
+        running.set(HALTED);
+        for (SequenceBarrier barrier : barriers)
+        {
+            barrier.alert();
+        }
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get() != IDLE;
+    }
+
+    /**
+     * Set a new {@link ExceptionHandler} for handling exceptions propagated out of the {@link MergingEventProcessor}
+     *
+     * @param exceptionHandler to replace the existing exceptionHandler.
+     */
+    public void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler)
+    {
+        if (null == exceptionHandler)
+        {
+            throw new NullPointerException();
+        }
+
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * It is ok to have another thread rerun this method after a halt().
+     *
+     * @throws IllegalStateException if this object instance is already running in a thread
+     */
+    @Override
+    public void run()
+    {
+        if (running.compareAndSet(IDLE, RUNNING))
+        {
+            for (SequenceBarrier barrier : barriers)
+            {
+                barrier.clearAlert();
+            }
+
+            notifyStart();
+            try
+            {
+                if (running.get() == RUNNING)
+                {
+                    processEvents();
+                }
+            }
+            finally
+            {
+                notifyShutdown();
+                running.set(IDLE);
+            }
+        }
+        else
+        {
+            if (running.get() == RUNNING)
+            {
+                throw new IllegalStateException("Thread is already running");
+            }
+            else
+            {
+                notifyStart();
+                notifyShutdown();
+            }
+        }
+    }
+
+    private void processEvents()
+    {
+        final long[] nextSequences = new long[sequences.length];
+        final long[] availableSequences = new long[sequences.length];
+        for (int i = 0; i < sequences.length; i++)
+        {
+            nextSequences[i] = sequences[i].get() + 1L;
+        }
+
+        int firstShard = 0;
+        while (true)
+        {
+            try
+            {
+                barriers[0].checkAlert();
+
+                for (int i = 0; i < barriers.length; i++)
+                {
+                    availableSequences[i] = barriers[i].getCursor();
+                }
+
+                final long processed;
+                if (null == timestamper)
+                {
+                    processed = processRoundRobin(firstShard, nextSequences, availableSequences);
+                    // 下一轮从下一个分片开始，避免总是优先处理第一个分片
+                    firstShard = firstShard + 1 == barriers.length ? 0 : firstShard + 1;
+                }
+                else
+                {
+                    processed = processByTimestamp(nextSequences, availableSequences);
+                }
+
+                if (processed == 0)
+                {
+                    waitForPublication(nextSequences);
+                }
+            }
+            catch (final AlertException ex)
+            {
+                if (running.get() != RUNNING)
+                {
+                    break;
+                }
+            }
+            catch (final TimeoutException ex)
+            {
+                // 超时后重新检查所有分片
+            }
+            catch (final InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                halt();
+            }
+        }
+    }
+
+    private long processRoundRobin(final int firstShard, final long[] nextSequences, final long[] availableSequences)
+    {
+        long processed = 0;
+        for (int n = 0; n < barriers.length; n++)
+        {
+            final int shard = (firstShard + n) % barriers.length;
+            final long nextSequence = nextSequences[shard];
+            final long availableSequence = Math.min(availableSequences[shard], nextSequence + shardBatchLimit - 1);
+            if (nextSequence > availableSequence)
+            {
+                continue;
+            }
+
+            final DataProvider<T> provider = providers[shard];
+            for (long sequence = nextSequence; sequence <= availableSequence; sequence++)
+            {
+                dispatch(provider.get(sequence), sequence, sequence == availableSequence);
+            }
+
+            advance(shard, availableSequence);
+            nextSequences[shard] = availableSequence + 1;
+            processed += availableSequence - nextSequence + 1;
+        }
+
+        return processed;
+    }
+
+    /**
+     * 在本轮看见的所有已发布事件中，每次选择时间戳最小的分片头部事件处理，时间戳相同时选择下标小的分片。
+     */
+    private long processByTimestamp(final long[] nextSequences, final long[] availableSequences)
+    {
+        long remaining = 0;
+        for (int shard = 0; shard < barriers.length; shard++)
+        {
+            remaining += Math.max(0, availableSequences[shard] - nextSequences[shard] + 1);
+        }
+
+        final long processed = remaining;
+        while (remaining > 0)
+        {
+            int earliestShard = -1;
+            long earliestTimestamp = 0;
+            T earliestEvent = null;
+            for (int shard = 0; shard < barriers.length; shard++)
+            {
+                if (nextSequences[shard] <= availableSequences[shard])
+                {
+                    final T event = providers[shard].get(nextSequences[shard]);
+                    final long timestamp = timestamper.getTimestamp(event);
+                    if (earliestShard < 0 || timestamp < earliestTimestamp)
+                    {
+                        earliestShard = shard;
+                        earliestTimestamp = timestamp;
+                        earliestEvent = event;
+                    }
+                }
+            }
+
+            final long sequence = nextSequences[earliestShard]++;
+            remaining--;
+            dispatch(earliestEvent, sequence, remaining == 0);
+        }
+
+        for (int shard = 0; shard < barriers.length; shard++)
+        {
+            if (sequences[shard].get() != nextSequences[shard] - 1)
+            {
+                advance(shard, nextSequences[shard] - 1);
+            }
+        }
+
+        return processed;
+    }
+
+    /**
+     * 与BatchEventProcessor相同，更新进度后唤醒该分片的生产者和下游消费者
+     */
+    private void advance(final int shard, final long sequence)
+    {
+        sequences[shard].set(sequence);
+        producerWaitStrategies[shard].signalAllWhenBlocking();
+        progressWaitStrategies[shard].signalAllWhenBlocking();
+    }
+
+    private void dispatch(final T event, final long sequence, final boolean endOfBatch)
+    {
+        try
+        {
+            eventHandler.onEvent(event, sequence, endOfBatch);
+        }
+        catch (final Throwable ex)
+        {
+            exceptionHandler.handleEventException(ex, sequence, event);
+        }
+    }
+
+    /**
+     * 所有分片都没有新事件时，已处理的事件总数等于已发布的事件总数，等待任意一个分片再发布一个事件
+     */
+    private void waitForPublication(final long[] nextSequences)
+        throws AlertException, InterruptedException, TimeoutException
+    {
+        long consumedCount = 0;
+        for (final long nextSequence : nextSequences)
+        {
+            consumedCount += nextSequence;
+        }
+
+        waitStrategy.waitFor(consumedCount + 1, publishedCount, publishedCount, barriers[0]);
+    }
+
+    /**
+     * 所有分片cursor之和，每个分片发布一个事件它就加一，只支持获取。
+     * {@link WaitStrategy}只接受{@link Sequence}，因此与{@link FixedSequenceGroup}一样覆盖所有修改方法。
+     *
+     * <p>The number of events published across all shards, seen as a single sequence so that the shared
+     * {@link WaitStrategy} can wait for a publication to any of them.  Every mutator is unsupported.</p>
+     */
+    private static final class PublishedCount extends Sequence
+    {
+        private final SequenceBarrier[] barriers;
+
+        PublishedCount(final SequenceBarrier[] barriers)
+        {
+            this.barriers = barriers;
+        }
+
+        @Override
+        public long get()
+        {
+            long count = 0;
+            for (final SequenceBarrier barrier : barriers)
+            {
+                count += barrier.getCursor() + 1;
+            }
+            return count;
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public void set(final long value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public void setVolatile(final long value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public boolean compareAndSet(final long expectedValue, final long newValue)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public long incrementAndGet()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public long addAndGet(final long increment)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public long getAndAdd(final long increment)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString()
+        {
+            return Long.toString(get());
+        }
+    }
+
+    /**
+     * Notifies the EventHandler when this processor is starting up
+     */
+    private void notifyStart()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onStart();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    /**
+     * Notifies the EventHandler immediately prior to this processor shutting down
+     */
+    private void notifyShutdown()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onShutdown();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
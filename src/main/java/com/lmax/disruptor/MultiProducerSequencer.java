@@ -15,7 +15,7 @@
  */
 package com.lmax.disruptor;
 
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
 
 import sun.misc.Unsafe;
 
@@ -41,11 +41,15 @@ public final class MultiProducerSequencer extends AbstractSequencer
     /**
      * 获取{@link #availableBuffer}数组对象头元素偏移量
      */
-    private static final long BASE = UNSAFE.arrayBaseOffset(int[].class);
+    private static final long BASE = UNSAFE.arrayBaseOffset(long[].class);
     /**
      * 获取{@link #availableBuffer}数组一个元素的地址偏移量(用于计算指定下标的元素的内存地址)
      */
-    private static final long SCALE = UNSAFE.arrayIndexScale(int[].class);
+    private static final long SCALE = UNSAFE.arrayIndexScale(long[].class);
+    /**
+     * 每个long可以存放的插槽标记数
+     */
+    private static final int BITS_PER_WORD = 64;
 
 	/**
 	 * 上次获取到的最小序号缓存，会被并发的访问，因此用Sequence，而单线程的Sequencer中则使用了一个普通long变量。
@@ -75,10 +79,18 @@ public final class MultiProducerSequencer extends AbstractSequencer
     private final Sequence gatingSequenceCache = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
 
     // 多生产者模式下，标记哪些序号是真正被填充了数据的。(用于获取连续的可用空间)
-    // 其实就是表明数据是属于第几环
-    // availableBuffer tracks the state of each ringbuffer slot
+    // 每个插槽一个bit，表示数据所属环数的奇偶性，一个long存放64个插槽的标记
+    // availableBuffer tracks the state of each ringbuffer slot, one bit per slot
     // see below for more details on the approach
-    private final int[] availableBuffer;
+    private final long[] availableBuffer;
+    /**
+     * 每个long中真正使用的bit数，bufferSize小于64时只使用低bufferSize位
+     */
+    private final int bitsPerWord;
+    /**
+     * 每个long中真正使用的bit的掩码
+     */
+    private final long wordMask;
 	/**
 	 * 用于快速的计算序号对应的下标，与计算就可以，本质上和RingBuffer中计算插槽位置一样
 	 * {@link RingBufferFields#elementAt(long)}
@@ -88,6 +100,45 @@ public final class MultiProducerSequencer extends AbstractSequencer
      * 用于计算sequence可用标记的偏移量(与计算)
      */
     private final int indexShift;
+    /**
+     * 是否使用fetch-and-add申请序号，见{@link #nextByFetchAndAdd(int)}
+     */
+    private final boolean fetchAndAddClaim;
+    /**
+     * 每次为线程租借的序号数，为1时不使用租约
+     */
+    private final int leaseSize;
+    /**
+     * 每个生产者线程当前持有的租约，不使用租约时为null
+     */
+    private final ThreadLocal<Lease> leases;
+    /**
+     * 发布租约中无法使用的序号前填充它们，为null时原样发布
+     */
+    private LeasePadding leasePadding;
+
+    /**
+     * 一个线程已经从cursor申请到、但还未通过{@link #next(int)}分配出去的序号区间[next, limit]
+     */
+    private static final class Lease
+    {
+        long next = 0;
+        long limit = -1;
+    }
+
+    /**
+     * 填充租约中被跳过的序号，之后它们作为空事件发布
+     *
+     * <p>Fills the leased sequences that are skipped, before they are published as padding.</p>
+     */
+    public interface LeasePadding
+    {
+        /**
+         * @param lo first skipped sequence.
+         * @param hi last skipped sequence.
+         */
+        void pad(long lo, long hi);
+    }
 
     /**
      * Construct a Sequencer with the selected wait strategy and buffer size.
@@ -97,13 +148,98 @@ public final class MultiProducerSequencer extends AbstractSequencer
      */
     public MultiProducerSequencer(int bufferSize, final WaitStrategy waitStrategy)
     {
-        super(bufferSize, waitStrategy);
-        availableBuffer = new int[bufferSize];
+        this(bufferSize, waitStrategy, false);
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategy, buffer size and claim mode.
+     *
+     * @param bufferSize       the size of the buffer that this will sequence over.
+     * @param waitStrategy     for those waiting on sequences.
+     * @param fetchAndAddClaim if true {@link #next(int)} claims with a single fetch-and-add on the cursor
+     *                         rather than a CAS loop, see {@link #nextByFetchAndAdd(int)}.
+     */
+    public MultiProducerSequencer(int bufferSize, final WaitStrategy waitStrategy, final boolean fetchAndAddClaim)
+    {
+        this(bufferSize, waitStrategy, fetchAndAddClaim, 1);
+    }
+
+    /**
+     * 使用租约的多生产者序号生成器。
+     * 每个生产者线程一次从共享的cursor申请leaseSize个序号，之后的{@link #next(int)}在线程本地分配，不再访问cursor。
+     * <p>
+     * 注意：租约中未发布的序号会阻塞消费者，生产者暂停发布前必须调用{@link #releaseLease()}，
+     * 将剩余的序号作为空事件发布，见{@link #setLeasePadding(LeasePadding)}。
+     *
+     * <p>Construct a Sequencer where each publishing thread claims <code>leaseSize</code> sequences from the
+     * shared cursor at once and then hands them out locally through {@link #next(int)}.  Consumers can not
+     * read past leased sequences that have not been published, so a publisher that goes quiet must release
+     * its lease, see {@link #releaseLease()}.</p>
+     *
+     * @param bufferSize       the size of the buffer that this will sequence over.
+     * @param waitStrategy     for those waiting on sequences.
+     * @param fetchAndAddClaim if true leases are claimed with a single fetch-and-add on the cursor.
+     * @param leaseSize        the number of sequences leased to a thread at once, 1 disables leases.
+     * @throws IllegalArgumentException if leaseSize is less than 1 or greater than bufferSize.
+     */
+    public MultiProducerSequencer(
+        int bufferSize, final WaitStrategy waitStrategy, final boolean fetchAndAddClaim, final int leaseSize)
+    {
+        this(bufferSize, waitStrategy, fetchAndAddClaim, leaseSize, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategies and buffer size.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param producerWaitStrategy for publishers waiting for space in a full buffer.
+     */
+    public MultiProducerSequencer(
+        int bufferSize, final WaitStrategy waitStrategy, final ProducerWaitStrategy producerWaitStrategy)
+    {
+        this(bufferSize, waitStrategy, false, 1, producerWaitStrategy);
+    }
+
+    /**
+     * Construct a Sequencer with all options.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param fetchAndAddClaim     if true sequences are claimed with a single fetch-and-add on the cursor.
+     * @param leaseSize            the number of sequences leased to a thread at once, 1 disables leases.
+     * @param producerWaitStrategy for publishers waiting for space in a full buffer.
+     * @throws IllegalArgumentException if leaseSize is less than 1 or greater than bufferSize.
+     */
+    public MultiProducerSequencer(
+        int bufferSize,
+        final WaitStrategy waitStrategy,
+        final boolean fetchAndAddClaim,
+        final int leaseSize,
+        final ProducerWaitStrategy producerWaitStrategy)
+    {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
+        if (leaseSize < 1 || leaseSize > bufferSize)
+        {
+            throw new IllegalArgumentException("leaseSize must be between 1 and bufferSize");
+        }
+
+        this.fetchAndAddClaim = fetchAndAddClaim;
+        this.leaseSize = leaseSize;
+        this.leases = leaseSize > 1 ? new ThreadLocal<Lease>()
+        {
+            @Override
+            protected Lease initialValue()
+            {
+                return new Lease();
+            }
+        } : null;
+        bitsPerWord = Math.min(bufferSize, BITS_PER_WORD);
+        wordMask = bitsPerWord == BITS_PER_WORD ? -1L : (1L << bitsPerWord) - 1;
+        // 初始值全0，即第-1环的标记，所有插槽都不可用
+        availableBuffer = new long[(bufferSize + BITS_PER_WORD - 1) / BITS_PER_WORD];
         indexMask = bufferSize - 1;
         indexShift = Util.log2(bufferSize);
-
-        // 初始化时，设置插槽上的所有标记为不可用
-        initialiseAvailableBuffer();
     }
 
     /**
@@ -220,6 +356,19 @@ public final class MultiProducerSequencer extends AbstractSequencer
             throw new IllegalArgumentException("n must be > 0");
         }
 
+        if (null != leases)
+        {
+            return nextFromLease(n);
+        }
+
+        return fetchAndAddClaim ? nextByFetchAndAdd(n) : nextByCompareAndSet(n);
+    }
+
+    /**
+     * CAS方式申请序号，见{@link #next(int)}
+     */
+    private long nextByCompareAndSet(int n)
+    {
         long current;
         long next;
 
@@ -249,7 +398,8 @@ public final class MultiProducerSequencer extends AbstractSequencer
                 if (wrapPoint > gatingSequence)
                 {
                     // wrapPoint > gatingSequence 意外着 gatingSequence无效，因为生产者期待的是一个大于等于wrapPoint的值，因此也就不更新缓存。
-                    LockSupport.parkNanos(1); // TODO, should we spin based on the wait strategy?
+                    // 等待消费者让出空间后重试，cursor可能已被其它生产者推进，因此需要重新计算wrapPoint
+                    producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence);
                     continue;
                 }
 
@@ -274,6 +424,239 @@ public final class MultiProducerSequencer extends AbstractSequencer
         return next;
     }
 
+    /**
+     * 先申请，后等待。
+     * 通过一次fetch-and-add直接推进cursor，申请必定成功，不存在CAS失败重试；
+     * 然后再等待消费者让出足够的空间(wrapPoint)，在此之前不能写入数据。
+     * <p>
+     * 由于申请无法撤销，cursor可能会超前于 最慢消费者进度 + bufferSize，此时{@link #hasAvailableCapacity(int)}
+     * 和{@link #tryNext(int)}会看见空间不足；消费者依然通过availableBuffer确认真正已发布的序号，不受影响。
+     * 因此{@link #tryNext(int)}始终使用CAS方式申请。
+     *
+     * <p>Claim by fetch-and-add on the cursor, then wait for the gating sequences to pass the wrap point.
+     * The claim can not fail, so there are no CAS retries under heavy contention, but it also can
+     * not be undone, which is why {@link #tryNext(int)} keeps using the CAS path.</p>
+     */
+    private long nextByFetchAndAdd(int n)
+    {
+        if (n > bufferSize)
+        {
+            throw new IllegalArgumentException("n must be <= bufferSize");
+        }
+
+        long current = cursor.getAndAdd(n);
+        long next = current + n;
+        long wrapPoint = next - bufferSize;
+        long cachedGatingSequence = gatingSequenceCache.get();
+
+        // 与CAS方式相同：缓存的消费者进度超前于current时缓存也已过期，需要重新获取
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current)
+        {
+            long gatingSequence = Util.getMinimumSequence(gatingSequences, current);
+            if (wrapPoint > gatingSequence)
+            {
+                gatingSequence = producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence);
+            }
+
+            gatingSequenceCache.set(gatingSequence);
+        }
+
+        return next;
+    }
+
+    /**
+     * 从当前线程的租约中分配序号，租约用完时一次性申请leaseSize个序号作为新的租约。
+     *
+     * <p>Hand out sequences from the lease of the calling thread, claiming a new lease of
+     * <code>leaseSize</code> sequences from the shared cursor only when the current one is used up.</p>
+     */
+    private long nextFromLease(int n)
+    {
+        Lease lease = leases.get();
+        if (!takeFromLease(lease, n))
+        {
+            if (n > leaseSize)
+            {
+                return fetchAndAddClaim ? nextByFetchAndAdd(n) : nextByCompareAndSet(n);
+            }
+
+            lease.limit = fetchAndAddClaim ? nextByFetchAndAdd(leaseSize) : nextByCompareAndSet(leaseSize);
+            lease.next = lease.limit - leaseSize + 1;
+        }
+
+        lease.next += n;
+        return lease.next - 1;
+    }
+
+    /**
+     * 租约中是否有n个连续的序号可以分配。
+     * 剩余的序号不足n个时，如果租约仍位于cursor末尾，通过CAS从lease.limit延长租约；
+     * 否则将剩余的序号作为空事件发布，调用方需要重新申请。
+     *
+     * @return true if n sequences can be handed out from the lease, false if a fresh claim is needed.
+     */
+    private boolean takeFromLease(final Lease lease, final int n)
+    {
+        final long remaining = lease.limit - lease.next + 1;
+        if (remaining >= n)
+        {
+            return true;
+        }
+        if (remaining == 0)
+        {
+            return false;
+        }
+
+        final long current = lease.limit;
+        final int extension = (int) (n - remaining);
+        if (cursor.get() == current &&
+            hasAvailableCapacity(gatingSequences, extension, current) &&
+            cursor.compareAndSet(current, current + extension))
+        {
+            lease.limit = current + extension;
+            return true;
+        }
+
+        padLease(lease);
+        return false;
+    }
+
+    /**
+     * 当前线程的租约中还未分配的序号数
+     *
+     * <p>Get the number of sequences leased to the calling thread that have not been handed out by
+     * {@link #next(int)} yet.  Every one of them must be published or released before consumers
+     * can read past them.</p>
+     *
+     * @return the number of unused sequences in the lease of the calling thread, 0 if leases are not enabled.
+     */
+    public int getRemainingLease()
+    {
+        if (null == leases)
+        {
+            return 0;
+        }
+
+        Lease lease = leases.get();
+        return (int) (lease.limit - lease.next + 1);
+    }
+
+    /**
+     * 设置填充被跳过的租约序号的方式，必须在发布前设置，见{@link RingBuffer#createLeasingMultiProducer}
+     *
+     * <p>Set how the leased sequences that are skipped get filled before they are published, because the
+     * calling thread released its lease or claimed more than remained in it.  Without padding they are
+     * published as they are.  Must be set before publishing starts.</p>
+     *
+     * @param leasePadding used to fill skipped sequences.
+     */
+    public void setLeasePadding(final LeasePadding leasePadding)
+    {
+        this.leasePadding = leasePadding;
+    }
+
+    /**
+     * 结束当前线程的租约，将未使用的序号填充后作为空事件发布。
+     * cursor不会回退，即使租约仍位于cursor末尾，否则已经读取过cursor的消费者和生产者会看见它变小。
+     *
+     * <p>End the lease of the calling thread by publishing its unused sequences as padding, see
+     * {@link #setLeasePadding(LeasePadding)}.  The cursor never moves backwards, so they can not be given back
+     * even when nobody has claimed after the lease.</p>
+     *
+     * @return the number of padding sequences published.
+     */
+    public int releaseLease()
+    {
+        if (null == leases)
+        {
+            return 0;
+        }
+
+        final Lease lease = leases.get();
+        final int remaining = (int) (lease.limit - lease.next + 1);
+        if (remaining > 0)
+        {
+            padLease(lease);
+        }
+        return remaining;
+    }
+
+    private void padLease(final Lease lease)
+    {
+        final long lo = lease.next;
+        final long hi = lease.limit;
+        lease.next = hi + 1;
+        if (null != leasePadding)
+        {
+            leasePadding.pad(lo, hi);
+        }
+        publish(lo, hi);
+    }
+
+    /**
+     * 与CAS方式的{@link #next(int)}相同，但空间不足时最多等待timeout。
+     * fetch-and-add方式的申请无法撤销，因此该方法总是使用CAS方式申请；
+     * 租约中有足够的序号(或可以延长)时直接从租约中分配，否则只申请n个序号，不会申请新的租约。
+     *
+     * @see Sequencer#next(int, long, TimeUnit)
+     */
+    @Override
+    public long next(int n, long timeout, TimeUnit unit) throws TimeoutException
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        if (null != leases)
+        {
+            Lease lease = leases.get();
+            if (takeFromLease(lease, n))
+            {
+                lease.next += n;
+                return lease.next - 1;
+            }
+        }
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long current;
+        long next;
+
+        do
+        {
+            current = cursor.get();
+            next = current + n;
+
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current)
+            {
+                long gatingSequence = Util.getMinimumSequence(gatingSequences, current);
+
+                if (wrapPoint > gatingSequence)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 ||
+                        wrapPoint > producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence, remaining))
+                    {
+                        throw TimeoutException.INSTANCE;
+                    }
+                    continue;
+                }
+
+                gatingSequenceCache.set(gatingSequence);
+            }
+            else if (cursor.compareAndSet(current, next))
+            {
+                break;
+            }
+        }
+        while (true);
+
+        return next;
+    }
+
     /**
      * @see Sequencer#tryNext()
      */
@@ -302,6 +685,16 @@ public final class MultiProducerSequencer extends AbstractSequencer
             throw new IllegalArgumentException("n must be > 0");
         }
 
+        if (null != leases)
+        {
+            Lease lease = leases.get();
+            if (takeFromLease(lease, n))
+            {
+                lease.next += n;
+                return lease.next - 1;
+            }
+        }
+
         long current;
         long next;
 
@@ -334,19 +727,6 @@ public final class MultiProducerSequencer extends AbstractSequencer
         return getBufferSize() - (produced - consumed);
     }
 
-    /**
-     * 初始化插槽上的标记为不可用
-     */
-    private void initialiseAvailableBuffer()
-    {
-        for (int i = availableBuffer.length - 1; i != 0; i--)
-        {
-            setAvailableBufferValue(i, -1);
-        }
-
-        setAvailableBufferValue(0, -1);
-    }
-
     /**
      * @see Sequencer#publish(long)
      */
@@ -358,20 +738,42 @@ public final class MultiProducerSequencer extends AbstractSequencer
     }
 
     /**
+     * 同一个long中的标记只需要一次CAS
      * @see Sequencer#publish(long, long)
      */
     @Override
     public void publish(long lo, long hi)
     {
-        for (long l = lo; l <= hi; l++)
+        setAvailable(lo, hi);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * @see Sequencer#publishDeferred(long, long)
+     */
+    @Override
+    public void publishDeferred(long lo, long hi)
+    {
+        setAvailable(lo, hi);
+    }
+
+    private void setAvailable(final long lo, final long hi)
+    {
+        long sequence = lo;
+        while (sequence <= hi)
         {
-            setAvailable(l);
+            int index = calculateIndex(sequence);
+            int bit = index & (BITS_PER_WORD - 1);
+            int count = (int) Math.min(hi - sequence + 1, bitsPerWord - bit);
+            long bits = (count == BITS_PER_WORD ? -1L : (1L << count) - 1) << bit;
+
+            setAvailableBits(index, bits, sequence);
+            sequence += count;
         }
-        waitStrategy.signalAllWhenBlocking();
     }
 
     /**
-	 * 设置目标插槽上的数据可用，将对应插槽上的标记置为可用标记（第几环）。
+	 * 设置目标插槽上的数据可用，将对应插槽上的bit置为sequence所属环数的奇偶标记。
 	 *
      * The below methods work on the availableBuffer flag.
      * <p>
@@ -384,43 +786,68 @@ public final class MultiProducerSequencer extends AbstractSequencer
      * next/tryNext in the Sequence takes care of that).
      * -- Given that; take the sequence value and mask off the lower portion of the
      * sequence as the index into the buffer (indexMask). (aka modulo operator)
-     * -- The upper portion of the sequence becomes the value to check for availability.
-     * ie: it tells us how many times around the ring buffer we've been (aka division)
+     * -- The upper portion of the sequence tells us how many times around the ring buffer
+     * we've been (aka division). Only its lowest bit is stored, packed 64 slots to a long:
+     * a slot can only be one lap behind or ahead of the sequence being checked, so the
+     * parity of the lap is enough to tell the two apart.
      * -- Because we can't wrap without the gating sequences moving forward (i.e. the
      * minimum gating sequence is effectively our last available position in the
      * buffer), when we have new data and successfully claimed a slot we can simply
      * write over the top.
+     * -- Publishers share a long, so the bits are set with a CAS, which leaves the bits
+     * of the other slots untouched and makes publishing the same sequence twice harmless.
      */
     private void setAvailable(final long sequence)
     {
-        setAvailableBufferValue(calculateIndex(sequence), calculateAvailabilityFlag(sequence));
+        int index = calculateIndex(sequence);
+        setAvailableBits(index, 1L << (index & (BITS_PER_WORD - 1)), sequence);
     }
 
-    private void setAvailableBufferValue(int index, int flag)
+    /**
+     * 将同一个long中的多个插槽标记为sequence所属环的可用标记
+     */
+    private void setAvailableBits(final int index, final long bits, final long sequence)
     {
-        long bufferAddress = (index * SCALE) + BASE;
-        UNSAFE.putOrderedInt(availableBuffer, bufferAddress, flag);
+        long bufferAddress = ((index >>> 6) * SCALE) + BASE;
+        boolean set = calculateAvailabilityFlag(sequence) != 0L;
+
+        long word;
+        long newWord;
+        do
+        {
+            word = UNSAFE.getLongVolatile(availableBuffer, bufferAddress);
+            newWord = set ? word | bits : word & ~bits;
+        }
+        while (word != newWord && !UNSAFE.compareAndSwapLong(availableBuffer, bufferAddress, word, newWord));
     }
 
     /**
-	 * 当指定插槽上的标记和sequence算出的标记一致时，表示可用(已发布) - 标记其实就是第几环
+	 * 当指定插槽上的标记和sequence算出的标记一致时，表示可用(已发布) - 标记其实就是第几环的奇偶性。
+	 * 奇偶性只能区分相邻的两环，所以先把sequence限定在有效窗口内：大于cursor的序号还没有被申请，
+	 * 比cursor落后两环及以上的序号其插槽一定已经被覆盖，两种情况都直接返回false，与按环数标记时的结果一致。
      * @see Sequencer#isAvailable(long)
      */
     @Override
     public boolean isAvailable(long sequence)
     {
+        final long currentCursor = cursor.get();
+        if (sequence > currentCursor || currentCursor - sequence >= (long) bufferSize << 1)
+        {
+            return false;
+        }
+
         int index = calculateIndex(sequence);
-        int flag = calculateAvailabilityFlag(sequence);
-        long bufferAddress = (index * SCALE) + BASE;
-        return UNSAFE.getIntVolatile(availableBuffer, bufferAddress) == flag;
+        long bufferAddress = ((index >>> 6) * SCALE) + BASE;
+        long word = UNSAFE.getLongVolatile(availableBuffer, bufferAddress);
+        return ((word ^ calculateAvailabilityFlag(sequence)) & (1L << (index & (BITS_PER_WORD - 1)))) == 0;
     }
 
     /**
      * 查询 nextSequence-availableSequence 区间段之间连续发布的最大序号。多生产者模式下可能是不连续的。
      * 多生产者模式下{@link Sequencer#next(int)} next是预分配的，因此可能部分数据还未被填充。
      * <P>
-     * 警告：该操作十分消耗性能，如果{@link WaitStrategy#waitFor(long, Sequence, Sequence, SequenceBarrier)}获取sequence之后不完全消费，
-     * 而是每次消费一点，再拉取一点，则会在该操作上形成巨大的开销。
+     * 每次volatile读取一个long，即64个插槽的标记，与期望的标记异或之后，
+     * 通过{@link Long#numberOfTrailingZeros(long)}找到第一个未发布的插槽。
      *
      * @param lowerBound 我期望消费的最小序号，前面的一定都已经发布了
      * @param availableSequence The sequence to scan to.看见的已发布的最大序号
@@ -430,24 +857,35 @@ public final class MultiProducerSequencer extends AbstractSequencer
     @Override
     public long getHighestPublishedSequence(long lowerBound, long availableSequence)
     {
-        for (long sequence = lowerBound; sequence <= availableSequence; sequence++)
+        long sequence = lowerBound;
+        while (sequence <= availableSequence)
         {
-            // 这里中断了，不是连续发布的，需要剪断
-            if (!isAvailable(sequence))
+            int index = calculateIndex(sequence);
+            int bit = index & (BITS_PER_WORD - 1);
+            long bufferAddress = ((index >>> 6) * SCALE) + BASE;
+            long word = UNSAFE.getLongVolatile(availableBuffer, bufferAddress);
+
+            // 为1的bit表示未发布
+            long unavailable = (word ^ calculateAvailabilityFlag(sequence)) & wordMask & (-1L << bit);
+            if (unavailable != 0)
             {
-                return sequence - 1;
+                // 这里中断了，不是连续发布的，需要剪断
+                return Math.min(sequence + (Long.numberOfTrailingZeros(unavailable) - bit) - 1, availableSequence);
             }
+
+            sequence += bitsPerWord - bit;
         }
 
         return availableSequence;
     }
 
     /**
-     * 计算sequence对应可用标记
+     * 计算sequence对应可用标记：环数为偶数时插槽bit为1表示已发布，奇数时为0表示已发布。
+     * 返回值的每一位都是该标记，便于与整个long进行比较。
      */
-    private int calculateAvailabilityFlag(final long sequence)
+    private long calculateAvailabilityFlag(final long sequence)
     {
-        return (int) (sequence >>> indexShift);
+        return -(~(sequence >>> indexShift) & 1L);
     }
 
     /**
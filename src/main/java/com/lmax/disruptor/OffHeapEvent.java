@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.util.Util;
+
+import sun.misc.Unsafe;
+
+/**
+ * {@link OffHeapRingBuffer}中一个槽位(或{@link RecordRingBuffer}中一条记录)的享元(flyweight)视图。
+ * 它不持有数据，只指向当前槽位的堆外内存，同一个实例会被重新指向下一个槽位，因此不能在事件回调之外保留它。
+ * 每个线程(生产者或消费者)通过{@link OffHeapRingBuffer#newEventProvider()}获得自己的实例。
+ *
+ * <p>Flyweight over one slot of an {@link OffHeapRingBuffer}, or one record of a {@link RecordRingBuffer}.  It
+ * holds no data of its own and is moved from slot to slot, so handlers must copy out anything they need beyond the
+ * callback rather than keep the event.  Each thread, producer or consumer, gets its own flyweight from
+ * {@link OffHeapRingBuffer#newEventProvider()} or {@link RecordRingBuffer#newRecord()}.</p>
+ *
+ * <p>Offsets are relative to the start of the slot and values are in native byte order.  Every access is checked
+ * against the slot size, which for a record is its length.</p>
+ */
+public final class OffHeapEvent
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
+    private int size;
+    private long address;
+    private long sequence = -1;
+
+    OffHeapEvent(final int size)
+    {
+        this.size = size;
+    }
+
+    OffHeapEvent moveTo(final long sequence, final long address)
+    {
+        this.sequence = sequence;
+        this.address = address;
+        return this;
+    }
+
+    OffHeapEvent moveTo(final long sequence, final long address, final int size)
+    {
+        this.size = size;
+        return moveTo(sequence, address);
+    }
+
+    long address()
+    {
+        return address;
+    }
+
+    /**
+     * @return the sequence of the slot this flyweight currently points to, or the position of the record.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * @return the number of bytes in a slot, or in the record.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public byte getByte(final int offset)
+    {
+        return UNSAFE.getByte(addressOf(offset, 1));
+    }
+
+    public void putByte(final int offset, final byte value)
+    {
+        UNSAFE.putByte(addressOf(offset, 1), value);
+    }
+
+    public int getInt(final int offset)
+    {
+        return UNSAFE.getInt(addressOf(offset, 4));
+    }
+
+    public void putInt(final int offset, final int value)
+    {
+        UNSAFE.putInt(addressOf(offset, 4), value);
+    }
+
+    public long getLong(final int offset)
+    {
+        return UNSAFE.getLong(addressOf(offset, 8));
+    }
+
+    public void putLong(final int offset, final long value)
+    {
+        UNSAFE.putLong(addressOf(offset, 8), value);
+    }
+
+    public double getDouble(final int offset)
+    {
+        return UNSAFE.getDouble(addressOf(offset, 8));
+    }
+
+    public void putDouble(final int offset, final double value)
+    {
+        UNSAFE.putDouble(addressOf(offset, 8), value);
+    }
+
+    /**
+     * Copy bytes out of the slot.
+     *
+     * @param offset    in the slot of the first byte to copy.
+     * @param dst       the array to copy into.
+     * @param dstOffset in the array of the first byte to write.
+     * @param length    the number of bytes to copy.
+     */
+    public void getBytes(final int offset, final byte[] dst, final int dstOffset, final int length)
+    {
+        checkArrayBounds(dst, dstOffset, length);
+        UNSAFE.copyMemory(null, addressOf(offset, length), dst, BYTE_ARRAY_OFFSET + dstOffset, length);
+    }
+
+    /**
+     * Copy bytes into the slot.
+     *
+     * @param offset    in the slot of the first byte to write.
+     * @param src       the array to copy from.
+     * @param srcOffset in the array of the first byte to copy.
+     * @param length    the number of bytes to copy.
+     */
+    public void putBytes(final int offset, final byte[] src, final int srcOffset, final int length)
+    {
+        checkArrayBounds(src, srcOffset, length);
+        UNSAFE.copyMemory(src, BYTE_ARRAY_OFFSET + srcOffset, null, addressOf(offset, length), length);
+    }
+
+    private long addressOf(final int offset, final int length)
+    {
+        if (offset < 0 || offset > size - length)
+        {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", size=" + size);
+        }
+        return address + offset;
+    }
+
+    private static void checkArrayBounds(final byte[] array, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset > array.length - length)
+        {
+            throw new IndexOutOfBoundsException(
+                "offset=" + offset + ", length=" + length + ", array length=" + array.length);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapEvent{" +
+            "sequence=" + sequence +
+            ", size=" + size +
+            '}';
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.util.Util;
+
+import sun.misc.Unsafe;
+
+/**
+ * 堆外的RingBuffer，事件是直接内存中固定大小的槽位，而不是堆上预分配的对象，
+ * 因此长生命周期的事件对象不再占用老年代，也不需要GC扫描。
+ * <p>
+ * 槽位按缓存行对齐，大小向上取整为缓存行的整数倍，相邻槽位不会伪共享。
+ * 访问通过{@link OffHeapEvent}享元进行，每个线程使用自己的享元，不需要ThreadLocal，也不需要复制ByteBuffer。
+ *
+ * <p>Ring buffer of fixed size slots held in direct memory rather than of pre-allocated objects on the heap, so a
+ * large ring adds no long lived objects for the garbage collector to promote and scan.  It is driven by any
+ * {@link Sequencer} exactly like a {@link RingBuffer}.</p>
+ *
+ * <p>Slots start on a cache line boundary and are padded to a whole number of cache lines, so neighbouring slots
+ * never share a line.  Slots are accessed through an {@link OffHeapEvent} flyweight: each producer or consumer
+ * thread takes its own {@link #newEventProvider()}, which moves one flyweight from slot to slot without allocating.
+ * A {@link BatchEventProcessor} consumes the ring like any other:</p>
+ * <pre><code>OffHeapRingBuffer ring = OffHeapRingBuffer.createSingleProducer(1024, 200, new YieldingWaitStrategy());
+ * BatchEventProcessor&lt;OffHeapEvent&gt; processor =
+ *     new BatchEventProcessor&lt;OffHeapEvent&gt;(ring.newEventProvider(), ring.newBarrier(), handler);
+ * ring.addGatingSequences(processor.getSequence());</code></pre>
+ */
+public final class OffHeapRingBuffer implements Cursored, Sequenced
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final int CACHE_LINE_SIZE = 64;
+
+    private final Sequencer sequencer;
+    private final int slotSize;
+    /**
+     * 相邻槽位起始地址的间隔，为缓存行大小的整数倍
+     */
+    private final int stride;
+    private final long indexMask;
+    /**
+     * 持有直接内存缓冲区的引用，防止它被回收
+     */
+    private final ByteBuffer buffer;
+    private final long baseAddress;
+
+    /**
+     * Construct an off-heap ring buffer driven by the sequencer.
+     *
+     * @param sequencer to claim and publish the slots.
+     * @param slotSize  the number of bytes in each slot, rounded up to a whole number of cache lines.
+     * @throws IllegalArgumentException if the slot size is less than 1 or the ring would exceed 2GB.
+     */
+    public OffHeapRingBuffer(final Sequencer sequencer, final int slotSize)
+    {
+        if (slotSize < 1)
+        {
+            throw new IllegalArgumentException("slotSize must not be less than 1");
+        }
+
+        final long stride = (slotSize + CACHE_LINE_SIZE - 1L) & ~(CACHE_LINE_SIZE - 1L);
+        final long capacity = (long) sequencer.getBufferSize() * stride + CACHE_LINE_SIZE;
+        if (capacity > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("bufferSize * slotSize must not exceed 2GB");
+        }
+
+        this.sequencer = sequencer;
+        this.slotSize = slotSize;
+        this.stride = (int) stride;
+        this.indexMask = sequencer.getBufferSize() - 1;
+        this.buffer = ByteBuffer.allocateDirect((int) capacity);
+        final long address = Util.getAddress(buffer);
+        this.baseAddress = (address + CACHE_LINE_SIZE - 1) & ~(CACHE_LINE_SIZE - 1L);
+    }
+
+    /**
+     * Create a new single producer off-heap ring buffer.
+     *
+     * @param bufferSize   number of slots, must be a power of 2.
+     * @param slotSize     the number of bytes in each slot.
+     * @param waitStrategy used to determine how to wait for new slots to become available.
+     * @return a constructed ring buffer.
+     * @see SingleProducerSequencer
+     */
+    public static OffHeapRingBuffer createSingleProducer(
+        final int bufferSize,
+        final int slotSize,
+        final WaitStrategy waitStrategy)
+    {
+        return new OffHeapRingBuffer(new SingleProducerSequencer(bufferSize, waitStrategy), slotSize);
+    }
+
+    /**
+     * Create a new multiple producer off-heap ring buffer.
+     *
+     * @param bufferSize   number of slots, must be a power of 2.
+     * @param slotSize     the number of bytes in each slot.
+     * @param waitStrategy used to determine how to wait for new slots to become available.
+     * @return a constructed ring buffer.
+     * @see MultiProducerSequencer
+     */
+    public static OffHeapRingBuffer createMultiProducer(
+        final int bufferSize,
+        final int slotSize,
+        final WaitStrategy waitStrategy)
+    {
+        return new OffHeapRingBuffer(new MultiProducerSequencer(bufferSize, waitStrategy), slotSize);
+    }
+
+    /**
+     * 创建一个只供当前线程使用的事件视图，每次get都把同一个享元指向目标槽位
+     *
+     * <p>Create a view of the ring that returns the same {@link OffHeapEvent} flyweight moved to the requested slot.
+     * A view must only be used by one thread, typically by one {@link BatchEventProcessor} or one publisher.</p>
+     *
+     * @return a new, single threaded, provider of the ring's events.
+     */
+    public DataProvider<OffHeapEvent> newEventProvider()
+    {
+        final OffHeapEvent flyweight = new OffHeapEvent(slotSize);
+        return new DataProvider<OffHeapEvent>()
+        {
+            @Override
+            public OffHeapEvent get(final long sequence)
+            {
+                return flyweight.moveTo(sequence, addressOf(sequence));
+            }
+        };
+    }
+
+    /**
+     * 复制数据到下一个槽位并发布，不需要享元
+     *
+     * <p>Claim the next slot, copy the bytes into it and publish it.</p>
+     *
+     * @param src    the bytes to publish.
+     * @param offset in the array of the first byte.
+     * @param length the number of bytes, no more than the slot size.
+     */
+    public void put(final byte[] src, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset > src.length - length || length > slotSize)
+        {
+            throw new IndexOutOfBoundsException(
+                "offset=" + offset + ", length=" + length + ", array length=" + src.length + ", slotSize=" + slotSize);
+        }
+
+        final long sequence = sequencer.next();
+        try
+        {
+            UNSAFE.copyMemory(src, BYTE_ARRAY_OFFSET + offset, null, addressOf(sequence), length);
+        }
+        finally
+        {
+            sequencer.publish(sequence);
+        }
+    }
+
+    /**
+     * Claim the next slot, copy the bytes into it and publish it.
+     *
+     * @param src the bytes to publish, no more than the slot size.
+     */
+    public void put(final byte[] src)
+    {
+        put(src, 0, src.length);
+    }
+
+    /**
+     * @return the number of bytes in each slot.
+     */
+    public int getSlotSize()
+    {
+        return slotSize;
+    }
+
+    @Override
+    public int getBufferSize()
+    {
+        return sequencer.getBufferSize();
+    }
+
+    @Override
+    public boolean hasAvailableCapacity(final int requiredCapacity)
+    {
+        return sequencer.hasAvailableCapacity(requiredCapacity);
+    }
+
+    @Override
+    public long remainingCapacity()
+    {
+        return sequencer.remainingCapacity();
+    }
+
+    @Override
+    public long next()
+    {
+        return sequencer.next();
+    }
+
+    @Override
+    public long next(final int n)
+    {
+        return sequencer.next(n);
+    }
+
+    @Override
+    public long next(final int n, final long timeout, final TimeUnit unit) throws TimeoutException
+    {
+        return sequencer.next(n, timeout, unit);
+    }
+
+    @Override
+    public long tryNext() throws InsufficientCapacityException
+    {
+        return sequencer.tryNext();
+    }
+
+    @Override
+    public long tryNext(final int n) throws InsufficientCapacityException
+    {
+        return sequencer.tryNext(n);
+    }
+
+    @Override
+    public void publish(final long sequence)
+    {
+        sequencer.publish(sequence);
+    }
+
+    @Override
+    public void publish(final long lo, final long hi)
+    {
+        sequencer.publish(lo, hi);
+    }
+
+    @Override
+    public void publishDeferred(final long lo, final long hi)
+    {
+        sequencer.publishDeferred(lo, hi);
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        sequencer.signalAllWhenBlocking();
+    }
+
+    @Override
+    public long getCursor()
+    {
+        return sequencer.getCursor();
+    }
+
+    /**
+     * Add the specified gating sequences to this instance of the Disruptor.  They will
+     * safely and atomically added to the list of gating sequences.
+     *
+     * @param gatingSequences The sequences to add.
+     */
+    public void addGatingSequences(final Sequence... gatingSequences)
+    {
+        sequencer.addGatingSequences(gatingSequences);
+    }
+
+    /**
+     * Remove the specified sequence from this ringBuffer.
+     *
+     * @param sequence to be removed.
+     * @return <tt>true</tt> if this sequence was found, <tt>false</tt> otherwise.
+     */
+    public boolean removeGatingSequence(final Sequence sequence)
+    {
+        return sequencer.removeGatingSequence(sequence);
+    }
+
+    /**
+     * Create a new SequenceBarrier to be used by an EventProcessor to track which messages
+     * are available to be read from the ring buffer given a list of sequences to track.
+     *
+     * @param sequencesToTrack the additional sequences to track
+     * @return A sequence barrier that will track the specified sequences.
+     */
+    public SequenceBarrier newBarrier(final Sequence... sequencesToTrack)
+    {
+        return sequencer.newBarrier(sequencesToTrack);
+    }
+
+    /**
+     * Creates an event poller for this ring buffer gated on the supplied sequences, with its own flyweight.
+     *
+     * @param gatingSequences to be gated on.
+     * @return A poller that will gate on this ring buffer and the supplied sequences.
+     */
+    public EventPoller<OffHeapEvent> newPoller(final Sequence... gatingSequences)
+    {
+        return sequencer.newPoller(newEventProvider(), gatingSequences);
+    }
+
+    private long addressOf(final long sequence)
+    {
+        return baseAddress + (sequence & indexMask) * stride;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapRingBuffer{" +
+            "slotSize=" + slotSize +
+            ", stride=" + stride +
+            ", sequencer=" + sequencer +
+            '}';
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.util.Util;
+
+import sun.misc.Unsafe;
+
+/**
+ * 位于堆外内存中的Sequence，值保存在给定的本地地址或直接ByteBuffer的偏移处，而不是对象字段中，
+ * 因此cursor和gatingSequence可以放在共享内存或内存映射文件中，被其它进程读写。
+ * <p>
+ * 它是{@link Sequence}的子类，{@link ProcessingSequenceBarrier}、{@link FixedSequenceGroup}、
+ * {@link Util#getMinimumSequence(Sequence[])}以及所有以Sequence为参数的方法都可以直接使用它。
+ * 不会自动填充：为了避免伪共享，地址周围的缓存行应由调用者保留给这个Sequence。
+ *
+ * <p>{@link Sequence} whose value lives at a native address or an offset into a direct {@link ByteBuffer}, such as
+ * a memory mapped file, rather than in a field of the object, so cursors and gating sequences can be placed in
+ * shared memory.  It has the same memory semantics as {@link Sequence} and can be passed anywhere a Sequence is
+ * expected, including to {@link ProcessingSequenceBarrier}s, {@link FixedSequenceGroup}s and
+ * {@link Util#getMinimumSequence(Sequence[])}.</p>
+ *
+ * <p>There is no padding: the caller lays out the memory and should keep the cache lines around the value free
+ * of other data that is written often.</p>
+ */
+public class OffHeapSequence extends Sequence
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+
+    /**
+     * 持有ByteBuffer的引用，防止它在Sequence仍被使用时被回收
+     */
+    private final ByteBuffer buffer;
+    private final long address;
+
+    /**
+     * 使用给定地址处的8个字节，调用者负责保证这块内存在Sequence被使用期间有效
+     *
+     * <p>Create a sequence held at the given address, which must stay valid for as long as the sequence is used.
+     * The value at the address is not changed.</p>
+     *
+     * @param address of the value, aligned to 8 bytes so it is read and written atomically.
+     * @throws IllegalArgumentException if the address is not aligned.
+     */
+    public OffHeapSequence(final long address)
+    {
+        this(null, address);
+    }
+
+    /**
+     * 使用直接ByteBuffer中给定偏移处的8个字节，例如内存映射文件
+     *
+     * <p>Create a sequence held in a direct buffer, for example a mapped file.  The value at the offset is not
+     * changed and the buffer's position and limit are ignored.</p>
+     *
+     * @param buffer holding the value, which must be direct.
+     * @param offset of the value from the start of the buffer.
+     * @throws IllegalArgumentException  if the buffer is not direct or the value is not aligned to 8 bytes.
+     * @throws IndexOutOfBoundsException if the value does not fit in the buffer.
+     */
+    public OffHeapSequence(final ByteBuffer buffer, final int offset)
+    {
+        this(buffer, Util.getAddress(buffer) + checkOffset(buffer, offset));
+    }
+
+    private OffHeapSequence(final ByteBuffer buffer, final long address)
+    {
+        if ((address & 7) != 0)
+        {
+            throw new IllegalArgumentException("address must be aligned to 8 bytes");
+        }
+        this.buffer = buffer;
+        this.address = address;
+    }
+
+    private static int checkOffset(final ByteBuffer buffer, final int offset)
+    {
+        if (offset < 0 || offset > buffer.capacity() - 8)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + " is outside a buffer of " + buffer.capacity());
+        }
+        return offset;
+    }
+
+    /**
+     * @return the address of the value.
+     */
+    public long getAddress()
+    {
+        return address;
+    }
+
+    @Override
+    public long get()
+    {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    @Override
+    public void set(final long value)
+    {
+        UNSAFE.putOrderedLong(null, address, value);
+    }
+
+    @Override
+    public void setVolatile(final long value)
+    {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    @Override
+    public boolean compareAndSet(final long expectedValue, final long newValue)
+    {
+        return UNSAFE.compareAndSwapLong(null, address, expectedValue, newValue);
+    }
+
+    @Override
+    public long addAndGet(final long increment)
+    {
+        return getAndAdd(increment) + increment;
+    }
+
+    @Override
+    public long getAndAdd(final long increment)
+    {
+        return Util.getAndAddLong(null, address, increment);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 退出的worker无法交还给workSequence的序号，由仍在运行的{@link WorkProcessor}接手。
+ * 退出的worker的序号留在网关序号中，停在该序号之前，直到被接手。
+ *
+ * <p>Sequences claimed by retired workers that could not be handed back to the work sequence, because another
+ * worker had already claimed past them.  The retired worker's sequence stays in the gating sequences, just before
+ * its claim, until a running {@link WorkProcessor} takes the claim over.</p>
+ */
+interface OrphanedClaims
+{
+    /**
+     * 接手一个序号：先将sequence设置为该序号之前，再移除退出的worker的序号
+     *
+     * @param sequence of the worker taking the claim, set to just before the claim.
+     * @return the claimed sequence, or {@link Sequencer#INITIAL_CURSOR_VALUE} if there is none.
+     */
+    long adopt(Sequence sequence);
+
+    /**
+     * 正在等待自己领取的序号时，与一个更小的序号交换，退出的worker的序号改为停在claim之前
+     *
+     * @param sequence of the worker waiting for its claim.
+     * @param claim    the sequence the worker is waiting for.
+     * @return a smaller orphaned sequence the worker now owns instead, or <code>claim</code> if there is none.
+     */
+    long swap(Sequence sequence, long claim);
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 覆盖模式(有损)的单生产者序号生成器。
+ * 生产者从不等待消费者：环形缓冲区绕回时直接覆盖最旧的插槽，因此gatingSequences不会限制生产者。
+ * 落后超过一圈的{@link BatchEventProcessor}会跳过已被覆盖的事件，并通过{@link EventLossAware}得知丢失了多少事件。
+ * <p>
+ * 注意：只能由一个线程发布。事件处理器正在读取的插槽可能被生产者覆盖，处理器在事件处理完成后会再次检查(类似顺序锁)，
+ * 并将这些事件也通知为丢失，此时处理器看到的事件可能是不一致的，应该丢弃据此得到的结果。
+ *
+ * <p>Single publisher sequencer that never blocks: when the ring wraps the publisher simply overwrites the
+ * oldest slots, whatever the progress of the gating sequences.  Suitable for telemetry and logging where
+ * dropping events is preferable to stalling the publisher.</p>
+ *
+ * <p>A {@link BatchEventProcessor} that falls more than a ring behind skips the overwritten events and reports
+ * how many were lost to its handler if it implements {@link EventLossAware}.  Like a seqlock reader, the processor
+ * checks again once the handler has returned, and an event whose slot was overwritten while the handler was reading
+ * it is reported as lost too, after the handler has seen it.</p>
+ */
+public final class OverwritingSequencer extends AbstractSequencer
+{
+    /**
+     * 已申请的最大序号，生产者在写入插槽之前发布它，消费者据此判断哪些插槽已被(或正在被)覆盖
+     */
+    private final Sequence claimSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    /**
+     * 单线程生产者，使用普通变量
+     */
+    private long nextValue = Sequencer.INITIAL_CURSOR_VALUE;
+
+    /**
+     * Construct a Sequencer with the selected wait strategy and buffer size.
+     *
+     * @param bufferSize   the size of the buffer that this will sequence over.
+     * @param waitStrategy for those waiting on sequences.
+     */
+    public OverwritingSequencer(int bufferSize, WaitStrategy waitStrategy)
+    {
+        super(bufferSize, waitStrategy);
+    }
+
+    /**
+     * 覆盖模式下总是有空间
+     *
+     * @see Sequencer#hasAvailableCapacity(int)
+     */
+    @Override
+    public boolean hasAvailableCapacity(int requiredCapacity)
+    {
+        return requiredCapacity <= bufferSize;
+    }
+
+    /**
+     * @see Sequencer#next()
+     */
+    @Override
+    public long next()
+    {
+        return next(1);
+    }
+
+    /**
+     * @see Sequencer#next(int)
+     */
+    @Override
+    public long next(int n)
+    {
+        if (n < 1 || n > bufferSize)
+        {
+            throw new IllegalArgumentException("n must be > 0 and <= bufferSize");
+        }
+
+        final long nextSequence = this.nextValue += n;
+        // 先让消费者看见将被覆盖的范围，再写入插槽：volatile写之后有StoreLoad屏障，插槽的写入不会被重排序到它之前
+        claimSequence.setVolatile(nextSequence);
+
+        return nextSequence;
+    }
+
+    /**
+     * 从不等待，超时参数被忽略
+     *
+     * @see Sequencer#next(int, long, TimeUnit)
+     */
+    @Override
+    public long next(int n, long timeout, TimeUnit unit)
+    {
+        return next(n);
+    }
+
+    /**
+     * @see Sequencer#tryNext()
+     */
+    @Override
+    public long tryNext()
+    {
+        return next(1);
+    }
+
+    /**
+     * 从不失败
+     *
+     * @see Sequencer#tryNext(int)
+     */
+    @Override
+    public long tryNext(int n)
+    {
+        return next(n);
+    }
+
+    /**
+     * @see Sequencer#remainingCapacity()
+     */
+    @Override
+    public long remainingCapacity()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * @see Sequencer#claim(long)
+     */
+    @Override
+    public void claim(long sequence)
+    {
+        this.nextValue = sequence;
+        claimSequence.setVolatile(sequence);
+    }
+
+    /**
+     * @see Sequencer#publish(long)
+     */
+    @Override
+    public void publish(long sequence)
+    {
+        cursor.set(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * @see Sequencer#publish(long, long)
+     */
+    @Override
+    public void publish(long lo, long hi)
+    {
+        publish(hi);
+    }
+
+    /**
+     * @see Sequencer#publishDeferred(long, long)
+     */
+    @Override
+    public void publishDeferred(long lo, long hi)
+    {
+        cursor.set(hi);
+    }
+
+    /**
+     * 已发布且尚未被覆盖
+     *
+     * @see Sequencer#isAvailable(long)
+     */
+    @Override
+    public boolean isAvailable(long sequence)
+    {
+        return sequence <= cursor.get() && sequence >= getLowestAvailableSequence();
+    }
+
+    @Override
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence)
+    {
+        return availableSequence;
+    }
+
+    /**
+     * 获取尚未被覆盖(也没有正在被覆盖)的最小序号，小于它的事件已经丢失
+     *
+     * <p>Get the lowest sequence whose slot has not been, and is not being, overwritten by the publisher.
+     * Events below it are lost.</p>
+     *
+     * @return the lowest sequence that can still be read.
+     */
+    public long getLowestAvailableSequence()
+    {
+        return claimSequence.get() - bufferSize + 1;
+    }
+}
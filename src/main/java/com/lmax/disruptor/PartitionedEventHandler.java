@@ -0,0 +1,188 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 按键分区的EventHandler。N个分区各自运行在一个{@link BatchEventProcessor}上，每个分区都会看到所有的序号，
+ * 但只处理 {@code partitioner.partition(event) % N == partition} 的事件。
+ * 与{@link WorkerPool}不同，分区之间不需要竞争(CAS)同一个work序号，且同一个键的事件总是被同一个分区按顺序处理。
+ *
+ * 为了让被包装的handler在本分区最后一个事件上收到endOfBatch，会推迟一个事件交付，批次结束时交付。
+ *
+ * <p>{@link EventHandler} that only handles the events of one partition.  Running one per partition on its own
+ * {@link BatchEventProcessor} gives a parallel consumer where every processor sees every sequence but handles only
+ * the events whose key maps to it, so there is no shared work sequence to contend on and events with the same key
+ * are handled in order by the same thread.  The slowest partition gates the producer and any handlers that follow.</p>
+ *
+ * <p>The wrapped handler is called one event behind so it sees <code>endOfBatch</code> on the last event of its own
+ * partition; the held back event is always delivered before the batch ends.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class PartitionedEventHandler<T>
+    implements EventHandler<T>, LifecycleAware, TimeoutHandler
+{
+    private final Partitioner<? super T> partitioner;
+    private final int partition;
+    private final int partitionCount;
+    private final EventHandler<? super T> eventHandler;
+
+    /**
+     * 推迟交付的事件，null表示没有
+     */
+    private T pendingEvent;
+    private long pendingSequence;
+
+    /**
+     * @param partitioner    maps each event to its partition key.
+     * @param partition      the partition handled, from 0 to <code>partitionCount - 1</code>.
+     * @param partitionCount the total number of partitions.
+     * @param eventHandler   the handler called for the events of this partition.
+     */
+    public PartitionedEventHandler(
+        final Partitioner<? super T> partitioner,
+        final int partition,
+        final int partitionCount,
+        final EventHandler<? super T> eventHandler)
+    {
+        if (partitionCount < 1)
+        {
+            throw new IllegalArgumentException("partitionCount must not be less than 1");
+        }
+        if (partition < 0 || partition >= partitionCount)
+        {
+            throw new IllegalArgumentException("partition must be between 0 and partitionCount - 1");
+        }
+
+        this.partitioner = partitioner;
+        this.partition = partition;
+        this.partitionCount = partitionCount;
+        this.eventHandler = eventHandler;
+    }
+
+    /**
+     * 将每个handler包装为一个分区，第i个handler处理第i个分区
+     *
+     * <p>Wrap each handler as one partition, the i'th handler handling partition i of
+     * <code>eventHandlers.length</code>.</p>
+     *
+     * @param partitioner   maps each event to its partition key.
+     * @param eventHandlers one handler per partition.
+     * @param <T>           the event type.
+     * @return the partitioned handlers, in the same order.
+     */
+    @SafeVarargs
+    public static <T> PartitionedEventHandler<T>[] partition(
+        final Partitioner<? super T> partitioner, final EventHandler<? super T>... eventHandlers)
+    {
+        @SuppressWarnings("unchecked")
+        final PartitionedEventHandler<T>[] partitioned =
+            (PartitionedEventHandler<T>[]) new PartitionedEventHandler<?>[eventHandlers.length];
+        for (int i = 0; i < eventHandlers.length; i++)
+        {
+            partitioned[i] = new PartitionedEventHandler<>(partitioner, i, eventHandlers.length, eventHandlers[i]);
+        }
+        return partitioned;
+    }
+
+    @Override
+    public void onEvent(final T event, final long sequence, final boolean endOfBatch)
+        throws Exception
+    {
+        if (partitionOf(event) == partition)
+        {
+            // 先保存当前事件再交付上一个，上一个出现异常时当前事件不会丢失
+            final T previousEvent = pendingEvent;
+            final long previousSequence = pendingSequence;
+            pendingEvent = event;
+            pendingSequence = sequence;
+
+            if (null != previousEvent)
+            {
+                try
+                {
+                    eventHandler.onEvent(previousEvent, previousSequence, false);
+                }
+                finally
+                {
+                    if (endOfBatch)
+                    {
+                        flush();
+                    }
+                }
+                return;
+            }
+        }
+
+        if (endOfBatch)
+        {
+            flush();
+        }
+    }
+
+    private void flush() throws Exception
+    {
+        final T event = pendingEvent;
+        if (null != event)
+        {
+            pendingEvent = null;
+            eventHandler.onEvent(event, pendingSequence, true);
+        }
+    }
+
+    private int partitionOf(final T event)
+    {
+        // 去掉符号位，负数的键也能映射到合法的分区
+        return (partitioner.partition(event) & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    @Override
+    public void onTimeout(final long sequence) throws Exception
+    {
+        if (eventHandler instanceof TimeoutHandler)
+        {
+            ((TimeoutHandler) eventHandler).onTimeout(sequence);
+        }
+    }
+
+    @Override
+    public void onStart()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            ((LifecycleAware) eventHandler).onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            ((LifecycleAware) eventHandler).onShutdown();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PartitionedEventHandler{" +
+            "partition=" + partition +
+            ", partitionCount=" + partitionCount +
+            ", eventHandler=" + eventHandler +
+            '}';
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 将事件映射到分区键，键相同的事件总是由同一个{@link PartitionedEventHandler}按序号顺序处理。
+ *
+ * <p>Maps an event to a partition key.  Events with the same key are always handled by the same
+ * {@link PartitionedEventHandler}, in sequence order.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public interface Partitioner<T>
+{
+    /**
+     * 返回事件的分区键，可以是任意int(包括负数)，例如键的hashCode
+     *
+     * @param event the event being partitioned.
+     * @return the partition key of the event, any int including negative values such as a hash code.
+     */
+    int partition(T event);
+}
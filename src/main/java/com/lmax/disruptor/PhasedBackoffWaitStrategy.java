@@ -141,4 +141,14 @@ public final class PhasedBackoffWaitStrategy implements WaitStrategy
     {
         fallbackStrategy.signalAllWhenBlocking();
     }
+
+    /**
+     * 获取最终使用的等待策略，唤醒操作会转发给它
+     *
+     * @return the strategy waited on once spinning and yielding give up.
+     */
+    WaitStrategy getFallbackStrategy()
+    {
+        return fallbackStrategy;
+    }
 }
@@ -23,6 +23,15 @@ package com.lmax.disruptor;
  */
 final class ProcessingSequenceBarrier implements SequenceBarrier
 {
+    /**
+     * 不需要唤醒生产者时使用，其signalAllWhenBlocking()为空操作
+     */
+    private static final ProducerWaitStrategy NO_SIGNAL_PRODUCER_WAIT_STRATEGY = new SleepingProducerWaitStrategy();
+    /**
+     * 消费者推进进度时不需要唤醒其它消费者时使用，其signalAllWhenBlocking()为空操作
+     */
+    private static final WaitStrategy NO_SIGNAL_WAIT_STRATEGY = new BusySpinWaitStrategy();
+
     /**
      * 消费者的等待策略
      */
@@ -52,15 +61,30 @@ final class ProcessingSequenceBarrier implements SequenceBarrier
      * 序号生成器(来自生产者)
      */
     private final Sequencer sequencer;
+    /**
+     * 生产者的等待策略，消费者推进进度后通过它唤醒等待空间的生产者
+     */
+    private final ProducerWaitStrategy producerWaitStrategy;
 
     ProcessingSequenceBarrier(
         final Sequencer sequencer,
         final WaitStrategy waitStrategy,
         final Sequence cursorSequence,
         final Sequence[] dependentSequences)
+    {
+        this(sequencer, waitStrategy, NO_SIGNAL_PRODUCER_WAIT_STRATEGY, cursorSequence, dependentSequences);
+    }
+
+    ProcessingSequenceBarrier(
+        final Sequencer sequencer,
+        final WaitStrategy waitStrategy,
+        final ProducerWaitStrategy producerWaitStrategy,
+        final Sequence cursorSequence,
+        final Sequence[] dependentSequences)
     {
         this.sequencer = sequencer;
         this.waitStrategy = waitStrategy;
+        this.producerWaitStrategy = producerWaitStrategy;
         this.cursorSequence = cursorSequence;
 
         // 如果消费者不依赖于其它的消费者，那么只需要与生产者的进度进行协调
@@ -75,6 +99,18 @@ final class ProcessingSequenceBarrier implements SequenceBarrier
         }
     }
 
+    /**
+     * 复制一个等待同样序号、但有独立alert标记的屏障
+     */
+    private ProcessingSequenceBarrier(final ProcessingSequenceBarrier barrier)
+    {
+        this.sequencer = barrier.sequencer;
+        this.waitStrategy = barrier.waitStrategy;
+        this.producerWaitStrategy = barrier.producerWaitStrategy;
+        this.cursorSequence = barrier.cursorSequence;
+        this.dependentSequence = barrier.dependentSequence;
+    }
+
     @Override
     public long waitFor(final long sequence)
         throws AlertException, InterruptedException, TimeoutException
@@ -128,4 +164,90 @@ final class ProcessingSequenceBarrier implements SequenceBarrier
             throw AlertException.INSTANCE;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 多个事件处理器共用一个屏障时，为其中一个创建等待同样序号的屏障，使得可以单独alert它而不影响其它处理器。
+     * 不是由Sequencer创建的屏障无法复制，返回它自己。
+     *
+     * @param barrier the barrier shared by several event processors.
+     * @return a barrier waiting on the same sequences with its own alert status.
+     */
+    static SequenceBarrier copyOf(final SequenceBarrier barrier)
+    {
+        return barrier instanceof ProcessingSequenceBarrier ?
+            new ProcessingSequenceBarrier((ProcessingSequenceBarrier) barrier) : barrier;
+    }
+
+    /**
+     * 获取事件处理器推进进度后需要唤醒的生产者等待策略。
+     * 不是由Sequencer创建的屏障(例如测试中的桩)没有生产者需要唤醒。
+     *
+     * @param barrier the barrier an event processor waits on.
+     * @return the publisher wait strategy to signal when the processor advances its sequence.
+     */
+    static ProducerWaitStrategy producerWaitStrategyOf(final SequenceBarrier barrier)
+    {
+        return barrier instanceof ProcessingSequenceBarrier ?
+            ((ProcessingSequenceBarrier) barrier).producerWaitStrategy : NO_SIGNAL_PRODUCER_WAIT_STRATEGY;
+    }
+
+    /**
+     * 屏障所属的序号生成器是覆盖模式时返回它，否则返回null。
+     *
+     * @param barrier the barrier an event processor waits on.
+     * @return the overwriting sequencer behind the barrier, or null if events are never overwritten.
+     */
+    static OverwritingSequencer overwritingSequencerOf(final SequenceBarrier barrier)
+    {
+        if (barrier instanceof ProcessingSequenceBarrier)
+        {
+            final Sequencer sequencer = ((ProcessingSequenceBarrier) barrier).sequencer;
+            return sequencer instanceof OverwritingSequencer ? (OverwritingSequencer) sequencer : null;
+        }
+        return null;
+    }
+
+    /**
+     * 下游消费者阻塞等待上游消费者时({@link TargetedBlockingWaitStrategy})，消费者推进进度后需要通过它唤醒下游消费者，
+     * 其它等待策略下游消费者自旋等待上游，不需要唤醒。
+     *
+     * @param barrier the barrier an event processor waits on.
+     * @return the consumer wait strategy to signal when the processor advances its sequence.
+     */
+    static WaitStrategy progressWaitStrategyOf(final SequenceBarrier barrier)
+    {
+        return barrier instanceof ProcessingSequenceBarrier ?
+            progressWaitStrategyOf(((ProcessingSequenceBarrier) barrier).waitStrategy) : NO_SIGNAL_WAIT_STRATEGY;
+    }
+
+    /**
+     * 等待策略本身或者它(经过{@link PhasedBackoffWaitStrategy}、{@link AdaptiveWaitStrategy}包装)最终使用的策略
+     * 是{@link TargetedBlockingWaitStrategy}时返回该等待策略，包装的策略会把唤醒操作转发给它。
+     *
+     * @param waitStrategy the wait strategy consumers of a ring buffer wait on.
+     * @return the consumer wait strategy to signal when a consumer advances its sequence.
+     */
+    static WaitStrategy progressWaitStrategyOf(final WaitStrategy waitStrategy)
+    {
+        WaitStrategy strategy = waitStrategy;
+        while (true)
+        {
+            if (strategy instanceof TargetedBlockingWaitStrategy)
+            {
+                return waitStrategy;
+            }
+            else if (strategy instanceof PhasedBackoffWaitStrategy)
+            {
+                strategy = ((PhasedBackoffWaitStrategy) strategy).getFallbackStrategy();
+            }
+            else if (strategy instanceof AdaptiveWaitStrategy)
+            {
+                strategy = ((AdaptiveWaitStrategy) strategy).getFallbackStrategy();
+            }
+            else
+            {
+                return NO_SIGNAL_WAIT_STRATEGY;
+            }
+        }
+    }
+}
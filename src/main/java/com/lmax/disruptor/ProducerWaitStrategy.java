@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+
+/**
+ * 生产者的等待策略，环形缓冲区已满时，生产者在{@link Sequencer#next(int)}中如何等待消费者让出空间。
+ * 与消费者的{@link WaitStrategy}相对应。
+ *
+ * <p>Strategy employed by a publisher waiting in {@link Sequencer#next(int)} for the gating sequences to
+ * free up space in a full ring buffer.</p>
+ */
+public interface ProducerWaitStrategy
+{
+    /**
+     * 等待最慢的消费者越过wrapPoint
+     *
+     * <p>Wait for the gating sequences to reach the wrap point.</p>
+     *
+     * @param wrapPoint      the lowest value the gating sequences must reach before the publisher can proceed.
+     * @param gatingSequence the minimum of the gating sequences, read live on each call to {@link ReadableSequence#get()},
+     *                       {@link Long#MAX_VALUE} when there are no gating sequences.
+     * @return the minimum gating sequence seen, which is at least wrapPoint.
+     */
+    long waitFor(long wrapPoint, ReadableSequence gatingSequence);
+
+    /**
+     * 最多等待timeoutNanos，超时返回时的返回值小于wrapPoint
+     *
+     * <p>Wait up to <code>timeoutNanos</code> for the gating sequences to reach the wrap point.</p>
+     *
+     * @param wrapPoint      the lowest value the gating sequences must reach before the publisher can proceed.
+     * @param gatingSequence the minimum of the gating sequences, see {@link #waitFor(long, ReadableSequence)}.
+     * @param timeoutNanos   the maximum time to wait.
+     * @return the minimum gating sequence seen, which is less than wrapPoint if the wait timed out.
+     */
+    long waitFor(long wrapPoint, ReadableSequence gatingSequence, long timeoutNanos);
+
+    /**
+     * 消费者推进进度后调用，唤醒阻塞等待空间的生产者
+     *
+     * <p>Implementations should signal the waiting publishers that the gating sequences have advanced.</p>
+     */
+    void signalAllWhenBlocking();
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 通过{@link EventPoller}每次最多处理quota个事件，配额内最后一个事件的endOfBatch为true，
+ * 由{@link CooperativeEventProcessor}和{@link EventPollerSelector}共用。
+ *
+ * <p>Polls an {@link EventPoller} for at most a quota of events at a time, marking the last of them as
+ * <code>endOfBatch</code>, and notifies a {@link LifecycleAware} handler.  Must only be used by one thread at a
+ * time.</p>
+ *
+ * @param <T> event implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+final class QuotaPoller<T> implements EventPoller.Handler<T>
+{
+    private final EventPoller<T> poller;
+    private final EventHandler<? super T> eventHandler;
+    private final int quota;
+    private ExceptionHandler<? super T> exceptionHandler = new FatalExceptionHandler();
+    private int handled;
+
+    QuotaPoller(final EventPoller<T> poller, final EventHandler<? super T> eventHandler, final int quota)
+    {
+        if (quota < 1)
+        {
+            throw new IllegalArgumentException("quota must not be less than 1");
+        }
+
+        this.poller = poller;
+        this.eventHandler = eventHandler;
+        this.quota = quota;
+    }
+
+    EventPoller<T> getPoller()
+    {
+        return poller;
+    }
+
+    void setExceptionHandler(final ExceptionHandler<? super T> exceptionHandler)
+    {
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * 处理最多quota个事件，异常处理器抛出的异常会传播出去
+     *
+     * @return the number of events handled.
+     */
+    int poll()
+    {
+        handled = 0;
+        try
+        {
+            poller.poll(this);
+        }
+        catch (final RuntimeException ex)
+        {
+            throw ex;
+        }
+        catch (final Exception ex)
+        {
+            throw new RuntimeException(ex);
+        }
+        return handled;
+    }
+
+    @Override
+    public boolean onEvent(final T event, final long sequence, final boolean endOfBatch)
+    {
+        final boolean quotaUsed = ++handled >= quota;
+        try
+        {
+            eventHandler.onEvent(event, sequence, endOfBatch || quotaUsed);
+        }
+        catch (final Throwable ex)
+        {
+            // 与BatchEventProcessor一样，交给异常处理器后标记为已处理
+            exceptionHandler.handleEventException(ex, sequence, event);
+        }
+        return !quotaUsed;
+    }
+
+    void notifyStart()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onStart();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    void notifyShutdown()
+    {
+        if (eventHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) eventHandler).onShutdown();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * 只读的序列，只能获取序号，不能更新。
+ * {@link Sequence}实现了该接口，由多个Sequence计算出来的视图(eg:网关Sequences的最小值)也通过它暴露，而不是继承Sequence。
+ *
+ * <p>A sequence value that can be read but not updated, such as the minimum of a group of sequences
+ * that is computed on every read.</p>
+ */
+public interface ReadableSequence
+{
+    /**
+     * 读取当前的序号
+     *
+     * Perform a volatile read of the sequence value.
+     *
+     * @return the current value of the sequence.
+     */
+    long get();
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.util.Util;
+
+import sun.misc.Unsafe;
+
+/**
+ * 变长记录的环形缓冲区。
+ * 与{@link RingBuffer}预分配固定大小的事件不同，它是一段按字节计数的堆外内存，每条记录带有长度前缀，
+ * 生产者按实际长度申请空间，因此不需要按最大的消息分配每个槽位。
+ * <p>
+ * 与Sequencer一样，生产者和消费者的进度都是单调递增的{@link Sequence}，只是单位是字节而不是槽位；
+ * 记录在缓冲区末尾放不下时，用一条填充记录占满剩余空间，从头开始写。
+ * 生产者通过{@link #tryClaim(int, OffHeapEvent)}申请、写入后{@link #commit(OffHeapEvent)}提交；
+ * 单个消费者通过{@link #read(EventHandler, int)}以零复制的方式读取记录。
+ *
+ * <p>Ring of variable length records in direct memory, for messages whose size varies too much to preallocate
+ * fixed size entries for the worst case.  Like a {@link Sequencer} the producer and consumer positions are
+ * monotonic {@link Sequence}s, counted in bytes rather than slots.</p>
+ *
+ * <p>Each record has an 8 byte header holding its length and is aligned to 8 bytes.  A record that does not fit
+ * before the end of the buffer is preceded by a padding record filling the rest of it, so records never wrap.
+ * Producers claim space with {@link #tryClaim(int, OffHeapEvent)}, write through the flyweight and then
+ * {@link #commit(OffHeapEvent)} or {@link #abort(OffHeapEvent)}.  A single consumer thread reads the committed
+ * records in order with {@link #read(EventHandler, int)}, as zero-copy slices through an {@link OffHeapEvent}
+ * whose sequence is the position of the record.  Nothing blocks: pair the calls with an {@link IdleStrategy}.</p>
+ */
+public abstract class RecordRingBuffer
+{
+    /**
+     * 记录头长度：记录总长度(int，为负表示尚未提交) + 类型(int)
+     */
+    public static final int HEADER_LENGTH = 8;
+    /**
+     * 记录按8字节对齐
+     */
+    public static final int ALIGNMENT = 8;
+
+    static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final int CACHE_LINE_SIZE = 64;
+    private static final int TYPE_OFFSET = 4;
+    private static final int MESSAGE_TYPE = 1;
+    private static final int PADDING_TYPE = -1;
+
+    final int capacity;
+    final int mask;
+    final long baseAddress;
+    private final int maxRecordLength;
+    /**
+     * 持有直接内存缓冲区的引用，防止它被回收
+     */
+    private final ByteBuffer buffer;
+    /**
+     * 生产者申请到的位置(字节)
+     */
+    final Sequence tail = new Sequence(0);
+    /**
+     * 消费者读到的位置(字节)，只由消费者线程写入
+     */
+    final Sequence head = new Sequence(0);
+    /**
+     * 消费者使用的享元
+     */
+    private final OffHeapEvent record = new OffHeapEvent(0);
+
+    RecordRingBuffer(final int capacity)
+    {
+        if (capacity < CACHE_LINE_SIZE || Integer.bitCount(capacity) != 1)
+        {
+            throw new IllegalArgumentException("capacity must be a power of 2 and at least " + CACHE_LINE_SIZE);
+        }
+
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxRecordLength = capacity / 8;
+        this.buffer = ByteBuffer.allocateDirect(capacity + CACHE_LINE_SIZE);
+        this.baseAddress = (Util.getAddress(buffer) + CACHE_LINE_SIZE - 1) & ~(CACHE_LINE_SIZE - 1L);
+    }
+
+    /**
+     * Create a ring for records published by a single thread.
+     *
+     * @param capacity the number of bytes in the ring, must be a power of 2.
+     * @return a constructed ring.
+     */
+    public static RecordRingBuffer createSingleProducer(final int capacity)
+    {
+        return new SingleProducerRecordRingBuffer(capacity);
+    }
+
+    /**
+     * Create a ring for records published by any number of threads.
+     *
+     * @param capacity the number of bytes in the ring, must be a power of 2.
+     * @return a constructed ring.
+     */
+    public static RecordRingBuffer createMultiProducer(final int capacity)
+    {
+        return new MultiProducerRecordRingBuffer(capacity);
+    }
+
+    /**
+     * 申请required字节(已对齐，包含记录头)，必要时在前面加上填充记录，返回记录的位置，空间不足时返回-1
+     *
+     * @param required the aligned length of the record, header included.
+     * @return the position of the record, or -1 if there is not enough space.
+     */
+    abstract long claim(int required);
+
+    /**
+     * Create a flyweight for a producer thread to write claimed records through.
+     *
+     * @return a new flyweight, not pointing to any record.
+     */
+    public OffHeapEvent newRecord()
+    {
+        return new OffHeapEvent(0);
+    }
+
+    /**
+     * 申请一条长度为length的记录，成功时将record指向它
+     *
+     * <p>Try to claim space for a record and point the flyweight to it.  The record is invisible to the consumer
+     * until it is committed or aborted, which must follow promptly as it holds up the records claimed after it.</p>
+     *
+     * @param length the number of bytes in the record, not counting the header.
+     * @param record the flyweight, owned by the calling thread, to write the record through.
+     * @return true if the record was claimed, false if there is not enough space.
+     * @throws IllegalArgumentException if the length is negative or more than {@link #maxRecordLength()}.
+     */
+    public boolean tryClaim(final int length, final OffHeapEvent record)
+    {
+        if (length < 0 || length > maxRecordLength)
+        {
+            throw new IllegalArgumentException(
+                "length must be between 0 and " + maxRecordLength + ", was " + length);
+        }
+
+        final int recordLength = HEADER_LENGTH + length;
+        final long position = claim(align(recordLength));
+        if (position < 0)
+        {
+            return false;
+        }
+
+        final long address = baseAddress + ((int) position & mask);
+        UNSAFE.putInt(address + TYPE_OFFSET, MESSAGE_TYPE);
+        // 负的长度表示记录已被申请但尚未提交，消费者会在这里停下
+        UNSAFE.putOrderedInt(null, address, -recordLength);
+        record.moveTo(position, address + HEADER_LENGTH, length);
+        return true;
+    }
+
+    /**
+     * Make a claimed record visible to the consumer.
+     *
+     * @param record pointing to the claimed record.
+     */
+    public void commit(final OffHeapEvent record)
+    {
+        final long address = record.address() - HEADER_LENGTH;
+        UNSAFE.putOrderedInt(null, address, -UNSAFE.getInt(address));
+    }
+
+    /**
+     * 放弃已申请的记录，它变为填充记录，消费者会跳过
+     *
+     * <p>Give up a claimed record; the consumer skips it.</p>
+     *
+     * @param record pointing to the claimed record.
+     */
+    public void abort(final OffHeapEvent record)
+    {
+        final long address = record.address() - HEADER_LENGTH;
+        UNSAFE.putInt(address + TYPE_OFFSET, PADDING_TYPE);
+        UNSAFE.putOrderedInt(null, address, -UNSAFE.getInt(address));
+    }
+
+    /**
+     * 复制数据为一条记录并提交
+     *
+     * <p>Claim, copy and commit a record.</p>
+     *
+     * @param src    the bytes of the record.
+     * @param offset in the array of the first byte.
+     * @param length the number of bytes.
+     * @param record a flyweight owned by the calling thread.
+     * @return true if the record was written, false if there is not enough space.
+     */
+    public boolean write(final byte[] src, final int offset, final int length, final OffHeapEvent record)
+    {
+        if (!tryClaim(length, record))
+        {
+            return false;
+        }
+
+        record.putBytes(0, src, offset, length);
+        commit(record);
+        return true;
+    }
+
+    /**
+     * 读取已提交的记录，最多limit条，只能由一个线程调用
+     *
+     * <p>Hand the committed records, in order and up to the limit, to the handler and release their space.  The
+     * records are not copied: the flyweight points into the ring and is only valid during the callback.  Only one
+     * thread may read.  Stops at the end of the buffer, so a call may return fewer records than are available.</p>
+     *
+     * <p>If the handler throws the records up to and including the failing one are released and the exception is
+     * propagated.</p>
+     *
+     * @param handler to which each record is dispatched, with the position of the record as its sequence.
+     * @param limit   the most records to read.
+     * @return the number of records read.
+     * @throws Exception if the handler throws.
+     */
+    public int read(final EventHandler<? super OffHeapEvent> handler, final int limit) throws Exception
+    {
+        final long position = head.get();
+        final int headIndex = (int) position & mask;
+        final int contiguous = capacity - headIndex;
+        final long address = baseAddress + headIndex;
+        int bytesRead = 0;
+        int recordsRead = 0;
+
+        try
+        {
+            while (bytesRead < contiguous && recordsRead < limit)
+            {
+                final long recordAddress = address + bytesRead;
+                final int recordLength = UNSAFE.getIntVolatile(null, recordAddress);
+                if (recordLength <= 0)
+                {
+                    break;
+                }
+
+                final long recordPosition = position + bytesRead;
+                bytesRead += align(recordLength);
+                if (UNSAFE.getInt(recordAddress + TYPE_OFFSET) == PADDING_TYPE)
+                {
+                    continue;
+                }
+
+                ++recordsRead;
+                final boolean endOfBatch = recordsRead == limit || bytesRead == contiguous ||
+                    UNSAFE.getIntVolatile(null, address + bytesRead) <= 0;
+                handler.onEvent(
+                    record.moveTo(recordPosition, recordAddress + HEADER_LENGTH, recordLength - HEADER_LENGTH),
+                    recordPosition,
+                    endOfBatch);
+            }
+        }
+        finally
+        {
+            if (bytesRead > 0)
+            {
+                // 清零已读的空间，绕回后未提交的记录头一定是0或负数
+                UNSAFE.setMemory(address, bytesRead, (byte) 0);
+                head.set(position + bytesRead);
+            }
+        }
+
+        return recordsRead;
+    }
+
+    /**
+     * @return the number of bytes in the ring.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the longest record that can be claimed, not counting the header.
+     */
+    public int maxRecordLength()
+    {
+        return maxRecordLength;
+    }
+
+    /**
+     * @return the number of bytes claimed and not yet read, headers and padding included.
+     */
+    public int size()
+    {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return the position, in bytes, up to which the consumer has read.
+     */
+    public long getConsumerPosition()
+    {
+        return head.get();
+    }
+
+    /**
+     * @return the position, in bytes, up to which producers have claimed.
+     */
+    public long getProducerPosition()
+    {
+        return tail.get();
+    }
+
+    static int align(final int length)
+    {
+        return (length + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    /**
+     * 在index处写入一条已提交的填充记录
+     */
+    final void writePadding(final int index, final int length)
+    {
+        final long address = baseAddress + index;
+        UNSAFE.putInt(address + TYPE_OFFSET, PADDING_TYPE);
+        UNSAFE.putOrderedInt(null, address, length);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "{" +
+            "capacity=" + capacity +
+            ", head=" + head +
+            ", tail=" + tail +
+            '}';
+    }
+
+    /**
+     * 单生产者：不需要CAS，只需要有序地发布tail
+     */
+    private static final class SingleProducerRecordRingBuffer extends RecordRingBuffer
+    {
+        /**
+         * 缓存的消费者位置，只由生产者线程访问
+         */
+        private long headCache = 0;
+
+        SingleProducerRecordRingBuffer(final int capacity)
+        {
+            super(capacity);
+        }
+
+        @Override
+        long claim(final int required)
+        {
+            final long tail = this.tail.get();
+            final int tailIndex = (int) tail & mask;
+            final int toBufferEnd = capacity - tailIndex;
+            final int padding = required > toBufferEnd ? toBufferEnd : 0;
+
+            if (!hasSpace(tail, required, padding))
+            {
+                return -1;
+            }
+
+            this.tail.set(tail + padding + required);
+            if (padding != 0)
+            {
+                writePadding(tailIndex, padding);
+            }
+            return tail + padding;
+        }
+
+        private boolean hasSpace(final long tail, final int required, final int padding)
+        {
+            if (tail + padding + required - headCache <= capacity)
+            {
+                return true;
+            }
+            headCache = head.get();
+            return tail + padding + required - headCache <= capacity;
+        }
+    }
+
+    /**
+     * 多生产者：通过CAS竞争tail，与{@link MultiProducerSequencer}类似
+     */
+    private static final class MultiProducerRecordRingBuffer extends RecordRingBuffer
+    {
+        private final Sequence headCache = new Sequence(0);
+
+        MultiProducerRecordRingBuffer(final int capacity)
+        {
+            super(capacity);
+        }
+
+        @Override
+        long claim(final int required)
+        {
+            long tail;
+            int tailIndex;
+            int padding;
+            do
+            {
+                tail = this.tail.get();
+                tailIndex = (int) tail & mask;
+                final int toBufferEnd = capacity - tailIndex;
+                padding = required > toBufferEnd ? toBufferEnd : 0;
+
+                final long wrapPoint = tail + padding + required - capacity;
+                if (wrapPoint > headCache.get())
+                {
+                    final long head = this.head.get();
+                    if (wrapPoint > head)
+                    {
+                        return -1;
+                    }
+                    headCache.set(head);
+                }
+            }
+            while (!this.tail.compareAndSet(tail, tail + padding + required));
+
+            if (padding != 0)
+            {
+                writePadding(tailIndex, padding);
+            }
+            return tail + padding;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package com.lmax.disruptor;
 
 
+import java.util.concurrent.TimeUnit;
+
 import sun.misc.Unsafe;
 
 import com.lmax.disruptor.dsl.ProducerType;
@@ -182,6 +184,76 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return createMultiProducer(factory, bufferSize, new BlockingWaitStrategy());
     }
 
+    /**
+     * Create a new multiple producer RingBuffer that claims sequences with a single fetch-and-add
+     * rather than a CAS loop.
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory      used to create the events within the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer.
+     * @param waitStrategy used to determine how to wait for new elements to become available.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see MultiProducerSequencer
+     * @see ProducerType#MULTI_FETCH_ADD
+     */
+    public static <E> RingBuffer<E> createFetchAddMultiProducer(
+        EventFactory<E> factory,
+        int bufferSize,
+        WaitStrategy waitStrategy)
+    {
+        MultiProducerSequencer sequencer = new MultiProducerSequencer(bufferSize, waitStrategy, true);
+
+        return new RingBuffer<E>(factory, sequencer);
+    }
+
+    /**
+     * 创建一个使用序号租约的多生产者RingBuffer，每个生产者线程一次申请leaseSize个序号，之后在线程本地分配。
+     * 租约中被跳过的序号使用padding填充后发布，消费者需要能识别这些空事件。
+     *
+     * <p>Create a new multiple producer RingBuffer where each publishing thread leases <code>leaseSize</code>
+     * sequences from the shared cursor at once and then claims from that lease locally through the normal
+     * {@link #next()}/{@link #publish(long)} API.  Call {@link #releaseLease()} before a publishing thread goes
+     * quiet.  Leased sequences that are skipped, when the lease is released or a claim does not fit in what
+     * remains of it, are filled using <code>padding</code> and published; consumers must be able to recognise
+     * padding events.</p>
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory      used to create the events within the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer.
+     * @param waitStrategy used to determine how to wait for new elements to become available.
+     * @param leaseSize    number of sequences leased to a publishing thread at once.
+     * @param padding      translator used to fill the leased sequences that are skipped.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2, or if leaseSize
+     *                                  is less than 1 or greater than bufferSize
+     * @see MultiProducerSequencer
+     */
+    public static <E> RingBuffer<E> createLeasingMultiProducer(
+        EventFactory<E> factory,
+        int bufferSize,
+        WaitStrategy waitStrategy,
+        int leaseSize,
+        final EventTranslator<E> padding)
+    {
+        MultiProducerSequencer sequencer = new MultiProducerSequencer(bufferSize, waitStrategy, false, leaseSize);
+        final RingBuffer<E> ringBuffer = new RingBuffer<E>(factory, sequencer);
+        sequencer.setLeasePadding(
+            new MultiProducerSequencer.LeasePadding()
+            {
+                @Override
+                public void pad(final long lo, final long hi)
+                {
+                    for (long sequence = lo; sequence <= hi; sequence++)
+                    {
+                        padding.translateTo(ringBuffer.get(sequence), sequence);
+                    }
+                }
+            });
+
+        return ringBuffer;
+    }
+
     /**
      * Create a new single producer RingBuffer with the specified wait strategy.
      *
@@ -219,7 +291,32 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
     }
 
     /**
-     * Create a new Ring Buffer with the specified producer type (SINGLE or MULTI)
+     * 创建一个覆盖模式(有损)的单生产者RingBuffer，生产者从不等待，缓冲区绕回时覆盖最旧的事件。
+     *
+     * <p>Create a new single producer RingBuffer whose publisher never blocks: when the ring wraps it overwrites
+     * the oldest events whatever the progress of the consumers.  {@link BatchEventProcessor}s that fall behind skip
+     * the lost events and report them to handlers implementing {@link EventLossAware}.</p>
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param factory      used to create the events within the ring buffer.
+     * @param bufferSize   number of elements to create within the ring buffer.
+     * @param waitStrategy used to determine how to wait for new elements to become available.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     * @see OverwritingSequencer
+     */
+    public static <E> RingBuffer<E> createOverwriting(
+        EventFactory<E> factory,
+        int bufferSize,
+        WaitStrategy waitStrategy)
+    {
+        OverwritingSequencer sequencer = new OverwritingSequencer(bufferSize, waitStrategy);
+
+        return new RingBuffer<E>(factory, sequencer);
+    }
+
+    /**
+     * Create a new Ring Buffer with the specified producer type (SINGLE, MULTI, MULTI_FETCH_ADD or OVERWRITING)
      *
      * @param <E> Class of the event stored in the ring buffer.
      * @param producerType producer type to use {@link ProducerType}.
@@ -241,6 +338,51 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
                 return createSingleProducer(factory, bufferSize, waitStrategy);
             case MULTI:
                 return createMultiProducer(factory, bufferSize, waitStrategy);
+            case MULTI_FETCH_ADD:
+                return createFetchAddMultiProducer(factory, bufferSize, waitStrategy);
+            case OVERWRITING:
+                return createOverwriting(factory, bufferSize, waitStrategy);
+            default:
+                throw new IllegalStateException(producerType.toString());
+        }
+    }
+
+    /**
+     * 创建一个RingBuffer，并指定缓冲区已满时生产者的等待策略。
+     *
+     * <p>Create a new Ring Buffer with the specified producer type and the strategy used by publishers
+     * waiting for space when the ring buffer is full.</p>
+     *
+     * @param <E> Class of the event stored in the ring buffer.
+     * @param producerType         producer type to use {@link ProducerType}.
+     * @param factory              used to create events within the ring buffer.
+     * @param bufferSize           number of elements to create within the ring buffer.
+     * @param waitStrategy         used to determine how to wait for new elements to become available.
+     * @param producerWaitStrategy used to determine how publishers wait for space in a full ring buffer.
+     * @return a constructed ring buffer.
+     * @throws IllegalArgumentException if bufferSize is less than 1 or not a power of 2
+     */
+    public static <E> RingBuffer<E> create(
+        ProducerType producerType,
+        EventFactory<E> factory,
+        int bufferSize,
+        WaitStrategy waitStrategy,
+        ProducerWaitStrategy producerWaitStrategy)
+    {
+        switch (producerType)
+        {
+            case SINGLE:
+                return new RingBuffer<E>(
+                    factory, new SingleProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy));
+            case MULTI:
+                return new RingBuffer<E>(
+                    factory, new MultiProducerSequencer(bufferSize, waitStrategy, false, 1, producerWaitStrategy));
+            case MULTI_FETCH_ADD:
+                return new RingBuffer<E>(
+                    factory, new MultiProducerSequencer(bufferSize, waitStrategy, true, 1, producerWaitStrategy));
+            case OVERWRITING:
+                // 覆盖模式的生产者从不等待
+                return createOverwriting(factory, bufferSize, waitStrategy);
             default:
                 throw new IllegalStateException(producerType.toString());
         }
@@ -321,6 +463,25 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return sequencer.next(n);
     }
 
+    /**
+     * 与{@link #next(int)}相同，但空间不足时最多等待timeout，超时则抛出异常，可用于在过载时丢弃请求。
+     *
+     * The same functionality as {@link RingBuffer#next(int)}, but gives up if capacity does not become
+     * available within the timeout.
+     *
+     * @param n       number of slots to claim
+     * @param timeout the maximum time to wait for capacity
+     * @param unit    the unit of the timeout
+     * @return sequence number of the highest slot claimed
+     * @throws TimeoutException if the capacity did not become available before the timeout
+     * @see Sequencer#next(int, long, TimeUnit)
+     */
+    @Override
+    public long next(int n, long timeout, TimeUnit unit) throws TimeoutException
+    {
+        return sequencer.next(n, timeout, unit);
+    }
+
     /**
 	 * 尝试申请一个缓存空间(请求分配一个序号)。
 	 * 使用该方法必须保证使用对应的publish()方法发布（try-finally代码块）。示例代码段见源注释。
@@ -582,6 +743,30 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    /**
+     * 尝试发布一个事件，空间不足时最多等待timeout。
+     *
+     * Allows one user supplied event translator to be used, waiting up to the timeout for capacity.
+     *
+     * @param translator The user specified translation for the event
+     * @param timeout    the maximum time to wait for capacity
+     * @param unit       the unit of the timeout
+     * @return true if the value was published, false if there was insufficient capacity before the timeout.
+     */
+    public boolean tryPublishEvent(EventTranslator<E> translator, long timeout, TimeUnit unit)
+    {
+        try
+        {
+            final long sequence = sequencer.next(1, timeout, unit);
+            translateAndPublish(translator, sequence);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * @see EventSink#publishEvent(EventTranslatorOneArg, Object)
      * com.lmax.disruptor.EventSink#publishEvent(com.lmax.disruptor.EventTranslatorOneArg, A)
@@ -612,6 +797,31 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    /**
+     * Allows one user supplied argument, waiting up to the timeout for capacity.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param timeout    the maximum time to wait for capacity
+     * @param unit       the unit of the timeout
+     * @return true if the value was published, false if there was insufficient capacity before the timeout.
+     * @see #tryPublishEvent(EventTranslator, long, TimeUnit)
+     */
+    public <A> boolean tryPublishEvent(EventTranslatorOneArg<E, A> translator, A arg0, long timeout, TimeUnit unit)
+    {
+        try
+        {
+            final long sequence = sequencer.next(1, timeout, unit);
+            translateAndPublish(translator, sequence, arg0);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * @see EventSink#publishEvent(EventTranslatorTwoArg, Object, Object)
      * com.lmax.disruptor.EventSink#publishEvent(com.lmax.disruptor.EventTranslatorTwoArg, A, B)
@@ -642,6 +852,34 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    /**
+     * Allows two user supplied arguments, waiting up to the timeout for capacity.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @param timeout    the maximum time to wait for capacity
+     * @param unit       the unit of the timeout
+     * @return true if the value was published, false if there was insufficient capacity before the timeout.
+     * @see #tryPublishEvent(EventTranslator, long, TimeUnit)
+     */
+    public <A, B> boolean tryPublishEvent(
+        EventTranslatorTwoArg<E, A, B> translator, A arg0, B arg1, long timeout, TimeUnit unit)
+    {
+        try
+        {
+            final long sequence = sequencer.next(1, timeout, unit);
+            translateAndPublish(translator, sequence, arg0, arg1);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * @see EventSink#publishEvent(EventTranslatorThreeArg, Object, Object, Object)
      * com.lmax.disruptor.EventSink#publishEvent(com.lmax.disruptor.EventTranslatorThreeArg, A, B, C)
@@ -672,6 +910,36 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         }
     }
 
+    /**
+     * Allows three user supplied arguments, waiting up to the timeout for capacity.
+     *
+     * @param <A> Class of the user supplied argument
+     * @param <B> Class of the user supplied argument
+     * @param <C> Class of the user supplied argument
+     * @param translator The user specified translation for the event
+     * @param arg0       A user supplied argument.
+     * @param arg1       A user supplied argument.
+     * @param arg2       A user supplied argument.
+     * @param timeout    the maximum time to wait for capacity
+     * @param unit       the unit of the timeout
+     * @return true if the value was published, false if there was insufficient capacity before the timeout.
+     * @see #tryPublishEvent(EventTranslator, long, TimeUnit)
+     */
+    public <A, B, C> boolean tryPublishEvent(
+        EventTranslatorThreeArg<E, A, B, C> translator, A arg0, B arg1, C arg2, long timeout, TimeUnit unit)
+    {
+        try
+        {
+            final long sequence = sequencer.next(1, timeout, unit);
+            translateAndPublish(translator, sequence, arg0, arg1, arg2);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+    }
+
     /**
      * @see EventSink#publishEvent(EventTranslatorVararg, Object...)
      */
@@ -990,6 +1258,30 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         sequencer.publish(lo, hi);
     }
 
+    /**
+     * 发布该段空间的数据，但不唤醒阻塞的消费者。批量发布者在发布完所有批次后调用一次{@link #signalAllWhenBlocking()}。
+     *
+     * Publish the specified sequences without waking consumers blocked in the wait strategy.  Call
+     * {@link #signalAllWhenBlocking()} once the last batch has been published.
+     *
+     * @param lo the lowest sequence number to be published
+     * @param hi the highest sequence number to be published
+     */
+    @Override
+    public void publishDeferred(long lo, long hi)
+    {
+        sequencer.publishDeferred(lo, hi);
+    }
+
+    /**
+     * Wake consumers blocked in the wait strategy after {@link #publishDeferred(long, long)}.
+     */
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        sequencer.signalAllWhenBlocking();
+    }
+
     /**
 	 * 获取RingBuffer剩余空间
 	 * @see #hasAvailableCapacity(int) 注意同样的数据竞争问题，返回值只是一个参考值，并非准确值(旧值)！
@@ -1003,6 +1295,27 @@ public final class RingBuffer<E> extends RingBufferFields<E> implements Cursored
         return sequencer.remainingCapacity();
     }
 
+    /**
+     * 结束当前线程的序号租约(见{@link MultiProducerSequencer#releaseLease()})。
+     * 未使用的序号使用创建时的padding填充并发布，保证消费者不会被阻塞。
+     *
+     * <p>End the sequence lease of the calling thread.  Unused sequences are filled using the padding given
+     * when the ring buffer was created and published so that consumers are not held up.  Does nothing if the
+     * ring buffer does not lease sequences.</p>
+     *
+     * @return the number of padding events published.
+     * @see RingBuffer#createLeasingMultiProducer(EventFactory, int, WaitStrategy, int, EventTranslator)
+     */
+    public int releaseLease()
+    {
+        if (!(sequencer instanceof MultiProducerSequencer))
+        {
+            return 0;
+        }
+
+        return ((MultiProducerSequencer) sequencer).releaseLease();
+    }
+
     private void checkBounds(final EventTranslator<E>[] translators, final int batchStartsAt, final int batchSize)
     {
         checkBatchSizing(batchStartsAt, batchSize);
@@ -55,7 +55,7 @@ class RhsPadding extends Value
  * <p>Also attempts to be more efficient with regards to false
  * sharing by adding padding around the volatile field.
  */
-public class Sequence extends RhsPadding
+public class Sequence extends RhsPadding implements ReadableSequence
 {
     static final long INITIAL_VALUE = -1L;
     private static final Unsafe UNSAFE;
@@ -193,6 +193,23 @@ public class Sequence extends RhsPadding
         return newValue;
     }
 
+    /**
+     * 原子方式加上一个特定的值，并返回加之前的值。
+     * 与{@link #addAndGet(long)}的CAS循环不同，在JDK8及以上该操作在x86上是一条lock xadd指令，竞争时不会失败重试；
+     * 在JDK7上退化为CAS循环，见{@link Util#getAndAddLong(Object, long, long)}。
+     *
+     * Atomically add the supplied value using a single fetch-and-add rather than a CAS loop,
+     * so that it cannot fail and retry under contention.  On Java 7, which has no fetch-and-add,
+     * it falls back to a CAS loop.
+     *
+     * @param increment The value to add to the sequence.
+     * @return The value before the increment.
+     */
+    public long getAndAdd(final long increment)
+    {
+        return Util.getAndAddLong(this, VALUE_OFFSET, increment);
+    }
+
     @Override
     public String toString()
     {
@@ -1,5 +1,7 @@
 package com.lmax.disruptor;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 该接口是面向生产者的，生产者通过该接口获取队列容量，和可用空间，并在填充数据之后，发布对应的sequence（这些sequence对应的数据已可消费）。
  * <P>
@@ -70,6 +72,22 @@ public interface Sequenced
      */
     long next(int n);
 
+    /**
+     * 获取接下来的n个数据的最后一个索引，空间不足时最多等待timeout，超时抛出异常。
+     * 等待方式由{@link ProducerWaitStrategy}决定，而不是反复调用{@link #tryNext(int)}。
+     * 申请完空间之后，必须使用 {@link #publish(long, long)} 发布。
+     *
+     * Claim the next n events in sequence for publishing, waiting up to the given timeout for capacity.
+     * Use it in the same way as {@link #next(int)}.
+     *
+     * @param n       the number of sequences to claim
+     * @param timeout the maximum time to wait for capacity
+     * @param unit    the unit of the timeout
+     * @return the highest claimed sequence value
+     * @throws TimeoutException if the capacity did not become available before the timeout, nothing is claimed.
+     */
+    long next(int n, long timeout, TimeUnit unit) throws TimeoutException;
+
     /**
 	 * 尝试获取下一个数据的索引位置。空间不足时抛出异常。
 	 * 申请完空间之后,必须使用 {@link #publish(long)} 发布，否则会导致整个数据结构不可用。
@@ -116,4 +134,24 @@ public interface Sequenced
      * @param hi last sequence number to publish
      */
     void publish(long lo, long hi);
+
+    /**
+     * 批量发布数据，但不唤醒阻塞的消费者。
+     * 连续发布多个批次时，可以只在最后调用一次{@link #signalAllWhenBlocking()}，避免每个批次都唤醒一次。
+     *
+     * Batch publish sequences without waking consumers blocked in the wait strategy.  Consumers that are spinning
+     * or polling see the events straight away, blocked ones only after {@link #signalAllWhenBlocking()}, which
+     * must be called once the publisher is done.
+     *
+     * @param lo first sequence number to publish
+     * @param hi last sequence number to publish
+     */
+    void publishDeferred(long lo, long hi);
+
+    /**
+     * 唤醒阻塞的消费者，与{@link #publishDeferred(long, long)}配合使用
+     *
+     * Wake consumers blocked in the wait strategy, after one or more calls to {@link #publishDeferred(long, long)}.
+     */
+    void signalAllWhenBlocking();
 }
\ No newline at end of file
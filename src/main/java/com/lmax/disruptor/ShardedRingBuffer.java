@@ -0,0 +1,485 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分片的环形缓冲区。
+ * 每个发布线程在第一次发布时绑定到一个独立的单生产者{@link RingBuffer}(分片)，
+ * 生产者之间不再竞争同一个cursor，由{@link MergingEventProcessor}在消费端将所有分片合并为一个事件流。
+ *
+ * <p>A set of single producer {@link RingBuffer}s, one per publishing thread, that are merged back into
+ * a single stream by a {@link MergingEventProcessor}.  Publishers never contend on a shared cursor.</p>
+ *
+ * <p>A publishing thread is bound to a free shard the first time it publishes and stays bound to it until it calls
+ * {@link #releaseShardForCurrentThread()} or terminates, after which another thread may take the shard over.
+ * Publishing from more live threads than there are shards throws an {@link IllegalStateException}.
+ * A thread must not release its shard, or terminate, between claiming a sequence and publishing it.</p>
+ *
+ * @param <E> implementation storing the data for sharing during exchange or parallel coordination of an event.
+ */
+public final class ShardedRingBuffer<E> implements EventSink<E>
+{
+    private final RingBuffer<E>[] shards;
+    /**
+     * 每个分片绑定的线程，为null或线程已结束时分片空闲
+     */
+    private final AtomicReferenceArray<Thread> owners;
+    private final ThreadLocal<RingBuffer<E>> shardForThread = new ThreadLocal<>();
+
+    /**
+     * Construct a ShardedRingBuffer over the supplied shards, each of which must only be published to
+     * by a single thread.
+     *
+     * @param shards the single producer ring buffers to publish to.
+     */
+    ShardedRingBuffer(final RingBuffer<E>[] shards)
+    {
+        if (shards.length < 1)
+        {
+            throw new IllegalArgumentException("shardCount must not be less than 1");
+        }
+
+        this.shards = shards;
+        this.owners = new AtomicReferenceArray<>(shards.length);
+    }
+
+    /**
+     * Create a new ShardedRingBuffer with the specified number of single producer shards.
+     *
+     * @param <E>          Class of the event stored in the ring buffer.
+     * @param factory      used to create the events within each shard.
+     * @param shardCount   number of shards, i.e. the maximum number of concurrently publishing threads.
+     * @param shardSize    number of elements to create within each shard.
+     * @param waitStrategy shared by every shard, also pass it to the {@link MergingEventProcessor}s of the shards.
+     * @return a constructed sharded ring buffer.
+     * @throws IllegalArgumentException if shardSize is less than 1 or not a power of 2
+     */
+    public static <E> ShardedRingBuffer<E> create(
+        final EventFactory<E> factory,
+        final int shardCount,
+        final int shardSize,
+        final WaitStrategy waitStrategy)
+    {
+        @SuppressWarnings("unchecked")
+        final RingBuffer<E>[] shards = (RingBuffer<E>[]) new RingBuffer<?>[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards[i] = RingBuffer.createSingleProducer(factory, shardSize, waitStrategy);
+        }
+
+        return new ShardedRingBuffer<>(shards);
+    }
+
+    /**
+     * Get the number of shards.
+     *
+     * @return the number of shards.
+     */
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    /**
+     * Get the shard at the specified index.
+     *
+     * @param index of the shard.
+     * @return the shard.
+     */
+    public RingBuffer<E> getShard(final int index)
+    {
+        return shards[index];
+    }
+
+    /**
+     * 获取当前线程绑定的分片，第一次调用时绑定一个空闲的分片，绑定线程已结束的分片也视为空闲。
+     *
+     * <p>Get the shard the current thread publishes to, binding it to a free shard on first use.  A shard is free
+     * if it has never been bound, has been released, or its thread has terminated.
+     * The returned ring buffer may be used directly for next/get/publish style publication.</p>
+     *
+     * @return the shard owned by the current thread.
+     * @throws IllegalStateException if every shard is bound to another live thread.
+     */
+    public RingBuffer<E> getShardForCurrentThread()
+    {
+        RingBuffer<E> shard = shardForThread.get();
+        if (null == shard)
+        {
+            shard = shards[bind(Thread.currentThread())];
+            shardForThread.set(shard);
+        }
+
+        return shard;
+    }
+
+    /**
+     * 解除当前线程与分片的绑定，之后其它线程可以绑定该分片，当前线程再次发布时重新绑定。
+     *
+     * <p>Release the shard bound to the current thread so that another thread may publish to it.  The current
+     * thread is bound to a free shard again the next time it publishes.  Does nothing if the current thread
+     * is not bound to a shard.</p>
+     */
+    public void releaseShardForCurrentThread()
+    {
+        if (null == shardForThread.get())
+        {
+            return;
+        }
+
+        shardForThread.remove();
+        final Thread current = Thread.currentThread();
+        for (int i = 0; i < shards.length; i++)
+        {
+            if (owners.get(i) == current)
+            {
+                owners.set(i, null);
+                return;
+            }
+        }
+    }
+
+    private int bind(final Thread thread)
+    {
+        for (int i = 0; i < shards.length; i++)
+        {
+            final Thread owner = owners.get(i);
+            if ((null == owner || !owner.isAlive()) && owners.compareAndSet(i, owner, thread))
+            {
+                return i;
+            }
+        }
+
+        throw new IllegalStateException("All " + shards.length + " shards are bound to other publishing threads");
+    }
+
+    /**
+     * 每个分片创建一个追踪该分片cursor的序号屏障。
+     *
+     * <p>Create a barrier per shard that tracks the shard's cursor.</p>
+     *
+     * @return one barrier per shard, in shard order.
+     */
+    public SequenceBarrier[] newBarriers()
+    {
+        final SequenceBarrier[] barriers = new SequenceBarrier[shards.length];
+        for (int i = 0; i < shards.length; i++)
+        {
+            barriers[i] = shards[i].newBarrier();
+        }
+
+        return barriers;
+    }
+
+    /**
+     * Add the sequences of a consumer to the gating sequences of each shard, the consumer's
+     * sequence for shard i gates shard i.
+     *
+     * @param sequences one sequence per shard.
+     */
+    public void addGatingSequences(final Sequence[] sequences)
+    {
+        for (int i = 0; i < shards.length; i++)
+        {
+            shards[i].addGatingSequences(sequences[i]);
+        }
+    }
+
+    /**
+     * Remove the sequences of a consumer from the gating sequences of each shard.
+     *
+     * @param sequences one sequence per shard.
+     */
+    public void removeGatingSequences(final Sequence[] sequences)
+    {
+        for (int i = 0; i < shards.length; i++)
+        {
+            shards[i].removeGatingSequence(sequences[i]);
+        }
+    }
+
+    /**
+     * @see EventSink#publishEvent(EventTranslator)
+     */
+    @Override
+    public void publishEvent(final EventTranslator<E> translator)
+    {
+        getShardForCurrentThread().publishEvent(translator);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvent(EventTranslator)
+     */
+    @Override
+    public boolean tryPublishEvent(final EventTranslator<E> translator)
+    {
+        return getShardForCurrentThread().tryPublishEvent(translator);
+    }
+
+    /**
+     * @see EventSink#publishEvent(EventTranslatorOneArg, Object)
+     */
+    @Override
+    public <A> void publishEvent(final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        getShardForCurrentThread().publishEvent(translator, arg0);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvent(EventTranslatorOneArg, Object)
+     */
+    @Override
+    public <A> boolean tryPublishEvent(final EventTranslatorOneArg<E, A> translator, final A arg0)
+    {
+        return getShardForCurrentThread().tryPublishEvent(translator, arg0);
+    }
+
+    /**
+     * @see EventSink#publishEvent(EventTranslatorTwoArg, Object, Object)
+     */
+    @Override
+    public <A, B> void publishEvent(final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        getShardForCurrentThread().publishEvent(translator, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvent(EventTranslatorTwoArg, Object, Object)
+     */
+    @Override
+    public <A, B> boolean tryPublishEvent(final EventTranslatorTwoArg<E, A, B> translator, final A arg0, final B arg1)
+    {
+        return getShardForCurrentThread().tryPublishEvent(translator, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#publishEvent(EventTranslatorThreeArg, Object, Object, Object)
+     */
+    @Override
+    public <A, B, C> void publishEvent(final EventTranslatorThreeArg<E, A, B, C> translator, final A arg0, final B arg1, final C arg2)
+    {
+        getShardForCurrentThread().publishEvent(translator, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvent(EventTranslatorThreeArg, Object, Object, Object)
+     */
+    @Override
+    public <A, B, C> boolean tryPublishEvent(final EventTranslatorThreeArg<E, A, B, C> translator, final A arg0, final B arg1, final C arg2)
+    {
+        return getShardForCurrentThread().tryPublishEvent(translator, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#publishEvent(EventTranslatorVararg, Object...)
+     */
+    @Override
+    public void publishEvent(final EventTranslatorVararg<E> translator, final Object... args)
+    {
+        getShardForCurrentThread().publishEvent(translator, args);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvent(EventTranslatorVararg, Object...)
+     */
+    @Override
+    public boolean tryPublishEvent(final EventTranslatorVararg<E> translator, final Object... args)
+    {
+        return getShardForCurrentThread().tryPublishEvent(translator, args);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslator[])
+     */
+    @Override
+    public void publishEvents(final EventTranslator<E>[] translators)
+    {
+        getShardForCurrentThread().publishEvents(translators);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslator[], int, int)
+     */
+    @Override
+    public void publishEvents(final EventTranslator<E>[] translators, final int batchStartsAt, final int batchSize)
+    {
+        getShardForCurrentThread().publishEvents(translators, batchStartsAt, batchSize);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslator[])
+     */
+    @Override
+    public boolean tryPublishEvents(final EventTranslator<E>[] translators)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translators);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslator[], int, int)
+     */
+    @Override
+    public boolean tryPublishEvents(final EventTranslator<E>[] translators, final int batchStartsAt, final int batchSize)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translators, batchStartsAt, batchSize);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorOneArg, Object[])
+     */
+    @Override
+    public <A> void publishEvents(final EventTranslatorOneArg<E, A> translator, final A[] arg0)
+    {
+        getShardForCurrentThread().publishEvents(translator, arg0);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorOneArg, int, int, Object[])
+     */
+    @Override
+    public <A> void publishEvents(final EventTranslatorOneArg<E, A> translator, final int batchStartsAt, final int batchSize, final A[] arg0)
+    {
+        getShardForCurrentThread().publishEvents(translator, batchStartsAt, batchSize, arg0);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorOneArg, Object[])
+     */
+    @Override
+    public <A> boolean tryPublishEvents(final EventTranslatorOneArg<E, A> translator, final A[] arg0)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, arg0);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorOneArg, int, int, Object[])
+     */
+    @Override
+    public <A> boolean tryPublishEvents(final EventTranslatorOneArg<E, A> translator, final int batchStartsAt, final int batchSize, final A[] arg0)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, batchStartsAt, batchSize, arg0);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorTwoArg, Object[], Object[])
+     */
+    @Override
+    public <A, B> void publishEvents(final EventTranslatorTwoArg<E, A, B> translator, final A[] arg0, final B[] arg1)
+    {
+        getShardForCurrentThread().publishEvents(translator, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorTwoArg, int, int, Object[], Object[])
+     */
+    @Override
+    public <A, B> void publishEvents(final EventTranslatorTwoArg<E, A, B> translator, final int batchStartsAt, final int batchSize, final A[] arg0, final B[] arg1)
+    {
+        getShardForCurrentThread().publishEvents(translator, batchStartsAt, batchSize, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorTwoArg, Object[], Object[])
+     */
+    @Override
+    public <A, B> boolean tryPublishEvents(final EventTranslatorTwoArg<E, A, B> translator, final A[] arg0, final B[] arg1)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorTwoArg, int, int, Object[], Object[])
+     */
+    @Override
+    public <A, B> boolean tryPublishEvents(final EventTranslatorTwoArg<E, A, B> translator, final int batchStartsAt, final int batchSize, final A[] arg0, final B[] arg1)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, batchStartsAt, batchSize, arg0, arg1);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorThreeArg, Object[], Object[], Object[])
+     */
+    @Override
+    public <A, B, C> void publishEvents(final EventTranslatorThreeArg<E, A, B, C> translator, final A[] arg0, final B[] arg1, final C[] arg2)
+    {
+        getShardForCurrentThread().publishEvents(translator, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorThreeArg, int, int, Object[], Object[], Object[])
+     */
+    @Override
+    public <A, B, C> void publishEvents(final EventTranslatorThreeArg<E, A, B, C> translator, final int batchStartsAt, final int batchSize, final A[] arg0, final B[] arg1, final C[] arg2)
+    {
+        getShardForCurrentThread().publishEvents(translator, batchStartsAt, batchSize, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorThreeArg, Object[], Object[], Object[])
+     */
+    @Override
+    public <A, B, C> boolean tryPublishEvents(final EventTranslatorThreeArg<E, A, B, C> translator, final A[] arg0, final B[] arg1, final C[] arg2)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorThreeArg, int, int, Object[], Object[], Object[])
+     */
+    @Override
+    public <A, B, C> boolean tryPublishEvents(final EventTranslatorThreeArg<E, A, B, C> translator, final int batchStartsAt, final int batchSize, final A[] arg0, final B[] arg1, final C[] arg2)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, batchStartsAt, batchSize, arg0, arg1, arg2);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorVararg, Object[][])
+     */
+    @Override
+    public void publishEvents(final EventTranslatorVararg<E> translator, final Object[]... args)
+    {
+        getShardForCurrentThread().publishEvents(translator, args);
+    }
+
+    /**
+     * @see EventSink#publishEvents(EventTranslatorVararg, int, int, Object[][])
+     */
+    @Override
+    public void publishEvents(final EventTranslatorVararg<E> translator, final int batchStartsAt, final int batchSize, final Object[]... args)
+    {
+        getShardForCurrentThread().publishEvents(translator, batchStartsAt, batchSize, args);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorVararg, Object[][])
+     */
+    @Override
+    public boolean tryPublishEvents(final EventTranslatorVararg<E> translator, final Object[]... args)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, args);
+    }
+
+    /**
+     * @see EventSink#tryPublishEvents(EventTranslatorVararg, int, int, Object[][])
+     */
+    @Override
+    public boolean tryPublishEvents(final EventTranslatorVararg<E> translator, final int batchStartsAt, final int batchSize, final Object[]... args)
+    {
+        return getShardForCurrentThread().tryPublishEvents(translator, batchStartsAt, batchSize, args);
+    }
+}
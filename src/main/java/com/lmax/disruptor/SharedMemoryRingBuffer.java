@@ -0,0 +1,854 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.util.Util;
+
+import sun.misc.Unsafe;
+
+/**
+ * 位于内存映射文件中的RingBuffer，用于同一台机器上的进程间通信(例如映射/dev/shm下的文件)。
+ * 生产者的cursor、每个消费者的序号和心跳、以及所有的槽位都在文件中的固定偏移处，计数器各自占用独立的缓存行，
+ * 因此另一个进程中的{@link BatchEventProcessor}可以用现有的(非阻塞)等待策略跟随它。
+ * <p>
+ * 只支持一个生产者进程。消费者通过{@link #attachConsumer()}占用一个消费者槽位，并在等待事件时更新心跳；
+ * 崩溃的消费者不再更新心跳，生产者因它而等待超过超时时间后将其驱逐，不会被永久阻塞。
+ * 重启的进程可以通过{@link #open(File)}重新附着：生产者从文件中的cursor继续发布，
+ * 消费者通过{@link #attachConsumer(int)}回到自己的槽位，从上次的进度继续消费。
+ *
+ * <p>Ring buffer held in a memory mapped file, typically under <code>/dev/shm</code>, for messaging between
+ * processes on the same machine.  The producer cursor, the sequence and heartbeat of each consumer and the fixed
+ * size slots all live at fixed offsets in the file, each counter padded to its own cache lines, so a
+ * {@link BatchEventProcessor} in another process can follow the ring with the existing wait strategies.  Only the
+ * non-blocking strategies work across processes, as a producer cannot signal a lock held by another process.</p>
+ *
+ * <p>There is one producer process, which creates the ring with {@link #create(File, int, int, int)}.  Consumer
+ * processes {@link #open(File)} it and {@link #attachConsumer()} to take one of a fixed number of consumer entries,
+ * which the producer gates on.  Attachment is crash safe:</p>
+ * <ul>
+ * <li>an attached consumer heartbeats each time it waits for events and {@link Consumer#detach()}es when done;</li>
+ * <li>a consumer that stops heartbeating, because its process died, is evicted once the producer has been held up
+ * by it for the consumer timeout, so a dead consumer cannot block the producer forever;</li>
+ * <li>a restarted consumer can {@link #attachConsumer(int)} to its old entry and, unless it was evicted, resume
+ * after the last event it processed;</li>
+ * <li>a restarted producer can {@link #open(File)} the ring and carry on from the published cursor, and consumers
+ * can tell whether the producer is alive from its heartbeat.</li>
+ * </ul>
+ */
+public final class SharedMemoryRingBuffer implements Cursored
+{
+    private static final Unsafe UNSAFE = Util.getUnsafe();
+    private static final int MAGIC = 0x44535242;
+    private static final int VERSION = 1;
+    /**
+     * 每个计数器占用两个缓存行，避免相邻缓存行预取造成的伪共享
+     */
+    private static final int COUNTER_PADDING = 128;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int BUFFER_SIZE_OFFSET = 8;
+    private static final int SLOT_SIZE_OFFSET = 12;
+    private static final int MAX_CONSUMERS_OFFSET = 16;
+    private static final int CURSOR_OFFSET = COUNTER_PADDING;
+    private static final int PRODUCER_HEARTBEAT_OFFSET = CURSOR_OFFSET + COUNTER_PADDING;
+    /**
+     * 每个消费者占用两个计数器：序号和心跳，心跳为0表示该槽位空闲
+     */
+    private static final int CONSUMERS_OFFSET = PRODUCER_HEARTBEAT_OFFSET + COUNTER_PADDING;
+    private static final int CONSUMER_LENGTH = 2 * COUNTER_PADDING;
+    private static final long FREE = 0;
+    private static final int CACHE_LINE_SIZE = 64;
+    private static final long DEFAULT_CONSUMER_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 持有映射的引用，防止它被回收
+     */
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final int bufferSize;
+    private final int slotSize;
+    private final int slotStride;
+    private final long slotsAddress;
+    private final int maxConsumers;
+    private final Sequence cursor;
+    private final Sequence producerHeartbeat;
+    /**
+     * 每个消费者的序号和心跳，心跳为0表示该槽位空闲
+     */
+    private final Sequence[] consumerSequences;
+    private final Sequence[] consumerHeartbeats;
+
+    /**
+     * 以下字段只由生产者线程访问，与{@link SingleProducerSequencer}相同
+     */
+    private long nextValue;
+    private long cachedValue = Sequencer.INITIAL_CURSOR_VALUE;
+    private long consumerTimeoutMillis = DEFAULT_CONSUMER_TIMEOUT_MILLIS;
+    /**
+     * 生产者开始被消费者阻挡的时间，0表示没有被阻挡
+     */
+    private long blockedSinceMillis = 0;
+
+    private SharedMemoryRingBuffer(final MappedByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.address = Util.getAddress(buffer);
+        this.bufferSize = UNSAFE.getInt(address + BUFFER_SIZE_OFFSET);
+        this.slotSize = UNSAFE.getInt(address + SLOT_SIZE_OFFSET);
+        this.slotStride = slotStride(slotSize);
+        this.maxConsumers = UNSAFE.getInt(address + MAX_CONSUMERS_OFFSET);
+        this.slotsAddress = address + slotsOffset(maxConsumers);
+        this.cursor = new OffHeapSequence(buffer, CURSOR_OFFSET);
+        this.producerHeartbeat = new OffHeapSequence(buffer, PRODUCER_HEARTBEAT_OFFSET);
+        this.consumerSequences = new Sequence[maxConsumers];
+        this.consumerHeartbeats = new Sequence[maxConsumers];
+        for (int i = 0; i < maxConsumers; i++)
+        {
+            consumerSequences[i] = new OffHeapSequence(buffer, consumerOffset(i));
+            consumerHeartbeats[i] = new OffHeapSequence(buffer, consumerOffset(i) + COUNTER_PADDING);
+        }
+        this.nextValue = cursor.get();
+    }
+
+    /**
+     * 创建(或重新初始化)映射文件，由生产者进程调用
+     *
+     * <p>Create, or reinitialise, the ring in the file.  Called by the producer process; any consumers attached to
+     * a previous ring in the same file are dropped.</p>
+     *
+     * @param file         to map, for example under <code>/dev/shm</code>.
+     * @param bufferSize   number of slots, must be a power of 2.
+     * @param slotSize     the number of bytes in each slot.
+     * @param maxConsumers the number of consumers that may be attached at the same time.
+     * @return the mapped ring.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static SharedMemoryRingBuffer create(
+        final File file,
+        final int bufferSize,
+        final int slotSize,
+        final int maxConsumers) throws IOException
+    {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1)
+        {
+            throw new IllegalArgumentException("bufferSize must be a power of 2");
+        }
+        if (slotSize < 1)
+        {
+            throw new IllegalArgumentException("slotSize must not be less than 1");
+        }
+        if (maxConsumers < 1)
+        {
+            throw new IllegalArgumentException("maxConsumers must not be less than 1");
+        }
+
+        final long length = slotsOffset(maxConsumers) + (long) bufferSize * slotStride(slotSize);
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("The ring must not exceed 2GB");
+        }
+
+        final MappedByteBuffer buffer = map(file, length);
+        final long address = Util.getAddress(buffer);
+        UNSAFE.putIntVolatile(null, address + MAGIC_OFFSET, 0);
+        UNSAFE.putInt(address + VERSION_OFFSET, VERSION);
+        UNSAFE.putInt(address + BUFFER_SIZE_OFFSET, bufferSize);
+        UNSAFE.putInt(address + SLOT_SIZE_OFFSET, slotSize);
+        UNSAFE.putInt(address + MAX_CONSUMERS_OFFSET, maxConsumers);
+        UNSAFE.putLong(address + CURSOR_OFFSET, Sequencer.INITIAL_CURSOR_VALUE);
+        UNSAFE.putLong(address + PRODUCER_HEARTBEAT_OFFSET, System.currentTimeMillis());
+        for (int i = 0; i < maxConsumers; i++)
+        {
+            UNSAFE.putLong(address + consumerOffset(i), Sequencer.INITIAL_CURSOR_VALUE);
+            UNSAFE.putLong(address + consumerOffset(i) + COUNTER_PADDING, FREE);
+        }
+        // 最后写入魔数，其它进程看到魔数时头部已经完整
+        UNSAFE.putIntVolatile(null, address + MAGIC_OFFSET, MAGIC);
+
+        return new SharedMemoryRingBuffer(buffer);
+    }
+
+    /**
+     * 映射已经创建的文件，由消费者进程或重启的生产者进程调用
+     *
+     * <p>Map a ring created by {@link #create(File, int, int, int)}, from a consumer process or a restarted
+     * producer, which carries on after the published cursor.</p>
+     *
+     * @param file the ring was created in.
+     * @return the mapped ring.
+     * @throws IOException           if the file cannot be mapped.
+     * @throws IllegalStateException if the file does not hold an initialised ring.
+     */
+    public static SharedMemoryRingBuffer open(final File file) throws IOException
+    {
+        if (file.length() < CONSUMERS_OFFSET)
+        {
+            throw new IllegalStateException("No initialised ring buffer in " + file);
+        }
+
+        final MappedByteBuffer buffer = map(file, file.length());
+        final long address = Util.getAddress(buffer);
+        if (UNSAFE.getIntVolatile(null, address + MAGIC_OFFSET) != MAGIC ||
+            UNSAFE.getInt(address + VERSION_OFFSET) != VERSION)
+        {
+            throw new IllegalStateException("No initialised ring buffer in " + file);
+        }
+
+        final SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(buffer);
+        if (ringBuffer.slotsAddress - address + (long) ringBuffer.bufferSize * ringBuffer.slotStride > buffer.capacity())
+        {
+            throw new IllegalStateException("Ring buffer in " + file + " is truncated");
+        }
+        return ringBuffer;
+    }
+
+    private static MappedByteBuffer map(final File file, final long length) throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(length);
+            // 关闭文件后映射仍然有效
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+
+    /**
+     * Set how long a consumer may fail to heartbeat while holding up the producer before it is evicted.
+     *
+     * @param timeout the consumer timeout.
+     * @param units   the unit of the timeout.
+     */
+    public void setConsumerTimeout(final long timeout, final TimeUnit units)
+    {
+        this.consumerTimeoutMillis = units.toMillis(timeout);
+    }
+
+    /**
+     * 以下为生产者方法，只能由一个进程中的一个线程调用
+     *
+     * <p>Claim the next slot, waiting for the attached consumers if the ring is full.  Producer only.</p>
+     *
+     * @return the claimed sequence.
+     */
+    public long next()
+    {
+        final long nextSequence = nextValue + 1;
+        final long wrapPoint = nextSequence - bufferSize;
+
+        if (wrapPoint > cachedValue)
+        {
+            long minSequence;
+            while (wrapPoint > (minSequence = minimumConsumerSequence(nextValue, wrapPoint)))
+            {
+                heartbeat();
+                LockSupport.parkNanos(1L);
+            }
+            blockedSinceMillis = 0;
+            cachedValue = minSequence;
+        }
+
+        nextValue = nextSequence;
+        return nextSequence;
+    }
+
+    /**
+     * Claim the next slot if the attached consumers leave room for it.  Producer only.
+     *
+     * @return the claimed sequence.
+     * @throws InsufficientCapacityException if the ring is full.
+     */
+    public long tryNext() throws InsufficientCapacityException
+    {
+        final long nextSequence = nextValue + 1;
+        final long wrapPoint = nextSequence - bufferSize;
+
+        if (wrapPoint > cachedValue)
+        {
+            final long minSequence = minimumConsumerSequence(nextValue, wrapPoint);
+            if (wrapPoint > minSequence)
+            {
+                throw InsufficientCapacityException.INSTANCE;
+            }
+            blockedSinceMillis = 0;
+            cachedValue = minSequence;
+        }
+
+        nextValue = nextSequence;
+        return nextSequence;
+    }
+
+    /**
+     * 发布序号，每发布一圈更新一次生产者心跳
+     *
+     * <p>Publish a claimed slot.  Producer only.</p>
+     *
+     * @param sequence the claimed sequence.
+     */
+    public void publish(final long sequence)
+    {
+        cursor.set(sequence);
+        if ((sequence & (bufferSize - 1)) == 0)
+        {
+            heartbeat();
+        }
+    }
+
+    /**
+     * 更新生产者心跳，空闲的生产者需要定期调用
+     *
+     * <p>Record that the producer is alive.  An idle producer should call this periodically.</p>
+     */
+    public void heartbeat()
+    {
+        producerHeartbeat.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Mark the producer as gone, so consumers see it as not alive straight away.
+     */
+    public void detachProducer()
+    {
+        producerHeartbeat.set(FREE);
+    }
+
+    /**
+     * @param timeout the longest the producer may go without heartbeating.
+     * @param units   the unit of the timeout.
+     * @return true if the producer heartbeat within the timeout.
+     */
+    public boolean isProducerAlive(final long timeout, final TimeUnit units)
+    {
+        final long heartbeat = producerHeartbeat.get();
+        return heartbeat != FREE && System.currentTimeMillis() - heartbeat <= units.toMillis(timeout);
+    }
+
+    /**
+     * 获取已附着的消费者中最小的序号，同时驱逐阻挡生产者超过超时时间且期间没有更新心跳的消费者。
+     * 从生产者被阻挡时开始计时，空闲时没有更新心跳的消费者不会在事件到达后立即被驱逐
+     */
+    private long minimumConsumerSequence(final long minimum, final long wrapPoint)
+    {
+        final long now = System.currentTimeMillis();
+        if (0 == blockedSinceMillis)
+        {
+            blockedSinceMillis = now;
+        }
+        long minSequence = minimum;
+        for (int i = 0; i < maxConsumers; i++)
+        {
+            final long heartbeat = consumerHeartbeats[i].get();
+            if (heartbeat == FREE)
+            {
+                continue;
+            }
+
+            final long sequence = consumerSequences[i].get();
+            if (wrapPoint > sequence &&
+                now - Math.max(heartbeat, blockedSinceMillis) > consumerTimeoutMillis &&
+                consumerHeartbeats[i].compareAndSet(heartbeat, FREE))
+            {
+                continue;
+            }
+            minSequence = Math.min(minSequence, sequence);
+        }
+        return minSequence;
+    }
+
+    /**
+     * 附着到任意一个空闲的消费者槽位，从当前cursor之后开始消费
+     *
+     * <p>Attach a consumer to a free entry.  It starts after the currently published cursor.</p>
+     *
+     * @return the attached consumer.
+     * @throws IllegalStateException if all the consumer entries are taken.
+     */
+    public Consumer attachConsumer()
+    {
+        for (int i = 0; i < maxConsumers; i++)
+        {
+            final Consumer consumer = tryAttach(i, false);
+            if (null != consumer)
+            {
+                return consumer;
+            }
+        }
+        throw new IllegalStateException("All " + maxConsumers + " consumers are attached");
+    }
+
+    /**
+     * 附着到指定的消费者槽位。如果该槽位的前一个消费者崩溃但未被驱逐，从它的进度继续消费
+     *
+     * <p>Attach a consumer to the given entry, which must be free or held by a consumer whose heartbeat has
+     * expired.  If the entry is still held, typically by the crashed process this one replaces, the consumer resumes
+     * after the last event processed there, otherwise it starts after the published cursor.</p>
+     *
+     * @param index of the consumer entry.
+     * @return the attached consumer.
+     * @throws IllegalStateException if the entry is held by a live consumer.
+     */
+    public Consumer attachConsumer(final int index)
+    {
+        if (index < 0 || index >= maxConsumers)
+        {
+            throw new IllegalArgumentException("index must be between 0 and " + (maxConsumers - 1));
+        }
+
+        final Consumer consumer = tryAttach(index, true);
+        if (null == consumer)
+        {
+            throw new IllegalStateException("Consumer " + index + " is attached");
+        }
+        return consumer;
+    }
+
+    /**
+     * @param index of the consumer entry.
+     * @return true if a consumer holds the entry, even if its heartbeat has expired.
+     */
+    public boolean isConsumerAttached(final int index)
+    {
+        if (index < 0 || index >= maxConsumers)
+        {
+            throw new IllegalArgumentException("index must be between 0 and " + (maxConsumers - 1));
+        }
+        return consumerHeartbeats[index].get() != FREE;
+    }
+
+    private Consumer tryAttach(final int index, final boolean resumeExpired)
+    {
+        final Sequence sequence = consumerSequences[index];
+        final Sequence heartbeatSequence = consumerHeartbeats[index];
+        final long heartbeat = heartbeatSequence.get();
+        final long now = System.currentTimeMillis();
+
+        final boolean expired = heartbeat != FREE && now - heartbeat > consumerTimeoutMillis;
+        if (heartbeat != FREE && !(resumeExpired && expired))
+        {
+            return null;
+        }
+
+        if (heartbeat == FREE)
+        {
+            // 与SequenceGroups.addSequences相同：占用前后各设置一次序号，生产者看到占用时序号不会超过cursor
+            sequence.setVolatile(cursor.get());
+        }
+        if (!heartbeatSequence.compareAndSet(heartbeat, now))
+        {
+            return null;
+        }
+        if (heartbeat == FREE)
+        {
+            sequence.setVolatile(cursor.get());
+        }
+        return new Consumer(index, sequence, heartbeatSequence, now);
+    }
+
+    /**
+     * 创建一个只供当前线程使用的事件视图
+     *
+     * <p>Create a view of the slots that moves one {@link OffHeapEvent} flyweight to the requested slot.  A view
+     * must only be used by one thread.</p>
+     *
+     * @return a new, single threaded, provider of the ring's events.
+     */
+    public DataProvider<OffHeapEvent> newEventProvider()
+    {
+        final OffHeapEvent flyweight = new OffHeapEvent(slotSize);
+        final long mask = bufferSize - 1;
+        return new DataProvider<OffHeapEvent>()
+        {
+            @Override
+            public OffHeapEvent get(final long sequence)
+            {
+                return flyweight.moveTo(sequence, slotsAddress + (sequence & mask) * slotStride);
+            }
+        };
+    }
+
+    /**
+     * @return the published cursor, shared with the other processes.
+     */
+    @Override
+    public long getCursor()
+    {
+        return cursor.get();
+    }
+
+    /**
+     * @return the cursor, as a sequence held in the mapped file.
+     */
+    public Sequence getCursorSequence()
+    {
+        return cursor;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public int getSlotSize()
+    {
+        return slotSize;
+    }
+
+    public int getMaxConsumers()
+    {
+        return maxConsumers;
+    }
+
+    private static int slotStride(final int slotSize)
+    {
+        return (slotSize + CACHE_LINE_SIZE - 1) & ~(CACHE_LINE_SIZE - 1);
+    }
+
+    private static int consumerOffset(final int index)
+    {
+        return CONSUMERS_OFFSET + index * CONSUMER_LENGTH;
+    }
+
+    private static long slotsOffset(final int maxConsumers)
+    {
+        return CONSUMERS_OFFSET + (long) maxConsumers * CONSUMER_LENGTH;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SharedMemoryRingBuffer{" +
+            "bufferSize=" + bufferSize +
+            ", slotSize=" + slotSize +
+            ", maxConsumers=" + maxConsumers +
+            ", cursor=" + cursor +
+            '}';
+    }
+
+    /**
+     * 一个附着的消费者，它的序号和心跳位于映射文件中
+     *
+     * <p>A consumer attached to the ring, whose sequence and heartbeat live in the mapped file.</p>
+     */
+    public final class Consumer
+    {
+        private final int index;
+        private final Sequence sequence;
+        private final Sequence heartbeat;
+        private long lastHeartbeat;
+
+        Consumer(final int index, final Sequence sequence, final Sequence heartbeat, final long lastHeartbeat)
+        {
+            this.index = index;
+            this.sequence = sequence;
+            this.heartbeat = heartbeat;
+            this.lastHeartbeat = lastHeartbeat;
+        }
+
+        /**
+         * @return the index of the entry, to reattach to after a restart.
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * @return the sequence the producer gates on, held in the mapped file.
+         */
+        public Sequence getSequence()
+        {
+            return sequence;
+        }
+
+        /**
+         * 更新心跳，如果已被生产者驱逐则返回false
+         *
+         * <p>Record that the consumer is alive.  Called by the barriers of this consumer each time they wait.</p>
+         *
+         * @return false if the consumer has been evicted or detached.
+         */
+        public boolean heartbeat()
+        {
+            final long now = System.currentTimeMillis();
+            if (now == lastHeartbeat)
+            {
+                return heartbeat.get() == now;
+            }
+            if (heartbeat.compareAndSet(lastHeartbeat, now))
+            {
+                lastHeartbeat = now;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the consumer has not been evicted or detached.
+         */
+        public boolean isAttached()
+        {
+            return heartbeat.get() == lastHeartbeat;
+        }
+
+        /**
+         * Release the entry, so the producer stops gating on it.
+         */
+        public void detach()
+        {
+            heartbeat.compareAndSet(lastHeartbeat, FREE);
+        }
+
+        /**
+         * 创建跟随生产者cursor的屏障，等待时更新心跳，被驱逐后抛出{@link AlertException}
+         *
+         * <p>Create a barrier that waits for the producer's cursor with the wait strategy and heartbeats each time it
+         * waits.  Once the consumer has been evicted it throws {@link AlertException}.  Only the non-blocking wait
+         * strategies can be used across processes.</p>
+         *
+         * @param waitStrategy used to wait for the producer.
+         * @return a barrier on the producer's cursor.
+         */
+        public SequenceBarrier newBarrier(final WaitStrategy waitStrategy)
+        {
+            return new SharedMemorySequenceBarrier(this, waitStrategy, null);
+        }
+
+        /**
+         * 创建一个消费该RingBuffer的批处理器，进度记录在共享内存中；每处理一个事件更新一次心跳，被驱逐时处理器停止
+         *
+         * <p>Create a {@link BatchEventProcessor} that tracks its progress in this consumer's sequence, so it resumes
+         * where the previous one stopped.  The processor heartbeats after each event it handles, so a slow batch does
+         * not get it evicted, and halts without moving its sequence past that event if the consumer has been evicted
+         * all the same.  Halting it does not detach the consumer, so the entry can be resumed; {@link #detach()} it
+         * once the processor has stopped.</p>
+         *
+         * @param eventHandler to which events are dispatched.
+         * @param waitStrategy used to wait for the producer.
+         * @return a new processor.
+         */
+        public BatchEventProcessor<OffHeapEvent> newEventProcessor(
+            final EventHandler<? super OffHeapEvent> eventHandler,
+            final WaitStrategy waitStrategy)
+        {
+            final SharedMemorySequenceBarrier barrier = new SharedMemorySequenceBarrier(this, waitStrategy, null);
+            final HeartbeatingEventHandler heartbeatingHandler = (eventHandler instanceof BatchEventHandler)
+                ? new HeartbeatingBatchEventHandler(barrier, eventHandler)
+                : new HeartbeatingEventHandler(barrier, eventHandler);
+            final BatchEventProcessor<OffHeapEvent> processor =
+                new BatchEventProcessor<>(newEventProvider(), barrier, heartbeatingHandler, sequence);
+            barrier.processor = processor;
+            return processor;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Consumer{" +
+                "index=" + index +
+                ", sequence=" + sequence +
+                '}';
+        }
+    }
+
+    /**
+     * 跟随生产者cursor的屏障。单生产者，可用的序号就是cursor
+     */
+    private final class SharedMemorySequenceBarrier implements SequenceBarrier
+    {
+        private final Consumer consumer;
+        private final WaitStrategy waitStrategy;
+        private volatile boolean alerted = false;
+        private volatile BatchEventProcessor<OffHeapEvent> processor;
+
+        SharedMemorySequenceBarrier(
+            final Consumer consumer,
+            final WaitStrategy waitStrategy,
+            final BatchEventProcessor<OffHeapEvent> processor)
+        {
+            this.consumer = consumer;
+            this.waitStrategy = waitStrategy;
+            this.processor = processor;
+        }
+
+        @Override
+        public long waitFor(final long sequence) throws AlertException, InterruptedException, TimeoutException
+        {
+            checkAlert();
+            checkAttached();
+
+            return waitStrategy.waitFor(sequence, cursor, cursor, this);
+        }
+
+        /**
+         * 更新心跳，已被驱逐时停止处理器并抛出{@link AlertException}
+         */
+        void checkAttached() throws AlertException
+        {
+            if (!consumer.heartbeat())
+            {
+                // 已被驱逐，槽位中的事件可能已被覆盖
+                final BatchEventProcessor<OffHeapEvent> processor = this.processor;
+                if (null != processor)
+                {
+                    processor.halt();
+                }
+                throw AlertException.INSTANCE;
+            }
+        }
+
+        @Override
+        public long getCursor()
+        {
+            return cursor.get();
+        }
+
+        @Override
+        public boolean isAlerted()
+        {
+            return alerted;
+        }
+
+        @Override
+        public void alert()
+        {
+            alerted = true;
+            waitStrategy.signalAllWhenBlocking();
+        }
+
+        @Override
+        public void clearAlert()
+        {
+            alerted = false;
+        }
+
+        @Override
+        public void checkAlert() throws AlertException
+        {
+            if (alerted)
+            {
+                throw AlertException.INSTANCE;
+            }
+        }
+    }
+
+    /**
+     * 处理完每个事件后更新心跳。已被驱逐时事件可能在处理过程中被覆盖，抛出{@link AlertException}，
+     * 处理器停止且不推进序号，也不作为异常报告
+     */
+    private class HeartbeatingEventHandler
+        implements SequenceReportingEventHandler<OffHeapEvent>, LifecycleAware, BatchStartAware, TimeoutHandler
+    {
+        final SharedMemorySequenceBarrier barrier;
+        private final EventHandler<? super OffHeapEvent> eventHandler;
+
+        HeartbeatingEventHandler(
+            final SharedMemorySequenceBarrier barrier,
+            final EventHandler<? super OffHeapEvent> eventHandler)
+        {
+            this.barrier = barrier;
+            this.eventHandler = eventHandler;
+        }
+
+        @Override
+        public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch) throws Exception
+        {
+            eventHandler.onEvent(event, sequence, endOfBatch);
+            barrier.checkAttached();
+        }
+
+        @Override
+        public void setSequenceCallback(final Sequence sequenceCallback)
+        {
+            if (eventHandler instanceof SequenceReportingEventHandler)
+            {
+                ((SequenceReportingEventHandler<?>) eventHandler).setSequenceCallback(sequenceCallback);
+            }
+        }
+
+        @Override
+        public void onBatchStart(final long batchSize)
+        {
+            if (eventHandler instanceof BatchStartAware)
+            {
+                ((BatchStartAware) eventHandler).onBatchStart(batchSize);
+            }
+        }
+
+        @Override
+        public void onTimeout(final long sequence) throws Exception
+        {
+            if (eventHandler instanceof TimeoutHandler)
+            {
+                ((TimeoutHandler) eventHandler).onTimeout(sequence);
+            }
+        }
+
+        @Override
+        public void onStart()
+        {
+            if (eventHandler instanceof LifecycleAware)
+            {
+                ((LifecycleAware) eventHandler).onStart();
+            }
+        }
+
+        @Override
+        public void onShutdown()
+        {
+            if (eventHandler instanceof LifecycleAware)
+            {
+                ((LifecycleAware) eventHandler).onShutdown();
+            }
+        }
+    }
+
+    /**
+     * 整段处理完后更新心跳
+     */
+    private final class HeartbeatingBatchEventHandler
+        extends HeartbeatingEventHandler implements BatchEventHandler<OffHeapEvent>
+    {
+        private final BatchEventHandler<? super OffHeapEvent> batchEventHandler;
+
+        @SuppressWarnings("unchecked")
+        HeartbeatingBatchEventHandler(
+            final SharedMemorySequenceBarrier barrier,
+            final EventHandler<? super OffHeapEvent> eventHandler)
+        {
+            super(barrier, eventHandler);
+            this.batchEventHandler = (BatchEventHandler<? super OffHeapEvent>) eventHandler;
+        }
+
+        @Override
+        public void onBatch(final DataProvider<? extends OffHeapEvent> dataProvider, final long lo, final long hi)
+            throws Exception
+        {
+            batchEventHandler.onBatch(dataProvider, lo, hi);
+            barrier.checkAttached();
+        }
+    }
+}
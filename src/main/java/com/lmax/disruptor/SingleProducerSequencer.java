@@ -15,7 +15,7 @@
  */
 package com.lmax.disruptor;
 
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
 
 import com.lmax.disruptor.util.Util;
 
@@ -27,17 +27,17 @@ abstract class SingleProducerSequencerPad extends AbstractSequencer
 {
     protected long p1, p2, p3, p4, p5, p6, p7;
 
-    SingleProducerSequencerPad(int bufferSize, WaitStrategy waitStrategy)
+    SingleProducerSequencerPad(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy)
     {
-        super(bufferSize, waitStrategy);
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 }
 
 abstract class SingleProducerSequencerFields extends SingleProducerSequencerPad
 {
-    SingleProducerSequencerFields(int bufferSize, WaitStrategy waitStrategy)
+    SingleProducerSequencerFields(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy)
     {
-        super(bufferSize, waitStrategy);
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 
     /**
@@ -106,7 +106,19 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
      */
     public SingleProducerSequencer(int bufferSize, WaitStrategy waitStrategy)
     {
-        super(bufferSize, waitStrategy);
+        this(bufferSize, waitStrategy, new SleepingProducerWaitStrategy());
+    }
+
+    /**
+     * Construct a Sequencer with the selected wait strategies and buffer size.
+     *
+     * @param bufferSize           the size of the buffer that this will sequence over.
+     * @param waitStrategy         for those waiting on sequences.
+     * @param producerWaitStrategy for the publisher waiting for space in a full buffer.
+     */
+    public SingleProducerSequencer(int bufferSize, WaitStrategy waitStrategy, ProducerWaitStrategy producerWaitStrategy)
+    {
+        super(bufferSize, waitStrategy, producerWaitStrategy);
     }
 
     /**
@@ -210,13 +222,13 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
             // 当我再次申请更多的空间时，必须保证消费者能消费发布的数据
             cursor.setVolatile(nextValue);  // StoreLoad fence
 
-            long minSequence;
+            long minSequence = Util.getMinimumSequence(gatingSequences, nextValue);
             // 如果末端的消费者们仍然没让出该插槽则等待，直到消费者们让出该插槽
             // 注意：这是导致死锁的重要原因！
             // 死锁分析：如果消费者挂掉了，而它的sequence没有从gatingSequences中删除的话，则生产者会死锁，它永远等不到消费者更新。
-            while (wrapPoint > (minSequence = Util.getMinimumSequence(gatingSequences, nextValue)))
+            if (wrapPoint > minSequence)
             {
-                LockSupport.parkNanos(1L); // TODO: Use waitStrategy to spin?
+                minSequence = producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence);
             }
 
             // 缓存生产者们最新的消费进度。
@@ -232,6 +244,46 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
         return nextSequence;
     }
 
+    /**
+     * 与{@link #next(int)}相同，但最多等待timeout，超时则不分配任何序号。
+     *
+     * @see Sequencer#next(int, long, TimeUnit)
+     */
+    @Override
+    public long next(int n, long timeout, TimeUnit unit) throws TimeoutException
+    {
+        if (n < 1)
+        {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        long nextValue = this.nextValue;
+        long nextSequence = nextValue + n;
+        long wrapPoint = nextSequence - bufferSize;
+        long cachedGatingSequence = this.cachedValue;
+
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > nextValue)
+        {
+            cursor.setVolatile(nextValue);  // StoreLoad fence
+
+            long minSequence = Util.getMinimumSequence(gatingSequences, nextValue);
+            if (wrapPoint > minSequence)
+            {
+                minSequence = producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence, unit.toNanos(timeout));
+                if (wrapPoint > minSequence)
+                {
+                    throw TimeoutException.INSTANCE;
+                }
+            }
+
+            this.cachedValue = minSequence;
+        }
+
+        this.nextValue = nextSequence;
+
+        return nextSequence;
+    }
+
     /**
      * @see Sequencer#tryNext()
      */
@@ -313,6 +365,15 @@ public final class SingleProducerSequencer extends SingleProducerSequencerFields
         publish(hi);
     }
 
+    /**
+     * @see Sequencer#publishDeferred(long, long)
+     */
+    @Override
+    public void publishDeferred(long lo, long hi)
+    {
+        cursor.set(hi);
+    }
+
     /**
 	 * 指定序号的数据是否准备好了
      * @see Sequencer#isAvailable(long)
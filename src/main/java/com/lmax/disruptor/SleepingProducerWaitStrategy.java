@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 每次检查之间park一段时间，生产者默认的等待策略(park 1纳秒，实际的睡眠时间取决于操作系统的定时器精度)。
+ *
+ * <p>Publisher wait strategy that parks for <code>sleepNanos</code> between checks of the gating sequences.
+ * This is the default, with a nominal 1ns park whose real length depends on the timer slack of the OS.</p>
+ */
+public final class SleepingProducerWaitStrategy implements ProducerWaitStrategy
+{
+    private static final long DEFAULT_SLEEP = 1L;
+
+    private final long sleepNanos;
+
+    public SleepingProducerWaitStrategy()
+    {
+        this(DEFAULT_SLEEP);
+    }
+
+    public SleepingProducerWaitStrategy(long sleepNanos)
+    {
+        this.sleepNanos = sleepNanos;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence)
+    {
+        long minSequence;
+        while (wrapPoint > (minSequence = gatingSequence.get()))
+        {
+            LockSupport.parkNanos(sleepNanos);
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence, final long timeoutNanos)
+    {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long minSequence;
+        long remaining;
+        while (wrapPoint > (minSequence = gatingSequence.get()) && (remaining = deadline - System.nanoTime()) > 0)
+        {
+            LockSupport.parkNanos(Math.min(sleepNanos, remaining));
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+    }
+}
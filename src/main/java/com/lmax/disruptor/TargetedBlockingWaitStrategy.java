@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 定向唤醒的阻塞等待策略。
+ * 与{@link BlockingWaitStrategy}不同，每个阻塞的消费者登记自己需要的序号和它依赖的Sequence，
+ * 唤醒时只unpark目标已经可达的消费者，而不是唤醒所有消费者。
+ * <p>
+ * 依赖上游消费者的下游消费者也会阻塞(而不是自旋)等待上游，{@link BatchEventProcessor}和{@link WorkProcessor}
+ * 推进进度后会通知该策略，因此在很深的消费者链中不会出现惊群。
+ *
+ * <p>Blocking strategy that parks each waiting {@link EventProcessor} on its own and only unparks the ones whose
+ * target sequence has become reachable, rather than waking every parked consumer through a shared condition.</p>
+ *
+ * <p>Consumers gated on upstream handlers park too instead of spinning, and are woken when
+ * {@link BatchEventProcessor}s and {@link WorkProcessor}s on the same ring advance, so in deep pipelines a publish
+ * only wakes the first stage and each stage wakes the next.</p>
+ *
+ * <p>A thread is registered only while it is parked in {@link #waitFor(long, Sequence, Sequence, SequenceBarrier)},
+ * so threads that stop waiting, or exit, do not stay in the registry.</p>
+ */
+public final class TargetedBlockingWaitStrategy implements WaitStrategy
+{
+    private static final long NOT_WAITING = Long.MAX_VALUE;
+
+    /**
+     * 正在(或即将)阻塞的消费者个数，为0时唤醒操作不需要遍历登记表
+     */
+    private final AtomicInteger parked = new AtomicInteger(0);
+    /**
+     * 正在阻塞的线程，写时复制，线程阻塞前登记，退出等待时注销
+     */
+    private volatile Waiter[] waiters = new Waiter[0];
+    private final ThreadLocal<Waiter> currentWaiter = new ThreadLocal<Waiter>()
+    {
+        @Override
+        protected Waiter initialValue()
+        {
+            return new Waiter(Thread.currentThread());
+        }
+    };
+    private final long timeoutInNanos;
+
+    /**
+     * Construct a strategy that waits without a timeout.
+     */
+    public TargetedBlockingWaitStrategy()
+    {
+        this.timeoutInNanos = 0;
+    }
+
+    /**
+     * Construct a strategy that throws {@link TimeoutException} when a consumer has waited for the timeout.
+     *
+     * @param timeout the maximum time to wait for a sequence.
+     * @param units   the unit of the timeout.
+     */
+    public TargetedBlockingWaitStrategy(final long timeout, final TimeUnit units)
+    {
+        if (timeout <= 0)
+        {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        this.timeoutInNanos = units.toNanos(timeout);
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+        throws AlertException, InterruptedException, TimeoutException
+    {
+        long availableSequence;
+        if ((availableSequence = dependentSequence.get()) >= sequence)
+        {
+            return availableSequence;
+        }
+
+        final Waiter waiter = currentWaiter.get();
+        waiter.dependentSequence = dependentSequence;
+        waiter.barrier = barrier;
+        waiter.sequence = sequence;
+        register(waiter);
+        // 先登记再检查依赖的序号，与唤醒者先更新序号再读取parked配对，保证不会丢失唤醒
+        parked.getAndIncrement();
+        try
+        {
+            final long deadline = timeoutInNanos > 0 ? System.nanoTime() + timeoutInNanos : 0;
+            while ((availableSequence = dependentSequence.get()) < sequence)
+            {
+                barrier.checkAlert();
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+
+                if (0 == deadline)
+                {
+                    LockSupport.park(this);
+                }
+                else
+                {
+                    final long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0)
+                    {
+                        throw TimeoutException.INSTANCE;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                }
+            }
+        }
+        finally
+        {
+            waiter.sequence = NOT_WAITING;
+            parked.getAndDecrement();
+            deregister(waiter);
+        }
+
+        return availableSequence;
+    }
+
+    /**
+     * 只唤醒目标序号已经可达(或已被请求停止)的消费者
+     */
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        // getAndAdd(0)而不是get()：需要一个StoreLoad屏障，保证写入的序号先于读取parked对消费者可见
+        if (parked.getAndAdd(0) == 0)
+        {
+            return;
+        }
+
+        for (final Waiter waiter : waiters)
+        {
+            final long sequence = waiter.sequence;
+            if (sequence != NOT_WAITING &&
+                (waiter.dependentSequence.get() >= sequence || waiter.barrier.isAlerted()))
+            {
+                LockSupport.unpark(waiter.thread);
+            }
+        }
+    }
+
+    private synchronized void register(final Waiter waiter)
+    {
+        final Waiter[] newWaiters = Arrays.copyOf(waiters, waiters.length + 1);
+        newWaiters[waiters.length] = waiter;
+        waiters = newWaiters;
+    }
+
+    private synchronized void deregister(final Waiter waiter)
+    {
+        final Waiter[] currentWaiters = waiters;
+        for (int i = 0; i < currentWaiters.length; i++)
+        {
+            if (currentWaiters[i] == waiter)
+            {
+                final Waiter[] newWaiters = new Waiter[currentWaiters.length - 1];
+                System.arraycopy(currentWaiters, 0, newWaiters, 0, i);
+                System.arraycopy(currentWaiters, i + 1, newWaiters, i, newWaiters.length - i);
+                waiters = newWaiters;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TargetedBlockingWaitStrategy{" +
+            "parked=" + parked +
+            ", waiters=" + waiters.length +
+            ", timeoutInNanos=" + timeoutInNanos +
+            '}';
+    }
+
+    /**
+     * 一个消费者线程的登记信息，sequence在线程阻塞前最后写入，其它字段在它之前写入
+     */
+    private static final class Waiter
+    {
+        private final Thread thread;
+        private volatile long sequence = NOT_WAITING;
+        private volatile Sequence dependentSequence;
+        private volatile SequenceBarrier barrier;
+
+        Waiter(final Thread thread)
+        {
+            this.thread = thread;
+        }
+    }
+}
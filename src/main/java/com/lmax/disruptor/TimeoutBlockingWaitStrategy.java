@@ -1,6 +1,7 @@
 package com.lmax.disruptor;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -13,6 +14,10 @@ public class TimeoutBlockingWaitStrategy implements WaitStrategy
 {
     private final Lock lock = new ReentrantLock();
     private final Condition processorNotifyCondition = lock.newCondition();
+    /**
+     * 已登记即将阻塞(或正在阻塞)的消费者个数，为0时发布者不需要获取锁
+     */
+    private final AtomicInteger waiters = new AtomicInteger(0);
     private final long timeoutInNanos;
 
     public TimeoutBlockingWaitStrategy(final long timeout, final TimeUnit units)
@@ -35,6 +40,7 @@ public class TimeoutBlockingWaitStrategy implements WaitStrategy
         if (cursorSequence.get() < sequence)
         {
             lock.lock();
+            waiters.getAndIncrement();
             try
             {
                 while (cursorSequence.get() < sequence)
@@ -49,6 +55,7 @@ public class TimeoutBlockingWaitStrategy implements WaitStrategy
             }
             finally
             {
+                waiters.getAndDecrement();
                 lock.unlock();
             }
         }
@@ -65,14 +72,19 @@ public class TimeoutBlockingWaitStrategy implements WaitStrategy
     @Override
     public void signalAllWhenBlocking()
     {
-        lock.lock();
-        try
+        // getAndAdd(0)而不是get()：需要一个StoreLoad屏障，保证发布者写入的cursor先于读取waiters对消费者可见，
+        // 与消费者先登记waiters再检查cursor配对，从而不会丢失唤醒。
+        if (waiters.getAndAdd(0) != 0)
         {
-            processorNotifyCondition.signalAll();
-        }
-        finally
-        {
-            lock.unlock();
+            lock.lock();
+            try
+            {
+                processorNotifyCondition.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
         }
     }
 
@@ -70,11 +70,46 @@ public final class WorkProcessor<T>
         public void release()
         {
             // 设置为MAX_VALUE可以使得当前线程停止消费，且不影响生产者和其它消费者
-            sequence.set(Long.MAX_VALUE);
+            // 已领取的区间还有没处理的序号时，生产者仍然需要等待这些序号，与WorkStealingWorkProcessor一样
+            sequence.set(releaseSequence);
+            producerWaitStrategy.signalAllWhenBlocking();
+            progressWaitStrategy.signalAllWhenBlocking();
         }
     };
 
     private final TimeoutHandler timeoutHandler;
+    /**
+     * 推进消费进度后，唤醒等待空间的生产者
+     */
+    private final ProducerWaitStrategy producerWaitStrategy;
+    /**
+     * 推进消费进度后，唤醒阻塞等待本消费者的下游消费者
+     */
+    private final WaitStrategy progressWaitStrategy;
+    /**
+     * 一次最多从workSequence领取的序号个数，为1时每次只领取一个序号
+     */
+    private int maxClaimSize = 1;
+    /**
+     * 共享workSequence的WorkProcessor个数，用于按积压量均分领取的区间
+     */
+    private int workerCount = 1;
+    /**
+     * 为true时，处理完已领取的序号后退出，而不是继续领取
+     */
+    private volatile boolean retiring = false;
+    /**
+     * 正在处理的事件被释放时设置的序号，只由本线程在处理事件前写入，{@link EventReleaser}在事件处理器中调用
+     */
+    private long releaseSequence = Long.MAX_VALUE;
+    /**
+     * 退出的worker无法交还的序号，为null时(WorkerPool)等到序号发布并处理完才退出
+     */
+    private OrphanedClaims orphanedClaims;
+    /**
+     * 退出时仍未处理的已领取序号，序号停在它之前，由{@link OrphanedClaims}交给其它worker
+     */
+    private long unhandledClaim = Sequencer.INITIAL_CURSOR_VALUE;
 
     /**
      * Construct a {@link WorkProcessor}.
@@ -98,6 +133,8 @@ public final class WorkProcessor<T>
         this.workHandler = workHandler;
         this.exceptionHandler = exceptionHandler;
         this.workSequence = workSequence;
+        this.producerWaitStrategy = ProcessingSequenceBarrier.producerWaitStrategyOf(sequenceBarrier);
+        this.progressWaitStrategy = ProcessingSequenceBarrier.progressWaitStrategyOf(sequenceBarrier);
 
         if (this.workHandler instanceof EventReleaseAware)
         {
@@ -113,6 +150,77 @@ public final class WorkProcessor<T>
         return sequence;
     }
 
+    /**
+     * 允许一次从workSequence领取一段连续的序号，减少WorkProcessor之间在workSequence上的CAS竞争。
+     * 领取的区间大小根据已发布但未领取的积压量和WorkProcessor个数调整：积压量均分给各个WorkProcessor，
+     * 且不超过maxClaimSize；没有积压时仍然一次领取一个序号。
+     *
+     * <p>Allow this processor to claim a contiguous range of sequences from the work sequence at a time, so that
+     * workers with cheap handlers spend less time contending on the work sequence.  The range is sized from the
+     * backlog of published but unclaimed events split across <code>workerCount</code> workers, up to
+     * <code>maxClaimSize</code>; a worker that is keeping up still claims one sequence at a time.</p>
+     *
+     * <p>The processor's sequence is only advanced once the whole range has been handled.  Must be called before
+     * the processor is started.</p>
+     *
+     * @param maxClaimSize the largest range to claim at once, 1 claims one sequence at a time.
+     * @param workerCount  the number of processors sharing the work sequence.
+     * @see WorkerPool#setMaxClaimSize(int)
+     */
+    public void setMaxClaimSize(final int maxClaimSize, final int workerCount)
+    {
+        if (maxClaimSize < 1)
+        {
+            throw new IllegalArgumentException("maxClaimSize must not be less than 1");
+        }
+        if (workerCount < 1)
+        {
+            throw new IllegalArgumentException("workerCount must not be less than 1");
+        }
+        this.maxClaimSize = maxClaimSize;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * 请求在处理完已经领取的序号后退出。与{@link #halt()}不同，已经从workSequence领取的序号不会被丢弃，
+     * 因此可以在其它WorkProcessor继续运行时安全地减少worker，用于{@link ElasticWorkerPool}。
+     * 正在等待一个尚未发布的序号时，如果之后没有其它worker领取序号，将该序号交还给workSequence后立即退出；
+     * 否则序号停在该序号之前并退出，由{@link #getUnhandledClaim()}交给其它worker，没有设置{@link OrphanedClaims}时
+     * 等到它发布并处理完才退出。
+     * 会alert屏障来唤醒正在等待的worker，因此屏障不能与其它处理器共用，参考{@link ProcessingSequenceBarrier#copyOf}。
+     */
+    void retire()
+    {
+        retiring = true;
+        sequenceBarrier.alert();
+    }
+
+    /**
+     * 接手退出的worker无法交还的序号，必须在启动前调用
+     */
+    void setOrphanedClaims(final OrphanedClaims orphanedClaims)
+    {
+        this.orphanedClaims = orphanedClaims;
+    }
+
+    /**
+     * 唤醒正在等待自己领取的序号的worker，让它先接手更小的无主序号
+     */
+    void notifyOrphanedClaim()
+    {
+        sequenceBarrier.alert();
+    }
+
+    /**
+     * 只在run()返回后由运行它的线程读取
+     *
+     * @return the claimed sequence left unhandled when it retired, or {@link Sequencer#INITIAL_CURSOR_VALUE}.
+     */
+    long getUnhandledClaim()
+    {
+        return unhandledClaim;
+    }
+
     @Override
     public void halt()
     {
@@ -143,6 +251,7 @@ public final class WorkProcessor<T>
         }
         // 清除特定状态(可理解为清除线程的中断状态)
         sequenceBarrier.clearAlert();
+        unhandledClaim = Sequencer.INITIAL_CURSOR_VALUE;
 
         notifyStart();
 
@@ -154,6 +263,8 @@ public final class WorkProcessor<T>
 		// BatchEventProcessor初始值为 sequence.get()+1
 		// 存为local variable 还减少大量的volatile变量读，且保证本次操作过程中的一致性
         long nextSequence = sequence.get();
+        // 已领取区间的最后一个序号，nextSequence小于它时不需要再次竞争workSequence
+        long claimEnd = nextSequence;
         // 要消费的事件对象
         T event = null;
         while (true)
@@ -172,16 +283,44 @@ public final class WorkProcessor<T>
                 if (processedSequence)
                 {
                     processedSequence = false;
-                    do
+                    if (nextSequence < claimEnd)
                     {
-                        // 获取workProcessor所属的消费者的进度，与workSequence同步(感知其他消费者的进度)
-                        nextSequence = workSequence.get() + 1L;
-                        sequence.set(nextSequence - 1L);
+                        // 已领取的区间还没有处理完，区间内的序号都已发布，不需要竞争
+                        nextSequence++;
+                    }
+                    else
+                    {
+                        if (retiring)
+                        {
+                            // 已领取的序号都已处理完，退出不会丢失事件
+                            break;
+                        }
+
+                        // 先接手退出的worker留下的序号
+                        final long adopted = null == orphanedClaims
+                            ? Sequencer.INITIAL_CURSOR_VALUE : orphanedClaims.adopt(sequence);
+                        if (Sequencer.INITIAL_CURSOR_VALUE != adopted)
+                        {
+                            nextSequence = adopted;
+                            claimEnd = adopted;
+                        }
+                        else
+                        {
+                            do
+                            {
+                                // 获取workProcessor所属的消费者的进度，与workSequence同步(感知其他消费者的进度)
+                                nextSequence = workSequence.get() + 1L;
+                                sequence.set(nextSequence - 1L);
+                                claimEnd = nextSequence - 1L + claimSize(nextSequence - 1L, cachedAvailableSequence);
+                            }
+                            while (!workSequence.compareAndSet(nextSequence - 1L, claimEnd));
+                        }
+                        producerWaitStrategy.signalAllWhenBlocking();
+                        progressWaitStrategy.signalAllWhenBlocking();
+                        // CAS更新workSequence的序号(预分配序号)，为什么这样是安全的呢？
+						// 由于消费者的进度由最小的Sequence决定，当它CAS更新workSequence之后，它代替了workSequence处在旧的进度上。
+						// 就算多个workProcessor竞争，总有一个是处在正确的进度上的。因此 workSequence 的更新并不会影响WorkerPool代表的消费者的消费进度。
                     }
-                    while (!workSequence.compareAndSet(nextSequence - 1L, nextSequence));
-                    // CAS更新workSequence的序号(预分配序号)，为什么这样是安全的呢？
-					// 由于消费者的进度由最小的Sequence决定，当它CAS更新workSequence之后，它代替了workSequence处在旧的进度上。
-					// 就算多个workProcessor竞争，总有一个是处在正确的进度上的。因此 workSequence 的更新并不会影响WorkerPool代表的消费者的消费进度。
                 }
 
 				// 它只能保证竞争到的序号是可用的，因此只能只消费一个。
@@ -189,6 +328,7 @@ public final class WorkProcessor<T>
                 if (cachedAvailableSequence >= nextSequence)
                 {
                     event = ringBuffer.get(nextSequence);
+                    releaseSequence = nextSequence < claimEnd ? nextSequence - 1L : Long.MAX_VALUE;
                     workHandler.onEvent(event);
                     processedSequence = true;
                 }
@@ -210,6 +350,38 @@ public final class WorkProcessor<T>
                 {
                     break;
                 }
+
+                // 被retire()或无主序号唤醒。先清除alert再检查running和retiring，不会错过halt()和retire()
+                sequenceBarrier.clearAlert();
+                if (!running.get())
+                {
+                    break;
+                }
+
+                final boolean waitingForClaim = nextSequence == claimEnd && !processedSequence;
+                if (retiring)
+                {
+                    if (waitingForClaim)
+                    {
+                        // 之后没有其它worker领取时，交还该序号后退出，它会被其它worker领取
+                        if (workSequence.compareAndSet(nextSequence, nextSequence - 1L))
+                        {
+                            break;
+                        }
+                        // 无法交还，序号停在它之前退出，由池交给其它worker
+                        if (null != orphanedClaims)
+                        {
+                            unhandledClaim = nextSequence;
+                            break;
+                        }
+                    }
+                    // 否则处理完已领取的序号后再退出
+                }
+                else if (waitingForClaim && null != orphanedClaims)
+                {
+                    nextSequence = orphanedClaims.swap(sequence, nextSequence);
+                    claimEnd = nextSequence;
+                }
             }
             catch (final Throwable ex)
             {
@@ -229,6 +401,19 @@ public final class WorkProcessor<T>
         running.set(false);
     }
 
+    /**
+     * 领取区间的大小，只领取已知已发布的序号，因此区间内不会等待生产者
+     */
+    private long claimSize(final long workSequenceValue, final long availableSequence)
+    {
+        final long backlog = availableSequence - workSequenceValue;
+        if (maxClaimSize == 1 || backlog <= workerCount)
+        {
+            return 1;
+        }
+        return Math.min(maxClaimSize, backlog / workerCount);
+    }
+
     private void notifyTimeout(final long availableSequence)
     {
         try
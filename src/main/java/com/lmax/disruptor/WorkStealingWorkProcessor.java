@@ -0,0 +1,394 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link WorkStealingWorkerPool}中的工作单元。
+ * 与{@link WorkProcessor}一样从共享的workSequence领取序号，但一次领取一段连续的区间放在本地，
+ * 本地区间处理完后先尝试从其它WorkProcessor的区间尾部窃取一半，窃取不到时才继续竞争workSequence。
+ *
+ * 本地区间的头(head)只由所有者修改，尾(tail)由窃取者在持有所有者的锁时修改，
+ * 所有者只在和窃取者竞争最后一个序号时才需要加锁(THE协议)。
+ *
+ * <p>A {@link WorkProcessor} variant used by {@link WorkStealingWorkerPool}.  Each processor claims a contiguous
+ * range of sequences from the shared work sequence into a local range and handles it from the head; once its
+ * own range is exhausted it steals the back half of the largest range still owned by another processor before
+ * going back to the work sequence.</p>
+ *
+ * <p>The owner takes from the head without locking and thieves shrink the tail while holding the owner's monitor,
+ * the owner only locking when it races a thief for the last sequence.  A thief lowers its own sequence to just
+ * before the stolen range before taking it, so the pool's gating sequences never pass an unhandled event.</p>
+ *
+ * @param <T> event implementation storing the details for the work to processed.
+ */
+public final class WorkStealingWorkProcessor<T>
+    implements EventProcessor
+{
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final RingBuffer<T> ringBuffer;
+    private final SequenceBarrier sequenceBarrier;
+    private final WorkHandler<? super T> workHandler;
+    private final ExceptionHandler<? super T> exceptionHandler;
+    private final Sequence workSequence;
+    /**
+     * 同一个池中的所有WorkProcessor(包括自己)，用于选择窃取对象
+     */
+    private WorkStealingWorkProcessor<?>[] peers;
+    private int maxClaimSize;
+
+    /**
+     * 本地区间[head, tail)，head为下一个要处理的序号
+     */
+    private volatile long head = 0;
+    private volatile long tail = 0;
+
+    /**
+     * 成功窃取的次数和窃取到的序号个数，只由本线程写入
+     */
+    private volatile long stealCount = 0;
+    private volatile long stolenCount = 0;
+
+    private final EventReleaser eventReleaser = new EventReleaser()
+    {
+        @Override
+        public void release()
+        {
+            // 本地区间还有没处理的序号时，只能放行当前正在处理的序号
+            sequence.set(head < tail ? head - 1 : Long.MAX_VALUE);
+            producerWaitStrategy.signalAllWhenBlocking();
+            progressWaitStrategy.signalAllWhenBlocking();
+        }
+    };
+
+    private final TimeoutHandler timeoutHandler;
+    private final ProducerWaitStrategy producerWaitStrategy;
+    private final WaitStrategy progressWaitStrategy;
+
+    /**
+     * Construct a {@link WorkStealingWorkProcessor}.  It is wired to its peers by the {@link WorkStealingWorkerPool}.
+     *
+     * @param ringBuffer       to which events are published.
+     * @param sequenceBarrier  on which it is waiting.
+     * @param workHandler      is the delegate to which events are dispatched.
+     * @param exceptionHandler to be called back when an error occurs
+     * @param workSequence     from which to claim the next range to be worked on.
+     */
+    WorkStealingWorkProcessor(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final WorkHandler<? super T> workHandler,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final Sequence workSequence)
+    {
+        this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = sequenceBarrier;
+        this.workHandler = workHandler;
+        this.exceptionHandler = exceptionHandler;
+        this.workSequence = workSequence;
+        this.producerWaitStrategy = ProcessingSequenceBarrier.producerWaitStrategyOf(sequenceBarrier);
+        this.progressWaitStrategy = ProcessingSequenceBarrier.progressWaitStrategyOf(sequenceBarrier);
+
+        if (this.workHandler instanceof EventReleaseAware)
+        {
+            ((EventReleaseAware) this.workHandler).setEventReleaser(eventReleaser);
+        }
+
+        timeoutHandler = (workHandler instanceof TimeoutHandler) ? (TimeoutHandler) workHandler : null;
+    }
+
+    void setPeers(final WorkStealingWorkProcessor<?>[] peers, final int maxClaimSize)
+    {
+        this.peers = peers;
+        this.maxClaimSize = maxClaimSize;
+    }
+
+    /**
+     * 从启动时的进度开始，清空本地区间
+     */
+    void reset(final long cursor)
+    {
+        synchronized (this)
+        {
+            head = 0;
+            tail = 0;
+        }
+        sequence.set(cursor);
+    }
+
+    @Override
+    public Sequence getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * @return the number of times this processor has stolen part of another processor's range.
+     */
+    public long getStealCount()
+    {
+        return stealCount;
+    }
+
+    /**
+     * @return the total number of sequences this processor has stolen from other processors.
+     */
+    public long getStolenCount()
+    {
+        return stolenCount;
+    }
+
+    @Override
+    public void halt()
+    {
+        running.set(false);
+        sequenceBarrier.alert();
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running.get();
+    }
+
+    /**
+     * It is ok to have another thread re-run this method after a halt().
+     *
+     * @throws IllegalStateException if this processor is already running
+     */
+    @Override
+    public void run()
+    {
+        if (!running.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("Thread is already running");
+        }
+        sequenceBarrier.clearAlert();
+
+        notifyStart();
+
+        boolean processedSequence = true;
+        long cachedAvailableSequence = Long.MIN_VALUE;
+        long nextSequence = sequence.get();
+        T event = null;
+        while (true)
+        {
+            try
+            {
+                if (processedSequence)
+                {
+                    processedSequence = false;
+                    nextSequence = take();
+                    if (EMPTY == nextSequence)
+                    {
+                        // 本地区间已处理完，先窃取，窃取不到再竞争workSequence
+                        if (!steal())
+                        {
+                            claim(cachedAvailableSequence);
+                        }
+                        producerWaitStrategy.signalAllWhenBlocking();
+                        progressWaitStrategy.signalAllWhenBlocking();
+                        // 窃取者最多拿走一半，因此新区间中至少还有一个序号
+                        nextSequence = take();
+                    }
+                }
+
+                if (cachedAvailableSequence >= nextSequence)
+                {
+                    event = ringBuffer.get(nextSequence);
+                    workHandler.onEvent(event);
+                    processedSequence = true;
+                }
+                else
+                {
+                    // 只有单个序号的区间会超出已发布的序号
+                    cachedAvailableSequence = sequenceBarrier.waitFor(nextSequence);
+                }
+            }
+            catch (final TimeoutException e)
+            {
+                notifyTimeout(sequence.get());
+            }
+            catch (final AlertException ex)
+            {
+                if (!running.get())
+                {
+                    break;
+                }
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleEventException(ex, nextSequence, event);
+                processedSequence = true;
+            }
+        }
+
+        notifyShutdown();
+
+        running.set(false);
+    }
+
+    /**
+     * 所有者从本地区间头部取一个序号，与窃取者竞争最后一个序号时加锁
+     */
+    private long take()
+    {
+        final long h = head;
+        head = h + 1;
+        if (h + 1 > tail)
+        {
+            synchronized (this)
+            {
+                if (h + 1 > tail)
+                {
+                    head = h;
+                    return EMPTY;
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * 从workSequence领取一段区间，只领取已知已发布的序号，没有积压时领取一个序号
+     */
+    private void claim(final long availableSequence)
+    {
+        long current;
+        long claimEnd;
+        do
+        {
+            current = workSequence.get();
+            sequence.set(current);
+            final long backlog = availableSequence - current;
+            final long claimSize = backlog <= peers.length ? 1 : Math.min(maxClaimSize, backlog / peers.length);
+            claimEnd = current + claimSize;
+        }
+        while (!workSequence.compareAndSet(current, claimEnd));
+
+        synchronized (this)
+        {
+            head = current + 1;
+            tail = claimEnd + 1;
+        }
+    }
+
+    /**
+     * 从剩余序号最多的WorkProcessor的区间尾部窃取一半
+     */
+    private boolean steal()
+    {
+        WorkStealingWorkProcessor<?> victim = null;
+        long mostRemaining = 1;
+        for (final WorkStealingWorkProcessor<?> peer : peers)
+        {
+            final long remaining = peer.tail - peer.head;
+            if (peer != this && remaining > mostRemaining)
+            {
+                victim = peer;
+                mostRemaining = remaining;
+            }
+        }
+
+        if (null == victim)
+        {
+            return false;
+        }
+
+        final long newTail;
+        final long end;
+        synchronized (victim)
+        {
+            end = victim.tail;
+            final long stolen = (end - victim.head) / 2;
+            if (stolen < 1)
+            {
+                return false;
+            }
+
+            newTail = end - stolen;
+            // 先降低自己的进度再缩短对方的区间，对方处理完剩余部分推进进度时，被窃取的序号仍然受自己的进度保护
+            final long previousSequence = sequence.get();
+            sequence.set(newTail - 1);
+            victim.tail = newTail;
+            if (victim.head > newTail)
+            {
+                victim.tail = end;
+                sequence.set(previousSequence);
+                return false;
+            }
+        }
+
+        // 不在持有对方的锁时获取自己的锁，避免两个WorkProcessor互相窃取时死锁
+        synchronized (this)
+        {
+            head = newTail;
+            tail = end;
+        }
+        stealCount++;
+        stolenCount += end - newTail;
+        return true;
+    }
+
+    private void notifyTimeout(final long availableSequence)
+    {
+        try
+        {
+            if (timeoutHandler != null)
+            {
+                timeoutHandler.onTimeout(availableSequence);
+            }
+        }
+        catch (Throwable e)
+        {
+            exceptionHandler.handleEventException(e, availableSequence, null);
+        }
+    }
+
+    private void notifyStart()
+    {
+        if (workHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) workHandler).onStart();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown()
+    {
+        if (workHandler instanceof LifecycleAware)
+        {
+            try
+            {
+                ((LifecycleAware) workHandler).onShutdown();
+            }
+            catch (final Throwable ex)
+            {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.util.Util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 支持工作窃取的WorkerPool。每个worker从workSequence领取一段区间在本地处理，
+ * 空闲的worker从最忙的worker的区间尾部窃取一半，负载不均时(例如个别事件处理很慢)不会出现部分worker空闲而其它worker积压。
+ *
+ * <p>A {@link WorkerPool} variant where each worker claims a contiguous range of sequences into a local range,
+ * sized from the backlog and capped at the max claim size, and idle workers steal the back half of the largest
+ * range still held by another worker before claiming from the shared work sequence again.  This gives
+ * fork/join style load balancing when the cost of events is skewed.</p>
+ *
+ * <p>The {@link WorkHandler}, {@link EventReleaseAware} and {@link LifecycleAware} contracts are the same as for
+ * {@link WorkerPool}; each event is still handled by exactly one worker.</p>
+ *
+ * @param <T> event to be processed by a pool of workers
+ */
+public final class WorkStealingWorkerPool<T>
+{
+    /**
+     * 默认一次最多领取的序号个数
+     */
+    public static final int DEFAULT_MAX_CLAIM_SIZE = 64;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final Sequence workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final RingBuffer<T> ringBuffer;
+    private final WorkStealingWorkProcessor<?>[] workProcessors;
+
+    /**
+     * Create a work stealing pool to enable an array of {@link WorkHandler}s to consume published sequences.
+     * <p>
+     * This option requires a pre-configured {@link RingBuffer} which must have {@link RingBuffer#addGatingSequences(Sequence...)}
+     * called before the work pool is started.
+     *
+     * @param ringBuffer       of events to be consumed.
+     * @param sequenceBarrier  on which the workers will depend.
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param workHandlers     to distribute the work load across.
+     */
+    @SafeVarargs
+    public WorkStealingWorkerPool(
+        final RingBuffer<T> ringBuffer,
+        final SequenceBarrier sequenceBarrier,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        this.ringBuffer = ringBuffer;
+        final int numWorkers = workHandlers.length;
+        workProcessors = new WorkStealingWorkProcessor<?>[numWorkers];
+
+        for (int i = 0; i < numWorkers; i++)
+        {
+            workProcessors[i] = new WorkStealingWorkProcessor<>(
+                ringBuffer,
+                sequenceBarrier,
+                workHandlers[i],
+                exceptionHandler,
+                workSequence);
+        }
+        setMaxClaimSize(DEFAULT_MAX_CLAIM_SIZE);
+    }
+
+    /**
+     * Construct a work stealing pool with an internal {@link RingBuffer} for convenience.
+     * <p>
+     * This option does not require {@link RingBuffer#addGatingSequences(Sequence...)} to be called before the work pool is started.
+     *
+     * @param eventFactory     for filling the {@link RingBuffer}
+     * @param exceptionHandler to callback when an error occurs which is not handled by the {@link WorkHandler}s.
+     * @param workHandlers     to distribute the work load across.
+     */
+    @SafeVarargs
+    public WorkStealingWorkerPool(
+        final EventFactory<T> eventFactory,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        this(RingBuffer.createMultiProducer(eventFactory, 1024, new BlockingWaitStrategy()), exceptionHandler, workHandlers);
+    }
+
+    @SafeVarargs
+    private WorkStealingWorkerPool(
+        final RingBuffer<T> ringBuffer,
+        final ExceptionHandler<? super T> exceptionHandler,
+        final WorkHandler<? super T>... workHandlers)
+    {
+        this(ringBuffer, ringBuffer.newBarrier(), exceptionHandler, workHandlers);
+        ringBuffer.addGatingSequences(getWorkerSequences());
+    }
+
+    /**
+     * 设置每个worker一次最多从workSequence领取的序号个数，区间越大窃取的空间越大，但单个worker的进度推进越慢
+     *
+     * <p>Set the largest range a worker claims from the work sequence at once.  Larger ranges mean less contention
+     * on the work sequence and more work to steal, but a worker only advances its sequence once per range.</p>
+     *
+     * @param maxClaimSize the largest range a worker claims at once, defaults to {@link #DEFAULT_MAX_CLAIM_SIZE}.
+     * @throws IllegalStateException if the pool has already been started.
+     */
+    public void setMaxClaimSize(final int maxClaimSize)
+    {
+        if (maxClaimSize < 1)
+        {
+            throw new IllegalArgumentException("maxClaimSize must not be less than 1");
+        }
+        if (started.get())
+        {
+            throw new IllegalStateException("WorkStealingWorkerPool has already been started.");
+        }
+
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            processor.setPeers(workProcessors, maxClaimSize);
+        }
+    }
+
+    /**
+     * Get an array of {@link Sequence}s representing the progress of the workers.
+     *
+     * @return an array of {@link Sequence}s representing the progress of the workers.
+     */
+    public Sequence[] getWorkerSequences()
+    {
+        final Sequence[] sequences = new Sequence[workProcessors.length + 1];
+        for (int i = 0, size = workProcessors.length; i < size; i++)
+        {
+            sequences[i] = workProcessors[i].getSequence();
+        }
+        sequences[sequences.length - 1] = workSequence;
+
+        return sequences;
+    }
+
+    /**
+     * 所有worker成功窃取的总次数
+     *
+     * @return the number of times a worker has stolen part of another worker's range.
+     */
+    public long getStealCount()
+    {
+        long stealCount = 0;
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            stealCount += processor.getStealCount();
+        }
+        return stealCount;
+    }
+
+    /**
+     * 所有worker窃取到的序号总数
+     *
+     * @return the total number of sequences workers have stolen from each other.
+     */
+    public long getStolenCount()
+    {
+        long stolenCount = 0;
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            stolenCount += processor.getStolenCount();
+        }
+        return stolenCount;
+    }
+
+    /**
+     * Start the worker pool processing events in sequence.
+     *
+     * @param executor providing threads for running the workers.
+     * @return the {@link RingBuffer} used for the work queue.
+     * @throws IllegalStateException if the pool has already been started and not halted yet
+     */
+    public RingBuffer<T> start(final Executor executor)
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("WorkStealingWorkerPool has already been started and cannot be restarted until halted.");
+        }
+
+        final long cursor = ringBuffer.getCursor();
+        workSequence.set(cursor);
+
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            processor.reset(cursor);
+            executor.execute(processor);
+        }
+
+        return ringBuffer;
+    }
+
+    /**
+     * Wait for the {@link RingBuffer} to drain of published events then halt the workers.
+     */
+    public void drainAndHalt()
+    {
+        Sequence[] workerSequences = getWorkerSequences();
+        while (ringBuffer.getCursor() > Util.getMinimumSequence(workerSequences))
+        {
+            Thread.yield();
+        }
+
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            processor.halt();
+        }
+
+        started.set(false);
+    }
+
+    /**
+     * Halt all workers immediately at the end of their current cycle.
+     */
+    public void halt()
+    {
+        for (WorkStealingWorkProcessor<?> processor : workProcessors)
+        {
+            processor.halt();
+        }
+
+        started.set(false);
+    }
+
+    public boolean isRunning()
+    {
+        return started.get();
+    }
+}
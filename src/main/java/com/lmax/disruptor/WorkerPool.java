@@ -124,6 +124,31 @@ public final class WorkerPool<T>
         ringBuffer.addGatingSequences(getWorkerSequences());
     }
 
+    /**
+     * 允许每个WorkProcessor一次领取一段连续的序号，而不是每处理一个事件就竞争一次workSequence。
+     * 区间大小根据积压量和worker个数自适应，不超过maxClaimSize。
+     *
+     * <p>Let each worker claim a contiguous range of up to <code>maxClaimSize</code> sequences from the work
+     * sequence at a time, sized from the backlog of published events split across the workers, instead of
+     * contending on the work sequence for every event.  Useful when handlers are cheap relative to the CAS.</p>
+     *
+     * @param maxClaimSize the largest range a worker claims at once, 1 (the default) claims one sequence at a time.
+     * @throws IllegalStateException if the pool has already been started.
+     * @see WorkProcessor#setMaxClaimSize(int, int)
+     */
+    public void setMaxClaimSize(final int maxClaimSize)
+    {
+        if (started.get())
+        {
+            throw new IllegalStateException("WorkerPool has already been started.");
+        }
+
+        for (WorkProcessor<?> processor : workProcessors)
+        {
+            processor.setMaxClaimSize(maxClaimSize, workProcessors.length);
+        }
+    }
+
     /**
      * Get an array of {@link Sequence}s representing the progress of the workers.
      *
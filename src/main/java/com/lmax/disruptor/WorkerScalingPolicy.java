@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+/**
+ * {@link ElasticWorkerPool}的伸缩策略，根据消费者的滞后量决定worker的个数。
+ *
+ * <p>Decides how many workers an {@link ElasticWorkerPool} should run from how far its workers lag behind the
+ * ring buffer's cursor.</p>
+ */
+public interface WorkerScalingPolicy
+{
+    /**
+     * 返回期望的worker个数，超出池的上下限时会被截断
+     *
+     * @param lag         the number of published events not yet handled, <code>cursor - min(worker sequences)</code>.
+     * @param workerCount the number of workers currently running.
+     * @return the number of workers the pool should run, clamped by the pool to its minimum and maximum.
+     */
+    int targetWorkerCount(long lag, int workerCount);
+}
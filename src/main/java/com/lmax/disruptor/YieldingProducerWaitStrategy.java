@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+
+/**
+ * 先自旋一定次数，然后通过Thread.yield()让出CPU等待消费者让出空间。
+ *
+ * <p>Yielding strategy for publishers waiting on a full ring buffer, spins and then uses Thread.yield().</p>
+ */
+public final class YieldingProducerWaitStrategy implements ProducerWaitStrategy
+{
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence)
+    {
+        long minSequence;
+        int counter = SPIN_TRIES;
+
+        while (wrapPoint > (minSequence = gatingSequence.get()))
+        {
+            if (0 == counter)
+            {
+                Thread.yield();
+            }
+            else
+            {
+                --counter;
+            }
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public long waitFor(final long wrapPoint, final ReadableSequence gatingSequence, final long timeoutNanos)
+    {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long minSequence;
+        int counter = SPIN_TRIES;
+
+        while (wrapPoint > (minSequence = gatingSequence.get()) && deadline - System.nanoTime() > 0)
+        {
+            if (0 == counter)
+            {
+                Thread.yield();
+            }
+            else
+            {
+                --counter;
+            }
+        }
+
+        return minSequence;
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+    }
+}
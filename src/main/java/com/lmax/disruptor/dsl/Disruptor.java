@@ -16,6 +16,8 @@
 package com.lmax.disruptor.dsl;
 
 import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.CooperativeEventProcessor;
+import com.lmax.disruptor.CooperativeEventRunner;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventProcessor;
@@ -24,6 +26,9 @@ import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.EventTranslatorThreeArg;
 import com.lmax.disruptor.EventTranslatorTwoArg;
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.PartitionedEventHandler;
+import com.lmax.disruptor.Partitioner;
+import com.lmax.disruptor.ProducerWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
@@ -91,6 +96,10 @@ public class Disruptor<T>
 	 * 警告！！！默认的异常处理器在EventHandler抛出异常时会终止EventProcessor的线程(退出任务)，可能导致死锁。
 	 */
     private ExceptionHandler<? super T> exceptionHandler = new ExceptionHandlerWrapper<>();
+    /**
+     * 新创建的BatchEventProcessor单个批次最多处理的事件数
+     */
+    private int maxBatchSize = Integer.MAX_VALUE;
 
     /**
 	 * 创建一个Disruptor，默认使用阻塞等待策略。
@@ -185,6 +194,31 @@ public class Disruptor<T>
             new BasicExecutor(threadFactory));
     }
 
+    /**
+     * 创建一个Disruptor，并指定缓冲区已满时生产者的等待策略
+     *
+     * Create a new Disruptor with a custom strategy for publishers waiting on a full ring buffer.
+     *
+     * @param eventFactory         the factory to create events in the ring buffer.
+     * @param ringBufferSize       the size of the ring buffer, must be power of 2.
+     * @param threadFactory        a {@link ThreadFactory} to create threads for processors.
+     * @param producerType         the claim strategy to use for the ring buffer.
+     * @param waitStrategy         the wait strategy to use for the ring buffer.
+     * @param producerWaitStrategy the strategy publishers use to wait for space in a full ring buffer.
+     */
+    public Disruptor(
+            final EventFactory<T> eventFactory,
+            final int ringBufferSize,
+            final ThreadFactory threadFactory,
+            final ProducerType producerType,
+            final WaitStrategy waitStrategy,
+            final ProducerWaitStrategy producerWaitStrategy)
+    {
+        this(
+            RingBuffer.create(producerType, eventFactory, ringBufferSize, waitStrategy, producerWaitStrategy),
+            new BasicExecutor(threadFactory));
+    }
+
     /**
      * Private constructor helper
      */
@@ -216,6 +250,55 @@ public class Disruptor<T>
         return createEventProcessors(new Sequence[0], handlers);
     }
 
+    /**
+	 * 添加一个按键分区的并行消费者，每一个EventHandler处理一个分区，运行在独立的线程上。
+	 * 每个分区都会看到所有的事件，但只处理键映射到自己的事件，因此同一个键的事件按顺序被同一个handler处理，
+	 * 且分区之间没有{@link WorkerPool}那样的CAS竞争。
+	 *
+     * <p>Set up a key partitioned parallel consumer.  Each handler is wrapped in a {@link PartitionedEventHandler}
+     * for one of <code>handlers.length</code> partitions and runs on its own {@link BatchEventProcessor}, so events
+     * with the same key are handled in order by the same handler without the processors contending on a shared
+     * work sequence.</p>
+     *
+     * <p>The returned group gates on every partition, so handlers chained after it only see an event once all
+     * partitions have passed it:</p>
+     * <pre><code>dw.handleEventsWithPartitions(byAccount, A1, A2, A3).then(B);</code></pre>
+     *
+     * @param partitioner maps each event to its partition key.
+     * @param handlers    one event handler per partition.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> handleEventsWithPartitions(
+        final Partitioner<? super T> partitioner, final EventHandler<? super T>... handlers)
+    {
+        return createEventProcessors(new Sequence[0], PartitionedEventHandler.partition(partitioner, handlers));
+    }
+
+    /**
+	 * 添加并行消费者，但不为每个消费者创建线程，而是交给{@link CooperativeEventRunner}的少量线程轮流调度。
+	 * 适合大量低频率的消费者。
+	 *
+     * <p>Set up event handlers that share the threads of a {@link CooperativeEventRunner} instead of each taking a
+     * thread from the executor.  Each handler runs on its own {@link CooperativeEventProcessor}, which
+     * {@link #start()} schedules on the runner; the handlers still process events in parallel and chain like any
+     * other:</p>
+     * <pre><code>dw.handleEventsWith(runner, A1, A2, A3).then(B);</code></pre>
+     *
+     * <p>Halting the disruptor halts the processors but not the runner, which may be shared with other
+     * disruptors.</p>
+     *
+     * @param runner   whose threads will run the handlers.
+     * @param handlers the event handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to chain dependencies.
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> handleEventsWith(
+        final CooperativeEventRunner runner, final EventHandler<? super T>... handlers)
+    {
+        return createCooperativeEventProcessors(new Sequence[0], runner, handlers);
+    }
+
     /**
 	 * 添加并行消费者，每一个EventProcessorFactory创建一个EventProcessor映射为一个消费者。
 	 * 这些消费者之间是并行关系
@@ -307,6 +390,26 @@ public class Disruptor<T>
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * 设置单个批次最多处理的事件数
+     * <p>Limit the number of events each {@link BatchEventProcessor} handles in one batch, so progress is published
+     * to downstream handlers and the publisher at least every <code>maxBatchSize</code> events.</p>
+     *
+     * <p>Note that only event handlers set up after calling this method are limited.</p>
+     *
+     * @param maxBatchSize the maximum number of events in a batch.
+     * @see BatchEventProcessor#setMaxBatchSize(int)
+     */
+    public void setMaxBatchSize(final int maxBatchSize)
+    {
+        checkNotStarted();
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must not be less than 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
     /**
 	 * 设置默认的异常处理器
      * <p>Specify an exception handler to be used for event handlers and worker pools created by this Disruptor.</p>
@@ -679,6 +782,7 @@ public class Disruptor<T>
             {
                 batchEventProcessor.setExceptionHandler(exceptionHandler);
             }
+            batchEventProcessor.setMaxBatchSize(maxBatchSize);
 
             // 添加到消费者信息仓库中
             consumerRepository.add(batchEventProcessor, eventHandler, barrier);
@@ -688,6 +792,42 @@ public class Disruptor<T>
         // 更新网关序列(生产者只需要关注所有的末端消费者节点的序列)
         updateGatingSequencesForNextInChain(barrierSequences, processorSequences);
 
+        return new EventHandlerGroup<>(this, consumerRepository, processorSequences);
+    }
+
+	/**
+	 * 创建由{@link CooperativeEventRunner}调度的事件处理器，与{@link #createEventProcessors(Sequence[], EventHandler[])}相同，
+	 * 只是每一个EventHandler被包装为{@link CooperativeEventProcessor}
+	 */
+    EventHandlerGroup<T> createCooperativeEventProcessors(
+        final Sequence[] barrierSequences,
+        final CooperativeEventRunner runner,
+        final EventHandler<? super T>[] eventHandlers)
+    {
+        checkNotStarted();
+
+        final Sequence[] processorSequences = new Sequence[eventHandlers.length];
+        // 处理器通过EventPoller消费，不使用该屏障，但需要登记给消费者信息仓库
+        final SequenceBarrier barrier = ringBuffer.newBarrier(barrierSequences);
+
+        for (int i = 0, eventHandlersLength = eventHandlers.length; i < eventHandlersLength; i++)
+        {
+            final EventHandler<? super T> eventHandler = eventHandlers[i];
+
+            final CooperativeEventProcessor<T> processor =
+                new CooperativeEventProcessor<>(runner, ringBuffer, eventHandler, barrierSequences);
+
+            if (exceptionHandler != null)
+            {
+                processor.setExceptionHandler(exceptionHandler);
+            }
+
+            consumerRepository.add(processor, eventHandler, barrier);
+            processorSequences[i] = processor.getSequence();
+        }
+
+        updateGatingSequencesForNextInChain(barrierSequences, processorSequences);
+
         return new EventHandlerGroup<>(this, consumerRepository, processorSequences);
     }
 
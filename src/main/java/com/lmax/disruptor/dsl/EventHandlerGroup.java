@@ -15,8 +15,11 @@
  */
 package com.lmax.disruptor.dsl;
 
+import com.lmax.disruptor.CooperativeEventRunner;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.PartitionedEventHandler;
+import com.lmax.disruptor.Partitioner;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.WorkHandler;
@@ -254,6 +257,91 @@ public class EventHandlerGroup<T>
         return disruptor.createWorkerPool(sequences, handlers);
     }
 
+    /**
+	 * 创建一个按键分区的并行消费者，每一个EventHandler处理一个分区。
+	 * 只会消费已经被当前EventHandlerGroup所代表的所有消费者已经消费的事件。
+	 *
+     * <p>Set up a key partitioned parallel consumer to handle events from the ring buffer. The partitions will only
+     * process events after every {@link EventProcessor} in this group has processed the event. Each event will be
+     * processed by the handler its key maps to.</p>
+     *
+     * <pre><code>dw.handleEventsWith(A).thenHandleEventsWithPartitions(byAccount, B1, B2);</code></pre>
+     *
+     * @param partitioner maps each event to its partition key.
+     * @param handlers    one event handler per partition.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     * @see Disruptor#handleEventsWithPartitions(Partitioner, EventHandler[])
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> thenHandleEventsWithPartitions(
+        final Partitioner<? super T> partitioner, final EventHandler<? super T>... handlers)
+    {
+        return handleEventsWithPartitions(partitioner, handlers);
+    }
+
+    /**
+	 * 创建一个按键分区的并行消费者，每一个EventHandler处理一个分区。
+	 * 只会消费已经被当前EventHandlerGroup所代表的所有消费者已经消费的事件。
+	 *
+     * <p>Set up a key partitioned parallel consumer to handle events from the ring buffer. The partitions will only
+     * process events after every {@link EventProcessor} in this group has processed the event. Each event will be
+     * processed by the handler its key maps to.</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWithPartitions(byAccount, B1, B2);</code></pre>
+     *
+     * @param partitioner maps each event to its partition key.
+     * @param handlers    one event handler per partition.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     * @see Disruptor#handleEventsWithPartitions(Partitioner, EventHandler[])
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> handleEventsWithPartitions(
+        final Partitioner<? super T> partitioner, final EventHandler<? super T>... handlers)
+    {
+        return disruptor.createEventProcessors(sequences, PartitionedEventHandler.partition(partitioner, handlers));
+    }
+
+    /**
+	 * 创建由{@link CooperativeEventRunner}调度的并行消费者。
+	 * 只会消费已经被当前EventHandlerGroup所代表的所有消费者已经消费的事件。
+	 *
+     * <p>Set up event handlers that run on the threads of a {@link CooperativeEventRunner}. They will only process
+     * events after every {@link EventProcessor} in this group has processed the event.</p>
+     *
+     * <pre><code>dw.handleEventsWith(A).then(runner, B1, B2);</code></pre>
+     *
+     * @param runner   whose threads will run the handlers.
+     * @param handlers the event handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     * @see Disruptor#handleEventsWith(CooperativeEventRunner, EventHandler[])
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> then(final CooperativeEventRunner runner, final EventHandler<? super T>... handlers)
+    {
+        return handleEventsWith(runner, handlers);
+    }
+
+    /**
+	 * 创建由{@link CooperativeEventRunner}调度的并行消费者。
+	 * 只会消费已经被当前EventHandlerGroup所代表的所有消费者已经消费的事件。
+	 *
+     * <p>Set up event handlers that run on the threads of a {@link CooperativeEventRunner}. They will only process
+     * events after every {@link EventProcessor} in this group has processed the event.</p>
+     *
+     * <pre><code>dw.after(A).handleEventsWith(runner, B1, B2);</code></pre>
+     *
+     * @param runner   whose threads will run the handlers.
+     * @param handlers the event handlers that will process events.
+     * @return a {@link EventHandlerGroup} that can be used to set up a event processor barrier over the created event processors.
+     * @see Disruptor#handleEventsWith(CooperativeEventRunner, EventHandler[])
+     */
+    @SafeVarargs
+    public final EventHandlerGroup<T> handleEventsWith(
+        final CooperativeEventRunner runner, final EventHandler<? super T>... handlers)
+    {
+        return disruptor.createCooperativeEventProcessors(sequences, runner, handlers);
+    }
+
     /**
      * Create a dependency barrier for the processors in this group.
      * This allows custom event processors to have dependencies on
@@ -15,6 +15,7 @@
  */
 package com.lmax.disruptor.dsl;
 
+import com.lmax.disruptor.CooperativeEventProcessor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.Sequence;
@@ -92,7 +93,15 @@ class EventProcessorInfo<T> implements ConsumerInfo
     @Override
     public void start(final Executor executor)
     {
-        executor.execute(eventprocessor);
+        // 协作式处理器不占用线程，由它的CooperativeEventRunner调度
+        if (eventprocessor instanceof CooperativeEventProcessor)
+        {
+            eventprocessor.run();
+        }
+        else
+        {
+            executor.execute(eventprocessor);
+        }
     }
 
     @Override
@@ -16,6 +16,7 @@
 package com.lmax.disruptor.dsl;
 
 import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.CooperativeEventProcessor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.ExceptionHandler;
@@ -56,6 +57,10 @@ public class ExceptionHandlerSetting<T>
             ((BatchEventProcessor<T>) eventProcessor).setExceptionHandler(exceptionHandler);
             consumerRepository.getBarrierFor(eventHandler).alert();
         }
+        else if (eventProcessor instanceof CooperativeEventProcessor)
+        {
+            ((CooperativeEventProcessor<T>) eventProcessor).setExceptionHandler(exceptionHandler);
+        }
         else
         {
             throw new RuntimeException(
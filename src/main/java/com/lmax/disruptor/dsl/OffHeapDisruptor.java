@@ -0,0 +1,287 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.OffHeapEvent;
+import com.lmax.disruptor.OffHeapRingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 堆外的Disruptor。
+ * 事件保存在{@link OffHeapRingBuffer}的直接内存槽位中，每个{@link EventHandler}由一个{@link BatchEventProcessor}驱动，
+ * 并通过自己的{@link OffHeapEvent}享元访问事件。
+ *
+ * <p>A DSL-style API for setting up an {@link OffHeapRingBuffer}.  Each event handler is run by a
+ * {@link BatchEventProcessor} reading the slots through a flyweight of its own.  Handlers either all run in
+ * parallel, or may be chained after the processors returned by an earlier call:</p>
+ * <pre>
+ * <code>OffHeapDisruptor disruptor = new OffHeapDisruptor(1024, 256, threadFactory, ProducerType.SINGLE, new YieldingWaitStrategy());
+ * List&lt;BatchEventProcessor&lt;OffHeapEvent&gt;&gt; journal = disruptor.handleEventsWith(journaller);
+ * disruptor.after(journal, businessLogic);
+ * disruptor.start();</code>
+ * </pre>
+ */
+public class OffHeapDisruptor
+{
+    private final OffHeapRingBuffer ringBuffer;
+    private final Executor executor;
+    private final List<BatchEventProcessor<OffHeapEvent>> eventProcessors = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private ExceptionHandler<? super OffHeapEvent> exceptionHandler = new ExceptionHandlerWrapper<>();
+
+    /**
+     * Create a new OffHeapDisruptor.
+     *
+     * @param bufferSize    the number of slots, must be power of 2.
+     * @param slotSize      the number of bytes in each slot.
+     * @param threadFactory a {@link ThreadFactory} to create threads for processors.
+     * @param producerType  the claim strategy to use for the ring buffer.
+     * @param waitStrategy  the wait strategy to use for the ring buffer.
+     */
+    public OffHeapDisruptor(
+        final int bufferSize,
+        final int slotSize,
+        final ThreadFactory threadFactory,
+        final ProducerType producerType,
+        final WaitStrategy waitStrategy)
+    {
+        this(producerType == ProducerType.SINGLE ?
+                 OffHeapRingBuffer.createSingleProducer(bufferSize, slotSize, waitStrategy) :
+                 OffHeapRingBuffer.createMultiProducer(bufferSize, slotSize, waitStrategy),
+             new BasicExecutor(threadFactory));
+    }
+
+    private OffHeapDisruptor(final OffHeapRingBuffer ringBuffer, final Executor executor)
+    {
+        this.ringBuffer = ringBuffer;
+        this.executor = executor;
+    }
+
+    /**
+     * <p>Set up event handlers to handle events from the ring buffer in parallel.</p>
+     *
+     * @param handlers the event handlers that will process events.
+     * @return the processors created for the handlers, in the same order.
+     */
+    @SafeVarargs
+    public final List<BatchEventProcessor<OffHeapEvent>> handleEventsWith(
+        final EventHandler<? super OffHeapEvent>... handlers)
+    {
+        return createEventProcessors(new Sequence[0], handlers);
+    }
+
+    /**
+     * <p>Set up event handlers that only process an event once all of the given processors have processed it.</p>
+     *
+     * @param processors created by an earlier call to this disruptor.
+     * @param handlers   the event handlers that will process events.
+     * @return the processors created for the handlers, in the same order.
+     */
+    @SafeVarargs
+    public final List<BatchEventProcessor<OffHeapEvent>> after(
+        final List<BatchEventProcessor<OffHeapEvent>> processors,
+        final EventHandler<? super OffHeapEvent>... handlers)
+    {
+        final Sequence[] barrierSequences = new Sequence[processors.size()];
+        for (int i = 0; i < barrierSequences.length; i++)
+        {
+            barrierSequences[i] = processors.get(i).getSequence();
+        }
+        return createEventProcessors(barrierSequences, handlers);
+    }
+
+    /**
+     * <p>Specify an exception handler to be used for event handlers created by this OffHeapDisruptor.</p>
+     *
+     * <p>The exception handler will be used by existing and future event handlers.</p>
+     *
+     * @param exceptionHandler the exception handler to use.
+     */
+    @SuppressWarnings("unchecked")
+    public void setDefaultExceptionHandler(final ExceptionHandler<? super OffHeapEvent> exceptionHandler)
+    {
+        checkNotStarted();
+        ((ExceptionHandlerWrapper<OffHeapEvent>) this.exceptionHandler).switchTo(exceptionHandler);
+    }
+
+    /**
+     * Copy the bytes into the next slot and publish it.
+     *
+     * @param data the bytes to publish, no more than the slot size.
+     */
+    public void put(final byte[] data)
+    {
+        ringBuffer.put(data);
+    }
+
+    /**
+     * <p>Starts the event processors and returns the fully configured ring buffer.</p>
+     *
+     * <p>This method must only be called once after all event handlers have been added.</p>
+     *
+     * @return the configured ring buffer.
+     */
+    public OffHeapRingBuffer start()
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("OffHeapDisruptor.start() must only be called once.");
+        }
+
+        for (final BatchEventProcessor<OffHeapEvent> processor : eventProcessors)
+        {
+            executor.execute(processor);
+        }
+
+        return ringBuffer;
+    }
+
+    /**
+     * Calls {@link BatchEventProcessor#halt()} on all of the event processors created via this disruptor.
+     */
+    public void halt()
+    {
+        for (final BatchEventProcessor<OffHeapEvent> processor : eventProcessors)
+        {
+            processor.halt();
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the ring buffer have been processed by all event processors
+     * and then halts the processors.  It is critical that publishing has stopped before calling this
+     * method, otherwise it may never return.</p>
+     */
+    public void shutdown()
+    {
+        try
+        {
+            shutdown(-1, TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException e)
+        {
+            exceptionHandler.handleOnShutdownException(e);
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the ring buffer have been processed by all event processors
+     * and then halts the processors.</p>
+     *
+     * @param timeout  the amount of time to wait for all events to be processed. <code>-1</code> will give an infinite timeout
+     * @param timeUnit the unit the timeOut is specified in
+     * @throws TimeoutException if a timeout occurs before shutdown completes.
+     */
+    public void shutdown(final long timeout, final TimeUnit timeUnit) throws TimeoutException
+    {
+        final long timeOutAt = System.currentTimeMillis() + timeUnit.toMillis(timeout);
+        while (hasBacklog())
+        {
+            if (timeout >= 0 && System.currentTimeMillis() > timeOutAt)
+            {
+                throw TimeoutException.INSTANCE;
+            }
+            // Busy spin
+        }
+        halt();
+    }
+
+    /**
+     * The {@link OffHeapRingBuffer} used by this OffHeapDisruptor.
+     *
+     * @return the ring buffer used by this OffHeapDisruptor.
+     */
+    public OffHeapRingBuffer getRingBuffer()
+    {
+        return ringBuffer;
+    }
+
+    private List<BatchEventProcessor<OffHeapEvent>> createEventProcessors(
+        final Sequence[] barrierSequences,
+        final EventHandler<? super OffHeapEvent>[] handlers)
+    {
+        checkNotStarted();
+
+        final SequenceBarrier barrier = ringBuffer.newBarrier(barrierSequences);
+        final List<BatchEventProcessor<OffHeapEvent>> processors = new ArrayList<>(handlers.length);
+        for (final EventHandler<? super OffHeapEvent> handler : handlers)
+        {
+            // 每个处理器使用自己的享元
+            final BatchEventProcessor<OffHeapEvent> processor =
+                new BatchEventProcessor<>(ringBuffer.newEventProvider(), barrier, handler);
+            processor.setExceptionHandler(exceptionHandler);
+
+            ringBuffer.addGatingSequences(processor.getSequence());
+            processors.add(processor);
+        }
+
+        // 生产者只需要关注消费者链末端的序号
+        if (!processors.isEmpty())
+        {
+            for (final Sequence barrierSequence : barrierSequences)
+            {
+                ringBuffer.removeGatingSequence(barrierSequence);
+            }
+        }
+
+        eventProcessors.addAll(processors);
+        return processors;
+    }
+
+    private boolean hasBacklog()
+    {
+        final long cursor = ringBuffer.getCursor();
+        for (final BatchEventProcessor<OffHeapEvent> processor : eventProcessors)
+        {
+            if (cursor > processor.getSequence().get())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkNotStarted()
+    {
+        if (started.get())
+        {
+            throw new IllegalStateException("All event handlers must be added before calling starts.");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapDisruptor{" +
+            "ringBuffer=" + ringBuffer +
+            ", started=" + started +
+            ", executor=" + executor +
+            '}';
+    }
+}
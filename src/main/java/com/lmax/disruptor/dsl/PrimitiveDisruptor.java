@@ -0,0 +1,262 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.primitive.AbstractPrimitiveRingBuffer;
+import com.lmax.disruptor.primitive.LongEventHandler;
+import com.lmax.disruptor.primitive.LongRingBuffer;
+
+/**
+ * 基本类型RingBuffer的Disruptor。
+ * 值保存在{@link LongRingBuffer}等基本类型RingBuffer的数组中，每个基本类型的处理器由一个{@link BatchEventProcessor}驱动，
+ * 处理时不需要装箱。
+ *
+ * <p>A DSL-style API for setting up a primitive ring buffer such as a {@link LongRingBuffer}.  Each primitive
+ * handler is run by a {@link BatchEventProcessor}.  Handlers either all run in parallel, or may be chained after
+ * the processors returned by an earlier call:</p>
+ * <pre>
+ * <code>PrimitiveDisruptor&lt;long[], LongEventHandler&gt; disruptor = new PrimitiveDisruptor&lt;&gt;(
+ *     LongRingBuffer.createSingleProducer(1024, new YieldingWaitStrategy()), threadFactory);
+ * List&lt;BatchEventProcessor&lt;long[]&gt;&gt; journal = disruptor.handleEventsWith(journaller);
+ * disruptor.after(journal, businessLogic);
+ * LongRingBuffer ringBuffer = (LongRingBuffer) disruptor.start();</code>
+ * </pre>
+ *
+ * @param <A> the primitive array holding the values, for example <code>long[]</code>.
+ * @param <H> the primitive handler interface of the ring, for example {@link LongEventHandler}.
+ */
+public class PrimitiveDisruptor<A, H>
+{
+    private final AbstractPrimitiveRingBuffer<A, H> ringBuffer;
+    private final Executor executor;
+    private final List<BatchEventProcessor<A>> eventProcessors = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private ExceptionHandler<? super A> exceptionHandler = new ExceptionHandlerWrapper<>();
+
+    /**
+     * Create a new PrimitiveDisruptor.
+     *
+     * @param ringBuffer    the primitive ring buffer to consume, for example a {@link LongRingBuffer}.
+     * @param threadFactory a {@link ThreadFactory} to create threads for processors.
+     */
+    public PrimitiveDisruptor(final AbstractPrimitiveRingBuffer<A, H> ringBuffer, final ThreadFactory threadFactory)
+    {
+        this.ringBuffer = ringBuffer;
+        this.executor = new BasicExecutor(threadFactory);
+    }
+
+    /**
+     * <p>Set up handlers to handle values from the ring buffer in parallel.</p>
+     *
+     * @param handlers the handlers that will process values.
+     * @return the processors created for the handlers, in the same order.
+     */
+    @SafeVarargs
+    public final List<BatchEventProcessor<A>> handleEventsWith(final H... handlers)
+    {
+        return createEventProcessors(new Sequence[0], handlers);
+    }
+
+    /**
+     * <p>Set up handlers that only process a value once all of the given processors have processed it.</p>
+     *
+     * @param processors created by an earlier call to this disruptor.
+     * @param handlers   the handlers that will process values.
+     * @return the processors created for the handlers, in the same order.
+     */
+    @SafeVarargs
+    public final List<BatchEventProcessor<A>> after(
+        final List<BatchEventProcessor<A>> processors,
+        final H... handlers)
+    {
+        final Sequence[] barrierSequences = new Sequence[processors.size()];
+        for (int i = 0; i < barrierSequences.length; i++)
+        {
+            barrierSequences[i] = processors.get(i).getSequence();
+        }
+        return createEventProcessors(barrierSequences, handlers);
+    }
+
+    /**
+     * <p>Specify an exception handler to be used for handlers created by this PrimitiveDisruptor.  It is given the
+     * backing array as the event, and should use the sequence to identify the value.</p>
+     *
+     * <p>The exception handler will be used by existing and future handlers.</p>
+     *
+     * @param exceptionHandler the exception handler to use.
+     */
+    @SuppressWarnings("unchecked")
+    public void setDefaultExceptionHandler(final ExceptionHandler<? super A> exceptionHandler)
+    {
+        checkNotStarted();
+        ((ExceptionHandlerWrapper<A>) this.exceptionHandler).switchTo(exceptionHandler);
+    }
+
+    /**
+     * <p>Starts the event processors and returns the fully configured ring buffer.</p>
+     *
+     * <p>This method must only be called once after all event handlers have been added.</p>
+     *
+     * @return the configured ring buffer.
+     */
+    public AbstractPrimitiveRingBuffer<A, H> start()
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("PrimitiveDisruptor.start() must only be called once.");
+        }
+
+        for (final BatchEventProcessor<A> processor : eventProcessors)
+        {
+            executor.execute(processor);
+        }
+
+        return ringBuffer;
+    }
+
+    /**
+     * Calls {@link BatchEventProcessor#halt()} on all of the event processors created via this disruptor.
+     */
+    public void halt()
+    {
+        for (final BatchEventProcessor<A> processor : eventProcessors)
+        {
+            processor.halt();
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the ring buffer have been processed by all event processors
+     * and then halts the processors.  It is critical that publishing has stopped before calling this
+     * method, otherwise it may never return.</p>
+     */
+    public void shutdown()
+    {
+        try
+        {
+            shutdown(-1, TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException e)
+        {
+            exceptionHandler.handleOnShutdownException(e);
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the ring buffer have been processed by all event processors
+     * and then halts the processors.</p>
+     *
+     * @param timeout  the amount of time to wait for all events to be processed. <code>-1</code> will give an infinite timeout
+     * @param timeUnit the unit the timeOut is specified in
+     * @throws TimeoutException if a timeout occurs before shutdown completes.
+     */
+    public void shutdown(final long timeout, final TimeUnit timeUnit) throws TimeoutException
+    {
+        final long timeOutAt = System.currentTimeMillis() + timeUnit.toMillis(timeout);
+        while (hasBacklog())
+        {
+            if (timeout >= 0 && System.currentTimeMillis() > timeOutAt)
+            {
+                throw TimeoutException.INSTANCE;
+            }
+            // Busy spin
+        }
+        halt();
+    }
+
+    /**
+     * The primitive ring buffer used by this PrimitiveDisruptor.
+     *
+     * @return the ring buffer used by this PrimitiveDisruptor.
+     */
+    public AbstractPrimitiveRingBuffer<A, H> getRingBuffer()
+    {
+        return ringBuffer;
+    }
+
+    private List<BatchEventProcessor<A>> createEventProcessors(
+        final Sequence[] barrierSequences,
+        final H[] handlers)
+    {
+        checkNotStarted();
+
+        final SequenceBarrier barrier = ringBuffer.newBarrier(barrierSequences);
+        final List<BatchEventProcessor<A>> processors = new ArrayList<>(handlers.length);
+        for (final H handler : handlers)
+        {
+            final BatchEventProcessor<A> processor = ringBuffer.newEventProcessor(barrier, handler);
+            processor.setExceptionHandler(exceptionHandler);
+
+            ringBuffer.addGatingSequences(processor.getSequence());
+            processors.add(processor);
+        }
+
+        // 生产者只需要关注消费者链末端的序号
+        if (!processors.isEmpty())
+        {
+            for (final Sequence barrierSequence : barrierSequences)
+            {
+                ringBuffer.removeGatingSequence(barrierSequence);
+            }
+        }
+
+        eventProcessors.addAll(processors);
+        return processors;
+    }
+
+    private boolean hasBacklog()
+    {
+        final long cursor = ringBuffer.getCursor();
+        for (final BatchEventProcessor<A> processor : eventProcessors)
+        {
+            if (cursor > processor.getSequence().get())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkNotStarted()
+    {
+        if (started.get())
+        {
+            throw new IllegalStateException("All event handlers must be added before calling starts.");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PrimitiveDisruptor{" +
+            "ringBuffer=" + ringBuffer +
+            ", started=" + started +
+            ", executor=" + executor +
+            '}';
+    }
+}
@@ -30,5 +30,22 @@ public enum ProducerType
 	 * 单生产者和多生产的主要差别在空间分配上(序号分配上)。
      * 在Disruptor下，其实都是多消费者模式，并没有针对单消费者的优化。
      */
-    MULTI
+    MULTI,
+
+    /**
+     * 与{@link #MULTI}相同，但生产者通过一次fetch-and-add(x86上的lock xadd)申请序号，而不是CAS循环，
+     * 在大量生产者竞争时不会出现CAS失败重试。
+     *
+     * Create a RingBuffer supporting multiple event publishers that claim sequences with a single
+     * fetch-and-add instead of a CAS loop, which avoids retry storms when many publishers contend.
+     */
+    MULTI_FETCH_ADD,
+
+    /**
+     * 单生产者，但生产者从不等待消费者，缓冲区绕回时覆盖最旧的事件(有损)。
+     *
+     * Create a RingBuffer with a single event publisher that never blocks and overwrites the oldest events
+     * when the ring wraps, see {@link com.lmax.disruptor.OverwritingSequencer}.
+     */
+    OVERWRITING
 }
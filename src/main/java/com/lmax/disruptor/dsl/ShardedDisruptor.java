@@ -0,0 +1,347 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.MergingEventProcessor;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.ShardedRingBuffer;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 分片的Disruptor。
+ * 每个发布线程拥有一个独立的单生产者环形缓冲区(分片)，生产者之间不再竞争同一个cursor；
+ * 每个{@link EventHandler}由一个{@link MergingEventProcessor}驱动，按配置的公平性将所有分片合并为一个事件流。
+ *
+ * <p>A DSL-style API for setting up a {@link ShardedRingBuffer}: each publishing thread gets its own
+ * single producer shard and each event handler is run by a {@link MergingEventProcessor} that merges the
+ * shards back into one stream, either round-robin with a per-shard batch limit or in timestamp order.</p>
+ *
+ * <p>All handlers see every event and run in parallel with each other.</p>
+ * <pre>
+ * <code>ShardedDisruptor&lt;MyEvent&gt; disruptor =
+ *     new ShardedDisruptor&lt;MyEvent&gt;(MyEvent.FACTORY, 1024, 12, threadFactory, new YieldingWaitStrategy(), 64);
+ * disruptor.handleEventsWith(handler);
+ * disruptor.start();</code>
+ * </pre>
+ *
+ * @param <T> the type of event used.
+ */
+public class ShardedDisruptor<T>
+{
+    private final ShardedRingBuffer<T> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final Executor executor;
+    private final int shardBatchLimit;
+    private final MergingEventProcessor.Timestamper<? super T> timestamper;
+    private final List<MergingEventProcessor<T>> eventProcessors = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private ExceptionHandler<? super T> exceptionHandler = new ExceptionHandlerWrapper<>();
+
+    /**
+     * Create a new ShardedDisruptor that merges the shards round-robin.
+     *
+     * @param eventFactory    the factory to create events in each shard.
+     * @param shardSize       the size of each shard, must be power of 2.
+     * @param shardCount      the number of shards, i.e. the maximum number of publishing threads.
+     * @param threadFactory   a {@link ThreadFactory} to create threads for processors.
+     * @param waitStrategy    the wait strategy shared by the shards and the processors merging them.
+     * @param shardBatchLimit the maximum number of events to take from a shard before moving to the next one.
+     */
+    public ShardedDisruptor(
+        final EventFactory<T> eventFactory,
+        final int shardSize,
+        final int shardCount,
+        final ThreadFactory threadFactory,
+        final WaitStrategy waitStrategy,
+        final int shardBatchLimit)
+    {
+        this(ShardedRingBuffer.create(eventFactory, shardCount, shardSize, waitStrategy),
+             waitStrategy, new BasicExecutor(threadFactory), shardBatchLimit, null);
+    }
+
+    /**
+     * Create a new ShardedDisruptor that merges the shards in timestamp order.
+     *
+     * @param eventFactory  the factory to create events in each shard.
+     * @param shardSize     the size of each shard, must be power of 2.
+     * @param shardCount    the number of shards, i.e. the maximum number of publishing threads.
+     * @param threadFactory a {@link ThreadFactory} to create threads for processors.
+     * @param waitStrategy  the wait strategy shared by the shards and the processors merging them.
+     * @param timestamper   used to order events from different shards.
+     */
+    public ShardedDisruptor(
+        final EventFactory<T> eventFactory,
+        final int shardSize,
+        final int shardCount,
+        final ThreadFactory threadFactory,
+        final WaitStrategy waitStrategy,
+        final MergingEventProcessor.Timestamper<? super T> timestamper)
+    {
+        this(ShardedRingBuffer.create(eventFactory, shardCount, shardSize, waitStrategy),
+             waitStrategy, new BasicExecutor(threadFactory), 0, timestamper);
+        if (null == timestamper)
+        {
+            throw new NullPointerException();
+        }
+    }
+
+    private ShardedDisruptor(
+        final ShardedRingBuffer<T> ringBuffer,
+        final WaitStrategy waitStrategy,
+        final Executor executor,
+        final int shardBatchLimit,
+        final MergingEventProcessor.Timestamper<? super T> timestamper)
+    {
+        this.ringBuffer = ringBuffer;
+        this.waitStrategy = waitStrategy;
+        this.executor = executor;
+        this.shardBatchLimit = shardBatchLimit;
+        this.timestamper = timestamper;
+    }
+
+    /**
+     * <p>Set up event handlers to handle events from all shards.  Each handler is run by its own
+     * {@link MergingEventProcessor} and sees every event.</p>
+     *
+     * @param handlers the event handlers that will process events.
+     * @return the processors created for the handlers, in the same order.
+     */
+    @SafeVarargs
+    public final List<MergingEventProcessor<T>> handleEventsWith(final EventHandler<? super T>... handlers)
+    {
+        checkNotStarted();
+
+        @SuppressWarnings("unchecked")
+        final DataProvider<T>[] providers = (DataProvider<T>[]) new DataProvider<?>[ringBuffer.getShardCount()];
+        for (int i = 0; i < providers.length; i++)
+        {
+            providers[i] = ringBuffer.getShard(i);
+        }
+
+        final List<MergingEventProcessor<T>> processors = new ArrayList<>(handlers.length);
+        for (final EventHandler<? super T> handler : handlers)
+        {
+            final MergingEventProcessor<T> processor = null == timestamper ?
+                new MergingEventProcessor<>(providers, ringBuffer.newBarriers(), waitStrategy, handler, shardBatchLimit) :
+                new MergingEventProcessor<>(providers, ringBuffer.newBarriers(), waitStrategy, handler, timestamper);
+            processor.setExceptionHandler(exceptionHandler);
+
+            ringBuffer.addGatingSequences(processor.getSequences());
+            processors.add(processor);
+        }
+
+        eventProcessors.addAll(processors);
+        return processors;
+    }
+
+    /**
+     * <p>Specify an exception handler to be used for event handlers created by this ShardedDisruptor.</p>
+     *
+     * <p>The exception handler will be used by existing and future event handlers.</p>
+     *
+     * @param exceptionHandler the exception handler to use.
+     */
+    @SuppressWarnings("unchecked")
+    public void setDefaultExceptionHandler(final ExceptionHandler<? super T> exceptionHandler)
+    {
+        checkNotStarted();
+        ((ExceptionHandlerWrapper<T>) this.exceptionHandler).switchTo(exceptionHandler);
+    }
+
+    /**
+     * Publish an event to the shard of the calling thread.
+     *
+     * @param eventTranslator the translator that will load data into the event.
+     */
+    public void publishEvent(final EventTranslator<T> eventTranslator)
+    {
+        ringBuffer.publishEvent(eventTranslator);
+    }
+
+    /**
+     * Publish an event to the shard of the calling thread.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg             A single argument to load into the event
+     */
+    public <A> void publishEvent(final EventTranslatorOneArg<T, A> eventTranslator, final A arg)
+    {
+        ringBuffer.publishEvent(eventTranslator, arg);
+    }
+
+    /**
+     * Publish an event to the shard of the calling thread.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg0            The first argument to load into the event
+     * @param arg1            The second argument to load into the event
+     */
+    public <A, B> void publishEvent(final EventTranslatorTwoArg<T, A, B> eventTranslator, final A arg0, final B arg1)
+    {
+        ringBuffer.publishEvent(eventTranslator, arg0, arg1);
+    }
+
+    /**
+     * Publish an event to the shard of the calling thread.
+     *
+     * @param <A> Class of the user supplied argument.
+     * @param <B> Class of the user supplied argument.
+     * @param <C> Class of the user supplied argument.
+     * @param eventTranslator the translator that will load data into the event.
+     * @param arg0            The first argument to load into the event
+     * @param arg1            The second argument to load into the event
+     * @param arg2            The third argument to load into the event
+     */
+    public <A, B, C> void publishEvent(final EventTranslatorThreeArg<T, A, B, C> eventTranslator, final A arg0, final B arg1, final C arg2)
+    {
+        ringBuffer.publishEvent(eventTranslator, arg0, arg1, arg2);
+    }
+
+    /**
+     * <p>Starts the event processors and returns the fully configured sharded ring buffer.</p>
+     *
+     * <p>This method must only be called once after all event handlers have been added.</p>
+     *
+     * @return the configured sharded ring buffer.
+     */
+    public ShardedRingBuffer<T> start()
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            throw new IllegalStateException("ShardedDisruptor.start() must only be called once.");
+        }
+
+        for (final MergingEventProcessor<T> processor : eventProcessors)
+        {
+            executor.execute(processor);
+        }
+
+        return ringBuffer;
+    }
+
+    /**
+     * Calls {@link MergingEventProcessor#halt()} on all of the event processors created via this disruptor.
+     */
+    public void halt()
+    {
+        for (final MergingEventProcessor<T> processor : eventProcessors)
+        {
+            processor.halt();
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the shards have been processed by all event processors
+     * and then halts the processors.  It is critical that publishing has stopped before calling this
+     * method, otherwise it may never return.</p>
+     */
+    public void shutdown()
+    {
+        try
+        {
+            shutdown(-1, TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException e)
+        {
+            exceptionHandler.handleOnShutdownException(e);
+        }
+    }
+
+    /**
+     * <p>Waits until all events currently in the shards have been processed by all event processors
+     * and then halts the processors.</p>
+     *
+     * @param timeout  the amount of time to wait for all events to be processed. <code>-1</code> will give an infinite timeout
+     * @param timeUnit the unit the timeOut is specified in
+     * @throws TimeoutException if a timeout occurs before shutdown completes.
+     */
+    public void shutdown(final long timeout, final TimeUnit timeUnit) throws TimeoutException
+    {
+        final long timeOutAt = System.currentTimeMillis() + timeUnit.toMillis(timeout);
+        while (hasBacklog())
+        {
+            if (timeout >= 0 && System.currentTimeMillis() > timeOutAt)
+            {
+                throw TimeoutException.INSTANCE;
+            }
+            // Busy spin
+        }
+        halt();
+    }
+
+    /**
+     * The {@link ShardedRingBuffer} used by this ShardedDisruptor.
+     *
+     * @return the sharded ring buffer used by this ShardedDisruptor.
+     */
+    public ShardedRingBuffer<T> getRingBuffer()
+    {
+        return ringBuffer;
+    }
+
+    private boolean hasBacklog()
+    {
+        for (final MergingEventProcessor<T> processor : eventProcessors)
+        {
+            final Sequence[] sequences = processor.getSequences();
+            for (int i = 0; i < sequences.length; i++)
+            {
+                if (ringBuffer.getShard(i).getCursor() > sequences[i].get())
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void checkNotStarted()
+    {
+        if (started.get())
+        {
+            throw new IllegalStateException("All event handlers must be added before calling starts.");
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ShardedDisruptor{" +
+            "shards=" + ringBuffer.getShardCount() +
+            ", started=" + started +
+            ", executor=" + executor +
+            '}';
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequenced;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.TimeoutException;
+
+/**
+ * 基本类型RingBuffer的公共部分：值直接保存在一个基本类型数组中，每个槽位没有事件对象，发布和消费都不需要装箱。
+ * <p>
+ * 消费者仍然是{@link BatchEventProcessor}：它的DataProvider返回整个数组，适配器按序号取出槽位中的值，
+ * 再交给基本类型的处理器接口，因此可以复用现有的屏障、等待策略、异常处理和DSL。
+ *
+ * <p>Base of the ring buffers that hold primitive values in a primitive array instead of an event object per slot,
+ * so neither publishing nor handling a value allocates or boxes.  They are driven by any {@link Sequencer} exactly
+ * like a {@link com.lmax.disruptor.RingBuffer}.</p>
+ *
+ * <p>Values are consumed by {@link BatchEventProcessor}s created by {@link #newEventProcessor(SequenceBarrier, Object)},
+ * whose data provider returns the backing array and whose handler reads the slot of each sequence and passes the
+ * value to the primitive handler.  An {@link com.lmax.disruptor.ExceptionHandler} of such a processor is given the
+ * backing array as the event, and should use the sequence to identify the value.</p>
+ *
+ * @param <A> the primitive array holding the values.
+ * @param <H> the primitive handler interface of the ring.
+ */
+public abstract class AbstractPrimitiveRingBuffer<A, H> implements Cursored, Sequenced
+{
+    protected final Sequencer sequencer;
+    protected final int bufferSize;
+    protected final int indexMask;
+    private final A values;
+    private final DataProvider<A> dataProvider = new DataProvider<A>()
+    {
+        @Override
+        public A get(final long sequence)
+        {
+            return values;
+        }
+    };
+
+    /**
+     * @param sequencer to claim and publish the slots.
+     * @param values    the array holding the values, of the sequencer's buffer size.
+     */
+    protected AbstractPrimitiveRingBuffer(final Sequencer sequencer, final A values)
+    {
+        this.sequencer = sequencer;
+        this.bufferSize = sequencer.getBufferSize();
+        this.indexMask = bufferSize - 1;
+        this.values = values;
+    }
+
+    /**
+     * 序号对应的数组下标
+     *
+     * @param sequence of the slot.
+     * @return the index of the slot in the backing array.
+     */
+    protected final int indexOf(final long sequence)
+    {
+        return (int) sequence & indexMask;
+    }
+
+    /**
+     * 尝试申请一个槽位，RingBuffer已满时不抛出异常
+     *
+     * @return the claimed sequence, or {@link Sequencer#INITIAL_CURSOR_VALUE} if the ring buffer is full.
+     */
+    protected final long tryClaim()
+    {
+        try
+        {
+            return sequencer.tryNext();
+        }
+        catch (final InsufficientCapacityException e)
+        {
+            return Sequencer.INITIAL_CURSOR_VALUE;
+        }
+    }
+
+    /**
+     * 将数组中的一段值批量发布，每次最多申请一圈，用两次arraycopy处理回绕
+     *
+     * <p>Claim, copy and publish the values in batches of at most the buffer size.</p>
+     *
+     * @param src       the primitive array to copy from, of the same type as the ring's.
+     * @param srcLength the length of the array.
+     * @param offset    in the array of the first value.
+     * @param length    the number of values.
+     */
+    protected final void putAll(final A src, final int srcLength, final int offset, final int length)
+    {
+        if (offset < 0 || length < 0 || offset > srcLength - length)
+        {
+            throw new IndexOutOfBoundsException(
+                "offset=" + offset + ", length=" + length + ", array length=" + srcLength);
+        }
+
+        int position = offset;
+        int remaining = length;
+        while (remaining > 0)
+        {
+            final int n = Math.min(remaining, bufferSize);
+            final long hi = sequencer.next(n);
+            final long lo = hi - (n - 1);
+
+            final int index = (int) lo & indexMask;
+            final int first = Math.min(n, bufferSize - index);
+            System.arraycopy(src, position, values, index, first);
+            System.arraycopy(src, position + first, values, 0, n - first);
+
+            sequencer.publish(lo, hi);
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * 将基本类型的处理器适配为读取数组槽位的{@link EventHandler}
+     *
+     * @param handler the primitive handler.
+     * @return an event handler of the backing array that passes each value to the handler.
+     */
+    protected abstract EventHandler<A> toEventHandler(H handler);
+
+    /**
+     * Create a {@link BatchEventProcessor} that passes each value to the handler.  Its sequence must be added as a
+     * gating sequence, or tracked by a later barrier, before values are published.
+     *
+     * @param sequenceBarrier on which it waits, created by {@link #newBarrier(Sequence...)}.
+     * @param handler         to which values are dispatched.
+     * @return a new processor.
+     */
+    public BatchEventProcessor<A> newEventProcessor(final SequenceBarrier sequenceBarrier, final H handler)
+    {
+        return new BatchEventProcessor<>(dataProvider, sequenceBarrier, toEventHandler(handler));
+    }
+
+    @Override
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    @Override
+    public boolean hasAvailableCapacity(final int requiredCapacity)
+    {
+        return sequencer.hasAvailableCapacity(requiredCapacity);
+    }
+
+    @Override
+    public long remainingCapacity()
+    {
+        return sequencer.remainingCapacity();
+    }
+
+    @Override
+    public long next()
+    {
+        return sequencer.next();
+    }
+
+    @Override
+    public long next(final int n)
+    {
+        return sequencer.next(n);
+    }
+
+    @Override
+    public long next(final int n, final long timeout, final TimeUnit unit) throws TimeoutException
+    {
+        return sequencer.next(n, timeout, unit);
+    }
+
+    @Override
+    public long tryNext() throws InsufficientCapacityException
+    {
+        return sequencer.tryNext();
+    }
+
+    @Override
+    public long tryNext(final int n) throws InsufficientCapacityException
+    {
+        return sequencer.tryNext(n);
+    }
+
+    @Override
+    public void publish(final long sequence)
+    {
+        sequencer.publish(sequence);
+    }
+
+    @Override
+    public void publish(final long lo, final long hi)
+    {
+        sequencer.publish(lo, hi);
+    }
+
+    @Override
+    public void publishDeferred(final long lo, final long hi)
+    {
+        sequencer.publishDeferred(lo, hi);
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        sequencer.signalAllWhenBlocking();
+    }
+
+    @Override
+    public long getCursor()
+    {
+        return sequencer.getCursor();
+    }
+
+    /**
+     * Add the specified gating sequences to this instance of the Disruptor.  They will
+     * safely and atomically added to the list of gating sequences.
+     *
+     * @param gatingSequences The sequences to add.
+     */
+    public void addGatingSequences(final Sequence... gatingSequences)
+    {
+        sequencer.addGatingSequences(gatingSequences);
+    }
+
+    /**
+     * Remove the specified sequence from this ringBuffer.
+     *
+     * @param sequence to be removed.
+     * @return <tt>true</tt> if this sequence was found, <tt>false</tt> otherwise.
+     */
+    public boolean removeGatingSequence(final Sequence sequence)
+    {
+        return sequencer.removeGatingSequence(sequence);
+    }
+
+    /**
+     * Create a new SequenceBarrier to be used by an EventProcessor to track which messages
+     * are available to be read from the ring buffer given a list of sequences to track.
+     *
+     * @param sequencesToTrack the additional sequences to track
+     * @return A sequence barrier that will track the specified sequences.
+     */
+    public SequenceBarrier newBarrier(final Sequence... sequencesToTrack)
+    {
+        return sequencer.newBarrier(sequencesToTrack);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "{" +
+            "sequencer=" + sequencer +
+            '}';
+    }
+
+    /**
+     * 基本类型处理器的适配器，转发生命周期通知
+     *
+     * <p>Adapts a primitive handler to an {@link EventHandler} of the backing array, forwarding
+     * {@link LifecycleAware} notifications to it.</p>
+     *
+     * @param <A> the primitive array holding the values.
+     */
+    protected abstract static class HandlerAdapter<A> implements EventHandler<A>, LifecycleAware
+    {
+        private final Object handler;
+        private final int indexMask;
+
+        /**
+         * @param handler   the primitive handler, notified of lifecycle events if it is {@link LifecycleAware}.
+         * @param indexMask of the ring buffer.
+         */
+        protected HandlerAdapter(final Object handler, final int indexMask)
+        {
+            this.handler = handler;
+            this.indexMask = indexMask;
+        }
+
+        /**
+         * @param sequence of the slot.
+         * @return the index of the slot in the backing array.
+         */
+        protected final int indexOf(final long sequence)
+        {
+            return (int) sequence & indexMask;
+        }
+
+        @Override
+        public void onStart()
+        {
+            if (handler instanceof LifecycleAware)
+            {
+                ((LifecycleAware) handler).onStart();
+            }
+        }
+
+        @Override
+        public void onShutdown()
+        {
+            if (handler instanceof LifecycleAware)
+            {
+                ((LifecycleAware) handler).onShutdown();
+            }
+        }
+    }
+}
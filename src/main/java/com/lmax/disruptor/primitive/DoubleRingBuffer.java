@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 双精度浮点的RingBuffer，值直接保存在double[]中，常用于传递价格和测量值
+ *
+ * <p>Ring buffer of double values, such as prices and measurements.  Values are copied straight into a double[], one
+ * element per slot, and a {@link DoubleEventHandler} receives each one unboxed, so neither side allocates or boxes
+ * on the hot path:</p>
+ * <pre><code>DoubleRingBuffer ring = DoubleRingBuffer.createSingleProducer(1024, new YieldingWaitStrategy());
+ * BatchEventProcessor&lt;double[]&gt; processor = ring.newEventProcessor(ring.newBarrier(), handler);
+ * ring.addGatingSequences(processor.getSequence());</code></pre>
+ */
+public final class DoubleRingBuffer extends AbstractPrimitiveRingBuffer<double[], DoubleEventHandler>
+{
+    private final double[] values;
+
+    /**
+     * Construct a ring buffer of double values driven by the sequencer.
+     *
+     * @param sequencer to claim and publish the slots.
+     */
+    public DoubleRingBuffer(final Sequencer sequencer)
+    {
+        this(sequencer, new double[sequencer.getBufferSize()]);
+    }
+
+    private DoubleRingBuffer(final Sequencer sequencer, final double[] values)
+    {
+        super(sequencer, values);
+        this.values = values;
+    }
+
+    /**
+     * Create a new single producer ring buffer of double values.
+     *
+     * @param bufferSize   number of values, must be a power of 2.
+     * @param waitStrategy used to determine how to wait for new values to become available.
+     * @return a constructed ring buffer.
+     * @see SingleProducerSequencer
+     */
+    public static DoubleRingBuffer createSingleProducer(final int bufferSize, final WaitStrategy waitStrategy)
+    {
+        return new DoubleRingBuffer(new SingleProducerSequencer(bufferSize, waitStrategy));
+    }
+
+    /**
+     * Create a new multiple producer ring buffer of double values.
+     *
+     * @param bufferSize   number of values, must be a power of 2.
+     * @param waitStrategy used to determine how to wait for new values to become available.
+     * @return a constructed ring buffer.
+     * @see MultiProducerSequencer
+     */
+    public static DoubleRingBuffer createMultiProducer(final int bufferSize, final WaitStrategy waitStrategy)
+    {
+        return new DoubleRingBuffer(new MultiProducerSequencer(bufferSize, waitStrategy));
+    }
+
+    /**
+     * Claim the next slot, store the value in it and publish it.
+     *
+     * @param value to publish.
+     */
+    public void put(final double value)
+    {
+        final long sequence = sequencer.next();
+        values[indexOf(sequence)] = value;
+        sequencer.publish(sequence);
+    }
+
+    /**
+     * Publish the value if there is a free slot for it.
+     *
+     * @param value to publish.
+     * @return false if the ring buffer is full.
+     */
+    public boolean tryPut(final double value)
+    {
+        final long sequence = tryClaim();
+        if (sequence == Sequencer.INITIAL_CURSOR_VALUE)
+        {
+            return false;
+        }
+
+        values[indexOf(sequence)] = value;
+        sequencer.publish(sequence);
+        return true;
+    }
+
+    /**
+     * Publish a range of values in order, claiming up to the buffer size of them at a time.
+     *
+     * @param src    the values to publish.
+     * @param offset in the array of the first value.
+     * @param length the number of values.
+     */
+    public void put(final double[] src, final int offset, final int length)
+    {
+        putAll(src, src.length, offset, length);
+    }
+
+    /**
+     * Store a value in a slot claimed with {@link #next()}, before publishing it.
+     *
+     * @param sequence the claimed sequence.
+     * @param value    to store.
+     */
+    public void set(final long sequence, final double value)
+    {
+        values[indexOf(sequence)] = value;
+    }
+
+    /**
+     * Get the value for a given sequence, which must have been published and not yet wrapped.
+     *
+     * @param sequence for the value.
+     * @return the value at the sequence.
+     */
+    public double get(final long sequence)
+    {
+        return values[indexOf(sequence)];
+    }
+
+    @Override
+    protected EventHandler<double[]> toEventHandler(final DoubleEventHandler handler)
+    {
+        return new DoubleHandlerAdapter(handler, indexMask);
+    }
+
+    private static final class DoubleHandlerAdapter extends HandlerAdapter<double[]>
+    {
+        private final DoubleEventHandler handler;
+
+        DoubleHandlerAdapter(final DoubleEventHandler handler, final int indexMask)
+        {
+            super(handler, indexMask);
+            this.handler = handler;
+        }
+
+        @Override
+        public void onEvent(final double[] values, final long sequence, final boolean endOfBatch) throws Exception
+        {
+            handler.onEvent(values[indexOf(sequence)], sequence, endOfBatch);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import com.lmax.disruptor.BatchEventProcessor;
+
+/**
+ * IntRingBuffer的事件处理回调接口，值以int传入，不需要装箱
+ *
+ * <p>Callback interface to be implemented for processing the values of a {@link IntRingBuffer} as they become
+ * available.  Implement {@link com.lmax.disruptor.LifecycleAware} as well to be notified when the
+ * {@link BatchEventProcessor} starts and shuts down.</p>
+ */
+public interface IntEventHandler
+{
+    /**
+     * Called when a publisher has published a value to the {@link IntRingBuffer}.
+     *
+     * @param value      published to the ring buffer.
+     * @param sequence   of the value being processed.
+     * @param endOfBatch flag to indicate if this is the last value in a batch from the ring buffer.
+     * @throws Exception if the handler would like the exception handled further up the chain.
+     */
+    void onEvent(int value, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 整型的RingBuffer，值直接保存在int[]中，常用于传递ID和较小的计数
+ *
+ * <p>Ring buffer of int values, such as ids and small counts.  Every slot is an element of an int[] rather than an
+ * event object, which halves the footprint of a {@link LongRingBuffer} of the same size; values are published
+ * without allocating and an {@link IntEventHandler} receives each one unboxed:</p>
+ * <pre><code>IntRingBuffer ring = IntRingBuffer.createSingleProducer(1024, new YieldingWaitStrategy());
+ * BatchEventProcessor&lt;int[]&gt; processor = ring.newEventProcessor(ring.newBarrier(), handler);
+ * ring.addGatingSequences(processor.getSequence());</code></pre>
+ */
+public final class IntRingBuffer extends AbstractPrimitiveRingBuffer<int[], IntEventHandler>
+{
+    private final int[] values;
+
+    /**
+     * Construct a ring buffer of int values driven by the sequencer.
+     *
+     * @param sequencer to claim and publish the slots.
+     */
+    public IntRingBuffer(final Sequencer sequencer)
+    {
+        this(sequencer, new int[sequencer.getBufferSize()]);
+    }
+
+    private IntRingBuffer(final Sequencer sequencer, final int[] values)
+    {
+        super(sequencer, values);
+        this.values = values;
+    }
+
+    /**
+     * Create a new single producer ring buffer of int values.
+     *
+     * @param bufferSize   number of values, must be a power of 2.
+     * @param waitStrategy used to determine how to wait for new values to become available.
+     * @return a constructed ring buffer.
+     * @see SingleProducerSequencer
+     */
+    public static IntRingBuffer createSingleProducer(final int bufferSize, final WaitStrategy waitStrategy)
+    {
+        return new IntRingBuffer(new SingleProducerSequencer(bufferSize, waitStrategy));
+    }
+
+    /**
+     * Create a new multiple producer ring buffer of int values.
+     *
+     * @param bufferSize   number of values, must be a power of 2.
+     * @param waitStrategy used to determine how to wait for new values to become available.
+     * @return a constructed ring buffer.
+     * @see MultiProducerSequencer
+     */
+    public static IntRingBuffer createMultiProducer(final int bufferSize, final WaitStrategy waitStrategy)
+    {
+        return new IntRingBuffer(new MultiProducerSequencer(bufferSize, waitStrategy));
+    }
+
+    /**
+     * Claim the next slot, store the value in it and publish it.
+     *
+     * @param value to publish.
+     */
+    public void put(final int value)
+    {
+        final long sequence = sequencer.next();
+        values[indexOf(sequence)] = value;
+        sequencer.publish(sequence);
+    }
+
+    /**
+     * Publish the value if there is a free slot for it.
+     *
+     * @param value to publish.
+     * @return false if the ring buffer is full.
+     */
+    public boolean tryPut(final int value)
+    {
+        final long sequence = tryClaim();
+        if (sequence == Sequencer.INITIAL_CURSOR_VALUE)
+        {
+            return false;
+        }
+
+        values[indexOf(sequence)] = value;
+        sequencer.publish(sequence);
+        return true;
+    }
+
+    /**
+     * Publish a range of values in order, claiming up to the buffer size of them at a time.
+     *
+     * @param src    the values to publish.
+     * @param offset in the array of the first value.
+     * @param length the number of values.
+     */
+    public void put(final int[] src, final int offset, final int length)
+    {
+        putAll(src, src.length, offset, length);
+    }
+
+    /**
+     * Store a value in a slot claimed with {@link #next()}, before publishing it.
+     *
+     * @param sequence the claimed sequence.
+     * @param value    to store.
+     */
+    public void set(final long sequence, final int value)
+    {
+        values[indexOf(sequence)] = value;
+    }
+
+    /**
+     * Get the value for a given sequence, which must have been published and not yet wrapped.
+     *
+     * @param sequence for the value.
+     * @return the value at the sequence.
+     */
+    public int get(final long sequence)
+    {
+        return values[indexOf(sequence)];
+    }
+
+    @Override
+    protected EventHandler<int[]> toEventHandler(final IntEventHandler handler)
+    {
+        return new IntHandlerAdapter(handler, indexMask);
+    }
+
+    private static final class IntHandlerAdapter extends HandlerAdapter<int[]>
+    {
+        private final IntEventHandler handler;
+
+        IntHandlerAdapter(final IntEventHandler handler, final int indexMask)
+        {
+            super(handler, indexMask);
+            this.handler = handler;
+        }
+
+        @Override
+        public void onEvent(final int[] values, final long sequence, final boolean endOfBatch) throws Exception
+        {
+            handler.onEvent(values[indexOf(sequence)], sequence, endOfBatch);
+        }
+    }
+}
@@ -15,7 +15,11 @@
  */
 package com.lmax.disruptor.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.security.PrivilegedExceptionAction;
 
@@ -25,6 +29,8 @@ import com.lmax.disruptor.Sequence;
 
 import sun.misc.Unsafe;
 
+import static java.lang.invoke.MethodType.methodType;
+
 /**
  * Set of common functions used by the Disruptor
  */
@@ -133,6 +139,148 @@ public final class Util
         return THE_UNSAFE;
     }
 
+    private static final long BUFFER_ADDRESS_OFFSET;
+
+    static
+    {
+        try
+        {
+            BUFFER_ADDRESS_OFFSET = THE_UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        }
+        catch (final NoSuchFieldException e)
+        {
+            throw new RuntimeException("Unable to find the address of direct buffers", e);
+        }
+    }
+
+    /**
+	 * 获取直接内存缓冲区的起始地址，用于通过Unsafe直接访问堆外内存
+	 *
+     * Get the native address of the start of a direct buffer, for use with the memory access methods of
+     * {@link #getUnsafe()}.  The caller must keep a reference to the buffer for as long as it uses the address.
+     *
+     * @param buffer a direct buffer.
+     * @return the address of the first byte of the buffer, ignoring its position.
+     * @throws IllegalArgumentException if the buffer is not direct.
+     */
+    public static long getAddress(final ByteBuffer buffer)
+    {
+        if (!buffer.isDirect())
+        {
+            throw new IllegalArgumentException("buffer must be direct");
+        }
+        return THE_UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    /**
+     * JDK8开始Unsafe才有getAndAddLong，在更早的JDK上为null
+     */
+    private static final MethodHandle GET_AND_ADD_LONG_METHOD_HANDLE;
+
+    static
+    {
+        MethodHandle methodHandle = null;
+        try
+        {
+            methodHandle = MethodHandles.lookup()
+                .findVirtual(Unsafe.class, "getAndAddLong", methodType(long.class, Object.class, long.class, long.class))
+                .bindTo(THE_UNSAFE);
+        }
+        catch (final Exception ignore)
+        {
+        }
+
+        GET_AND_ADD_LONG_METHOD_HANDLE = methodHandle;
+    }
+
+    /**
+     * 原子方式加上一个值并返回加之前的值。
+     * 在JDK8及以上调用Unsafe.getAndAddLong，在x86上是一条lock xadd指令；更早的JDK上退化为CAS循环，与ThreadHints的做法相同。
+     *
+     * Atomically add to the long at the given location and return the previous value.  Uses a single
+     * fetch-and-add where the runtime provides <code>Unsafe.getAndAddLong</code> (Java 8 and later) and falls
+     * back to a CAS loop otherwise, so the library still runs on Java 7.
+     *
+     * @param o         the object holding the value, or null for an absolute address.
+     * @param offset    of the value in the object, or its address.
+     * @param increment the value to add.
+     * @return the value before the increment.
+     */
+    public static long getAndAddLong(final Object o, final long offset, final long increment)
+    {
+        if (null != GET_AND_ADD_LONG_METHOD_HANDLE)
+        {
+            try
+            {
+                return (long) GET_AND_ADD_LONG_METHOD_HANDLE.invokeExact(o, offset, increment);
+            }
+            catch (final Throwable ignore)
+            {
+                // 不会发生，回退到CAS循环
+            }
+        }
+
+        long value;
+        do
+        {
+            value = THE_UNSAFE.getLongVolatile(o, offset);
+        }
+        while (!THE_UNSAFE.compareAndSwapLong(o, offset, value, value + increment));
+
+        return value;
+    }
+
+    /**
+     * JDK8开始Unsafe才有loadFence，在更早的JDK上为null
+     */
+    private static final MethodHandle LOAD_FENCE_METHOD_HANDLE;
+    /**
+     * 没有loadFence时，通过volatile写入它得到一个完整的内存屏障
+     */
+    private static volatile long fence;
+
+    static
+    {
+        MethodHandle methodHandle = null;
+        try
+        {
+            methodHandle = MethodHandles.lookup()
+                .findVirtual(Unsafe.class, "loadFence", methodType(void.class))
+                .bindTo(THE_UNSAFE);
+        }
+        catch (final Exception ignore)
+        {
+        }
+
+        LOAD_FENCE_METHOD_HANDLE = methodHandle;
+    }
+
+    /**
+     * 保证之前的读操作不会重排序到之后的读写操作之后，用于顺序锁(seqlock)式的读取：读取数据后再次检查版本号。
+     * 在JDK8及以上调用Unsafe.loadFence；更早的JDK上退化为一次volatile写，相当于完整的内存屏障。
+     *
+     * Ensure loads before the fence are not reordered with loads and stores after it, as needed to re-check a
+     * version after reading data guarded by it.  Uses <code>Unsafe.loadFence</code> where the runtime provides
+     * it (Java 8 and later) and a volatile write, which acts as a full fence, otherwise.
+     */
+    public static void loadFence()
+    {
+        if (null != LOAD_FENCE_METHOD_HANDLE)
+        {
+            try
+            {
+                LOAD_FENCE_METHOD_HANDLE.invokeExact();
+                return;
+            }
+            catch (final Throwable ignore)
+            {
+                // 不会发生，回退到volatile写
+            }
+        }
+
+        fence = 0;
+    }
+
     /**
 	 * 计算以2为底，i的对数
      * Calculate the log base 2 of the supplied integer, essentially reports the location
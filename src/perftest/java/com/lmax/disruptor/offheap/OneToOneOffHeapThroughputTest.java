@@ -7,8 +7,6 @@ import com.lmax.disruptor.util.PaddedLong;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.YieldingWaitStrategy;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
@@ -26,9 +24,10 @@ public class OneToOneOffHeapThroughputTest extends AbstractPerfTestDisruptor {
     private final OffHeapRingBuffer               buffer       = new OffHeapRingBuffer(new SingleProducerSequencer(BUFFER_SIZE,
                                                                                                                    waitStrategy),
                                                                                        BLOCK_SIZE);
-    private final ByteBufferHandler               handler      = new ByteBufferHandler();
-    private final BatchEventProcessor<ByteBuffer> processor    = new BatchEventProcessor<ByteBuffer>(buffer, buffer.newBarrier(),
-                                                                                                     handler);
+    private final OffHeapEventHandler             handler      = new OffHeapEventHandler();
+    private final BatchEventProcessor<OffHeapEvent> processor  = new BatchEventProcessor<OffHeapEvent>(buffer.newEventProvider(),
+                                                                                                       buffer.newBarrier(),
+                                                                                                       handler);
 
     {
         buffer.addGatingSequences(processor.getSequence());
@@ -82,7 +81,7 @@ public class OneToOneOffHeapThroughputTest extends AbstractPerfTestDisruptor {
         new OneToOneOffHeapThroughputTest().testImplementations();
     }
 
-    public static class ByteBufferHandler implements EventHandler<ByteBuffer>, BatchStartAware {
+    public static class OffHeapEventHandler implements EventHandler<OffHeapEvent>, BatchStartAware {
 
         private final PaddedLong total            = new PaddedLong();
         private final PaddedLong batchesProcessed = new PaddedLong();
@@ -90,9 +89,8 @@ public class OneToOneOffHeapThroughputTest extends AbstractPerfTestDisruptor {
         private CountDownLatch   latch;
 
         @Override
-        public void onEvent(ByteBuffer event, long sequence, boolean endOfBatch) throws Exception {
-            final int start = event.position();
-            for (int i = start, size = start + BLOCK_SIZE; i < size; i += 8) {
+        public void onEvent(OffHeapEvent event, long sequence, boolean endOfBatch) throws Exception {
+            for (int i = 0; i < BLOCK_SIZE; i += 8) {
                 total.set(total.get() + event.getLong(i));
             }
 
@@ -121,60 +119,4 @@ public class OneToOneOffHeapThroughputTest extends AbstractPerfTestDisruptor {
             batchesProcessed.increment();
         }
     }
-
-    public static class OffHeapRingBuffer implements DataProvider<ByteBuffer> {
-
-        private final Sequencer               sequencer;
-        private final int                     entrySize;
-        private final ByteBuffer              buffer;
-        private final int                     mask;
-
-        private final ThreadLocal<ByteBuffer> perThreadBuffer = new ThreadLocal<ByteBuffer>() {
-
-                                                                  @Override
-                                                                  protected ByteBuffer initialValue() {
-                                                                      return buffer.duplicate().order(ByteOrder.nativeOrder());
-                                                                  }
-                                                              };
-
-        public OffHeapRingBuffer(Sequencer sequencer, int entrySize) {
-            this.sequencer = sequencer;
-            this.entrySize = entrySize;
-            this.mask = sequencer.getBufferSize() - 1;
-            buffer = ByteBuffer.allocateDirect(sequencer.getBufferSize() * entrySize).order(ByteOrder.nativeOrder());
-        }
-
-        public void addGatingSequences(Sequence sequence) {
-            sequencer.addGatingSequences(sequence);
-        }
-
-        public SequenceBarrier newBarrier() {
-            return sequencer.newBarrier();
-        }
-
-        @Override
-        public ByteBuffer get(long sequence) {
-            int index = index(sequence);
-            int position = index * entrySize;
-            int limit = position + entrySize;
-
-            ByteBuffer byteBuffer = perThreadBuffer.get();
-            byteBuffer.position(position).limit(limit);
-
-            return byteBuffer;
-        }
-
-        public void put(byte[] data) {
-            long next = sequencer.next();
-            try {
-                get(next).put(data);
-            } finally {
-                sequencer.publish(next);
-            }
-        }
-
-        private int index(long next) {
-            return (int) (next & mask);
-        }
-    }
 }
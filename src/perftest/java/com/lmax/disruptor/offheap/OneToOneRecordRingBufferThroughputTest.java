@@ -0,0 +1,136 @@
+package com.lmax.disruptor.offheap;
+
+import com.lmax.disruptor.AbstractPerfTestDisruptor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.OffHeapEvent;
+import com.lmax.disruptor.PerfTestContext;
+import com.lmax.disruptor.RecordRingBuffer;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.lmax.disruptor.util.PaddedLong;
+import com.lmax.disruptor.util.ThreadHints;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * <pre>
+ *
+ * Same workload as {@link OneToOneOffHeapThroughputTest}, 256 byte messages from one publisher to one consumer,
+ * but through a {@link RecordRingBuffer} of length prefixed records instead of fixed size slots.
+ *
+ * +----+    +----+
+ * | P1 |--->| C1 |
+ * +----+    +----+
+ *
+ * P1 - Publisher 1, claims, copies and commits each record
+ * C1 - Consumer 1, polls the ring and sums each record in place
+ *
+ * </pre>
+ */
+public class OneToOneRecordRingBufferThroughputTest extends AbstractPerfTestDisruptor {
+
+    private static final int              BLOCK_SIZE  = 256;
+    private static final int              CAPACITY    = 64 * 1024 * 1024;
+    private static final long             ITERATIONS  = 1000 * 1000 * 10L;
+
+    private final Executor                executor    = Executors.newFixedThreadPool(1, DaemonThreadFactory.INSTANCE);
+    private final RecordRingBuffer        ringBuffer  = RecordRingBuffer.createSingleProducer(CAPACITY);
+    private final RecordHandler           handler     = new RecordHandler();
+
+    private final Random r    = new Random(1);
+    private final byte[] data = new byte[BLOCK_SIZE];
+
+    public OneToOneRecordRingBufferThroughputTest() {
+        r.nextBytes(data);
+    }
+
+    @Override
+    protected int getRequiredProcessorCount() {
+        return 2;
+    }
+
+    @Override
+    protected PerfTestContext runDisruptorPass() throws Exception {
+        PerfTestContext perfTestContext = new PerfTestContext();
+        byte[] data = this.data;
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.reset(latch, ITERATIONS);
+        final Consumer consumer = new Consumer();
+        executor.execute(consumer);
+        long start = System.currentTimeMillis();
+
+        final RecordRingBuffer rb = ringBuffer;
+        final OffHeapEvent record = rb.newRecord();
+
+        for (long i = 0; i < ITERATIONS; i++) {
+            while (!rb.write(data, 0, BLOCK_SIZE, record)) {
+                ThreadHints.onSpinWait();
+            }
+        }
+
+        latch.await();
+        perfTestContext.setDisruptorOps((ITERATIONS * 1000L) / (System.currentTimeMillis() - start));
+        perfTestContext.setBatchData(consumer.batches, ITERATIONS);
+        consumer.running = false;
+
+        return perfTestContext;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new OneToOneRecordRingBufferThroughputTest().testImplementations();
+    }
+
+    private final class Consumer implements Runnable {
+
+        private volatile boolean running = true;
+        private volatile long    batches;
+
+        @Override
+        public void run() {
+            final RecordRingBuffer rb = ringBuffer;
+            long batches = 0;
+            try {
+                while (running) {
+                    if (rb.read(handler, Integer.MAX_VALUE) > 0) {
+                        this.batches = ++batches;
+                    } else {
+                        ThreadHints.onSpinWait();
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static class RecordHandler implements EventHandler<OffHeapEvent> {
+
+        private final PaddedLong total = new PaddedLong();
+        private long             expectedCount;
+        private CountDownLatch   latch;
+
+        @Override
+        public void onEvent(OffHeapEvent event, long sequence, boolean endOfBatch) throws Exception {
+            for (int i = 0, size = event.size(); i < size; i += 8) {
+                total.set(total.get() + event.getLong(i));
+            }
+
+            if (--expectedCount == 0) {
+                latch.countDown();
+            }
+        }
+
+        public long getTotal() {
+            return total.get();
+        }
+
+        public void reset(CountDownLatch latch, long expectedCount) {
+            this.latch = latch;
+            this.expectedCount = expectedCount;
+            this.total.set(0);
+        }
+    }
+}
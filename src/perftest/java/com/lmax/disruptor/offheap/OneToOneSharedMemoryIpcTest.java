@@ -0,0 +1,159 @@
+package com.lmax.disruptor.offheap;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.OffHeapEvent;
+import com.lmax.disruptor.SharedMemoryRingBuffer;
+import com.lmax.disruptor.util.ThreadHints;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *
+ * Throughput and latency of a {@link SharedMemoryRingBuffer} between two processes.  The publisher maps a file,
+ * under /dev/shm when it exists, and starts the consumer in a child JVM with the same class path.
+ *
+ * +----+    +-------------------+    +----+
+ * | P1 |--->| mapped ring (file) |--->| C1 |
+ * +----+    +-------------------+    +----+
+ *
+ * P1 - Publisher 1, in this process, publishes back to back runs and then events stamped with System.nanoTime()
+ * C1 - Consumer 1, a BatchEventProcessor in the child process, reports the throughput of each run and the
+ *      publish to handle latency
+ *
+ * </pre>
+ * <p>
+ * Note: <b>The latency figures are only meaningful where System.nanoTime() is consistent across processes, as it
+ * is on Linux.</b>
+ */
+public final class OneToOneSharedMemoryIpcTest {
+
+    private static final int  BUFFER_SIZE          = 64 * 1024;
+    private static final int  SLOT_SIZE            = 64;
+    private static final long ITERATIONS           = 1000L * 1000L * 20L;
+    private static final int  RUNS                 = 5;
+    private static final long LATENCY_ITERATIONS   = 1000L * 1000L;
+    private static final long PAUSE_NANOS          = 1000L;
+
+    private static final long THROUGHPUT = 0;
+    private static final long LATENCY    = 1;
+    private static final long STOP       = 2;
+
+    private static final int KIND_OFFSET      = 0;
+    private static final int VALUE_OFFSET     = 8;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && "consumer".equals(args[0])) {
+            consume(new File(args[1]));
+        } else {
+            publish();
+        }
+    }
+
+    private static void publish() throws Exception {
+        final File shm = new File("/dev/shm");
+        final File file = File.createTempFile("disruptor-ipc", ".dat", shm.isDirectory() ? shm : null);
+        file.deleteOnExit();
+
+        final SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.create(file, BUFFER_SIZE, SLOT_SIZE, 1);
+        final Process consumer = new ProcessBuilder(
+            System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+            "-cp", System.getProperty("java.class.path"),
+            OneToOneSharedMemoryIpcTest.class.getName(), "consumer", file.getPath())
+            .inheritIO()
+            .start();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!ringBuffer.isConsumerAttached(0)) {
+            if (System.nanoTime() > deadline) {
+                consumer.destroy();
+                throw new IllegalStateException("Consumer process did not attach");
+            }
+            Thread.sleep(10);
+        }
+
+        final DataProvider<OffHeapEvent> events = ringBuffer.newEventProvider();
+        for (int run = 0; run < RUNS; run++) {
+            for (long i = ITERATIONS - 1; i >= 0; i--) {
+                final long sequence = ringBuffer.next();
+                final OffHeapEvent event = events.get(sequence);
+                event.putLong(KIND_OFFSET, THROUGHPUT);
+                event.putLong(VALUE_OFFSET, i);
+                ringBuffer.publish(sequence);
+            }
+        }
+
+        for (long i = 0; i < LATENCY_ITERATIONS; i++) {
+            final long pauseEnd = System.nanoTime() + PAUSE_NANOS;
+            while (System.nanoTime() < pauseEnd) {
+                ThreadHints.onSpinWait();
+            }
+
+            final long sequence = ringBuffer.next();
+            final OffHeapEvent event = events.get(sequence);
+            event.putLong(KIND_OFFSET, LATENCY);
+            event.putLong(VALUE_OFFSET, System.nanoTime());
+            ringBuffer.publish(sequence);
+        }
+
+        final long sequence = ringBuffer.next();
+        events.get(sequence).putLong(KIND_OFFSET, STOP);
+        ringBuffer.publish(sequence);
+
+        consumer.waitFor();
+        ringBuffer.detachProducer();
+        file.delete();
+    }
+
+    private static void consume(final File file) throws Exception {
+        final SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.open(file);
+        final SharedMemoryRingBuffer.Consumer consumer = ringBuffer.attachConsumer(0);
+        final IpcHandler handler = new IpcHandler();
+        final BatchEventProcessor<OffHeapEvent> processor =
+            consumer.newEventProcessor(handler, new BusySpinWaitStrategy());
+        handler.processor = processor;
+
+        processor.run();
+        consumer.detach();
+
+        final Histogram histogram = handler.histogram;
+        System.out.format("Latency: events=%,d mean=%,.0f ns 50%%=%,d ns 99%%=%,d ns 99.99%%=%,d ns max=%,d ns\n",
+                          histogram.getTotalCount(),
+                          histogram.getMean(),
+                          histogram.getValueAtPercentile(50.0),
+                          histogram.getValueAtPercentile(99.0),
+                          histogram.getValueAtPercentile(99.99),
+                          histogram.getMaxValue());
+    }
+
+    private static final class IpcHandler implements EventHandler<OffHeapEvent> {
+        private final Histogram                  histogram = new Histogram(10000000000L, 4);
+        private BatchEventProcessor<OffHeapEvent> processor;
+        private long                             runStart;
+        private int                              run;
+
+        @Override
+        public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch) {
+            final long kind = event.getLong(KIND_OFFSET);
+            if (kind == THROUGHPUT) {
+                if (runStart == 0) {
+                    runStart = System.nanoTime();
+                }
+                if (event.getLong(VALUE_OFFSET) == 0) {
+                    final long nanos = System.nanoTime() - runStart;
+                    System.out.format("Run %d, IPC=%,d ops/sec\n", run++, ITERATIONS * 1000L * 1000L * 1000L / nanos);
+                    runStart = 0;
+                }
+            } else if (kind == LATENCY) {
+                histogram.recordValue(Math.max(0L, System.nanoTime() - event.getLong(VALUE_OFFSET)));
+            } else {
+                processor.halt();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.lmax.disruptor.AbstractPerfTestDisruptor;
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.PerfTestContext;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.sequenced.OneToOneSequencedLongArrayThroughputTest;
+import com.lmax.disruptor.support.PerfTestUtil;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.lmax.disruptor.util.PaddedLong;
+
+/**
+ * <pre>
+ * Same workload as {@link OneToOneSequencedLongArrayThroughputTest}, arrays of 2048 longs from one publisher
+ * to one event processor, but each array is published as a batch of values into a {@link LongRingBuffer}
+ * instead of being copied into a long[] event.  Throughput is reported in longs per second for both.
+ *
+ * +----+    +-----+
+ * | P1 |--->| EP1 |
+ * +----+    +-----+
+ *
+ * P1  - Publisher 1, fills an array and puts it with {@link LongRingBuffer#put(long[], int, int)}
+ * EP1 - EventProcessor 1, sums each value through a {@link LongEventHandler}
+ *
+ * </pre>
+ */
+public final class OneToOneLongRingBufferThroughputTest extends AbstractPerfTestDisruptor {
+
+    private static final int                  BUFFER_SIZE         = 64 * 1024;
+    private static final long                 ITERATIONS          = 1000L * 1000L * 1L;
+    private static final int                  ARRAY_SIZE          = 2 * 1024;
+    private final ExecutorService             executor            = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final LongRingBuffer              ringBuffer          = LongRingBuffer.createSingleProducer(BUFFER_SIZE,
+                                                                                                       new YieldingWaitStrategy());
+    private final SummingHandler              handler             = new SummingHandler();
+    private final BatchEventProcessor<long[]> batchEventProcessor = ringBuffer.newEventProcessor(ringBuffer.newBarrier(),
+                                                                                                 handler);
+
+    {
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    protected int getRequiredProcessorCount() {
+        return 2;
+    }
+
+    @Override
+    protected PerfTestContext runDisruptorPass() throws InterruptedException {
+        PerfTestContext perfTestContext = new PerfTestContext();
+        final CountDownLatch latch = new CountDownLatch(1);
+        long expectedCount = batchEventProcessor.getSequence().get() + ITERATIONS * ARRAY_SIZE;
+        handler.reset(latch, ITERATIONS * ARRAY_SIZE);
+        executor.submit(batchEventProcessor);
+        long start = System.currentTimeMillis();
+
+        final LongRingBuffer rb = ringBuffer;
+        final long[] values = new long[ARRAY_SIZE];
+
+        for (long i = 0; i < ITERATIONS; i++) {
+            Arrays.fill(values, i);
+            rb.put(values, 0, ARRAY_SIZE);
+        }
+
+        latch.await();
+        perfTestContext.setDisruptorOps((ITERATIONS * ARRAY_SIZE * 1000L) / (System.currentTimeMillis() - start));
+        waitForEventProcessorSequence(expectedCount);
+        batchEventProcessor.halt();
+
+        PerfTestUtil.failIf(0, handler.getValue());
+
+        return perfTestContext;
+    }
+
+    private void waitForEventProcessorSequence(long expectedCount) throws InterruptedException {
+        while (batchEventProcessor.getSequence().get() != expectedCount) {
+            Thread.sleep(1);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        OneToOneLongRingBufferThroughputTest test = new OneToOneLongRingBufferThroughputTest();
+        test.testImplementations();
+    }
+
+    private static final class SummingHandler implements LongEventHandler {
+
+        private final PaddedLong value = new PaddedLong();
+        private long             count;
+        private CountDownLatch   latch;
+
+        public long getValue() {
+            return value.get();
+        }
+
+        public void reset(final CountDownLatch latch, final long expectedCount) {
+            value.set(0L);
+            this.latch = latch;
+            count = expectedCount;
+        }
+
+        @Override
+        public void onEvent(final long value, final long sequence, final boolean endOfBatch) {
+            this.value.set(this.value.get() + value);
+
+            if (--count == 0) {
+                latch.countDown();
+            }
+        }
+    }
+}
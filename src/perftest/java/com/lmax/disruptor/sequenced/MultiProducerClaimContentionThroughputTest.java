@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.sequenced;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.lmax.disruptor.AbstractPerfTestDisruptor;
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PerfTestContext;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.ValueAdditionEventHandler;
+import com.lmax.disruptor.support.ValueEvent;
+import com.lmax.disruptor.support.ValuePublisher;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+
+/**
+ * <pre>
+ *
+ * Compare the CAS claim ({@link ProducerType#MULTI}) with the fetch-and-add claim
+ * ({@link ProducerType#MULTI_FETCH_ADD}) as the number of publishers contending on the cursor grows.
+ *
+ * +----+
+ * | P1 |------+
+ * +----+      |
+ *   ...       v
+ * +----+    +-----+
+ * | Pn |--->| EP1 |
+ * +----+    +-----+
+ *
+ * P1..Pn - Publishers, n in 2, 4, 8, 16
+ * EP1    - EventProcessor 1
+ *
+ * </pre>
+ */
+public final class MultiProducerClaimContentionThroughputTest extends AbstractPerfTestDisruptor {
+
+    private static final int[]                    PUBLISHER_COUNTS    = { 2, 4, 8, 16 };
+    private static final int                      BUFFER_SIZE         = 1024 * 64;
+    private static final long                     ITERATIONS          = 1000L * 1000L * 20L;
+
+    private final int                             numPublishers;
+    private final ExecutorService                 executor;
+    private final CyclicBarrier                   cyclicBarrier;
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final RingBuffer<ValueEvent>          ringBuffer;
+    private final SequenceBarrier                 sequenceBarrier;
+    private final ValueAdditionEventHandler       handler             = new ValueAdditionEventHandler();
+    private final BatchEventProcessor<ValueEvent> batchEventProcessor;
+    private final ValuePublisher[]                valuePublishers;
+
+    public MultiProducerClaimContentionThroughputTest(final ProducerType producerType, final int numPublishers) {
+        this.numPublishers = numPublishers;
+        this.executor = Executors.newFixedThreadPool(numPublishers + 1, DaemonThreadFactory.INSTANCE);
+        this.cyclicBarrier = new CyclicBarrier(numPublishers + 1);
+        this.ringBuffer = RingBuffer.create(producerType, ValueEvent.EVENT_FACTORY, BUFFER_SIZE, new BusySpinWaitStrategy());
+        this.sequenceBarrier = ringBuffer.newBarrier();
+        this.batchEventProcessor = new BatchEventProcessor<ValueEvent>(ringBuffer, sequenceBarrier, handler);
+        this.valuePublishers = new ValuePublisher[numPublishers];
+
+        for (int i = 0; i < numPublishers; i++) {
+            valuePublishers[i] = new ValuePublisher(cyclicBarrier, ringBuffer, ITERATIONS / numPublishers);
+        }
+
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    protected int getRequiredProcessorCount() {
+        return numPublishers + 1;
+    }
+
+    @Override
+    protected PerfTestContext runDisruptorPass() throws Exception {
+        PerfTestContext perfTestContext = new PerfTestContext();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long expectedCount = (ITERATIONS / numPublishers) * numPublishers;
+        handler.reset(latch, batchEventProcessor.getSequence().get() + expectedCount);
+
+        Future<?>[] futures = new Future[numPublishers];
+        for (int i = 0; i < numPublishers; i++) {
+            futures[i] = executor.submit(valuePublishers[i]);
+        }
+        executor.submit(batchEventProcessor);
+
+        long start = System.currentTimeMillis();
+        cyclicBarrier.await();
+
+        for (int i = 0; i < numPublishers; i++) {
+            futures[i].get();
+        }
+
+        latch.await();
+
+        perfTestContext.setDisruptorOps((expectedCount * 1000L) / (System.currentTimeMillis() - start));
+        perfTestContext.setBatchData(handler.getBatchesProcessed(), expectedCount);
+        batchEventProcessor.halt();
+
+        return perfTestContext;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int numPublishers : PUBLISHER_COUNTS) {
+            for (ProducerType producerType : new ProducerType[] { ProducerType.MULTI, ProducerType.MULTI_FETCH_ADD }) {
+                System.out.println(producerType + " with " + numPublishers + " publishers");
+                MultiProducerClaimContentionThroughputTest test =
+                    new MultiProducerClaimContentionThroughputTest(producerType, numPublishers);
+                test.testImplementations();
+                test.executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.sequenced;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BlockingProducerWaitStrategy;
+import com.lmax.disruptor.BusySpinProducerWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.PhasedBackoffProducerWaitStrategy;
+import com.lmax.disruptor.ProducerWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingProducerWaitStrategy;
+import com.lmax.disruptor.YieldingProducerWaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.ValueEvent;
+
+/**
+ * <pre>
+ *
+ * Measure the CPU burnt by the publisher per event under sustained overload, i.e. with a consumer
+ * that is slower than the publisher so the ring buffer is always full, for each {@link ProducerWaitStrategy}.
+ *
+ * +----+    +-----+
+ * | P1 |--->| EP1 |
+ * +----+    +-----+
+ *
+ * P1  - Publisher 1, publishes as fast as the ring buffer allows
+ * EP1 - EventProcessor 1, spends CONSUMER_DELAY_NANOS on each event
+ *
+ * </pre>
+ */
+public final class OneToOneProducerBackPressureCpuTest {
+
+    private static final int                   RUNS                 = 5;
+    private static final int                   BUFFER_SIZE          = 1024;
+    private static final long                  ITERATIONS           = 1000L * 200L;
+    private static final long                  CONSUMER_DELAY_NANOS = 5000L;
+    private static final ThreadMXBean          THREAD_MX_BEAN       = ManagementFactory.getThreadMXBean();
+
+    private final RingBuffer<ValueEvent>          ringBuffer;
+    private final BatchEventProcessor<ValueEvent> batchEventProcessor;
+    private volatile CountDownLatch               latch;
+    private volatile long                         expectedSequence;
+
+    public OneToOneProducerBackPressureCpuTest(final ProducerWaitStrategy producerWaitStrategy) {
+        this.ringBuffer = RingBuffer.create(ProducerType.SINGLE, ValueEvent.EVENT_FACTORY, BUFFER_SIZE,
+                                            new YieldingWaitStrategy(), producerWaitStrategy);
+        this.batchEventProcessor = new BatchEventProcessor<ValueEvent>(ringBuffer, ringBuffer.newBarrier(), new EventHandler<ValueEvent>() {
+            @Override
+            public void onEvent(final ValueEvent event, final long sequence, final boolean endOfBatch) {
+                final long end = System.nanoTime() + CONSUMER_DELAY_NANOS;
+                while (System.nanoTime() < end) {
+                    // simulate a slow consumer
+                }
+
+                if (sequence == expectedSequence) {
+                    latch.countDown();
+                }
+            }
+        });
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+    }
+
+    private long runPass() throws InterruptedException {
+        latch = new CountDownLatch(1);
+        expectedSequence = ringBuffer.getCursor() + ITERATIONS;
+
+        final long startCpu = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        for (long i = 0; i < ITERATIONS; i++) {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).setValue(i);
+            ringBuffer.publish(sequence);
+        }
+        final long publisherCpu = THREAD_MX_BEAN.getCurrentThreadCpuTime() - startCpu;
+
+        latch.await();
+
+        return publisherCpu / ITERATIONS;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+            System.out.println("Thread CPU time is not supported on this JVM");
+            return;
+        }
+
+        final ProducerWaitStrategy[] strategies = {
+            new SleepingProducerWaitStrategy(),
+            new BusySpinProducerWaitStrategy(),
+            new YieldingProducerWaitStrategy(),
+            PhasedBackoffProducerWaitStrategy.withLock(10, 100, TimeUnit.MICROSECONDS),
+            new BlockingProducerWaitStrategy()
+        };
+
+        for (ProducerWaitStrategy strategy : strategies) {
+            OneToOneProducerBackPressureCpuTest test = new OneToOneProducerBackPressureCpuTest(strategy);
+            Thread processorThread = new Thread(test.batchEventProcessor);
+            processorThread.start();
+
+            for (int i = 0; i < RUNS; i++) {
+                System.out.format("%s run %d: publisher CPU=%,d ns/event\n",
+                                  strategy.getClass().getSimpleName(), i, test.runPass());
+            }
+
+            test.batchEventProcessor.halt();
+            processorThread.join();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.sequenced;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.lmax.disruptor.AdaptiveWaitStrategy;
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.support.ValueEvent;
+
+/**
+ * <pre>
+ *
+ * Measure latency against consumer CPU for each {@link WaitStrategy} under three loads: back to back
+ * bursts, a steady rate and a mostly idle publisher.
+ *
+ * +----+    +-----+
+ * | P1 |--->| EP1 |
+ * +----+    +-----+
+ *
+ * P1  - Publisher 1, stamps each event with System.nanoTime() and paces publication
+ * EP1 - EventProcessor 1, records publish to handle latency
+ *
+ * </pre>
+ * <p>
+ * Note: <b>This test is only useful on a system using an invariant TSC in user space from the System.nanoTime() call.</b>
+ */
+public final class OneToOneWaitStrategyLatencyCpuTest {
+
+    private static final int          BUFFER_SIZE    = 1024;
+    private static final long         RUN_NANOS      = 2L * 1000L * 1000L * 1000L;
+    private static final int          BURST_SIZE     = 100;
+    private static final long[]       PAUSE_NANOS    = {0L, 10L * 1000L, 1000L * 1000L};
+    private static final String[]     LOAD_NAMES     = {"burst", "steady 10us", "idle 1ms"};
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final RingBuffer<ValueEvent>          ringBuffer;
+    private final BatchEventProcessor<ValueEvent> batchEventProcessor;
+    private final LatencyHandler                  handler        = new LatencyHandler();
+
+    public OneToOneWaitStrategyLatencyCpuTest(final WaitStrategy waitStrategy) {
+        this.ringBuffer = RingBuffer.createSingleProducer(ValueEvent.EVENT_FACTORY, BUFFER_SIZE, waitStrategy);
+        this.batchEventProcessor = new BatchEventProcessor<ValueEvent>(ringBuffer, ringBuffer.newBarrier(), handler);
+        ringBuffer.addGatingSequences(batchEventProcessor.getSequence());
+    }
+
+    private void runPass(final String strategyName, final String loadName, final long pauseNanos) throws InterruptedException {
+        handler.histogram.reset();
+        final long startCpu = THREAD_MX_BEAN.getThreadCpuTime(handler.threadId);
+
+        final long end = System.nanoTime() + RUN_NANOS;
+        long lastSequence = -1;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < BURST_SIZE; i++) {
+                lastSequence = ringBuffer.next();
+                ringBuffer.get(lastSequence).setValue(System.nanoTime());
+                ringBuffer.publish(lastSequence);
+
+                if (pauseNanos > 0) {
+                    final long pauseEnd = System.nanoTime() + pauseNanos;
+                    while (System.nanoTime() < pauseEnd) {
+                        if (pauseNanos > 100L * 1000L) {
+                            LockSupport.parkNanos(pauseEnd - System.nanoTime());
+                        }
+                    }
+                }
+            }
+        }
+
+        while (batchEventProcessor.getSequence().get() < lastSequence) {
+            Thread.yield();
+        }
+        final long consumerCpu = THREAD_MX_BEAN.getThreadCpuTime(handler.threadId) - startCpu;
+
+        System.out.format("%s %s: events=%,d mean=%,.0f ns 99%%=%,d ns 99.99%%=%,d ns consumer CPU=%.0f%%\n",
+                          strategyName, loadName, handler.histogram.getTotalCount(),
+                          handler.histogram.getMean(),
+                          handler.histogram.getValueAtPercentile(99.0),
+                          handler.histogram.getValueAtPercentile(99.99),
+                          100.0 * consumerCpu / RUN_NANOS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!THREAD_MX_BEAN.isThreadCpuTimeSupported()) {
+            System.out.println("Thread CPU time is not supported on this JVM");
+            return;
+        }
+
+        final WaitStrategy[] strategies = {
+            new BusySpinWaitStrategy(),
+            new YieldingWaitStrategy(),
+            new BlockingWaitStrategy(),
+            new AdaptiveWaitStrategy()
+        };
+
+        for (WaitStrategy strategy : strategies) {
+            OneToOneWaitStrategyLatencyCpuTest test = new OneToOneWaitStrategyLatencyCpuTest(strategy);
+            Thread processorThread = new Thread(test.batchEventProcessor);
+            processorThread.start();
+            test.handler.started.await();
+
+            for (int i = 0; i < PAUSE_NANOS.length; i++) {
+                test.runPass(strategy.getClass().getSimpleName(), LOAD_NAMES[i], PAUSE_NANOS[i]);
+            }
+
+            test.batchEventProcessor.halt();
+            processorThread.join();
+        }
+    }
+
+    private static final class LatencyHandler implements EventHandler<ValueEvent>, LifecycleAware {
+        private final Histogram      histogram = new Histogram(10000000000L, 4);
+        private final CountDownLatch started   = new CountDownLatch(1);
+        private volatile long        threadId;
+
+        @Override
+        public void onEvent(final ValueEvent event, final long sequence, final boolean endOfBatch) {
+            histogram.recordValue(Math.max(0L, System.nanoTime() - event.getValue()));
+        }
+
+        @Override
+        public void onStart() {
+            threadId = Thread.currentThread().getId();
+            started.countDown();
+        }
+
+        @Override
+        public void onShutdown() {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static com.lmax.disruptor.support.WaitStrategyTestUtil.assertWaitForWithDelayOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.support.DummySequenceBarrier;
+import org.junit.Test;
+
+public class AdaptiveWaitStrategyTest
+{
+    private final AdaptiveWaitStrategy waitStrategy =
+        new AdaptiveWaitStrategy(10, 100, TimeUnit.MICROSECONDS, new BlockingWaitStrategy());
+
+    @Test
+    public void shouldWaitForValue() throws Exception
+    {
+        assertWaitForWithDelayOf(50, waitStrategy);
+    }
+
+    @Test
+    public void shouldSpinWhenEventsAreAlreadyAvailable() throws Exception
+    {
+        final Sequence cursor = new Sequence(10);
+        for (int i = 0; i < 20; i++)
+        {
+            assertThat(waitStrategy.waitFor(i / 2, cursor, cursor, new DummySequenceBarrier()), is(10L));
+        }
+
+        assertThat(waitStrategy.getSpinBudgetNanos(), is(TimeUnit.MICROSECONDS.toNanos(10)));
+        assertThat(waitStrategy.getYieldBudgetNanos(), is(TimeUnit.MICROSECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void shouldGoStraightToFallbackAfterLongWaits() throws Exception
+    {
+        assertWaitForWithDelayOf(50, waitStrategy);
+
+        assertThat(waitStrategy.getSpinBudgetNanos(), is(0L));
+        assertThat(waitStrategy.getYieldBudgetNanos(), is(0L));
+
+        assertWaitForWithDelayOf(50, waitStrategy);
+    }
+}
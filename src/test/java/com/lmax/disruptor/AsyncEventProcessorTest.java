@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011 LMAX Ltd. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lmax.disruptor.RingBuffer.createMultiProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class AsyncEventProcessorTest {
+
+    private final RingBuffer<StubEvent>         ringBuffer      = createMultiProducer(StubEvent.EVENT_FACTORY, 16);
+    private final SequenceBarrier               sequenceBarrier = ringBuffer.newBarrier();
+    private final BlockingQueue<FutureTask<?>>  pending         = new LinkedBlockingQueue<FutureTask<?>>();
+    private final AsyncEventHandler<StubEvent>  handler         = new AsyncEventHandler<StubEvent>() {
+        @Override
+        public Future<?> onEvent(final StubEvent event, final long sequence, final boolean endOfBatch) {
+            final FutureTask<Void> completion = new FutureTask<Void>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (sequence == failingSequence) {
+                        throw new IllegalStateException("send failed");
+                    }
+                    return null;
+                }
+            });
+            pending.add(completion);
+            return completion;
+        }
+    };
+    private volatile long                       failingSequence = -1;
+    private AsyncEventProcessor<StubEvent>      processor;
+    private Thread                              thread;
+
+    @After
+    public void halt() throws InterruptedException {
+        processor.halt();
+        thread.join();
+    }
+
+    @Test
+    public void shouldOnlyAdvanceToHighestContiguousCompletion() throws Exception {
+        start(16);
+        publish(4);
+        final FutureTask<?> first = nextPending();
+        final FutureTask<?> second = nextPending();
+        final FutureTask<?> third = nextPending();
+        final FutureTask<?> fourth = nextPending();
+
+        second.run();
+        fourth.run();
+        Thread.sleep(20);
+        assertEquals(-1L, processor.getSequence().get());
+
+        first.run();
+        assertSequence(1L);
+
+        third.run();
+        assertSequence(3L);
+    }
+
+    @Test
+    public void shouldBoundEventsInFlight() throws Exception {
+        start(2);
+        publish(5);
+        final FutureTask<?> first = nextPending();
+        nextPending();
+
+        assertNull(pending.poll(20, TimeUnit.MILLISECONDS));
+
+        first.run();
+        nextPending();
+        assertNull(pending.poll(20, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldReportFailedCompletionToExceptionHandlerAndMoveOn() throws Exception {
+        final CountDownLatch exceptionLatch = new CountDownLatch(1);
+        final AtomicLong failedSequence = new AtomicLong(-1);
+        failingSequence = 0;
+        start(16, new ExceptionHandler<Object>() {
+            @Override
+            public void handleEventException(final Throwable ex, final long sequence, final Object event) {
+                failedSequence.set(sequence);
+                exceptionLatch.countDown();
+            }
+
+            @Override
+            public void handleOnStartException(final Throwable ex) {
+            }
+
+            @Override
+            public void handleOnShutdownException(final Throwable ex) {
+            }
+        });
+        publish(1);
+
+        nextPending().run();
+
+        assertTrue(exceptionLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(0L, failedSequence.get());
+        assertSequence(0L);
+    }
+
+    private void start(final int maxInFlight) {
+        start(maxInFlight, new FatalExceptionHandler());
+    }
+
+    private void start(final int maxInFlight, final ExceptionHandler<Object> exceptionHandler) {
+        processor = new AsyncEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, handler, maxInFlight);
+        processor.setExceptionHandler(exceptionHandler);
+        ringBuffer.addGatingSequences(processor.getSequence());
+        thread = new Thread(processor);
+        thread.start();
+    }
+
+    private void publish(final int events) {
+        for (int i = 0; i < events; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+    }
+
+    private FutureTask<?> nextPending() throws InterruptedException {
+        final FutureTask<?> completion = pending.poll(2, TimeUnit.SECONDS);
+        assertTrue(completion != null);
+        return completion;
+    }
+
+    private void assertSequence(final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (processor.getSequence().get() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, processor.getSequence().get());
+    }
+}
@@ -164,6 +164,153 @@ public final class BatchEventProcessorTest {
         assertEquals(Arrays.asList(3L, 2L, 1L), batchSizes);
     }
 
+    @Test
+    public void shouldSplitBatchesAtMaxBatchSizeAndPublishProgress() throws Exception {
+        final List<Long> batchSizes = new ArrayList<Long>();
+        final List<Long> sequencesAtBatchStart = new ArrayList<Long>();
+        final CountDownLatch eventLatch = new CountDownLatch(5);
+        final Sequence[] progress = new Sequence[1];
+
+        final class ChunkedEventHandler implements EventHandler<StubEvent>, BatchStartAware {
+
+            @Override
+            public void onBatchStart(long batchSize) {
+                batchSizes.add(batchSize);
+                sequencesAtBatchStart.add(progress[0].get());
+            }
+
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception {
+                eventLatch.countDown();
+            }
+        }
+
+        final BatchEventProcessor<StubEvent> batchEventProcessor = new BatchEventProcessor<StubEvent>(ringBuffer,
+                                                                                                      sequenceBarrier,
+                                                                                                      new ChunkedEventHandler());
+        batchEventProcessor.setMaxBatchSize(2);
+        progress[0] = batchEventProcessor.getSequence();
+
+        long hi = ringBuffer.next(5);
+        ringBuffer.publish(hi - 4, hi);
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        assertTrue(eventLatch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(2L, 2L, 1L), batchSizes);
+        assertEquals(Arrays.asList(-1L, 1L, 3L), sequencesAtBatchStart);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowMaxBatchSizeOfZero() {
+        new BatchEventProcessor<StubEvent>(ringBuffer, sequenceBarrier, new ExceptionEventHandler()).setMaxBatchSize(0);
+    }
+
+    @Test
+    public void shouldHandOverWholeRangeToBatchEventHandler() throws Exception {
+        final List<Long> ranges = new ArrayList<Long>();
+        final CountDownLatch eventLatch = new CountDownLatch(1);
+
+        final class RangeEventHandler implements BatchEventHandler<StubEvent> {
+
+            @Override
+            public void onBatch(DataProvider<? extends StubEvent> dataProvider, long lo, long hi) throws Exception {
+                ranges.add(lo);
+                ranges.add(hi);
+                eventLatch.countDown();
+            }
+
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception {
+                throw new IllegalStateException("onEvent should not be called");
+            }
+        }
+
+        final BatchEventProcessor<StubEvent> batchEventProcessor = new BatchEventProcessor<StubEvent>(ringBuffer,
+                                                                                                      sequenceBarrier,
+                                                                                                      new RangeEventHandler());
+
+        ringBuffer.publish(ringBuffer.next());
+        ringBuffer.publish(ringBuffer.next());
+        ringBuffer.publish(ringBuffer.next());
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        assertTrue(eventLatch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(0L, 2L), ranges);
+        assertEquals(2L, batchEventProcessor.getSequence().get());
+    }
+
+    @Test
+    public void shouldPassFirstEventAndSkipWholeRangeWhenBatchEventHandlerThrows() throws Exception {
+        final List<Long> ranges = new ArrayList<Long>();
+        final List<Object> failedEvents = new ArrayList<Object>();
+        final CountDownLatch eventLatch = new CountDownLatch(2);
+
+        final class FailingRangeEventHandler implements BatchEventHandler<StubEvent> {
+
+            @Override
+            public void onBatch(DataProvider<? extends StubEvent> dataProvider, long lo, long hi) throws Exception {
+                ranges.add(lo);
+                ranges.add(hi);
+                eventLatch.countDown();
+                if (lo == 0) {
+                    throw new IllegalStateException();
+                }
+            }
+
+            @Override
+            public void onEvent(StubEvent event, long sequence, boolean endOfBatch) throws Exception {
+                throw new IllegalStateException("onEvent should not be called");
+            }
+        }
+
+        final BatchEventProcessor<StubEvent> batchEventProcessor = new BatchEventProcessor<StubEvent>(ringBuffer,
+                                                                                                      sequenceBarrier,
+                                                                                                      new FailingRangeEventHandler());
+        batchEventProcessor.setExceptionHandler(new ExceptionHandler<Object>() {
+            @Override
+            public void handleEventException(Throwable ex, long sequence, Object event) {
+                failedEvents.add(sequence);
+                failedEvents.add(event);
+            }
+
+            @Override
+            public void handleOnStartException(Throwable ex) {
+            }
+
+            @Override
+            public void handleOnShutdownException(Throwable ex) {
+            }
+        });
+
+        final long hi = ringBuffer.next(3);
+        ringBuffer.publish(hi - 2, hi);
+
+        Thread thread = new Thread(batchEventProcessor);
+        thread.start();
+        while (batchEventProcessor.getSequence().get() != 2L) {
+            Thread.yield();
+        }
+
+        ringBuffer.publish(ringBuffer.next());
+        assertTrue(eventLatch.await(2, TimeUnit.SECONDS));
+
+        batchEventProcessor.halt();
+        thread.join();
+
+        assertEquals(Arrays.asList(0L, 2L, 3L, 3L), ranges);
+        assertEquals(Arrays.<Object>asList(0L, ringBuffer.get(0)), failedEvents);
+    }
+
     @Test
     public void shouldAlwaysHalt() throws InterruptedException {
         WaitStrategy waitStrategy = new BusySpinWaitStrategy();
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ConflatingEventSinkTest
+{
+    private final ConflatingEventSink<StubEvent, String> sink =
+        ConflatingEventSink.create(StubEvent.EVENT_FACTORY, 8, new BlockingWaitStrategy());
+    private final RingBuffer<StubEvent> ringBuffer = sink.getRingBuffer();
+    private final Sequence consumerSequence = new Sequence();
+
+    {
+        ringBuffer.addGatingSequences(consumerSequence);
+    }
+
+    @Test
+    public void shouldPublishImmediatelyWhileConsumerKeepsUp() throws Exception
+    {
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 1, "A");
+        consumerSequence.set(0);
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 2, "A");
+
+        assertThat(ringBuffer.getCursor(), is(1L));
+        assertThat(sink.getPendingCount(), is(0));
+        assertThat(sink.getConflatedCount(), is(0L));
+    }
+
+    @Test
+    public void shouldOverwritePendingSlotForSameKeyWhileConsumerIsBehind() throws Exception
+    {
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 1, "A");
+
+        sink.publishEvent("B", StubEvent.TRANSLATOR, 1, "B");
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 2, "A");
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 3, "A");
+        sink.publishEvent("B", StubEvent.TRANSLATOR, 2, "B");
+
+        assertThat(ringBuffer.getCursor(), is(0L));
+        assertThat(sink.getPendingCount(), is(2));
+        assertThat(sink.getConflatedCount(), is(2L));
+
+        consumerSequence.set(0);
+        sink.publishEvent("C", StubEvent.TRANSLATOR, 1, "C");
+
+        assertThat(ringBuffer.getCursor(), is(3L));
+        assertThat(ringBuffer.get(1).getTestString(), is("B"));
+        assertThat(ringBuffer.get(1).getValue(), is(2));
+        assertThat(ringBuffer.get(2).getTestString(), is("A"));
+        assertThat(ringBuffer.get(2).getValue(), is(3));
+        assertThat(ringBuffer.get(3).getTestString(), is("C"));
+    }
+
+    @Test
+    public void shouldPublishPendingWindowOnFlush() throws Exception
+    {
+        sink.publishEvent("A", StubEvent.TRANSLATOR, 1, "A");
+        sink.publishEvent("B", StubEvent.TRANSLATOR, 1, "B");
+
+        sink.flush();
+
+        assertThat(ringBuffer.getCursor(), is(1L));
+        assertThat(sink.getPendingCount(), is(0));
+
+        sink.publishEvent("B", StubEvent.TRANSLATOR, 2, "B");
+        assertThat(sink.getConflatedCount(), is(0L));
+        assertThat(sink.getPendingCount(), is(1));
+    }
+
+    @Test
+    public void shouldConflateKeysWithTheSameHashCodeSeparatelyAcrossWindows() throws Exception
+    {
+        // "Aa"和"BB"的hashCode相同
+        sink.publishEvent("X", StubEvent.TRANSLATOR, 0, "X");
+        sink.publishEvent("Aa", StubEvent.TRANSLATOR, 1, "Aa");
+        sink.publishEvent("BB", StubEvent.TRANSLATOR, 1, "BB");
+        sink.publishEvent("BB", StubEvent.TRANSLATOR, 2, "BB");
+        sink.publishEvent("Aa", StubEvent.TRANSLATOR, 2, "Aa");
+
+        assertThat(sink.getPendingCount(), is(2));
+        assertThat(sink.getConflatedCount(), is(2L));
+
+        sink.flush();
+        sink.publishEvent("BB", StubEvent.TRANSLATOR, 3, "BB");
+        sink.publishEvent("Aa", StubEvent.TRANSLATOR, 3, "Aa");
+        sink.publishEvent("BB", StubEvent.TRANSLATOR, 4, "BB");
+
+        assertThat(sink.getPendingCount(), is(2));
+        assertThat(sink.getConflatedCount(), is(3L));
+        assertThat(ringBuffer.get(3).getTestString(), is("BB"));
+        assertThat(ringBuffer.get(3).getValue(), is(4));
+        assertThat(ringBuffer.get(4).getTestString(), is("Aa"));
+        assertThat(ringBuffer.get(4).getValue(), is(3));
+    }
+
+    @Test
+    public void shouldNotExposePendingWindowWhenRingFillsUp() throws Exception
+    {
+        sink.publishEvent("K0", StubEvent.TRANSLATOR, 0, "K0");
+        for (int i = 1; i < ringBuffer.getBufferSize(); i++)
+        {
+            sink.publishEvent("K" + i, StubEvent.TRANSLATOR, i, "K" + i);
+        }
+
+        assertThat(ringBuffer.getCursor(), is(0L));
+        assertThat(sink.getPendingCount(), is(ringBuffer.getBufferSize() - 1));
+        assertThat(ringBuffer.hasAvailableCapacity(1), is(false));
+    }
+}
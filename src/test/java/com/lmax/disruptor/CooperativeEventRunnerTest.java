@@ -0,0 +1,194 @@
+/*
+ * Copyright 2011 LMAX Ltd. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.support.LongEvent;
+import com.lmax.disruptor.support.StubEvent;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.lmax.disruptor.RingBuffer.createMultiProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class CooperativeEventRunnerTest {
+
+    private final RingBuffer<StubEvent> ringBuffer = createMultiProducer(StubEvent.EVENT_FACTORY, 16);
+    private CooperativeEventRunner      runner;
+
+    @After
+    public void halt() {
+        runner.halt();
+    }
+
+    @Test
+    public void shouldRunManyProcessorsOnOneThread() throws Exception {
+        runner = new CooperativeEventRunner(1, DaemonThreadFactory.INSTANCE);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final CountDownLatch latch = new CountDownLatch(10 * 100);
+        final List<CooperativeEventProcessor<StubEvent>> processors = new ArrayList<CooperativeEventProcessor<StubEvent>>();
+        for (int i = 0; i < 10; i++) {
+            final CooperativeEventProcessor<StubEvent> processor = new CooperativeEventProcessor<StubEvent>(
+                runner, ringBuffer, new EventHandler<StubEvent>() {
+                    @Override
+                    public void onEvent(final StubEvent event, final long sequence, final boolean endOfBatch) {
+                        threads.add(Thread.currentThread());
+                        latch.countDown();
+                    }
+                });
+            ringBuffer.addGatingSequences(processor.getSequence());
+            processor.run();
+            processors.add(processor);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        for (final CooperativeEventProcessor<StubEvent> processor : processors) {
+            while (processor.getSequence().get() < 99L) {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Test
+    public void shouldEndEachBatchAtTheQuota() throws Exception {
+        runner = new CooperativeEventRunner(1, DaemonThreadFactory.INSTANCE, new BackoffIdleStrategy(), 4);
+        final List<Long> batchEnds = new CopyOnWriteArrayList<Long>();
+        final CountDownLatch latch = new CountDownLatch(10);
+        final CooperativeEventProcessor<StubEvent> processor = new CooperativeEventProcessor<StubEvent>(
+            runner, ringBuffer, new EventHandler<StubEvent>() {
+                @Override
+                public void onEvent(final StubEvent event, final long sequence, final boolean endOfBatch) {
+                    if (endOfBatch) {
+                        batchEnds.add(sequence);
+                    }
+                    latch.countDown();
+                }
+            });
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        for (int i = 0; i < 10; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        processor.run();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(3L, 7L, 9L), batchEnds);
+    }
+
+    @Test
+    public void shouldNotifyLifecycleOnRunnerThreadAndStopWhenHalted() throws Exception {
+        runner = new CooperativeEventRunner(2, DaemonThreadFactory.INSTANCE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        final CooperativeEventProcessor<StubEvent> processor = new CooperativeEventProcessor<StubEvent>(
+            runner, ringBuffer, new LifecycleAwareHandler(started, shutdown));
+
+        processor.run();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(processor.isRunning());
+
+        processor.halt();
+        assertTrue(shutdown.await(5, TimeUnit.SECONDS));
+        while (processor.isRunning()) {
+            Thread.yield();
+        }
+        assertTrue(runner.isRunning());
+    }
+
+    @Test
+    public void shouldShutDownScheduledProcessorsWhenRunnerHalts() throws Exception {
+        runner = new CooperativeEventRunner(1, DaemonThreadFactory.INSTANCE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        final CooperativeEventProcessor<StubEvent> processor = new CooperativeEventProcessor<StubEvent>(
+            runner, ringBuffer, new LifecycleAwareHandler(started, shutdown));
+
+        processor.run();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        runner.halt();
+        assertTrue(shutdown.await(5, TimeUnit.SECONDS));
+        assertFalse(runner.isRunning());
+    }
+
+    @Test
+    public void shouldChainCooperativeHandlersInTheDsl() throws Exception {
+        runner = new CooperativeEventRunner(1, DaemonThreadFactory.INSTANCE);
+        final Disruptor<LongEvent> disruptor = new Disruptor<LongEvent>(LongEvent.FACTORY, 16, DaemonThreadFactory.INSTANCE);
+        final CountDownLatch latch = new CountDownLatch(50);
+        final EventHandler<LongEvent> increment = new EventHandler<LongEvent>() {
+            @Override
+            public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch) {
+                synchronized (event) {
+                    event.set(event.get() + 1);
+                }
+            }
+        };
+        disruptor.handleEventsWith(runner, increment, increment).then(runner, new EventHandler<LongEvent>() {
+            @Override
+            public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch) {
+                if (event.get() == 2) {
+                    latch.countDown();
+                }
+            }
+        });
+        final RingBuffer<LongEvent> ringBuffer = disruptor.start();
+
+        for (int i = 0; i < 50; i++) {
+            final long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(0);
+            ringBuffer.publish(sequence);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        disruptor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private static final class LifecycleAwareHandler implements EventHandler<StubEvent>, LifecycleAware {
+        private final CountDownLatch started;
+        private final CountDownLatch shutdown;
+
+        LifecycleAwareHandler(final CountDownLatch started, final CountDownLatch shutdown) {
+            this.started = started;
+            this.shutdown = shutdown;
+        }
+
+        @Override
+        public void onEvent(final StubEvent event, final long sequence, final boolean endOfBatch) {
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onShutdown() {
+            shutdown.countDown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+public class ElasticWorkerPoolTest {
+
+    private final Executor threads = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+    private final Semaphore exitedWorkers = new Semaphore(0);
+    private final Executor executor = new Executor() {
+
+        @Override
+        public void execute(final Runnable worker) {
+            threads.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        worker.run();
+                    } finally {
+                        exitedWorkers.release();
+                    }
+                }
+            });
+        }
+    };
+    private final CountDownLatch go = new CountDownLatch(1);
+    private final RingBuffer<AtomicLong> ringBuffer =
+        RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 1024, new BlockingWaitStrategy());
+
+    @SuppressWarnings("unchecked")
+    private final ElasticWorkerPool<AtomicLong> pool =
+        new ElasticWorkerPool<AtomicLong>(ringBuffer, ringBuffer.newBarrier(), new FatalExceptionHandler(),
+                                          new LagThresholdScalingPolicy(10, 2), 1,
+                                          new GatedWorkHandler(), new GatedWorkHandler(), new GatedWorkHandler());
+
+    {
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+    }
+
+    @Test
+    public void shouldAddWorkersWhileLaggingUpToNumberOfHandlers() throws Exception {
+        pool.start(executor);
+        assertThat(pool.getWorkerCount(), is(1));
+
+        publish(50);
+
+        assertThat(pool.scale(), is(2));
+        assertThat(pool.scale(), is(3));
+        assertThat(pool.scale(), is(3));
+
+        go.countDown();
+        pool.drainAndHalt();
+
+        assertProcessedOnce(50);
+    }
+
+    @Test
+    public void shouldRetireWorkersWithoutLosingEvents() throws Exception {
+        pool.start(executor);
+        publish(50);
+        pool.scale();
+        pool.scale();
+
+        go.countDown();
+        waitForDrain();
+        assertThat(pool.scale(), is(2));
+        assertThat(pool.scale(), is(1));
+        assertThat(pool.scale(), is(1));
+
+        publish(50);
+        pool.drainAndHalt();
+
+        assertProcessedOnce(100);
+    }
+
+    @Test
+    public void shouldRetireWorkerWaitingForUnpublishedEvent() throws Exception {
+        final SequenceGroup workerSequences = (SequenceGroup) pool.getWorkerSequences()[0];
+        pool.start(executor);
+        publish(50);
+        pool.scale();
+
+        go.countDown();
+        waitForDrain();
+        assertThat(pool.scale(), is(1));
+
+        // 被退出的worker不等发布就退出：要么交还了它领取的序号，要么序号留在组中，由剩下的worker接手
+        assertTrue(exitedWorkers.tryAcquire(2, TimeUnit.SECONDS));
+
+        publish(1);
+        waitForDrain();
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (workerSequences.size() > 2 && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(workerSequences.size(), is(2));
+
+        publish(1);
+        pool.drainAndHalt();
+
+        assertProcessedOnce(52);
+    }
+
+    private void publish(final int events) {
+        for (int i = 0; i < events; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+    }
+
+    private void waitForDrain() {
+        while (ringBuffer.getCursor() > pool.getWorkerSequences()[0].get()) {
+            Thread.yield();
+        }
+    }
+
+    private void assertProcessedOnce(final int events) {
+        for (int i = 0; i < events; i++) {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    private class GatedWorkHandler implements WorkHandler<AtomicLong> {
+
+        @Override
+        public void onEvent(AtomicLong event) throws Exception {
+            go.await();
+            event.incrementAndGet();
+        }
+    }
+
+    private static class AtomicLongEventFactory implements EventFactory<AtomicLong> {
+
+        @Override
+        public AtomicLong newInstance() {
+            return new AtomicLong(0);
+        }
+    }
+}
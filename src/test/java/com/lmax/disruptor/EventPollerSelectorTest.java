@@ -0,0 +1,159 @@
+/*
+ * Copyright 2011 LMAX Ltd. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.support.LongEvent;
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.lmax.disruptor.RingBuffer.createMultiProducer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class EventPollerSelectorTest {
+
+    private final RingBuffer<StubEvent> commands   = createMultiProducer(StubEvent.EVENT_FACTORY, 16);
+    private final RingBuffer<LongEvent> marketData = createMultiProducer(LongEvent.FACTORY, 16);
+    private final List<String>          handled    = new ArrayList<String>();
+
+    @Test
+    public void shouldConsumeEveryRingOnOneThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(20);
+        final EventPollerSelector selector = new EventPollerSelector()
+            .register(newPoller(commands), new CountingHandler<StubEvent>(latch), 4)
+            .register(newPoller(marketData), new CountingHandler<LongEvent>(latch), 4);
+        final Thread thread = new Thread(selector);
+        thread.start();
+
+        for (int i = 0; i < 10; i++) {
+            commands.publish(commands.next());
+            marketData.publish(marketData.next());
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        selector.halt();
+        thread.join();
+        assertFalse(selector.isRunning());
+    }
+
+    @Test
+    public void shouldLimitEventsTakenFromEachRingPerSelect() throws Exception {
+        final EventPollerSelector selector = new EventPollerSelector(new BackoffIdleStrategy(), EventPollerSelector.Fairness.PRIORITY)
+            .register(newPoller(commands), new RecordingHandler<StubEvent>("C"), 2)
+            .register(newPoller(marketData), new RecordingHandler<LongEvent>("M"), 3);
+        publish(5);
+
+        assertEquals(5, selector.selectNow());
+        assertEquals(4, selector.selectNow());
+        assertEquals(1, selector.selectNow());
+        assertEquals(0, selector.selectNow());
+        assertEquals(Arrays.asList("C0", "C1.", "M0", "M1", "M2.", "C2", "C3.", "M3", "M4.", "C4."), handled);
+    }
+
+    @Test
+    public void shouldRotateFirstRingWhenRoundRobin() throws Exception {
+        final EventPollerSelector selector = new EventPollerSelector(new BackoffIdleStrategy(), EventPollerSelector.Fairness.ROUND_ROBIN)
+            .register(newPoller(commands), new RecordingHandler<StubEvent>("C"), 1)
+            .register(newPoller(marketData), new RecordingHandler<LongEvent>("M"), 1);
+        publish(2);
+
+        selector.selectNow();
+        selector.selectNow();
+        assertEquals(Arrays.asList("C0.", "M0.", "M1.", "C1."), handled);
+    }
+
+    @Test
+    public void shouldNotifyLifecycleOfRingRegisteredWhileRunning() throws Exception {
+        final EventPollerSelector selector = new EventPollerSelector()
+            .register(newPoller(commands), new RecordingHandler<StubEvent>("C"), 4);
+        final Thread thread = new Thread(selector);
+        thread.start();
+        while (!selector.isRunning()) {
+            Thread.yield();
+        }
+
+        final LifecycleHandler lateHandler = new LifecycleHandler();
+        selector.register(newPoller(marketData), lateHandler, 4);
+        marketData.publish(marketData.next());
+
+        assertTrue(lateHandler.started.await(5, TimeUnit.SECONDS));
+        assertTrue(lateHandler.handled.await(5, TimeUnit.SECONDS));
+        selector.halt();
+        thread.join();
+        assertEquals(0, lateHandler.shutdown.getCount());
+    }
+
+    private static <T> EventPoller<T> newPoller(final RingBuffer<T> ringBuffer) {
+        final EventPoller<T> poller = ringBuffer.newPoller();
+        ringBuffer.addGatingSequences(poller.getSequence());
+        return poller;
+    }
+
+    private void publish(final int count) {
+        for (int i = 0; i < count; i++) {
+            commands.publish(commands.next());
+            marketData.publish(marketData.next());
+        }
+    }
+
+    private static final class CountingHandler<T> implements EventHandler<T> {
+        private final CountDownLatch latch;
+
+        CountingHandler(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onEvent(final T event, final long sequence, final boolean endOfBatch) {
+            latch.countDown();
+        }
+    }
+
+    private final class RecordingHandler<T> implements EventHandler<T> {
+        private final String ring;
+
+        RecordingHandler(final String ring) {
+            this.ring = ring;
+        }
+
+        @Override
+        public void onEvent(final T event, final long sequence, final boolean endOfBatch) {
+            handled.add(ring + sequence + (endOfBatch ? "." : ""));
+        }
+    }
+
+    private static final class LifecycleHandler implements EventHandler<LongEvent>, LifecycleAware {
+        private final CountDownLatch started  = new CountDownLatch(1);
+        private final CountDownLatch handled  = new CountDownLatch(1);
+        private final CountDownLatch shutdown = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch) {
+            assertEquals(0, started.getCount());
+            handled.countDown();
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onShutdown() {
+            shutdown.countDown();
+        }
+    }
+}
@@ -18,8 +18,14 @@ package com.lmax.disruptor;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
+import com.lmax.disruptor.util.DaemonThreadFactory;
+
 public class MultiProducerSequencerTest
 {
     private final Sequencer publisher = new MultiProducerSequencer(1024, new BlockingWaitStrategy());
@@ -27,6 +33,7 @@ public class MultiProducerSequencerTest
     @Test
     public void shouldOnlyAllowMessagesToBeAvailableIfSpecificallyPublished() throws Exception
     {
+        publisher.next(6);
         publisher.publish(3);
         publisher.publish(5);
 
@@ -38,4 +45,221 @@ public class MultiProducerSequencerTest
         assertThat(publisher.isAvailable(5), is(true));
         assertThat(publisher.isAvailable(6), is(false));
     }
+
+    @Test
+    public void shouldNotReportUnclaimedSequencesAsAvailable() throws Exception
+    {
+        assertThat(publisher.isAvailable(1024), is(false));
+        assertThat(publisher.isAvailable(2048 + 1), is(false));
+
+        publisher.publish(publisher.next(4) - 3, 3);
+
+        assertThat(publisher.isAvailable(3), is(true));
+        assertThat(publisher.isAvailable(4), is(false));
+        assertThat(publisher.isAvailable(1024 + 4), is(false));
+        assertThat(publisher.isAvailable(2048 + 3), is(false));
+    }
+
+    @Test
+    public void shouldNotReportSequenceAsAvailableWhenPreviousLapIsOnlyClaimed() throws Exception
+    {
+        final Sequencer sequencer = new MultiProducerSequencer(8, new BlockingWaitStrategy());
+        final Sequence gatingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence);
+
+        sequencer.publish(0, sequencer.next(8));
+        gatingSequence.set(7);
+        sequencer.next(8);
+
+        assertThat(sequencer.isAvailable(8), is(false));
+        assertThat(sequencer.isAvailable(16), is(false));
+    }
+
+    @Test
+    public void shouldClaimByFetchAndAddThenWaitForCapacity() throws Exception
+    {
+        final Sequencer sequencer = new MultiProducerSequencer(4, new BlockingWaitStrategy(), true);
+        final Sequence gatingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence);
+
+        final long sequence = sequencer.next(4);
+        sequencer.publish(sequence - 3, sequence);
+
+        final CountDownLatch doneLatch = new CountDownLatch(1);
+        Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE).submit(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sequencer.publish(sequencer.next());
+                    doneLatch.countDown();
+                }
+            });
+
+        assertThat(doneLatch.await(10, TimeUnit.MILLISECONDS), is(false));
+        assertThat(sequencer.isAvailable(4), is(false));
+        assertThat(sequencer.getHighestPublishedSequence(0, sequencer.getCursor()), is(3L));
+
+        gatingSequence.set(0);
+
+        assertThat(doneLatch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(sequencer.getCursor(), is(4L));
+        assertThat(sequencer.isAvailable(4), is(true));
+    }
+
+    @Test
+    public void shouldFindHighestPublishedSequenceAcrossWordsAndLaps() throws Exception
+    {
+        final Sequencer sequencer = new MultiProducerSequencer(256, new BlockingWaitStrategy());
+        final Sequence gatingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence);
+
+        sequencer.next(256);
+        sequencer.publish(0, 199);
+        sequencer.publish(201, 255);
+
+        assertThat(sequencer.getHighestPublishedSequence(0, 255), is(199L));
+        assertThat(sequencer.getHighestPublishedSequence(130, 150), is(150L));
+        assertThat(sequencer.getHighestPublishedSequence(201, 255), is(255L));
+
+        sequencer.publish(200);
+        gatingSequence.set(255);
+
+        final long hi = sequencer.next(100);
+        sequencer.publish(hi - 99, hi - 30);
+
+        assertThat(sequencer.isAvailable(hi - 30), is(true));
+        assertThat(sequencer.isAvailable(hi - 29), is(false));
+        assertThat(sequencer.isAvailable(0), is(false));
+        assertThat(sequencer.getHighestPublishedSequence(200, hi), is(hi - 30));
+    }
+
+    @Test
+    public void shouldFindHighestPublishedSequenceInBufferSmallerThanWord() throws Exception
+    {
+        final Sequencer sequencer = new MultiProducerSequencer(4, new BlockingWaitStrategy());
+        final Sequence gatingSequence = new Sequence();
+        sequencer.addGatingSequences(gatingSequence);
+
+        sequencer.publish(0, sequencer.next(4));
+        gatingSequence.set(1);
+        sequencer.publish(sequencer.next());
+
+        assertThat(sequencer.getHighestPublishedSequence(2, 5), is(4L));
+        assertThat(sequencer.isAvailable(0), is(false));
+        assertThat(sequencer.isAvailable(1), is(true));
+        assertThat(sequencer.isAvailable(5), is(false));
+
+        sequencer.publish(sequencer.next());
+        assertThat(sequencer.getHighestPublishedSequence(2, 5), is(5L));
+    }
+
+    @Test
+    public void shouldHandOutLeasedSequencesWithoutMovingCursor() throws Exception
+    {
+        final MultiProducerSequencer sequencer = new MultiProducerSequencer(64, new BlockingWaitStrategy(), false, 8);
+
+        assertThat(sequencer.next(), is(0L));
+        assertThat(sequencer.getCursor(), is(7L));
+        assertThat(sequencer.next(3), is(3L));
+        assertThat(sequencer.getRemainingLease(), is(4));
+        assertThat(sequencer.getCursor(), is(7L));
+
+        sequencer.publish(0, 3);
+        assertThat(sequencer.getHighestPublishedSequence(0, sequencer.getCursor()), is(3L));
+
+        assertThat(sequencer.next(4), is(7L));
+        assertThat(sequencer.next(), is(8L));
+        assertThat(sequencer.getCursor(), is(15L));
+    }
+
+    @Test
+    public void shouldPublishReleasedLeaseWithoutMovingCursorBack() throws Exception
+    {
+        final MultiProducerSequencer sequencer = new MultiProducerSequencer(64, new BlockingWaitStrategy(), false, 8);
+
+        sequencer.publish(0, sequencer.next(2));
+
+        assertThat(sequencer.releaseLease(), is(6));
+        assertThat(sequencer.getRemainingLease(), is(0));
+        assertThat(sequencer.getCursor(), is(7L));
+        assertThat(sequencer.getHighestPublishedSequence(0, sequencer.getCursor()), is(7L));
+    }
+
+    @Test
+    public void shouldExtendLeaseAtTailOfCursorWhenClaimDoesNotFit() throws Exception
+    {
+        final MultiProducerSequencer sequencer = new MultiProducerSequencer(64, new BlockingWaitStrategy(), false, 8);
+
+        assertThat(sequencer.next(6), is(5L));
+        assertThat(sequencer.next(3), is(8L));
+        assertThat(sequencer.getCursor(), is(8L));
+        assertThat(sequencer.getRemainingLease(), is(0));
+        assertThat(sequencer.isAvailable(6), is(false));
+
+        assertThat(sequencer.tryNext(5), is(13L));
+        assertThat(sequencer.next(2, 1, TimeUnit.SECONDS), is(15L));
+        assertThat(sequencer.next(), is(16L));
+        assertThat(sequencer.next(9), is(25L));
+        assertThat(sequencer.getCursor(), is(25L));
+        assertThat(sequencer.getRemainingLease(), is(0));
+    }
+
+    @Test
+    public void shouldPadRemainderAndClaimAfreshWhenAnotherPublisherClaimedAfterLease() throws Exception
+    {
+        final MultiProducerSequencer sequencer = new MultiProducerSequencer(64, new BlockingWaitStrategy(), false, 8);
+        final long[] padded = {-1, -1};
+        sequencer.setLeasePadding(
+            new MultiProducerSequencer.LeasePadding()
+            {
+                @Override
+                public void pad(final long lo, final long hi)
+                {
+                    padded[0] = lo;
+                    padded[1] = hi;
+                }
+            });
+
+        sequencer.publish(0, sequencer.next(6));
+        final Thread thread = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    sequencer.next();
+                }
+            });
+        thread.start();
+        thread.join();
+
+        assertThat(sequencer.next(3), is(18L));
+        assertThat(sequencer.getCursor(), is(23L));
+        assertThat(padded[0], is(6L));
+        assertThat(padded[1], is(7L));
+        assertThat(sequencer.getHighestPublishedSequence(0, sequencer.getCursor()), is(7L));
+        assertThat(sequencer.getRemainingLease(), is(5));
+    }
+
+    @Test
+    public void shouldMixClaimSizesAcrossLeases() throws Exception
+    {
+        final MultiProducerSequencer sequencer = new MultiProducerSequencer(64, new BlockingWaitStrategy(), false, 8);
+
+        long expected = -1;
+        for (int i = 0; i < 40; i++)
+        {
+            final int n = 1 + (i * 5) % 11;
+            final long hi = i % 3 == 0 ? sequencer.tryNext(n) : sequencer.next(n);
+            assertThat(hi, is(expected + n));
+            sequencer.publish(hi - n + 1, hi);
+            expected = hi;
+        }
+
+        sequencer.releaseLease();
+        final long cursor = sequencer.getCursor();
+        assertThat(sequencer.getHighestPublishedSequence(cursor - 63, cursor), is(cursor));
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.OffHeapDisruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapRingBufferTest
+{
+    private final OffHeapRingBuffer ringBuffer =
+        OffHeapRingBuffer.createSingleProducer(8, 20, new BlockingWaitStrategy());
+
+    @Test
+    public void shouldReadWhatWasWrittenThroughAnotherFlyweight() throws Exception
+    {
+        final DataProvider<OffHeapEvent> writer = ringBuffer.newEventProvider();
+        final DataProvider<OffHeapEvent> reader = ringBuffer.newEventProvider();
+
+        final long sequence = ringBuffer.next();
+        final OffHeapEvent event = writer.get(sequence);
+        event.putLong(0, 42L);
+        event.putInt(8, 7);
+        event.putDouble(12, 1.5);
+        ringBuffer.publish(sequence);
+
+        final OffHeapEvent read = reader.get(sequence);
+        assertThat(read.getSequence(), is(sequence));
+        assertThat(read.getLong(0), is(42L));
+        assertThat(read.getInt(8), is(7));
+        assertThat(read.getDouble(12), is(1.5));
+    }
+
+    @Test
+    public void shouldReuseTheFlyweightAndWrapAround() throws Exception
+    {
+        final DataProvider<OffHeapEvent> provider = ringBuffer.newEventProvider();
+        final Sequence consumed = new Sequence();
+        ringBuffer.addGatingSequences(consumed);
+
+        for (int i = 0; i < 12; i++)
+        {
+            ringBuffer.put(new byte[] {(byte) i});
+            consumed.set(i);
+        }
+
+        final OffHeapEvent first = provider.get(4);
+        assertThat(provider.get(11), sameInstance(first));
+        assertThat(provider.get(11).getByte(0), is((byte) 11));
+        assertThat(provider.get(3).getByte(0), is((byte) 11));
+        assertThat(provider.get(4).getByte(0), is((byte) 4));
+    }
+
+    @Test
+    public void shouldCopyBytesInAndOut() throws Exception
+    {
+        ringBuffer.put(new byte[] {1, 2, 3, 4, 5}, 1, 3);
+
+        final byte[] copy = new byte[5];
+        ringBuffer.newEventProvider().get(0).getBytes(0, copy, 1, 3);
+        assertThat(copy, is(new byte[] {0, 2, 3, 4, 0}));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectAccessBeyondTheSlot() throws Exception
+    {
+        ringBuffer.newEventProvider().get(0).getLong(13);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectPutLargerThanTheSlot() throws Exception
+    {
+        ringBuffer.put(new byte[21]);
+    }
+
+    @Test
+    public void shouldDeliverEventsToChainedHandlersThroughDsl() throws Exception
+    {
+        final OffHeapDisruptor disruptor =
+            new OffHeapDisruptor(16, 8, DaemonThreadFactory.INSTANCE, ProducerType.MULTI, new BlockingWaitStrategy());
+        final AtomicLong total = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(100);
+        final List<BatchEventProcessor<OffHeapEvent>> doublers = disruptor.handleEventsWith(
+            new EventHandler<OffHeapEvent>()
+            {
+                @Override
+                public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    event.putLong(0, event.getLong(0) * 2);
+                }
+            });
+        disruptor.after(
+            doublers,
+            new EventHandler<OffHeapEvent>()
+            {
+                @Override
+                public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    total.addAndGet(event.getLong(0));
+                    latch.countDown();
+                }
+            });
+        final OffHeapRingBuffer ring = disruptor.start();
+
+        final DataProvider<OffHeapEvent> writer = ring.newEventProvider();
+        for (int i = 1; i <= 100; i++)
+        {
+            final long sequence = ring.next();
+            writer.get(sequence).putLong(0, i);
+            ring.publish(sequence);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(total.get(), is(2L * 5050L));
+        disruptor.shutdown(5, TimeUnit.SECONDS);
+    }
+}
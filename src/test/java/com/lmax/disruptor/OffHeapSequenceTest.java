@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.lmax.disruptor.support.StubEvent;
+import com.lmax.disruptor.util.Util;
+import org.junit.Test;
+
+public class OffHeapSequenceTest
+{
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64).order(ByteOrder.nativeOrder());
+
+    @Test
+    public void shouldReadAndWriteTheBuffer() throws Exception
+    {
+        final Sequence sequence = new OffHeapSequence(buffer, 8);
+
+        sequence.set(7);
+        assertThat(buffer.getLong(8), is(7L));
+        buffer.putLong(8, 11);
+        assertThat(sequence.get(), is(11L));
+
+        sequence.setVolatile(12);
+        assertThat(sequence.incrementAndGet(), is(13L));
+        assertThat(sequence.addAndGet(2), is(15L));
+        assertThat(sequence.getAndAdd(5), is(15L));
+        assertFalse(sequence.compareAndSet(15, 30));
+        assertTrue(sequence.compareAndSet(20, 30));
+        assertThat(sequence.get(), is(30L));
+        assertThat(sequence.toString(), is("30"));
+    }
+
+    @Test
+    public void shouldShareTheValueWithOtherSequencesAtTheSameAddress() throws Exception
+    {
+        final OffHeapSequence first = new OffHeapSequence(buffer, 16);
+        final Sequence second = new OffHeapSequence(first.getAddress());
+
+        first.set(5);
+        assertThat(second.get(), is(5L));
+        assertThat(first.getAddress(), is(Util.getAddress(buffer) + 16));
+    }
+
+    @Test
+    public void shouldBeUsableWhereverSequencesAre() throws Exception
+    {
+        final Sequence gating = new OffHeapSequence(buffer, 0);
+        final Sequence dependent = new OffHeapSequence(buffer, 32);
+        gating.set(Sequencer.INITIAL_CURSOR_VALUE);
+        dependent.set(1);
+
+        final RingBuffer<StubEvent> ringBuffer = RingBuffer.createSingleProducer(StubEvent.EVENT_FACTORY, 4);
+        ringBuffer.addGatingSequences(gating);
+        for (int i = 0; i < 4; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        assertFalse(ringBuffer.hasAvailableCapacity(1));
+        gating.set(0);
+        assertTrue(ringBuffer.hasAvailableCapacity(1));
+
+        final SequenceBarrier barrier = ringBuffer.newBarrier(dependent);
+        assertThat(barrier.waitFor(1), is(1L));
+
+        assertThat(Util.getMinimumSequence(new Sequence[] {gating, dependent, new Sequence(3)}), is(0L));
+        assertThat(new FixedSequenceGroup(new Sequence[] {gating, dependent}).get(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnalignedValue() throws Exception
+    {
+        new OffHeapSequence(buffer, 4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectValueOutsideTheBuffer() throws Exception
+    {
+        new OffHeapSequence(buffer, 60);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectHeapBuffer() throws Exception
+    {
+        new OffHeapSequence(ByteBuffer.allocate(64), 0);
+    }
+}
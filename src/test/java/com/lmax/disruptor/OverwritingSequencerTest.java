@@ -0,0 +1,173 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.LongEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class OverwritingSequencerTest
+{
+    private static final int BUFFER_SIZE = 8;
+
+    private static final EventTranslatorOneArg<LongEvent, Long> TRANSLATOR =
+        new EventTranslatorOneArg<LongEvent, Long>()
+        {
+            @Override
+            public void translateTo(final LongEvent event, final long sequence, final Long value)
+            {
+                event.set(value);
+            }
+        };
+
+    private final RingBuffer<LongEvent> ringBuffer =
+        RingBuffer.create(ProducerType.OVERWRITING, LongEvent.FACTORY, BUFFER_SIZE, new BlockingWaitStrategy());
+
+    @Test
+    public void shouldNeverBlockPublisherWhenConsumersFallBehind() throws Exception
+    {
+        ringBuffer.addGatingSequences(new Sequence());
+
+        for (long i = 0; i < BUFFER_SIZE * 3; i++)
+        {
+            assertTrue(ringBuffer.tryPublishEvent(TRANSLATOR, i));
+        }
+
+        assertThat(ringBuffer.getCursor(), is(BUFFER_SIZE * 3 - 1L));
+        assertThat(ringBuffer.remainingCapacity(), is((long) BUFFER_SIZE));
+        assertThat(ringBuffer.get(BUFFER_SIZE * 3 - 1L).get(), is(BUFFER_SIZE * 3 - 1L));
+    }
+
+    @Test
+    public void shouldNotReportOverwrittenSequencesAsAvailable() throws Exception
+    {
+        for (long i = 0; i < BUFFER_SIZE + 2; i++)
+        {
+            ringBuffer.publishEvent(TRANSLATOR, i);
+        }
+
+        assertFalse(ringBuffer.isPublished(1L));
+        assertTrue(ringBuffer.isPublished(2L));
+        assertTrue(ringBuffer.isPublished(BUFFER_SIZE + 1L));
+        assertFalse(ringBuffer.isPublished(BUFFER_SIZE + 2L));
+    }
+
+    @Test
+    public void shouldSkipOverwrittenEventsAndReportLoss() throws Exception
+    {
+        final LossCountingHandler handler = new LossCountingHandler(BUFFER_SIZE);
+        final BatchEventProcessor<LongEvent> processor =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), handler);
+
+        final long published = BUFFER_SIZE * 2 + 4;
+        for (long i = 0; i < published; i++)
+        {
+            ringBuffer.publishEvent(TRANSLATOR, i);
+        }
+
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+
+        processor.halt();
+        thread.join();
+
+        assertThat(handler.lostFrom, is(0L));
+        assertThat(handler.lostCount, is(published - BUFFER_SIZE));
+        assertThat(handler.values.get(0), is(published - BUFFER_SIZE));
+        assertThat(handler.values.get(BUFFER_SIZE - 1), is(published - 1));
+        assertThat(processor.getSequence().get(), is(published - 1));
+    }
+
+    @Test
+    public void shouldReportEventOverwrittenWhileItWasBeingHandled() throws Exception
+    {
+        final LossCountingHandler handler = new LossCountingHandler(BUFFER_SIZE + 1)
+        {
+            @Override
+            public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+            {
+                super.onEvent(event, sequence, endOfBatch);
+                if (sequence == 0)
+                {
+                    // 处理第一个事件时，生产者绕了一圈覆盖了它
+                    for (long i = 1; i <= BUFFER_SIZE; i++)
+                    {
+                        ringBuffer.publishEvent(TRANSLATOR, i);
+                    }
+                }
+            }
+        };
+        final BatchEventProcessor<LongEvent> processor =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), handler);
+
+        ringBuffer.publishEvent(TRANSLATOR, 0L);
+
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+
+        processor.halt();
+        thread.join();
+
+        assertThat(handler.lostFrom, is(0L));
+        assertThat(handler.lostCount, is(1L));
+        assertThat(handler.values.get(0), is(0L));
+        assertThat(handler.values.get(BUFFER_SIZE), is((long) BUFFER_SIZE));
+    }
+
+    private static class LossCountingHandler implements EventHandler<LongEvent>, EventLossAware
+    {
+        private final List<Long> values = new ArrayList<>();
+        private final CountDownLatch latch;
+        private long lostFrom = -1;
+        private long lostCount = 0;
+
+        LossCountingHandler(final int expected)
+        {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+        {
+            values.add(event.get());
+            latch.countDown();
+        }
+
+        @Override
+        public void onEventsLost(final long sequence, final long count)
+        {
+            if (lostFrom < 0)
+            {
+                lostFrom = sequence;
+            }
+            lostCount += count;
+        }
+    }
+}
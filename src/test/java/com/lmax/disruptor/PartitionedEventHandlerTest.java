@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.support.LongEvent;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+public final class PartitionedEventHandlerTest
+{
+    private static final Partitioner<LongEvent> BY_VALUE = new Partitioner<LongEvent>()
+    {
+        @Override
+        public int partition(final LongEvent event)
+        {
+            return (int) event.get();
+        }
+    };
+
+    @Test
+    public void shouldOnlyHandleEventsOfOwnPartitionAndEndBatchOnLastOfThem() throws Exception
+    {
+        final RecordingHandler handler = new RecordingHandler();
+        final PartitionedEventHandler<LongEvent> partitionedHandler =
+            new PartitionedEventHandler<LongEvent>(BY_VALUE, 1, 3, handler);
+
+        final long[] values = {1, 2, 4, 3, 7, 5};
+        for (int i = 0; i < values.length; i++)
+        {
+            partitionedHandler.onEvent(event(values[i]), i, i == values.length - 1);
+        }
+
+        assertThat(handler.sequences, is(Arrays.asList(0L, 2L, 4L)));
+        assertThat(handler.endOfBatches, is(Arrays.asList(false, false, true)));
+    }
+
+    @Test
+    public void shouldMapNegativeKeysToValidPartition() throws Exception
+    {
+        final RecordingHandler handler = new RecordingHandler();
+        final PartitionedEventHandler<LongEvent> partitionedHandler =
+            new PartitionedEventHandler<LongEvent>(BY_VALUE, 1, 2, handler);
+
+        partitionedHandler.onEvent(event(-1), 0, true);
+
+        assertThat(handler.sequences, is(Arrays.asList(0L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPartitionOutOfRange() throws Exception
+    {
+        new PartitionedEventHandler<LongEvent>(BY_VALUE, 2, 2, new RecordingHandler());
+    }
+
+    @Test
+    public void shouldHandleEachKeyInOrderOnOnePartitionThroughDsl() throws Exception
+    {
+        final int partitions = 3;
+        final int events = 300;
+        final Disruptor<LongEvent> disruptor = new Disruptor<LongEvent>(LongEvent.FACTORY, 64, DaemonThreadFactory.INSTANCE);
+        final RecordingHandler[] handlers = new RecordingHandler[partitions];
+        for (int i = 0; i < partitions; i++)
+        {
+            handlers[i] = new RecordingHandler();
+        }
+        final CountDownLatch latch = new CountDownLatch(events);
+        disruptor.handleEventsWithPartitions(BY_VALUE, handlers).then(
+            new EventHandler<LongEvent>()
+            {
+                @Override
+                public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    latch.countDown();
+                }
+            });
+        final RingBuffer<LongEvent> ringBuffer = disruptor.start();
+
+        for (int i = 0; i < events; i++)
+        {
+            final long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(i % 7);
+            ringBuffer.publish(sequence);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        disruptor.shutdown(2, TimeUnit.SECONDS);
+
+        int handled = 0;
+        for (int i = 0; i < partitions; i++)
+        {
+            long lastSequence = -1;
+            for (final long sequence : handlers[i].sequences)
+            {
+                assertThat((sequence % 7) % partitions, is((long) i));
+                assertTrue(sequence > lastSequence);
+                lastSequence = sequence;
+            }
+            handled += handlers[i].sequences.size();
+        }
+        assertThat(handled, is(events));
+    }
+
+    private static LongEvent event(final long value)
+    {
+        final LongEvent event = new LongEvent();
+        event.set(value);
+        return event;
+    }
+
+    private static final class RecordingHandler implements EventHandler<LongEvent>
+    {
+        private final List<Long> sequences = new ArrayList<Long>();
+        private final List<Boolean> endOfBatches = new ArrayList<Boolean>();
+
+        @Override
+        public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+        {
+            sequences.add(sequence);
+            endOfBatches.add(endOfBatch);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.StubEvent;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class ProducerWaitStrategyTest
+{
+    private static final int BUFFER_SIZE = 4;
+
+    private final ProducerType producerType;
+    private final ProducerWaitStrategy producerWaitStrategy;
+
+    public ProducerWaitStrategyTest(final ProducerType producerType, final ProducerWaitStrategy producerWaitStrategy)
+    {
+        this.producerType = producerType;
+        this.producerWaitStrategy = producerWaitStrategy;
+    }
+
+    @Parameters
+    public static Collection<Object[]> generateData()
+    {
+        // the long timeout of the blocking strategy means only a signal from the processor can release the publisher in time
+        Object[][] strategies =
+            {
+                {ProducerType.SINGLE, new SleepingProducerWaitStrategy()},
+                {ProducerType.SINGLE, new BusySpinProducerWaitStrategy()},
+                {ProducerType.SINGLE, new YieldingProducerWaitStrategy()},
+                {ProducerType.SINGLE, PhasedBackoffProducerWaitStrategy.withLock(1, 1, TimeUnit.MILLISECONDS)},
+                {ProducerType.SINGLE, new BlockingProducerWaitStrategy(30, TimeUnit.SECONDS)},
+                {ProducerType.MULTI, new BlockingProducerWaitStrategy(30, TimeUnit.SECONDS)},
+                {ProducerType.MULTI_FETCH_ADD, new BlockingProducerWaitStrategy(30, TimeUnit.SECONDS)},
+            };
+        return Arrays.asList(strategies);
+    }
+
+    @Test
+    public void shouldWaitForGatingSequenceToReachWrapPoint() throws Exception
+    {
+        final Sequence gatingSequence = new Sequence(0);
+        final Thread thread = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep(50);
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    gatingSequence.set(10);
+                    producerWaitStrategy.signalAllWhenBlocking();
+                }
+            });
+        thread.start();
+
+        assertThat(producerWaitStrategy.waitFor(10, gatingSequence), is(10L));
+        thread.join();
+    }
+
+    @Test
+    public void shouldReleasePublisherWhenProcessorAdvances() throws Exception
+    {
+        final RingBuffer<StubEvent> ringBuffer = RingBuffer.create(
+            producerType, StubEvent.EVENT_FACTORY, BUFFER_SIZE, new BlockingWaitStrategy(), producerWaitStrategy);
+        final BatchEventProcessor<StubEvent> processor = new BatchEventProcessor<StubEvent>(
+            ringBuffer, ringBuffer.newBarrier(), new EventHandler<StubEvent>()
+            {
+                @Override
+                public void onEvent(final StubEvent event, final long sequence, final boolean endOfBatch)
+                {
+                }
+            });
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        for (int i = 0; i < BUFFER_SIZE; i++)
+        {
+            ringBuffer.publish(ringBuffer.next());
+        }
+
+        final CountDownLatch publishedLatch = new CountDownLatch(1);
+        final Thread publisher = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ringBuffer.publish(ringBuffer.next());
+                    publishedLatch.countDown();
+                }
+            });
+        publisher.start();
+
+        assertFalse(publishedLatch.await(50, TimeUnit.MILLISECONDS));
+
+        final Thread processorThread = new Thread(processor);
+        processorThread.start();
+
+        assertTrue(publishedLatch.await(5, TimeUnit.SECONDS));
+
+        processor.halt();
+        processorThread.join();
+        publisher.join();
+    }
+}
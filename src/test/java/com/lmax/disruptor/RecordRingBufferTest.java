@@ -0,0 +1,202 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RecordRingBufferTest
+{
+    private final List<String> read = new ArrayList<String>();
+    private final EventHandler<OffHeapEvent> recorder = new EventHandler<OffHeapEvent>()
+    {
+        @Override
+        public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+        {
+            final byte[] bytes = new byte[event.size()];
+            event.getBytes(0, bytes, 0, bytes.length);
+            read.add(sequence + ":" + new String(bytes) + (endOfBatch ? "." : ""));
+        }
+    };
+
+    @Test
+    public void shouldReadVariableLengthRecordsInOrder() throws Exception
+    {
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createSingleProducer(256);
+        final OffHeapEvent record = ringBuffer.newRecord();
+
+        assertTrue(write(ringBuffer, record, "a"));
+        assertTrue(write(ringBuffer, record, "bcdefghijk"));
+        assertTrue(write(ringBuffer, record, ""));
+
+        assertThat(ringBuffer.read(recorder, 10), is(3));
+        assertThat(read.toString(), is("[0:a, 16:bcdefghijk, 40:.]"));
+        assertThat(ringBuffer.size(), is(0));
+    }
+
+    @Test
+    public void shouldPadTheEndOfTheBufferAndWrap() throws Exception
+    {
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createSingleProducer(256);
+        final OffHeapEvent record = ringBuffer.newRecord();
+        final String thirty = "012345678901234567890123456789";
+
+        for (int i = 0; i < 6; i++)
+        {
+            assertTrue(write(ringBuffer, record, thirty));
+        }
+        assertThat(ringBuffer.read(recorder, 10), is(6));
+
+        assertTrue(write(ringBuffer, record, thirty));
+        assertThat(record.getSequence(), is(256L));
+        assertThat(ringBuffer.getProducerPosition(), is(296L));
+
+        read.clear();
+        assertThat(ringBuffer.read(recorder, 10), is(0));
+        assertThat(ringBuffer.read(recorder, 10), is(1));
+        assertThat(read.toString(), is("[256:" + thirty + ".]"));
+    }
+
+    @Test
+    public void shouldRefuseClaimsThatWouldOverwriteUnreadRecords() throws Exception
+    {
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createMultiProducer(64);
+        final OffHeapEvent record = ringBuffer.newRecord();
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(write(ringBuffer, record, "12345678"));
+        }
+        assertFalse(ringBuffer.tryClaim(0, record));
+
+        assertThat(ringBuffer.read(recorder, 1), is(1));
+        assertTrue(write(ringBuffer, record, "12345678"));
+    }
+
+    @Test
+    public void shouldStopBehindUncommittedRecordsAndSkipAborted() throws Exception
+    {
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createMultiProducer(256);
+        final OffHeapEvent first = ringBuffer.newRecord();
+        final OffHeapEvent second = ringBuffer.newRecord();
+        final OffHeapEvent third = ringBuffer.newRecord();
+
+        assertTrue(ringBuffer.tryClaim(1, first));
+        assertTrue(ringBuffer.tryClaim(1, second));
+        assertTrue(ringBuffer.tryClaim(1, third));
+        first.putByte(0, (byte) 'x');
+        third.putByte(0, (byte) 'z');
+        ringBuffer.commit(third);
+        ringBuffer.abort(second);
+
+        assertThat(ringBuffer.read(recorder, 10), is(0));
+
+        ringBuffer.commit(first);
+        assertThat(ringBuffer.read(recorder, 10), is(2));
+        assertThat(read.toString(), is("[0:x, 32:z.]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRecordsLongerThanAnEighthOfTheCapacity() throws Exception
+    {
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createSingleProducer(256);
+        ringBuffer.tryClaim(33, ringBuffer.newRecord());
+    }
+
+    @Test
+    public void shouldKeepEachProducersRecordsInOrder() throws Exception
+    {
+        final int producers = 3;
+        final int iterations = 5000;
+        final RecordRingBuffer ringBuffer = RecordRingBuffer.createMultiProducer(1024);
+        final CyclicBarrier barrier = new CyclicBarrier(producers);
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++)
+        {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    final OffHeapEvent record = ringBuffer.newRecord();
+                    try
+                    {
+                        barrier.await();
+                    }
+                    catch (final Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    for (int i = 0; i < iterations; i++)
+                    {
+                        while (!ringBuffer.tryClaim(8 + (i % 5) * 8, record))
+                        {
+                            Thread.yield();
+                        }
+                        record.putInt(0, producer);
+                        record.putInt(4, i);
+                        ringBuffer.commit(record);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        final int[] next = new int[producers];
+        final EventHandler<OffHeapEvent> checker = new EventHandler<OffHeapEvent>()
+        {
+            @Override
+            public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+            {
+                final int producer = event.getInt(0);
+                final int value = event.getInt(4);
+                assertThat(value, is(next[producer]));
+                assertThat(event.size(), is(8 + (value % 5) * 8));
+                next[producer]++;
+            }
+        };
+
+        int remaining = producers * iterations;
+        while (remaining > 0)
+        {
+            remaining -= ringBuffer.read(checker, 64);
+        }
+
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+        for (int p = 0; p < producers; p++)
+        {
+            assertThat(next[p], is(iterations));
+        }
+    }
+
+    private static boolean write(final RecordRingBuffer ringBuffer, final OffHeapEvent record, final String value)
+    {
+        final byte[] bytes = value.getBytes();
+        return ringBuffer.write(bytes, 0, bytes.length, record);
+    }
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
@@ -35,6 +36,13 @@ import com.lmax.disruptor.util.DaemonThreadFactory;
 
 public class RingBufferTest {
 
+    private static final EventTranslator<StubEvent> PADDING = new EventTranslator<StubEvent>() {
+        @Override
+        public void translateTo(final StubEvent event, final long sequence) {
+            event.setValue(-1);
+        }
+    };
+
     private final ExecutorService       executor        = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
     private final RingBuffer<StubEvent> ringBuffer      = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 32);
     private final SequenceBarrier       sequenceBarrier = ringBuffer.newBarrier();
@@ -69,6 +77,19 @@ public class RingBufferTest {
         assertEquals(expectedEvent, messages.get().get(0));
     }
 
+    @Test
+    public void shouldNotReportUnclaimedSequencesAsPublished() throws Exception {
+        RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 8);
+
+        assertFalse(ringBuffer.isPublished(8));
+        assertFalse(ringBuffer.isPublished(24));
+
+        ringBuffer.publishEvent(StubEvent.TRANSLATOR, 1, "1");
+
+        assertTrue(ringBuffer.isPublished(0));
+        assertFalse(ringBuffer.isPublished(16));
+    }
+
     @Test
     public void shouldClaimAndGetMultipleMessages() throws Exception {
         int numMessages = ringBuffer.getBufferSize();
@@ -85,6 +106,64 @@ public class RingBufferTest {
         }
     }
 
+    @Test
+    public void shouldPadReleasedLeaseWithoutMovingCursorBack() throws Exception {
+        final RingBuffer<StubEvent> leasing =
+            RingBuffer.createLeasingMultiProducer(StubEvent.EVENT_FACTORY, 32, new BlockingWaitStrategy(), 8, PADDING);
+        final SequenceBarrier barrier = leasing.newBarrier();
+
+        leasing.publishEvent(StubEvent.TRANSLATOR, 1, "");
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                leasing.publishEvent(StubEvent.TRANSLATOR, 2, "");
+                leasing.releaseLease();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertEquals(0, barrier.waitFor(0));
+        assertEquals(7, leasing.releaseLease());
+        assertEquals(15, barrier.waitFor(8));
+        assertEquals(-1, leasing.get(7).getValue());
+        assertEquals(2, leasing.get(8).getValue());
+        assertEquals(-1, leasing.get(15).getValue());
+        assertEquals(15, leasing.getCursor());
+    }
+
+    @Test
+    public void shouldPublishBatchesOfAnySizeFromLease() throws Exception {
+        final RingBuffer<StubEvent> leasing =
+            RingBuffer.createLeasingMultiProducer(StubEvent.EVENT_FACTORY, 32, new BlockingWaitStrategy(), 8, PADDING);
+        final SequenceBarrier barrier = leasing.newBarrier();
+        final Integer[] values = {3, 3, 3, 3, 3, 3};
+        final String[] names = {"", "", "", "", "", ""};
+
+        leasing.publishEvents(StubEvent.TRANSLATOR, values, names);
+        leasing.publishEvents(StubEvent.TRANSLATOR, values, names);
+        leasing.publishEvent(StubEvent.TRANSLATOR, 4, "");
+
+        assertEquals(12, barrier.waitFor(12));
+        assertEquals(3, leasing.get(11).getValue());
+        assertEquals(4, leasing.get(12).getValue());
+    }
+
+    @Test
+    public void shouldGiveUpTimedPublishWhenFull() throws Exception {
+        final RingBuffer<StubEvent> ringBuffer = RingBuffer.createMultiProducer(StubEvent.EVENT_FACTORY, 4);
+        ringBuffer.addGatingSequences(new Sequence());
+
+        for (int i = 0; i < ringBuffer.getBufferSize(); i++) {
+            assertTrue(ringBuffer.tryPublishEvent(StubEvent.TRANSLATOR, i, "", 10, TimeUnit.MILLISECONDS));
+        }
+
+        final long start = System.nanoTime();
+        assertFalse(ringBuffer.tryPublishEvent(StubEvent.TRANSLATOR, -1, "", 10, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(ringBuffer.getBufferSize() - 1, ringBuffer.getCursor());
+    }
+
     @Test
     public void shouldWrap() throws Exception {
         int numMessages = ringBuffer.getBufferSize();
@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -82,6 +83,11 @@ public class RingBufferWithAssertingStubTest {
             return lastValue;
         }
 
+        @Override
+        public long next(int n, long timeout, TimeUnit unit) {
+            return next(n);
+        }
+
         @Override
         public long tryNext() throws InsufficientCapacityException {
             return next();
@@ -104,6 +110,15 @@ public class RingBufferWithAssertingStubTest {
             assertThat((hi - lo) + 1, is(lastBatchSize));
         }
 
+        @Override
+        public void publishDeferred(long lo, long hi) {
+            publish(lo, hi);
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+
         @Override
         public long getCursor() {
             return lastValue;
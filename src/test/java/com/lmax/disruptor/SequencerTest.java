@@ -10,9 +10,13 @@ import org.junit.runners.Parameterized.Parameters;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
@@ -40,6 +44,7 @@ public class SequencerTest
             {
                 {ProducerType.SINGLE, new BlockingWaitStrategy()},
                 {ProducerType.MULTI, new BlockingWaitStrategy()},
+                {ProducerType.MULTI_FETCH_ADD, new BlockingWaitStrategy()},
             };
         return Arrays.asList(allocators);
     }
@@ -111,7 +116,11 @@ public class SequencerTest
             });
 
         waitingLatch.await();
-        assertThat(sequencer.getCursor(), is(expectedFullSequence));
+        if (producerType != ProducerType.MULTI_FETCH_ADD)
+        {
+            // the fetch-and-add claim moves the cursor before waiting for capacity
+            assertThat(sequencer.getCursor(), is(expectedFullSequence));
+        }
 
         gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 1L);
 
@@ -119,6 +128,50 @@ public class SequencerTest
         assertThat(sequencer.getCursor(), is(expectedFullSequence + 1L));
     }
 
+    @Test
+    public void shouldTimeOutTimedClaimWhenBufferIsFull() throws Exception
+    {
+        sequencer.addGatingSequences(gatingSequence);
+        long sequence = sequencer.next(BUFFER_SIZE);
+        sequencer.publish(sequence - (BUFFER_SIZE - 1), sequence);
+
+        try
+        {
+            sequencer.next(1, 10, TimeUnit.MILLISECONDS);
+            fail("Should of thrown: " + TimeoutException.class.getSimpleName());
+        }
+        catch (TimeoutException e)
+        {
+            // No-op
+        }
+
+        assertThat(sequencer.getCursor(), is(sequence));
+
+        gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 1L);
+        assertThat(sequencer.next(1, 10, TimeUnit.MILLISECONDS), is(sequence + 1L));
+    }
+
+    @Test
+    public void shouldClaimWithinTimeoutOnceCapacityIsFreed() throws Exception
+    {
+        sequencer.addGatingSequences(gatingSequence);
+        long sequence = sequencer.next(BUFFER_SIZE);
+        sequencer.publish(sequence - (BUFFER_SIZE - 1), sequence);
+
+        executor.submit(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                    gatingSequence.set(Sequencer.INITIAL_CURSOR_VALUE + 2L);
+                }
+            });
+
+        assertThat(sequencer.next(2, 5, TimeUnit.SECONDS), is(sequence + 2L));
+    }
+
     @Test(expected = InsufficientCapacityException.class)
     public void shouldThrowInsufficientCapacityExceptionWhenSequencerIsFull() throws Exception
     {
@@ -186,6 +239,54 @@ public class SequencerTest
         assertThat(waitStrategy.signalAllWhenBlockingCalls, is(1));
     }
 
+    @Test
+    public void shouldOnlyNotifyWaitStrategyWhenSignalledAfterDeferredPublish() throws Exception
+    {
+        final DummyWaitStrategy waitStrategy = new DummyWaitStrategy();
+        final Sequenced sequencer = newProducer(producerType, BUFFER_SIZE, waitStrategy);
+
+        long next = sequencer.next(4);
+        sequencer.publishDeferred(next - (4 - 1), next);
+        next = sequencer.next(4);
+        sequencer.publishDeferred(next - (4 - 1), next);
+
+        assertThat(waitStrategy.signalAllWhenBlockingCalls, is(0));
+
+        sequencer.signalAllWhenBlocking();
+
+        assertThat(waitStrategy.signalAllWhenBlockingCalls, is(1));
+    }
+
+    @Test
+    public void shouldWakeBlockedConsumerAfterDeferredPublish() throws Exception
+    {
+        final SequenceBarrier barrier = sequencer.newBarrier();
+        final long next = sequencer.next(4);
+
+        final Future<Long> waiting = executor.submit(
+            new Callable<Long>()
+            {
+                @Override
+                public Long call() throws Exception
+                {
+                    // 多生产者模式下cursor在next时已经推进，发布前可能返回较小的序号
+                    long available;
+                    while ((available = barrier.waitFor(next)) < next)
+                    {
+                        Thread.yield();
+                    }
+                    return available;
+                }
+            });
+
+        sequencer.publishDeferred(next - (4 - 1), next);
+        assertTrue(sequencer.isAvailable(next));
+
+        sequencer.signalAllWhenBlocking();
+
+        assertThat(waiting.get(2, TimeUnit.SECONDS), is(next));
+    }
+
     @Test
     public void shouldWaitOnPublication() throws Exception
     {
@@ -273,6 +374,8 @@ public class SequencerTest
                 return new SingleProducerSequencer(bufferSize, waitStrategy);
             case MULTI:
                 return new MultiProducerSequencer(bufferSize, waitStrategy);
+            case MULTI_FETCH_ADD:
+                return new MultiProducerSequencer(bufferSize, waitStrategy, true);
             default:
                 throw new IllegalStateException(producerType.toString());
         }
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.dsl.ShardedDisruptor;
+import com.lmax.disruptor.support.LongEvent;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedRingBufferTest
+{
+    private static final EventTranslatorOneArg<LongEvent, Long> TRANSLATOR =
+        new EventTranslatorOneArg<LongEvent, Long>()
+        {
+            @Override
+            public void translateTo(final LongEvent event, final long sequence, final Long value)
+            {
+                event.set(value);
+            }
+        };
+
+    private static final MergingEventProcessor.Timestamper<LongEvent> TIMESTAMPER =
+        new MergingEventProcessor.Timestamper<LongEvent>()
+        {
+            @Override
+            public long getTimestamp(final LongEvent event)
+            {
+                return event.get();
+            }
+        };
+
+    private final WaitStrategy waitStrategy = new BlockingWaitStrategy();
+    private final ShardedRingBuffer<LongEvent> ringBuffer =
+        ShardedRingBuffer.create(LongEvent.FACTORY, 2, 16, waitStrategy);
+
+    @Test
+    public void shouldBindEachPublishingThreadToItsOwnShard() throws Exception
+    {
+        final RingBuffer<LongEvent> mine = ringBuffer.getShardForCurrentThread();
+        assertThat(ringBuffer.getShardForCurrentThread(), sameInstance(mine));
+
+        final AtomicReference<RingBuffer<LongEvent>> other = new AtomicReference<>();
+        final Thread thread = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    other.set(ringBuffer.getShardForCurrentThread());
+                }
+            });
+        thread.start();
+        thread.join();
+
+        assertThat(other.get(), not(sameInstance(mine)));
+    }
+
+    @Test
+    public void shouldRejectMorePublishingThreadsThanShards() throws Exception
+    {
+        final RingBuffer<LongEvent> mine = ringBuffer.getShardForCurrentThread();
+
+        final CountDownLatch bound = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread holder = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ringBuffer.getShardForCurrentThread();
+                    bound.countDown();
+                    try
+                    {
+                        release.await();
+                    }
+                    catch (final InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    ringBuffer.releaseShardForCurrentThread();
+                }
+            });
+        holder.start();
+        assertTrue(bound.await(2, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertTrue(bindFromNewThread() instanceof IllegalStateException);
+        }
+
+        release.countDown();
+        holder.join();
+
+        assertThat(bindFromNewThread(), is(sameInstance((Object) ringBuffer.getShard(1))));
+        assertThat(ringBuffer.getShardForCurrentThread(), sameInstance(mine));
+    }
+
+    @Test
+    public void shouldRebindReleasedShard() throws Exception
+    {
+        final RingBuffer<LongEvent> mine = ringBuffer.getShardForCurrentThread();
+        final Object otherShard = bindFromNewThread();
+
+        ringBuffer.releaseShardForCurrentThread();
+        ringBuffer.releaseShardForCurrentThread();
+
+        assertThat(bindFromNewThread(), is(sameInstance((Object) mine)));
+        assertThat(ringBuffer.getShardForCurrentThread(), sameInstance(mine));
+        assertThat(otherShard, not(sameInstance((Object) mine)));
+    }
+
+    @Test
+    public void shouldReclaimShardsOfTerminatedPublishersWhenThreadsOutnumberShards() throws Exception
+    {
+        final CollectingHandler handler = new CollectingHandler(5);
+        final MergingEventProcessor<LongEvent> processor =
+            new MergingEventProcessor<>(providers(), ringBuffer.newBarriers(), waitStrategy, handler, 2);
+        ringBuffer.addGatingSequences(processor.getSequences());
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < 5; i++)
+        {
+            final long value = i;
+            final Thread publisher = new Thread(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            ringBuffer.publishEvent(TRANSLATOR, value);
+                        }
+                        catch (final Throwable ex)
+                        {
+                            failure.set(ex);
+                        }
+                    }
+                });
+            publisher.start();
+            publisher.join();
+        }
+
+        run(processor, handler);
+
+        assertThat(failure.get(), is((Throwable) null));
+        assertThat(handler.values, is(Arrays.asList(0L, 1L, 2L, 3L, 4L)));
+    }
+
+    @Test
+    public void shouldMergeShardsRoundRobinWithBatchLimit() throws Exception
+    {
+        publish(ringBuffer.getShard(0), 0L, 1L, 2L);
+        publish(ringBuffer.getShard(1), 10L, 11L);
+
+        final CollectingHandler handler = new CollectingHandler(5);
+        final MergingEventProcessor<LongEvent> processor =
+            new MergingEventProcessor<>(providers(), ringBuffer.newBarriers(), waitStrategy, handler, 2);
+
+        run(processor, handler);
+
+        assertThat(handler.values, is(Arrays.asList(0L, 1L, 10L, 11L, 2L)));
+        assertThat(handler.endOfBatches, is(Arrays.asList(false, true, false, true, true)));
+        assertThat(processor.getSequences()[0].get(), is(2L));
+        assertThat(processor.getSequences()[1].get(), is(1L));
+        assertThat(processor.getSequence().get(), is(1L));
+    }
+
+    @Test
+    public void shouldWakeIdleProcessorWhenAnyShardPublishes() throws Exception
+    {
+        final CollectingHandler handler = new CollectingHandler(1);
+        final MergingEventProcessor<LongEvent> processor =
+            new MergingEventProcessor<>(providers(), ringBuffer.newBarriers(), waitStrategy, handler, 2);
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        while (thread.getState() != Thread.State.WAITING)
+        {
+            Thread.yield();
+        }
+        publish(ringBuffer.getShard(1), 10L);
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertThat(handler.values, is(Arrays.asList(10L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWakePublisherBlockedOnFullShardWhenProcessorConsumes() throws Exception
+    {
+        final RingBuffer<LongEvent>[] shards = new RingBuffer[2];
+        for (int i = 0; i < shards.length; i++)
+        {
+            shards[i] = RingBuffer.create(
+                ProducerType.SINGLE, LongEvent.FACTORY, 4, waitStrategy,
+                new BlockingProducerWaitStrategy(10, TimeUnit.SECONDS));
+        }
+        final ShardedRingBuffer<LongEvent> sharded = new ShardedRingBuffer<>(shards);
+
+        final CollectingHandler handler = new CollectingHandler(5);
+        final MergingEventProcessor<LongEvent> processor = new MergingEventProcessor<>(
+            new DataProvider[] {shards[0], shards[1]}, sharded.newBarriers(), waitStrategy, handler, 2);
+        sharded.addGatingSequences(processor.getSequences());
+
+        publish(shards[0], 0L, 1L, 2L, 3L);
+        final Thread publisher = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    publish(shards[0], 4L);
+                }
+            });
+        publisher.start();
+        while (publisher.getState() != Thread.State.TIMED_WAITING)
+        {
+            Thread.yield();
+        }
+
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        publisher.join(2000);
+        assertThat(publisher.isAlive(), is(false));
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertThat(handler.values, is(Arrays.asList(0L, 1L, 2L, 3L, 4L)));
+    }
+
+    @Test
+    public void shouldMergeShardsInTimestampOrder() throws Exception
+    {
+        publish(ringBuffer.getShard(0), 1L, 4L, 5L);
+        publish(ringBuffer.getShard(1), 2L, 3L, 6L);
+
+        final CollectingHandler handler = new CollectingHandler(6);
+        final MergingEventProcessor<LongEvent> processor =
+            new MergingEventProcessor<>(providers(), ringBuffer.newBarriers(), waitStrategy, handler, TIMESTAMPER);
+
+        run(processor, handler);
+
+        assertThat(handler.values, is(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertThat(handler.endOfBatches.get(5), is(true));
+    }
+
+    @Test
+    public void shouldDeliverEventsFromEveryPublisherThroughDsl() throws Exception
+    {
+        final ShardedDisruptor<LongEvent> disruptor = new ShardedDisruptor<>(
+            LongEvent.FACTORY, 16, 2, DaemonThreadFactory.INSTANCE, new BlockingWaitStrategy(), 4);
+        final CollectingHandler handler = new CollectingHandler(200);
+        disruptor.handleEventsWith(handler);
+        disruptor.start();
+
+        final Thread[] publishers = new Thread[2];
+        for (int i = 0; i < publishers.length; i++)
+        {
+            final long base = i * 1000L;
+            publishers[i] = new Thread(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (long value = base; value < base + 100; value++)
+                        {
+                            disruptor.publishEvent(TRANSLATOR, value);
+                        }
+                    }
+                });
+            publishers[i].start();
+        }
+        for (final Thread publisher : publishers)
+        {
+            publisher.join();
+        }
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+        disruptor.shutdown();
+
+        long expectedLow = 0L;
+        long expectedHigh = 1000L;
+        for (final long value : handler.values)
+        {
+            if (value < 1000L)
+            {
+                assertThat(value, is(expectedLow++));
+            }
+            else
+            {
+                assertThat(value, is(expectedHigh++));
+            }
+        }
+        assertThat(expectedLow, is(100L));
+        assertThat(expectedHigh, is(1100L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataProvider<LongEvent>[] providers()
+    {
+        return new DataProvider[] {ringBuffer.getShard(0), ringBuffer.getShard(1)};
+    }
+
+    private Object bindFromNewThread() throws InterruptedException
+    {
+        final AtomicReference<Object> result = new AtomicReference<>();
+        final Thread thread = new Thread(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        result.set(ringBuffer.getShardForCurrentThread());
+                    }
+                    catch (final Throwable ex)
+                    {
+                        result.set(ex);
+                    }
+                }
+            });
+        thread.start();
+        thread.join();
+
+        return result.get();
+    }
+
+    private static void publish(final RingBuffer<LongEvent> shard, final long... values)
+    {
+        for (final long value : values)
+        {
+            shard.publishEvent(TRANSLATOR, value);
+        }
+    }
+
+    private static void run(final MergingEventProcessor<LongEvent> processor, final CollectingHandler handler)
+        throws InterruptedException
+    {
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+
+        processor.halt();
+        thread.join();
+    }
+
+    private static final class CollectingHandler implements EventHandler<LongEvent>
+    {
+        private final List<Long> values = new ArrayList<>();
+        private final List<Boolean> endOfBatches = new ArrayList<>();
+        private final CountDownLatch latch;
+
+        CollectingHandler(final int expected)
+        {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+        {
+            values.add(event.get());
+            endOfBatches.add(endOfBatch);
+            latch.countDown();
+        }
+    }
+}
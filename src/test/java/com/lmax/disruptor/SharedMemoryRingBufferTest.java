@@ -0,0 +1,289 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SharedMemoryRingBufferTest
+{
+    private final File file;
+
+    public SharedMemoryRingBufferTest() throws Exception
+    {
+        file = File.createTempFile("shared-ring", ".dat");
+    }
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void shouldDeliverEventsToConsumerOfAnotherMapping() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 16, 8, 2);
+        final SharedMemoryRingBuffer.Consumer consumer = SharedMemoryRingBuffer.open(file).attachConsumer();
+
+        final CountDownLatch latch = new CountDownLatch(100);
+        final AtomicLong sum = new AtomicLong();
+        final BatchEventProcessor<OffHeapEvent> processor = consumer.newEventProcessor(
+            new EventHandler<OffHeapEvent>()
+            {
+                @Override
+                public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    sum.addAndGet(event.getLong(0));
+                    latch.countDown();
+                }
+            }, new YieldingWaitStrategy());
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        final DataProvider<OffHeapEvent> events = producer.newEventProvider();
+        for (int i = 0; i < 100; i++)
+        {
+            final long sequence = producer.next();
+            events.get(sequence).putLong(0, i);
+            producer.publish(sequence);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertThat(sum.get(), is(4950L));
+
+        processor.halt();
+        thread.join();
+        assertThat(consumer.getSequence().get(), is(99L));
+    }
+
+    @Test
+    public void shouldEvictConsumerThatHoldsUpTheProducerWithoutHeartbeating() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 4, 8, 1);
+        producer.setConsumerTimeout(50, TimeUnit.MILLISECONDS);
+        final SharedMemoryRingBuffer.Consumer consumer = SharedMemoryRingBuffer.open(file).attachConsumer();
+
+        for (int i = 0; i < 4; i++)
+        {
+            producer.publish(producer.next());
+        }
+        try
+        {
+            producer.tryNext();
+            fail("Ring should be full");
+        }
+        catch (InsufficientCapacityException e)
+        {
+            // expected
+        }
+
+        producer.publish(producer.next());
+
+        assertFalse(consumer.isAttached());
+        assertFalse(consumer.heartbeat());
+    }
+
+    @Test
+    public void shouldKeepSlowConsumerAttachedWhileItHandlesABatch() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 8, 8, 1);
+        producer.setConsumerTimeout(100, TimeUnit.MILLISECONDS);
+        final SharedMemoryRingBuffer.Consumer consumer = SharedMemoryRingBuffer.open(file).attachConsumer();
+
+        final CountDownLatch latch = new CountDownLatch(24);
+        final BatchEventProcessor<OffHeapEvent> processor = consumer.newEventProcessor(
+            new EventHandler<OffHeapEvent>()
+            {
+                @Override
+                public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+                    throws Exception
+                {
+                    Thread.sleep(20);
+                    latch.countDown();
+                }
+            }, new YieldingWaitStrategy());
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        for (int i = 0; i < 24; i++)
+        {
+            producer.publish(producer.next());
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(consumer.isAttached());
+
+        processor.halt();
+        thread.join();
+    }
+
+    @Test
+    public void shouldHaltWithoutAdvancingWhenEvictedWhileHandlingEvent() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 4, 8, 1);
+        producer.setConsumerTimeout(50, TimeUnit.MILLISECONDS);
+        final SharedMemoryRingBuffer.Consumer consumer = SharedMemoryRingBuffer.open(file).attachConsumer();
+
+        final CountDownLatch handling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicLong handled = new AtomicLong();
+        final AtomicLong reported = new AtomicLong();
+        final BatchEventProcessor<OffHeapEvent> processor = consumer.newEventProcessor(
+            new EventHandler<OffHeapEvent>()
+            {
+                @Override
+                public void onEvent(final OffHeapEvent event, final long sequence, final boolean endOfBatch)
+                    throws Exception
+                {
+                    handled.incrementAndGet();
+                    handling.countDown();
+                    release.await();
+                }
+            }, new YieldingWaitStrategy());
+        processor.setExceptionHandler(
+            new ExceptionHandler<Object>()
+            {
+                @Override
+                public void handleEventException(final Throwable ex, final long sequence, final Object event)
+                {
+                    reported.incrementAndGet();
+                }
+
+                @Override
+                public void handleOnStartException(final Throwable ex)
+                {
+                }
+
+                @Override
+                public void handleOnShutdownException(final Throwable ex)
+                {
+                }
+            });
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        producer.publish(producer.next());
+        assertTrue(handling.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++)
+        {
+            producer.publish(producer.next());
+        }
+        assertFalse(consumer.isAttached());
+
+        release.countDown();
+        thread.join(2000);
+
+        assertFalse(thread.isAlive());
+        assertThat(handled.get(), is(1L));
+        assertThat(reported.get(), is(0L));
+        assertThat(consumer.getSequence().get(), is(Sequencer.INITIAL_CURSOR_VALUE));
+    }
+
+    @Test
+    public void shouldResumeEntryOfConsumerThatStoppedHeartbeating() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 16, 8, 1);
+        final SharedMemoryRingBuffer.Consumer crashed = SharedMemoryRingBuffer.open(file).attachConsumer(0);
+        for (int i = 0; i < 8; i++)
+        {
+            producer.publish(producer.next());
+        }
+        crashed.getSequence().set(3);
+
+        final SharedMemoryRingBuffer restarted = SharedMemoryRingBuffer.open(file);
+        try
+        {
+            restarted.attachConsumer(0);
+            fail("Entry should still be held");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        restarted.setConsumerTimeout(10, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        final SharedMemoryRingBuffer.Consumer resumed = restarted.attachConsumer(0);
+
+        assertThat(resumed.getSequence().get(), is(3L));
+        assertTrue(resumed.isAttached());
+        assertFalse(crashed.isAttached());
+    }
+
+    @Test
+    public void shouldFreeEntryWhenConsumerDetaches() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 16, 8, 1);
+        final SharedMemoryRingBuffer.Consumer consumer = producer.attachConsumer();
+        try
+        {
+            producer.attachConsumer();
+            fail("All entries should be taken");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        for (int i = 0; i < 20; i++)
+        {
+            if (i == 4)
+            {
+                consumer.detach();
+            }
+            producer.publish(producer.next());
+        }
+
+        final SharedMemoryRingBuffer.Consumer next = producer.attachConsumer();
+        assertThat(next.getIndex(), is(0));
+        assertThat(next.getSequence().get(), is(19L));
+    }
+
+    @Test
+    public void shouldLetRestartedProducerCarryOnFromTheCursor() throws Exception
+    {
+        final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(file, 16, 8, 1);
+        for (int i = 0; i < 5; i++)
+        {
+            producer.publish(producer.next());
+        }
+        producer.detachProducer();
+
+        final SharedMemoryRingBuffer restarted = SharedMemoryRingBuffer.open(file);
+        assertFalse(restarted.isProducerAlive(1, TimeUnit.SECONDS));
+        assertThat(restarted.next(), is(5L));
+        restarted.heartbeat();
+        assertTrue(restarted.isProducerAlive(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectFileWithoutRing() throws Exception
+    {
+        SharedMemoryRingBuffer.open(file);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor;
+
+import static com.lmax.disruptor.support.WaitStrategyTestUtil.assertWaitForWithDelayOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.support.DummySequenceBarrier;
+import com.lmax.disruptor.support.LongEvent;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+public class TargetedBlockingWaitStrategyTest
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+
+    @Test
+    public void shouldWaitForValue() throws Exception
+    {
+        assertWaitForWithDelayOf(50, new TargetedBlockingWaitStrategy());
+    }
+
+    @Test
+    public void shouldOnlyReleaseConsumerWhoseTargetIsReachable() throws Exception
+    {
+        final TargetedBlockingWaitStrategy waitStrategy = new TargetedBlockingWaitStrategy();
+        final Sequence cursor = new Sequence(0);
+        final Sequence upstreamA = new Sequence();
+        final Sequence upstreamB = new Sequence();
+
+        final Future<Long> waiterA = executor.submit(waitFor(waitStrategy, cursor, upstreamA));
+        final Future<Long> waiterB = executor.submit(waitFor(waitStrategy, cursor, upstreamB));
+
+        upstreamA.set(0);
+        waitStrategy.signalAllWhenBlocking();
+
+        assertThat(waiterA.get(2, TimeUnit.SECONDS), is(0L));
+        Thread.sleep(20);
+        assertFalse(waiterB.isDone());
+
+        upstreamB.set(0);
+        waitStrategy.signalAllWhenBlocking();
+
+        assertThat(waiterB.get(2, TimeUnit.SECONDS), is(0L));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void shouldTimeOutWhenTargetIsNeverReached() throws Exception
+    {
+        final TargetedBlockingWaitStrategy waitStrategy = new TargetedBlockingWaitStrategy(10, TimeUnit.MILLISECONDS);
+        final Sequence sequence = new Sequence();
+
+        waitStrategy.waitFor(0, sequence, sequence, new DummySequenceBarrier());
+    }
+
+    @Test
+    public void shouldWakeEachStageOfPipelineAndHaltCleanly() throws Exception
+    {
+        assertPipelineDeliversEveryEvent(new TargetedBlockingWaitStrategy());
+    }
+
+    @Test
+    public void shouldWakeEachStageOfPipelineWhenWrappedInPhasedBackoff() throws Exception
+    {
+        assertPipelineDeliversEveryEvent(
+            new PhasedBackoffWaitStrategy(1, 1, TimeUnit.MICROSECONDS, new TargetedBlockingWaitStrategy()));
+    }
+
+    @Test
+    public void shouldWakeEachStageOfPipelineWhenWrappedInAdaptive() throws Exception
+    {
+        assertPipelineDeliversEveryEvent(
+            new AdaptiveWaitStrategy(1, 1, TimeUnit.MICROSECONDS, new TargetedBlockingWaitStrategy()));
+    }
+
+    @Test
+    public void shouldWakeConsumerWaitingOnEventPoller() throws Exception
+    {
+        final RingBuffer<LongEvent> ringBuffer =
+            RingBuffer.createSingleProducer(LongEvent.FACTORY, 16, new TargetedBlockingWaitStrategy());
+        final EventPoller<LongEvent> poller = ringBuffer.newPoller();
+        final SequenceBarrier barrier = ringBuffer.newBarrier(poller.getSequence());
+        final Future<Long> downstream = executor.submit(
+            new Callable<Long>()
+            {
+                @Override
+                public Long call() throws Exception
+                {
+                    return barrier.waitFor(0);
+                }
+            });
+
+        ringBuffer.publish(ringBuffer.next());
+        while (!downstream.isDone() && poller.poll(
+            new EventPoller.Handler<LongEvent>()
+            {
+                @Override
+                public boolean onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    return true;
+                }
+            }) != EventPoller.PollState.PROCESSING)
+        {
+            Thread.yield();
+        }
+
+        assertThat(downstream.get(2, TimeUnit.SECONDS), is(0L));
+    }
+
+    @Test
+    public void shouldDeregisterWaiterWhenItStopsWaiting() throws Exception
+    {
+        final TargetedBlockingWaitStrategy waitStrategy = new TargetedBlockingWaitStrategy();
+        final Sequence cursor = new Sequence();
+        final Future<Long> waiting = executor.submit(waitFor(waitStrategy, cursor, cursor));
+
+        while (!waitStrategy.toString().contains("waiters=1"))
+        {
+            Thread.yield();
+        }
+        cursor.set(0);
+        waitStrategy.signalAllWhenBlocking();
+
+        assertThat(waiting.get(2, TimeUnit.SECONDS), is(0L));
+        assertTrue(waitStrategy.toString().contains("waiters=0"));
+    }
+
+    private static void assertPipelineDeliversEveryEvent(final WaitStrategy waitStrategy) throws Exception
+    {
+        final Disruptor<LongEvent> disruptor = new Disruptor<LongEvent>(
+            LongEvent.FACTORY, 16, DaemonThreadFactory.INSTANCE, ProducerType.SINGLE, waitStrategy);
+        final CountDownLatch latch = new CountDownLatch(100);
+        final EventHandler<LongEvent> passThrough = new EventHandler<LongEvent>()
+        {
+            @Override
+            public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+            {
+                event.set(event.get() + 1);
+            }
+        };
+        disruptor.handleEventsWith(passThrough).then(passThrough).then(
+            new EventHandler<LongEvent>()
+            {
+                @Override
+                public void onEvent(final LongEvent event, final long sequence, final boolean endOfBatch)
+                {
+                    if (event.get() == 2)
+                    {
+                        latch.countDown();
+                    }
+                }
+            });
+        final RingBuffer<LongEvent> ringBuffer = disruptor.start();
+
+        for (int i = 0; i < 100; i++)
+        {
+            final long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).set(0);
+            ringBuffer.publish(sequence);
+            if (i % 10 == 0)
+            {
+                Thread.sleep(1);
+            }
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        disruptor.shutdown(2, TimeUnit.SECONDS);
+    }
+
+    private static Callable<Long> waitFor(
+        final WaitStrategy waitStrategy, final Sequence cursor, final Sequence dependentSequence)
+    {
+        return new Callable<Long>()
+        {
+            @Override
+            public Long call() throws Exception
+            {
+                return waitStrategy.waitFor(0, cursor, dependentSequence, new DummySequenceBarrier());
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.lmax.disruptor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+public class WorkStealingWorkerPoolTest {
+
+    private final Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldProcessEachMessageByOnlyOneWorker() throws Exception {
+        WorkStealingWorkerPool<AtomicLong> pool =
+            new WorkStealingWorkerPool<AtomicLong>(new AtomicLongEventFactory(), new FatalExceptionHandler(),
+                                                   new AtomicLongWorkHandler(), new AtomicLongWorkHandler(),
+                                                   new AtomicLongWorkHandler());
+
+        RingBuffer<AtomicLong> ringBuffer = pool.start(executor);
+
+        final int events = 1000;
+        for (int i = 0; i < events; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+
+        pool.drainAndHalt();
+
+        for (int i = 0; i < events; i++) {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldStealFromSlowWorker() throws Exception {
+        final CountDownLatch published = new CountDownLatch(1);
+        final CountDownLatch slowWorkerBusy = new CountDownLatch(1);
+        final WorkHandler<AtomicLong> slowHandler = new WorkHandler<AtomicLong>() {
+            private int handled = 0;
+
+            @Override
+            public void onEvent(AtomicLong event) throws Exception {
+                published.await();
+                event.incrementAndGet();
+                if (++handled >= 3) {
+                    slowWorkerBusy.countDown();
+                    Thread.sleep(1);
+                }
+            }
+        };
+        final WorkHandler<AtomicLong> fastHandler = new WorkHandler<AtomicLong>() {
+            @Override
+            public void onEvent(AtomicLong event) throws Exception {
+                slowWorkerBusy.await();
+                event.incrementAndGet();
+            }
+        };
+        WorkStealingWorkerPool<AtomicLong> pool =
+            new WorkStealingWorkerPool<AtomicLong>(new AtomicLongEventFactory(), new FatalExceptionHandler(),
+                                                   slowHandler, fastHandler);
+        pool.setMaxClaimSize(256);
+
+        RingBuffer<AtomicLong> ringBuffer = pool.start(executor);
+
+        final int events = 1000;
+        for (int i = 0; i < events; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        published.countDown();
+
+        pool.drainAndHalt();
+
+        for (int i = 0; i < events; i++) {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+        assertTrue(pool.getStealCount() > 0);
+        assertTrue(pool.getStolenCount() >= pool.getStealCount());
+    }
+
+    private static class AtomicLongWorkHandler implements WorkHandler<AtomicLong> {
+
+        @Override
+        public void onEvent(AtomicLong event) throws Exception {
+            event.incrementAndGet();
+        }
+    }
+
+    private static class AtomicLongEventFactory implements EventFactory<AtomicLong> {
+
+        @Override
+        public AtomicLong newInstance() {
+            return new AtomicLong(0);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.lmax.disruptor;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
@@ -52,6 +55,102 @@ public class WorkerPoolTest {
         assertThat(ringBuffer.get(1).get(), is(0L));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldProcessEachMessageOnceWhenClaimingRanges() throws Exception {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(new AtomicLongEventFactory(), new FatalExceptionHandler(),
+                                                                 new AtomicLongWorkHandler(), new AtomicLongWorkHandler(),
+                                                                 new AtomicLongWorkHandler());
+        pool.setMaxClaimSize(16);
+
+        RingBuffer<AtomicLong> ringBuffer = pool.start(executor);
+
+        final int events = 1000;
+        for (int i = 0; i < events; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+
+        pool.drainAndHalt();
+
+        for (int i = 0; i < events; i++) {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldKeepGatingUnhandledPartOfRangeWhenEventIsReleased() throws Exception {
+        Executor executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+        RingBuffer<AtomicLong> ringBuffer =
+            RingBuffer.createMultiProducer(new AtomicLongEventFactory(), 16, new BlockingWaitStrategy());
+        ReleasingWorkHandler handler = new ReleasingWorkHandler();
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(ringBuffer, ringBuffer.newBarrier(),
+                                                                 new FatalExceptionHandler(), handler);
+        ringBuffer.addGatingSequences(pool.getWorkerSequences());
+        pool.setMaxClaimSize(16);
+        pool.start(executor);
+
+        ringBuffer.publish(ringBuffer.next());
+        assertTrue(handler.firstEvent.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i < 16; i++) {
+            ringBuffer.publish(ringBuffer.next());
+        }
+        handler.handleFirstEvent.countDown();
+
+        // 第二个事件之后领取了区间[2, 15]，释放序号2后，3到15仍然不能被覆盖
+        assertTrue(handler.released.await(2, TimeUnit.SECONDS));
+        assertThat(ringBuffer.remainingCapacity(), is(2L));
+
+        handler.handleReleasedEvent.countDown();
+        pool.drainAndHalt();
+
+        for (int i = 0; i < 16; i++) {
+            assertThat(ringBuffer.get(i).get(), is(1L));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotAllowClaimSizeToChangeOnceStarted() throws Exception {
+        WorkerPool<AtomicLong> pool = new WorkerPool<AtomicLong>(new AtomicLongEventFactory(), new FatalExceptionHandler(),
+                                                                 new AtomicLongWorkHandler());
+        pool.start(Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE));
+        try {
+            pool.setMaxClaimSize(16);
+        } finally {
+            pool.halt();
+        }
+    }
+
+    private static class ReleasingWorkHandler implements WorkHandler<AtomicLong>, EventReleaseAware {
+
+        private final CountDownLatch firstEvent = new CountDownLatch(1);
+        private final CountDownLatch handleFirstEvent = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch handleReleasedEvent = new CountDownLatch(1);
+        private EventReleaser eventReleaser;
+        private int count;
+
+        @Override
+        public void setEventReleaser(EventReleaser eventReleaser) {
+            this.eventReleaser = eventReleaser;
+        }
+
+        @Override
+        public void onEvent(AtomicLong event) throws Exception {
+            event.incrementAndGet();
+            if (++count == 1) {
+                firstEvent.countDown();
+                handleFirstEvent.await();
+            } else if (count == 3) {
+                eventReleaser.release();
+                released.countDown();
+                handleReleasedEvent.await();
+            }
+        }
+    }
+
     private static class AtomicLongWorkHandler implements WorkHandler<AtomicLong> {
 
         @Override
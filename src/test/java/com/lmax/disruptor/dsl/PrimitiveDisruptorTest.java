@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.dsl;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.primitive.DoubleEventHandler;
+import com.lmax.disruptor.primitive.DoubleRingBuffer;
+import com.lmax.disruptor.primitive.IntEventHandler;
+import com.lmax.disruptor.primitive.IntRingBuffer;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveDisruptorTest
+{
+    @Test
+    public void shouldRunChainedHandlersAfterEachValueIsProcessed() throws Exception
+    {
+        final PrimitiveDisruptor<int[], IntEventHandler> disruptor = new PrimitiveDisruptor<>(
+            IntRingBuffer.createSingleProducer(16, new YieldingWaitStrategy()), DaemonThreadFactory.INSTANCE);
+
+        final AtomicLong first = new AtomicLong(-1);
+        final CountDownLatch latch = new CountDownLatch(100);
+        final List<BatchEventProcessor<int[]>> firstStage = disruptor.handleEventsWith(
+            new IntEventHandler()
+            {
+                @Override
+                public void onEvent(final int value, final long sequence, final boolean endOfBatch)
+                {
+                    first.set(sequence);
+                }
+            });
+        disruptor.after(
+            firstStage, new IntEventHandler()
+            {
+                @Override
+                public void onEvent(final int value, final long sequence, final boolean endOfBatch)
+                {
+                    if (first.get() >= sequence && value == (int) sequence)
+                    {
+                        latch.countDown();
+                    }
+                }
+            });
+
+        final IntRingBuffer ringBuffer = (IntRingBuffer) disruptor.start();
+        for (int i = 0; i < 100; i++)
+        {
+            ringBuffer.put(i);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        disruptor.shutdown(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldSumBatchOfDoubles() throws Exception
+    {
+        final PrimitiveDisruptor<double[], DoubleEventHandler> disruptor = new PrimitiveDisruptor<>(
+            DoubleRingBuffer.createMultiProducer(8, new YieldingWaitStrategy()), DaemonThreadFactory.INSTANCE);
+
+        final double[] sum = new double[1];
+        final CountDownLatch latch = new CountDownLatch(20);
+        disruptor.handleEventsWith(
+            new DoubleEventHandler()
+            {
+                @Override
+                public void onEvent(final double value, final long sequence, final boolean endOfBatch)
+                {
+                    sum[0] += value;
+                    latch.countDown();
+                }
+            });
+
+        final DoubleRingBuffer ringBuffer = (DoubleRingBuffer) disruptor.start();
+        final double[] values = new double[20];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = 0.5 * i;
+        }
+        ringBuffer.put(values, 0, values.length);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        disruptor.shutdown(2, TimeUnit.SECONDS);
+        assertThat(sum[0], is(95.0));
+    }
+}
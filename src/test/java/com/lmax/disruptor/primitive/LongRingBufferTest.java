@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lmax.disruptor.primitive;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LongRingBufferTest
+{
+    private final LongRingBuffer ringBuffer = LongRingBuffer.createSingleProducer(8, new BlockingWaitStrategy());
+
+    @Test
+    public void shouldPutAndGetValues() throws Exception
+    {
+        ringBuffer.put(42L);
+        final long sequence = ringBuffer.next();
+        ringBuffer.set(sequence, 7L);
+        ringBuffer.publish(sequence);
+
+        assertThat(ringBuffer.getCursor(), is(1L));
+        assertThat(ringBuffer.get(0), is(42L));
+        assertThat(ringBuffer.get(1), is(7L));
+    }
+
+    @Test
+    public void shouldPutBatchAcrossTheWrapPoint() throws Exception
+    {
+        final Sequence consumed = new Sequence();
+        ringBuffer.addGatingSequences(consumed);
+        ringBuffer.put(new long[] {0, 1, 2, 3, 4, 5}, 0, 6);
+        consumed.set(5);
+
+        ringBuffer.put(new long[] {-1, 6, 7, 8, 9, 10, 11, -1}, 1, 6);
+
+        assertThat(ringBuffer.getCursor(), is(11L));
+        for (long sequence = 4; sequence <= 11; sequence++)
+        {
+            assertThat(ringBuffer.get(sequence), is(sequence));
+        }
+    }
+
+    @Test
+    public void shouldOnlyTryToPutWhenThereIsCapacity() throws Exception
+    {
+        ringBuffer.addGatingSequences(new Sequence());
+        for (int i = 0; i < 8; i++)
+        {
+            assertTrue(ringBuffer.tryPut(i));
+        }
+
+        assertFalse(ringBuffer.tryPut(8L));
+        assertThat(ringBuffer.getCursor(), is(7L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectBatchOutsideTheArray() throws Exception
+    {
+        ringBuffer.put(new long[4], 2, 3);
+    }
+
+    @Test
+    public void shouldDeliverValuesAndLifecycleToHandler() throws Exception
+    {
+        final LongRingBuffer ringBuffer = LongRingBuffer.createMultiProducer(16, new YieldingWaitStrategy());
+        final RecordingHandler handler = new RecordingHandler(100);
+        final BatchEventProcessor<long[]> processor = ringBuffer.newEventProcessor(ringBuffer.newBarrier(), handler);
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        final Thread thread = new Thread(processor);
+        thread.start();
+
+        final long[] batch = new long[50];
+        for (int i = 0; i < batch.length; i++)
+        {
+            batch[i] = i;
+            ringBuffer.put(i);
+        }
+        ringBuffer.put(batch, 0, batch.length);
+
+        assertTrue(handler.latch.await(2, TimeUnit.SECONDS));
+        processor.halt();
+        thread.join();
+
+        assertTrue(handler.started);
+        assertTrue(handler.shutdown);
+        for (int i = 0; i < 100; i++)
+        {
+            assertThat(handler.values.get(i), is((long) (i % 50)));
+        }
+    }
+
+    private static final class RecordingHandler implements LongEventHandler, LifecycleAware
+    {
+        private final List<Long> values = new ArrayList<>();
+        private final CountDownLatch latch;
+        private volatile boolean started;
+        private volatile boolean shutdown;
+
+        RecordingHandler(final int count)
+        {
+            this.latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onEvent(final long value, final long sequence, final boolean endOfBatch)
+        {
+            values.add(value);
+            latch.countDown();
+        }
+
+        @Override
+        public void onStart()
+        {
+            started = true;
+        }
+
+        @Override
+        public void onShutdown()
+        {
+            shutdown = true;
+        }
+    }
+}
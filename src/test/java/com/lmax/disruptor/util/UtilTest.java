@@ -30,6 +30,15 @@ public final class UtilTest
         Assert.assertEquals(1024, powerOfTwo);
     }
 
+    @Test
+    public void shouldAddAndReturnThePreviousValue()
+    {
+        final Sequence sequence = new Sequence(5);
+
+        Assert.assertEquals(5L, sequence.getAndAdd(3));
+        Assert.assertEquals(8L, sequence.get());
+    }
+
     @Test
     public void shouldReturnExactPowerOfTwo()
     {